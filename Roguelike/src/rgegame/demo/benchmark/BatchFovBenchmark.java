@@ -0,0 +1,105 @@
+/*
+ * BatchFovBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import rgegame.fieldofview.BatchFieldOfView;
+import rgegame.fieldofview.FieldOfView;
+import rgegame.fieldofview.FovBitmap;
+import rgegame.fieldofview.FovSource;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Calculates the fields of view of 2000 viewers on one map, first
+ * sequentially, then in batches with 1, 2, 4 ... worker threads.
+ * Also checks that the batch results equal the sequential results.
+ *
+ * @author Hj. Malthaner
+ */
+public class BatchFovBenchmark
+{
+    private static final int VIEWERS = 2000;
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String args[])
+    {
+        final LayeredMap map = BenchmarkMaps.makeDungeonMap(400, 300, 1);
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final Random rand = new Random(1);
+
+        final int [] xs = new int [VIEWERS];
+        final int [] ys = new int [VIEWERS];
+        final int [] distances = new int [VIEWERS];
+
+        for(int i=0; i<VIEWERS; i++) {
+            do {
+                xs[i] = rand.nextInt(map.getWidth());
+                ys[i] = rand.nextInt(map.getHeight());
+            } while(source.isBlockingLOS(xs[i], ys[i]));
+
+            distances[i] = 10 + rand.nextInt(40);
+        }
+
+        // Hajo: sequential reference
+        final FovBitmap [] expected = new FovBitmap [VIEWERS];
+        long time = Long.MAX_VALUE;
+
+        for(int round=0; round<ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+
+            for(int i=0; i<VIEWERS; i++) {
+                expected[i] = new FovBitmap();
+                expected[i].reset(xs[i], ys[i], distances[i]);
+                new FieldOfView(source, expected[i]).calculate(xs[i], ys[i], distances[i]);
+            }
+
+            time = Math.min(time, System.nanoTime() - t0);
+        }
+
+        System.out.println("sequential: " + (time / 1000000) + " ms");
+
+        final int maxThreads = Math.min(16, Runtime.getRuntime().availableProcessors());
+
+        for(int threads=1; threads<=maxThreads; threads*=2) {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            final BatchFieldOfView batch =
+                    new BatchFieldOfView(source, FieldOfView.SLOPES_DOUBLE, pool);
+            final FovBitmap [] results = batch.calculate(xs, ys, distances);
+
+            time = Long.MAX_VALUE;
+
+            for(int round=0; round<ROUNDS; round++) {
+                final long t0 = System.nanoTime();
+                batch.calculate(xs, ys, distances, results);
+                time = Math.min(time, System.nanoTime() - t0);
+            }
+
+            pool.shutdown();
+
+            int mismatches = 0;
+            for(int i=0; i<VIEWERS; i++) {
+                if(!results[i].sameCells(expected[i])) {
+                    mismatches ++;
+                }
+            }
+
+            System.out.println("batch, " + threads + " threads: " +
+                               (time / 1000000) + " ms, " +
+                               mismatches + " mismatches");
+        }
+    }
+}
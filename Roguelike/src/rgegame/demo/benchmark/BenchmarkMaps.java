@@ -0,0 +1,121 @@
+/*
+ * BenchmarkMaps.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Properties;
+
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.fieldofview.BitmapFovSource;
+import rgegame.fieldofview.FovSource;
+import rgegame.map.data.LayeredMap;
+import rgegame.map.generators.Dungeon;
+import rgegame.map.generators.MinesGenerator;
+import rgegame.map.generators.WildernessGenerator;
+
+/**
+ * Map factories and helpers shared by the benchmarks. The generator
+ * settings are the same as in the walkaround and pathfinding demos.
+ *
+ * @author Hj. Malthaner
+ */
+public class BenchmarkMaps
+{
+    /**
+     * Make a dungeon type map.
+     */
+    public static LayeredMap makeDungeonMap(int width, int height, long seed)
+    {
+        Properties props = new Properties();
+        props.setProperty("seed", "" + seed);
+        props.setProperty("map_layers", "4");
+        props.setProperty("roomGapHoriz", "7");
+        props.setProperty("roomGapVert", "3");
+        props.setProperty("floors", ".:s");
+        props.setProperty("room_floors", ".:s");
+        props.setProperty("corridor_floors", ".:s");
+
+        Dungeon dungeon = new Dungeon("", props);
+        return dungeon.generate(width, height);
+    }
+
+    /**
+     * Make a wilderness type map.
+     */
+    public static LayeredMap makeWildernessMap(int width, int height, long seed)
+    {
+        Properties props = new Properties();
+        props.setProperty("seed", "" + seed);
+        props.setProperty("map_layers", "4");
+        props.setProperty("grounds", ".:g, .:l, .:u");
+        props.setProperty("decorations.tiles", "&:u, &:l");
+        props.setProperty("decorations.chances", "100, 100");
+        props.setProperty("clusters[0].tiles", "&:o, &:g, &:l, &:u");
+        props.setProperty("clusters[0].chance", "150");
+        props.setProperty("clusters[1].tiles", "~:b, ~:e");
+        props.setProperty("clusters[1].chance", "50");
+        props.setProperty("margins", "~:u, ~:d, ~:s, 0");
+        props.setProperty("margin.width", "3");
+        props.setProperty("borders", "^:w, ^:s, ^:u");
+
+        WildernessGenerator wg = new WildernessGenerator(props);
+        return wg.generate(width, height);
+    }
+
+    /**
+     * Make a mines type map.
+     */
+    public static LayeredMap makeMinesMap(int width, int height, long seed)
+    {
+        Properties props = new Properties();
+        props.setProperty("seed", "" + seed);
+        props.setProperty("map_layers", "4");
+        props.setProperty("walls", "#:s, #:s, %:u");
+        props.setProperty("floors", ".:s");
+        props.setProperty("branch_chance", "250");
+
+        MinesGenerator mine = new MinesGenerator(props);
+        return mine.generate(width, height);
+    }
+
+    /**
+     * Line of sight blocking check, same rules as in the walkaround demo.
+     */
+    public static FovSource makeFovSource(final LayeredMap map)
+    {
+        return new BitmapFovSource(map.getCellBitmap(LayerCodes.FEATURE,
+                                                     FeatureCodes.OPAQUE));
+    }
+
+    /**
+     * Stop a self check with an exception if a condition doesn't hold,
+     * so the check exits with an error status.
+     */
+    public static void check(boolean condition, String message)
+    {
+        if(condition == false) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+
+    /**
+     * Prevent the JIT from removing benchmark results.
+     */
+    public static void consume(long value)
+    {
+        if(value == 0x123456789L) {
+            System.err.println("Unlikely: " + value);
+        }
+    }
+}
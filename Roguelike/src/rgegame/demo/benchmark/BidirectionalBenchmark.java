@@ -0,0 +1,153 @@
+/*
+ * BidirectionalBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.BidirectionalPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Paths between far apart cells of dungeon maps, searched by the one
+ * sided breadth-first Path, by A* and by the bidirectional search.
+ *
+ * The breadth-first Path doesn't count the cells it expands, they are
+ * counted through the path source: a new "from" cell of a move check
+ * is a new expanded cell. Cells whose neighbours were all visited
+ * already aren't seen that way, so the count is a bit low.
+ *
+ * @author Hj. Malthaner
+ */
+public class BidirectionalBenchmark
+{
+    private static final int QUERIES = 40;
+
+    /**
+     * Counts the cells which the breadth-first search expands.
+     */
+    private static class CountingSource implements PathSource
+    {
+        private final PathSource source;
+        private int lastX = -1;
+        private int lastY = -1;
+        long count;
+
+        CountingSource(PathSource source)
+        {
+            this.source = source;
+        }
+
+        public boolean isMoveAllowed(int fromX, int fromY, int toX, int toY)
+        {
+            if(fromX != lastX || fromY != lastY) {
+                lastX = fromX;
+                lastY = fromY;
+                count ++;
+            }
+            return source.isMoveAllowed(fromX, fromY, toX, toY);
+        }
+    }
+
+    private static void run(final LayeredMap map)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final CountingSource counter = new CountingSource(source);
+        final Random rand = new Random(1);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final int [] sx = new int [QUERIES];
+        final int [] sy = new int [QUERIES];
+        final int [] dx = new int [QUERIES];
+        final int [] dy = new int [QUERIES];
+
+        // Hajo: far apart means at least half the map size
+        for(int i=0; i<QUERIES; i++) {
+            do {
+                sx[i] = rand.nextInt(width);
+                sy[i] = rand.nextInt(height);
+                dx[i] = rand.nextInt(width);
+                dy[i] = rand.nextInt(height);
+            } while(source.isMoveAllowed(sx[i], sy[i], sx[i], sy[i]) == false ||
+                    source.isMoveAllowed(dx[i], dy[i], dx[i], dy[i]) == false ||
+                    Math.abs(sx[i] - dx[i]) + Math.abs(sy[i] - dy[i]) < (width + height) / 2);
+        }
+
+        final Path bfs = new Path();
+        final AStarPath astar = new AStarPath(width, height);
+        final BidirectionalPath bidirectional = new BidirectionalPath(width, height);
+
+        for(int round=0; round<2; round++) {
+            long bfsTime = 0;
+            long astarTime = 0;
+            long biTime = 0;
+            long bfsExpanded = 0;
+            long astarExpanded = 0;
+            long biExpanded = 0;
+            long bfsSteps = 0;
+            long biSteps = 0;
+
+            for(int i=0; i<QUERIES; i++) {
+                final CoordinatePathDestination destination =
+                        new CoordinatePathDestination(dx[i], dy[i]);
+
+                final long t0 = System.nanoTime();
+                bfs.findPath(source, destination, sx[i], sy[i]);
+                final long t1 = System.nanoTime();
+                astar.findPath(source, destination, sx[i], sy[i]);
+                final long t2 = System.nanoTime();
+                bidirectional.findPath(source, destination, sx[i], sy[i]);
+                final long t3 = System.nanoTime();
+
+                bfsTime += t1 - t0;
+                astarTime += t2 - t1;
+                biTime += t3 - t2;
+                astarExpanded += astar.getExpandedCount();
+                biExpanded += bidirectional.getExpandedCount();
+                bfsSteps += bfs.size();
+                biSteps += bidirectional.size();
+
+                counter.count = 0;
+                bfs.findPath(counter, destination, sx[i], sy[i]);
+                bfsExpanded += counter.count;
+            }
+
+            // Hajo: first round is warm up
+            if(round > 0) {
+                System.out.println("Dungeon " + width + "x" + height +
+                                   ": bfs " + (bfsTime / QUERIES / 1000) + " us/path, " +
+                                   (bfsExpanded / QUERIES) + " cells" +
+                                   "; A* " + (astarTime / QUERIES / 1000) + " us/path, " +
+                                   (astarExpanded / QUERIES) + " cells" +
+                                   "; bidirectional " + (biTime / QUERIES / 1000) + " us/path, " +
+                                   (biExpanded / QUERIES) + " cells" +
+                                   "; steps " + bfsSteps + "/" + biSteps);
+            }
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{65, 40}, {200, 150}, {400, 300}, {800, 600}};
+
+        for(int i=0; i<sizes.length; i++) {
+            run(BenchmarkMaps.makeDungeonMap(sizes[i][0], sizes[i][1], 1));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * BulkCopyBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Compares cell by cell loops with the row and region operations of
+ * the layered map: copying a map, filling regions and scanning rows,
+ * for normal and chunked layers. Also measures the time to generate
+ * a dungeon, which uses the row operations.
+ *
+ * @author Hj. Malthaner
+ */
+public class BulkCopyBenchmark
+{
+    private static final int SIZE = 2000;
+
+    private static final int LAYERS = 4;
+
+    private static final int ROUNDS = 5;
+
+    private static void copyCells(final LayeredMap source, final LayeredMap map)
+    {
+        for(int layer=0; layer<LAYERS; layer++) {
+            for(int y=0; y<SIZE; y++) {
+                for(int x=0; x<SIZE; x++) {
+                    map.set(layer, x, y, source.get(layer, x, y));
+                }
+            }
+        }
+    }
+
+    private static void copyRegions(final LayeredMap source, final LayeredMap map)
+    {
+        for(int layer=0; layer<LAYERS; layer++) {
+            map.blit(source, layer, 0, 0, SIZE, SIZE, layer, 0, 0);
+        }
+    }
+
+    private static void fillCells(final LayeredMap map, final int value)
+    {
+        for(int y=0; y<SIZE; y+=100) {
+            for(int x=0; x<SIZE; x+=100) {
+                for(int j=0; j<50; j++) {
+                    for(int i=0; i<50; i++) {
+                        map.set(1, x+i, y+j, value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void fillRegions(final LayeredMap map, final int value)
+    {
+        for(int y=0; y<SIZE; y+=100) {
+            for(int x=0; x<SIZE; x+=100) {
+                map.fillRegion(1, x, y, 50, 50, value);
+            }
+        }
+    }
+
+    private static long scanCells(final LayeredMap map)
+    {
+        long checksum = 0;
+
+        for(int y=0; y<SIZE; y++) {
+            for(int x=0; x<SIZE; x++) {
+                checksum += map.get(0, x, y);
+            }
+        }
+
+        return checksum;
+    }
+
+    private static long scanRows(final LayeredMap map, final int [] row)
+    {
+        long checksum = 0;
+
+        for(int y=0; y<SIZE; y++) {
+            map.getRow(0, y, row);
+
+            for(int x=0; x<SIZE; x++) {
+                checksum += row[x];
+            }
+        }
+
+        return checksum;
+    }
+
+    private static void run(final String name, final LayeredMap source,
+                            final LayeredMap a, final LayeredMap b)
+    {
+        final int [] row = new int [SIZE];
+        final long cells = (long)SIZE * SIZE;
+
+        for(int round=0; round<ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            copyCells(source, a);
+            final long t1 = System.nanoTime();
+            copyRegions(source, b);
+            final long t2 = System.nanoTime();
+            fillCells(a, round + 1);
+            final long t3 = System.nanoTime();
+            fillRegions(b, round + 1);
+            final long t4 = System.nanoTime();
+            final long sa = scanCells(a);
+            final long t5 = System.nanoTime();
+            final long sb = scanRows(b, row);
+            final long t6 = System.nanoTime();
+
+            BenchmarkMaps.consume(sa + sb);
+
+            // Hajo: first rounds are warm up
+            if(round == ROUNDS - 1) {
+                System.out.println(name + ": copy " + ((t1 - t0) / 1000000) + " ms -> " +
+                                   ((t2 - t1) / 1000000) + " ms" +
+                                   ", fill " + ((t3 - t2) / 1000) + " us -> " +
+                                   ((t4 - t3) / 1000) + " us" +
+                                   ", scan " + ((t5 - t4) * 100 / cells) / 100.0 + " ns -> " +
+                                   ((t6 - t5) * 100 / cells) / 100.0 + " ns/cell" +
+                                   ", same " + (sa == sb && same(a, b)));
+            }
+        }
+    }
+
+    private static boolean same(final LayeredMap a, final LayeredMap b)
+    {
+        for(int layer=0; layer<LAYERS; layer++) {
+            for(int y=0; y<SIZE; y++) {
+                for(int x=0; x<SIZE; x++) {
+                    if(a.get(layer, x, y) != b.get(layer, x, y)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void runDungeon()
+    {
+        long best = Long.MAX_VALUE;
+
+        for(int round=0; round<ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            final LayeredMap map = BenchmarkMaps.makeDungeonMap(SIZE, SIZE, round);
+            final long t1 = System.nanoTime();
+
+            BenchmarkMaps.consume(map.get(0, 0, 0));
+            best = Math.min(best, t1 - t0);
+        }
+
+        System.out.println("dungeon " + SIZE + "x" + SIZE + ": generate " + (best / 1000000) + " ms");
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap source = BenchmarkMaps.makeDungeonMap(SIZE, SIZE, 1);
+
+        run("normal", source,
+            new LayeredMap(LAYERS, SIZE, SIZE),
+            new LayeredMap(LAYERS, SIZE, SIZE));
+
+        run("chunked", source,
+            new LayeredMap(LAYERS, SIZE, SIZE, null),
+            new LayeredMap(LAYERS, SIZE, SIZE, null));
+
+        runDungeon();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * ChunkedMapBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import rgegame.map.data.ChunkPager;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Builds a 100000x100000 world with a few settlements in chunked
+ * layers, with a pager that keeps 4096 chunks in memory, and measures
+ * the memory and the time to read cells while walking around. Also
+ * compares cell reads of normal and chunked layers on a small map.
+ *
+ * @author Hj. Malthaner
+ */
+public class ChunkedMapBenchmark
+{
+    private static final int LAYERS = 4;
+
+    private static final int WORLD = 100000;
+
+    private static final int SETTLEMENTS = 100;
+
+    private static final int SETTLEMENT_SIZE = 256;
+
+    private static final int RESIDENT = 4096;
+
+    private static final int WALK_STEPS = 10000000;
+
+    private static void fill(final LayeredMap map, final Random rand,
+                             final int x0, final int y0, final int size)
+    {
+        for(int y=y0; y<y0+size; y++) {
+            for(int x=x0; x<x0+size; x++) {
+                map.set(0, x, y, 1 + rand.nextInt(20));
+
+                if(rand.nextInt(8) == 0) {
+                    map.set(1, x, y, 1 + rand.nextInt(100));
+                }
+            }
+        }
+
+        map.setScript(x0, y0, "say Welcome");
+    }
+
+    /**
+     * Walk around randomly in the settlements, jumping to another
+     * settlement now and then.
+     */
+    private static long walk(final LayeredMap map, final int [] sx, final int [] sy,
+                             final Random rand, final int steps)
+    {
+        long checksum = 0;
+        int settlement = 0;
+        int x = sx[0];
+        int y = sy[0];
+
+        for(int i=0; i<steps; i++) {
+            if(rand.nextInt(100000) == 0) {
+                settlement = rand.nextInt(sx.length);
+                x = sx[settlement] + SETTLEMENT_SIZE / 2;
+                y = sy[settlement] + SETTLEMENT_SIZE / 2;
+            }
+
+            x += rand.nextInt(3) - 1;
+            y += rand.nextInt(3) - 1;
+
+            checksum += map.get(0, x, y) + map.get(1, x, y);
+        }
+
+        return checksum;
+    }
+
+    private static void runWorld() throws IOException
+    {
+        final File spillFile = File.createTempFile("chunks", ".bin");
+        spillFile.deleteOnExit();
+
+        final long before = usedMemory();
+        final long t0 = System.nanoTime();
+
+        final ChunkPager pager = new ChunkPager(spillFile, RESIDENT);
+        final LayeredMap map = new LayeredMap(LAYERS, WORLD, WORLD, pager);
+        final Random rand = new Random(1);
+        final int [] sx = new int [SETTLEMENTS];
+        final int [] sy = new int [SETTLEMENTS];
+
+        for(int i=0; i<SETTLEMENTS; i++) {
+            sx[i] = rand.nextInt(WORLD - SETTLEMENT_SIZE);
+            sy[i] = rand.nextInt(WORLD - SETTLEMENT_SIZE);
+            fill(map, rand, sx[i], sy[i], SETTLEMENT_SIZE);
+        }
+
+        final long t1 = System.nanoTime();
+        final long used = usedMemory() - before;
+
+        final int pageIns = pager.getPageInCount();
+        final long t2 = System.nanoTime();
+        final long checksum = walk(map, sx, sy, new Random(2), WALK_STEPS);
+        final long t3 = System.nanoTime();
+
+        System.out.println(WORLD + "x" + WORLD + "x" + LAYERS +
+                           ", " + SETTLEMENTS + " settlements of " +
+                           SETTLEMENT_SIZE + "x" + SETTLEMENT_SIZE +
+                           ": build " + ((t1 - t0) / 1000000) + " ms" +
+                           ", heap " + (used >> 20) + " MB" +
+                           ", spill file " + (pager.getSpillFileSize() >> 20) + " MB" +
+                           ", dense layers would need " +
+                           ((long)WORLD * WORLD * LAYERS * 12 >> 30) + " GB");
+        System.out.println("  walk: " + ((t3 - t2) / (WALK_STEPS * 2L)) + " ns/read" +
+                           ", " + (pager.getPageInCount() - pageIns) + " page ins" +
+                           ", " + map.getScript(sx[0], sy[0]));
+
+        BenchmarkMaps.consume(checksum);
+        pager.close();
+        spillFile.delete();
+    }
+
+    private static long scan(final LayeredMap map)
+    {
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+        long checksum = 0;
+
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                checksum += map.get(0, x, y);
+            }
+        }
+
+        return checksum;
+    }
+
+    private static void runSmall()
+    {
+        final LayeredMap dungeon = BenchmarkMaps.makeDungeonMap(2000, 2000, 1);
+        final LayeredMap chunked = new LayeredMap(LAYERS, 2000, 2000, null);
+
+        chunked.insert(dungeon, 0, 0, 2000, 2000, 0, 0);
+
+        for(int round=0; round<5; round++) {
+            final long t0 = System.nanoTime();
+            final long a = scan(dungeon);
+            final long t1 = System.nanoTime();
+            final long b = scan(chunked);
+            final long t2 = System.nanoTime();
+
+            // Hajo: first rounds are warm up
+            if(round == 4) {
+                final long cells = 2000L * 2000;
+
+                System.out.println("2000x2000 scan: normal " + ((t1 - t0) * 100 / cells) / 100.0 + " ns/read" +
+                                   ", chunked " + ((t2 - t1) * 100 / cells) / 100.0 + " ns/read" +
+                                   ", same " + (a == b));
+            }
+        }
+    }
+
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for(int i=0; i<3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String args[]) throws IOException
+    {
+        runSmall();
+        runWorld();
+    }
+}
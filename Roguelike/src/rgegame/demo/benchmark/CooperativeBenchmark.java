@@ -0,0 +1,306 @@
+/*
+ * CooperativeBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.CooperativePlanner;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Many agents walking between a few places of a dungeon. Compared are
+ * independent A* paths, where an agent waits if the next cell is taken
+ * and searches a new path around the other agents if it had to wait
+ * twice, and the cooperative planner, which plans all agents together
+ * every few turns. Counts the turns in which two agents stood in the
+ * same cell or swapped places.
+ *
+ * @author Hj. Malthaner
+ */
+public class CooperativeBenchmark
+{
+    private static final int AGENTS = 500;
+
+    private static final int PLACES = 40;
+
+    private static final int TURNS = 200;
+
+    private static final int WINDOW = 16;
+
+    /** The cooperative plans are renewed after this many turns */
+    private static final int REPLAN = WINDOW / 2;
+
+    /**
+     * Walkable cells of the map which no agent stands on.
+     */
+    private static class FreeCellSource implements PathSource
+    {
+        private final PathSource source;
+        private final int [] occupied;
+        private final int width;
+
+        FreeCellSource(PathSource source, int [] occupied, int width)
+        {
+            this.source = source;
+            this.occupied = occupied;
+            this.width = width;
+        }
+
+        public boolean isMoveAllowed(int fromX, int fromY, int toX, int toY)
+        {
+            return occupied[toY*width + toX] == 0 &&
+                   source.isMoveAllowed(fromX, fromY, toX, toY);
+        }
+    }
+
+    private final LayeredMap map;
+    private final PathSource source;
+    private final int width;
+    private final int height;
+
+    private final int [] px = new int [PLACES];
+    private final int [] py = new int [PLACES];
+
+    private final int [] startX = new int [AGENTS];
+    private final int [] startY = new int [AGENTS];
+
+    private CooperativeBenchmark(final LayeredMap map)
+    {
+        this.map = map;
+        this.source = new PathSourceLink(map);
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+
+        final Random rand = new Random(1);
+        final boolean [] taken = new boolean [width * height];
+
+        for(int i=0; i<PLACES; i++) {
+            randomCell(rand, px, py, i);
+        }
+
+        for(int i=0; i<AGENTS; i++) {
+            do {
+                randomCell(rand, startX, startY, i);
+            } while(taken[startY[i]*width + startX[i]]);
+
+            taken[startY[i]*width + startX[i]] = true;
+        }
+    }
+
+    private void randomCell(final Random rand, final int [] x, final int [] y, final int i)
+    {
+        do {
+            x[i] = rand.nextInt(width);
+            y[i] = rand.nextInt(height);
+        } while(source.isMoveAllowed(x[i], y[i], x[i], y[i]) == false);
+    }
+
+    /**
+     * Count cells which hold more than one agent, and agents which
+     * swapped places with another agent.
+     */
+    private int countCollisions(final int [] oldX, final int [] oldY,
+                                final int [] x, final int [] y, final int [] occupied)
+    {
+        int collisions = 0;
+
+        for(int i=0; i<AGENTS; i++) {
+            if(occupied[y[i]*width + x[i]] > 1) {
+                collisions ++;
+            }
+
+            for(int j=i+1; j<AGENTS; j++) {
+                if(x[i] == oldX[j] && y[i] == oldY[j] &&
+                   x[j] == oldX[i] && y[j] == oldY[i] &&
+                   (x[i] != x[j] || y[i] != y[j])) {
+                    collisions ++;
+                }
+            }
+        }
+
+        return collisions;
+    }
+
+    private void runIndependent()
+    {
+        final Random rand = new Random(2);
+        final int [] x = startX.clone();
+        final int [] y = startY.clone();
+        final int [] oldX = new int [AGENTS];
+        final int [] oldY = new int [AGENTS];
+        final int [] goal = new int [AGENTS];
+        final int [] waits = new int [AGENTS];
+        final int [] occupied = new int [width * height];
+        final Path [] paths = new Path [AGENTS];
+        final AStarPath astar = new AStarPath(width, height);
+        final PathSource freeCells = new FreeCellSource(source, occupied, width);
+
+        long planTime = 0;
+        int searches = 0;
+        int arrivals = 0;
+        int collisions = 0;
+
+        for(int i=0; i<AGENTS; i++) {
+            occupied[y[i]*width + x[i]] ++;
+            goal[i] = rand.nextInt(PLACES);
+        }
+
+        for(int turn=0; turn<TURNS; turn++) {
+            final long t0 = System.nanoTime();
+
+            for(int i=0; i<AGENTS; i++) {
+                oldX[i] = x[i];
+                oldY[i] = y[i];
+
+                if(x[i] == px[goal[i]] && y[i] == py[goal[i]]) {
+                    arrivals ++;
+                    goal[i] = rand.nextInt(PLACES);
+                    paths[i] = null;
+                }
+
+                if(paths[i] == null || waits[i] >= 2) {
+                    // Hajo: after waiting twice, search around the others
+                    final PathSource pathSource = waits[i] >= 2 ? freeCells : source;
+                    final Path path = new Path();
+
+                    astar.findPath(pathSource,
+                                   new CoordinatePathDestination(px[goal[i]], py[goal[i]]),
+                                   x[i], y[i]);
+                    path.setPackedSteps(astar.getPackedSteps());
+                    path.advance();
+                    paths[i] = path;
+                    waits[i] = 0;
+                    searches ++;
+                }
+
+                final Path.Node node = paths[i].currentStep();
+
+                if(node == null) {
+                    paths[i] = null;
+                } else if(occupied[node.y*width + node.x] > 0) {
+                    waits[i] ++;
+                } else {
+                    occupied[y[i]*width + x[i]] --;
+                    x[i] = node.x;
+                    y[i] = node.y;
+                    occupied[y[i]*width + x[i]] ++;
+                    paths[i].advance();
+                }
+            }
+
+            planTime += System.nanoTime() - t0;
+            collisions += countCollisions(oldX, oldY, x, y, occupied);
+        }
+
+        System.out.println("Independent A*: " + (planTime / TURNS / 1000) + " us/turn" +
+                           ", " + searches + " searches" +
+                           ", " + arrivals + " arrivals" +
+                           ", " + collisions + " collisions");
+    }
+
+    private void runCooperative()
+    {
+        final Random rand = new Random(2);
+        final int [] x = startX.clone();
+        final int [] y = startY.clone();
+        final int [] oldX = new int [AGENTS];
+        final int [] oldY = new int [AGENTS];
+        final int [] gx = new int [AGENTS];
+        final int [] gy = new int [AGENTS];
+        final int [] occupied = new int [width * height];
+        final CooperativePlanner planner =
+                new CooperativePlanner(width, height, WINDOW, PLACES);
+
+        Path [] plans = null;
+        long planTime = 0;
+        long expanded = 0;
+        int batches = 0;
+        int arrivals = 0;
+        int collisions = 0;
+        int step = 0;
+
+        for(int i=0; i<AGENTS; i++) {
+            occupied[y[i]*width + x[i]] ++;
+
+            final int goal = rand.nextInt(PLACES);
+            gx[i] = px[goal];
+            gy[i] = py[goal];
+        }
+
+        for(int turn=0; turn<TURNS; turn++) {
+            if(turn % REPLAN == 0) {
+                final long t0 = System.nanoTime();
+                plans = planner.plan(source, x, y, gx, gy);
+                planTime += System.nanoTime() - t0;
+                expanded += planner.getExpandedCount();
+                batches ++;
+                step = 0;
+            }
+
+            step ++;
+
+            for(int i=0; i<AGENTS; i++) {
+                oldX[i] = x[i];
+                oldY[i] = y[i];
+
+                final Path.Node node = plans[i].getStep(step);
+
+                if(node != null) {
+                    occupied[y[i]*width + x[i]] --;
+                    x[i] = node.x;
+                    y[i] = node.y;
+                    occupied[y[i]*width + x[i]] ++;
+                }
+
+                if(x[i] == gx[i] && y[i] == gy[i]) {
+                    // Hajo: the new goal is used from the next plan on
+                    arrivals ++;
+
+                    final int goal = rand.nextInt(PLACES);
+                    gx[i] = px[goal];
+                    gy[i] = py[goal];
+                }
+            }
+
+            collisions += countCollisions(oldX, oldY, x, y, occupied);
+        }
+
+        System.out.println("Cooperative, window " + WINDOW + ": " +
+                           (planTime / TURNS / 1000) + " us/turn" +
+                           ", " + (planTime / batches / 1000) + " us/plan of all agents" +
+                           ", " + (expanded / batches / AGENTS) + " states/agent" +
+                           ", " + arrivals + " arrivals" +
+                           ", " + collisions + " collisions");
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap map = BenchmarkMaps.makeDungeonMap(200, 200, 1);
+        final CooperativeBenchmark benchmark = new CooperativeBenchmark(map);
+
+        System.out.println("Dungeon " + map.getWidth() + "x" + map.getHeight() +
+                           ", " + AGENTS + " agents, " + PLACES + " places, " +
+                           TURNS + " turns");
+
+        for(int round=0; round<2; round++) {
+            benchmark.runIndependent();
+            benchmark.runCooperative();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * DistanceMapBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.DistanceMap;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Many monsters chasing the player on dungeon maps: one A* search
+ * per monster and turn, compared with one shared distance map per
+ * turn, calculated from scratch or updated after the player moved.
+ * Also compares updates with full calculations when single cells
+ * are walled up and opened again, like doors.
+ *
+ * @author Hj. Malthaner
+ */
+public class DistanceMapBenchmark
+{
+    private static final int MONSTERS = 500;
+
+    private static final int TURNS = 20;
+
+    private static void run(final LayeredMap map)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(1);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final int [] mx = new int [MONSTERS];
+        final int [] my = new int [MONSTERS];
+
+        for(int i=0; i<MONSTERS; i++) {
+            do {
+                mx[i] = rand.nextInt(width);
+                my[i] = rand.nextInt(height);
+            } while(source.isMoveAllowed(mx[i], my[i], mx[i], my[i]) == false);
+        }
+
+        // Hajo: the player walks along a path, one step per turn
+        final int [] px = new int [TURNS];
+        final int [] py = new int [TURNS];
+        final AStarPath walk = new AStarPath(width, height);
+
+        do {
+            int sx, sy, dx, dy;
+
+            do {
+                sx = rand.nextInt(width);
+                sy = rand.nextInt(height);
+                dx = rand.nextInt(width);
+                dy = rand.nextInt(height);
+            } while(source.isMoveAllowed(sx, sy, sx, sy) == false ||
+                    source.isMoveAllowed(dx, dy, dx, dy) == false);
+
+            walk.findPath(source, new CoordinatePathDestination(dx, dy), sx, sy);
+        } while(walk.size() < TURNS);
+
+        for(int t=0; t<TURNS; t++) {
+            px[t] = walk.getStep(t).x;
+            py[t] = walk.getStep(t).y;
+        }
+
+        final AStarPath astar = new AStarPath(width, height);
+        final DistanceMap full = new DistanceMap(width, height);
+        final DistanceMap incremental = new DistanceMap(width, height);
+
+        incremental.addGoal(px[0], py[0]);
+        incremental.calculate(source);
+
+        for(int round=0; round<4; round++) {
+            long checksum = 0;
+
+            final long t0 = System.nanoTime();
+
+            for(int t=0; t<TURNS; t++) {
+                final CoordinatePathDestination player =
+                        new CoordinatePathDestination(px[t], py[t]);
+
+                for(int i=0; i<MONSTERS; i++) {
+                    if(astar.findPath(source, player, mx[i], my[i]) && astar.size() > 1) {
+                        checksum += astar.getStep(1).x;
+                    }
+                }
+            }
+
+            final long t1 = System.nanoTime();
+
+            for(int t=0; t<TURNS; t++) {
+                full.clearGoals();
+                full.addGoal(px[t], py[t]);
+                full.calculate(source);
+
+                for(int i=0; i<MONSTERS; i++) {
+                    checksum += full.getNextStep(mx[i], my[i]);
+                }
+            }
+
+            final long t2 = System.nanoTime();
+
+            for(int t=1; t<TURNS; t++) {
+                incremental.removeGoal(px[t-1], py[t-1]);
+                incremental.addGoal(px[t], py[t]);
+                incremental.update();
+
+                for(int i=0; i<MONSTERS; i++) {
+                    checksum += incremental.getNextStep(mx[i], my[i]);
+                }
+            }
+
+            final long t3 = System.nanoTime();
+
+            // Hajo: jump back for the next round
+            incremental.removeGoal(px[TURNS-1], py[TURNS-1]);
+            incremental.addGoal(px[0], py[0]);
+            incremental.update();
+
+            BenchmarkMaps.consume(checksum);
+
+            if(round == 3) {
+                System.out.println("Dungeon " + width + "x" + height + " " +
+                                   MONSTERS + " monsters: A* per monster " +
+                                   ((t1-t0) / TURNS / 1000) + " us/turn, distance map " +
+                                   ((t2-t1) / TURNS / 1000) + " us/turn, updated distance map " +
+                                   ((t3-t2) / (TURNS-1) / 1000) + " us/turn");
+            }
+        }
+    }
+
+    /**
+     * Wall up random open cells and open them again, with a fixed goal.
+     */
+    private static void runDoors(final LayeredMap map)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(2);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final int [] dx = new int [TURNS];
+        final int [] dy = new int [TURNS];
+
+        for(int t=0; t<TURNS; t++) {
+            do {
+                dx[t] = rand.nextInt(width);
+                dy[t] = rand.nextInt(height);
+            } while(map.get(LayerCodes.FEATURE, dx[t], dy[t]) != FeatureCodes.OPEN);
+        }
+
+        int gx, gy;
+
+        do {
+            gx = rand.nextInt(width);
+            gy = rand.nextInt(height);
+        } while(source.isMoveAllowed(gx, gy, gx, gy) == false);
+
+        final DistanceMap full = new DistanceMap(width, height);
+        final DistanceMap incremental = new DistanceMap(width, height);
+
+        full.addGoal(gx, gy);
+        incremental.addGoal(gx, gy);
+        incremental.calculate(source);
+
+        for(int round=0; round<4; round++) {
+            long fullTime = 0;
+            long updateTime = 0;
+
+            for(int t=0; t<TURNS; t++) {
+                for(int pass=0; pass<2; pass++) {
+                    map.set(LayerCodes.FEATURE, dx[t], dy[t],
+                            pass == 0 ? FeatureCodes.WALL_ROCK : FeatureCodes.OPEN);
+
+                    final long t0 = System.nanoTime();
+                    full.calculate(source);
+                    final long t1 = System.nanoTime();
+                    incremental.cellChanged(dx[t], dy[t]);
+                    incremental.update();
+                    final long t2 = System.nanoTime();
+
+                    fullTime += t1 - t0;
+                    updateTime += t2 - t1;
+                }
+            }
+
+            if(round == 3) {
+                System.out.println("Dungeon " + width + "x" + height +
+                                   " door changes: distance map " +
+                                   (fullTime / TURNS / 2000) + " us/change, updated distance map " +
+                                   (updateTime / TURNS / 2000) + " us/change");
+            }
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{65, 40}, {200, 150}, {400, 300}};
+
+        for(int i=0; i<sizes.length; i++) {
+            final LayeredMap map = BenchmarkMaps.makeDungeonMap(sizes[i][0], sizes[i][1], 1);
+            run(map);
+            runDoors(map);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * FovAllocationCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import rgegame.fieldofview.FieldOfView;
+import rgegame.fieldofview.FovSource;
+import rgegame.fieldofview.VisibilityGrid;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Checks that FieldOfView.calculate() allocates nothing once it is
+ * warmed up, with both slope modes, on dungeon, wilderness and mines
+ * maps. Allocations are counted by the JVM for the current thread,
+ * this needs a JVM which supports it, like HotSpot.
+ *
+ * Ends with an exception if a warmed up call allocates memory.
+ *
+ * @author Hj. Malthaner
+ */
+public class FovAllocationCheck
+{
+    private static final int VIEWERS = 200;
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static void check(final String name, final LayeredMap map,
+                              final com.sun.management.ThreadMXBean threads)
+    {
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final VisibilityGrid grid = new VisibilityGrid(map.getWidth(), map.getHeight());
+        final Random rand = new Random(1);
+
+        final int [] xs = new int [VIEWERS];
+        final int [] ys = new int [VIEWERS];
+
+        for(int i=0; i<VIEWERS; i++) {
+            do {
+                xs[i] = rand.nextInt(map.getWidth());
+                ys[i] = rand.nextInt(map.getHeight());
+            } while(source.isBlockingLOS(xs[i], ys[i]));
+        }
+
+        final int [] modes = {FieldOfView.SLOPES_DOUBLE, FieldOfView.SLOPES_EXACT};
+
+        for(int m=0; m<modes.length; m++) {
+            final FieldOfView fov = new FieldOfView(source, grid, modes[m]);
+            final long id = Thread.currentThread().getId();
+
+            // Hajo: let the lists grow to their final size and the JIT
+            // compile the code
+            for(int round=0; round<WARMUP_ROUNDS; round++) {
+                for(int i=0; i<VIEWERS; i++) {
+                    grid.beginView();
+                    fov.calculate(xs[i], ys[i], 20 + i % 40);
+                }
+            }
+
+            long total = 0;
+            long worst = 0;
+
+            for(int i=0; i<VIEWERS; i++) {
+                grid.beginView();
+
+                final long before = threads.getThreadAllocatedBytes(id);
+                fov.calculate(xs[i], ys[i], 20 + i % 40);
+                final long bytes = threads.getThreadAllocatedBytes(id) - before;
+
+                total += bytes;
+                worst = Math.max(worst, bytes);
+            }
+
+            System.out.println(name + ", " + (modes[m] == FieldOfView.SLOPES_EXACT ? "exact" : "double") +
+                               " slopes: " + total + " bytes in " + VIEWERS +
+                               " calls, at most " + worst + " bytes per call");
+
+            BenchmarkMaps.check(total == 0, name + " calculate() allocates memory");
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if(bean instanceof com.sun.management.ThreadMXBean == false) {
+            throw new IllegalStateException("This JVM can't count allocations.");
+        }
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        check("Dungeon", BenchmarkMaps.makeDungeonMap(400, 300, 1), threads);
+        check("Wilderness", BenchmarkMaps.makeWildernessMap(400, 300, 1), threads);
+        check("Mines", BenchmarkMaps.makeMinesMap(400, 300, 1), threads);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * FovBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.fieldofview.FieldOfView;
+import rgegame.fieldofview.FovBitmap;
+import rgegame.fieldofview.FovDestination;
+import rgegame.fieldofview.FovSource;
+import rgegame.fieldofview.LineOfSight;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Compares the double and the exact slope modes of the field of
+ * view calculation on dungeon and wilderness maps, and point to
+ * point line of sight checks with full field of view calculations.
+ *
+ * @author Hj. Malthaner
+ */
+public class FovBenchmark
+{
+    private static final int [] RADII = {20, 60, 120};
+
+    private static final int ORIGINS = 200;
+
+    /**
+     * Counts visible cells, so the JIT can't drop the calculation.
+     */
+    private static class CountingDestination implements FovDestination
+    {
+        long count;
+
+        public void setCanBeSeen(int posX, int posY)
+        {
+            count ++;
+        }
+    }
+
+    /**
+     * Time field of view calculations from random open origins.
+     */
+    private static void run(final String name, final LayeredMap map)
+    {
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final Random rand = new Random(1);
+
+        final int [] xs = new int [ORIGINS];
+        final int [] ys = new int [ORIGINS];
+
+        for(int i=0; i<ORIGINS; i++) {
+            do {
+                xs[i] = rand.nextInt(map.getWidth());
+                ys[i] = rand.nextInt(map.getHeight());
+            } while(source.isBlockingLOS(xs[i], ys[i]));
+        }
+
+        for(final int radius : RADII) {
+            for(int mode = FieldOfView.SLOPES_DOUBLE; mode <= FieldOfView.SLOPES_EXACT; mode ++) {
+                final CountingDestination destination = new CountingDestination();
+                final FieldOfView fov = new FieldOfView(source, destination, mode);
+
+                // Hajo: warm up
+                for(int i=0; i<ORIGINS; i++) {
+                    fov.calculate(xs[i], ys[i], radius);
+                }
+
+                destination.count = 0;
+                final long t0 = System.nanoTime();
+
+                for(int i=0; i<ORIGINS; i++) {
+                    fov.calculate(xs[i], ys[i], radius);
+                }
+
+                final long t1 = System.nanoTime();
+
+                System.out.println(name + " radius=" + radius +
+                                   (mode == FieldOfView.SLOPES_EXACT ? " exact " : " double") +
+                                   " " + ((t1-t0) / ORIGINS / 1000) + " us/fov" +
+                                   " cells=" + (destination.count / ORIGINS));
+            }
+        }
+    }
+
+    /**
+     * Time "can A see B" checks, once with LineOfSight and once
+     * with a full field of view calculation from A.
+     */
+    private static void runLineOfSight(final String name, final LayeredMap map)
+    {
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final Random rand = new Random(1);
+        final int pairs = ORIGINS * 10;
+        final int distance = 20;
+
+        final int [] ax = new int [pairs];
+        final int [] ay = new int [pairs];
+        final int [] bx = new int [pairs];
+        final int [] by = new int [pairs];
+
+        for(int i=0; i<pairs; i++) {
+            do {
+                ax[i] = rand.nextInt(map.getWidth());
+                ay[i] = rand.nextInt(map.getHeight());
+            } while(source.isBlockingLOS(ax[i], ay[i]));
+
+            bx[i] = ax[i] + rand.nextInt(distance*2) - distance;
+            by[i] = ay[i] + rand.nextInt(distance*2) - distance;
+        }
+
+        final LineOfSight los = new LineOfSight(source);
+        final FovBitmap bitmap = new FovBitmap();
+        final FieldOfView fov = new FieldOfView(source, bitmap);
+
+        for(int round=0; round<2; round++) {
+            int seen = 0;
+            final long t0 = System.nanoTime();
+
+            for(int i=0; i<pairs; i++) {
+                if(los.canSee(ax[i], ay[i], bx[i], by[i], distance)) {
+                    seen ++;
+                }
+            }
+
+            final long t1 = System.nanoTime();
+            int seenFov = 0;
+
+            for(int i=0; i<pairs; i++) {
+                bitmap.reset(ax[i], ay[i], distance);
+                fov.calculate(ax[i], ay[i], distance);
+                if(bitmap.isVisible(bx[i], by[i])) {
+                    seenFov ++;
+                }
+            }
+
+            final long t2 = System.nanoTime();
+
+            if(round > 0) {
+                System.out.println(name + " line of sight " +
+                                   ((t1-t0) / pairs) + " ns/check, full fov " +
+                                   ((t2-t1) / pairs) + " ns/check, seen " +
+                                   seen + "/" + seenFov);
+            }
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap dungeon = BenchmarkMaps.makeDungeonMap(400, 300, 1);
+        final LayeredMap wilderness = BenchmarkMaps.makeWildernessMap(400, 300, 1);
+
+        run("Dungeon", dungeon);
+        run("Wilderness", wilderness);
+
+        runLineOfSight("Dungeon", dungeon);
+        runLineOfSight("Wilderness", wilderness);
+    }
+}
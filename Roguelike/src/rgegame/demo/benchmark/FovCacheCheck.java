@@ -0,0 +1,155 @@
+/*
+ * FovCacheCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.fieldofview.FieldOfView;
+import rgegame.fieldofview.FovBitmap;
+import rgegame.fieldofview.FovCache;
+import rgegame.fieldofview.FovSource;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Checks that closing a door only invalidates the cached fields of
+ * view which can see the door. Fills a FovCache with 400 origins on a
+ * dungeon map, closes a door, and asks for all origins again: the
+ * origins which saw the door must be calculated again, all others
+ * must be answered from the cache, and all results must equal a fresh
+ * calculation. Changes of other layers must invalidate nothing.
+ *
+ * Ends with an exception if a check fails.
+ *
+ * @author Hj. Malthaner
+ */
+public class FovCacheCheck
+{
+    private static final int ORIGINS = 400;
+
+    private static final int RADIUS = 12;
+
+    private static FovBitmap fresh(final FovSource source, final int x, final int y)
+    {
+        final FovBitmap result = new FovBitmap();
+        result.reset(x, y, RADIUS);
+        new FieldOfView(source, result).calculate(x, y, RADIUS);
+        return result;
+    }
+
+    private static boolean isFloor(final LayeredMap map, final int x, final int y)
+    {
+        return FeatureCodes.getFeature(map.get(LayerCodes.FEATURE, x, y)) == FeatureCodes.OPEN;
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap map = BenchmarkMaps.makeDungeonMap(200, 150, 1);
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final Random rand = new Random(1);
+
+        // Hajo: an open door on a floor cell, so the check doesn't
+        // depend on the doors the generator placed
+        int doorX, doorY;
+
+        do {
+            doorX = rand.nextInt(map.getWidth());
+            doorY = rand.nextInt(map.getHeight());
+        } while(isFloor(map, doorX, doorY) == false);
+
+        final int color = map.get(LayerCodes.FEATURE, doorX, doorY) & ~0xFFFF;
+        map.set(LayerCodes.FEATURE, doorX, doorY, FeatureCodes.DOOR_OPEN + color);
+
+        // Hajo: distinct origins, some of them near the door
+        final int [] xs = new int [ORIGINS];
+        final int [] ys = new int [ORIGINS];
+        final boolean [] used = new boolean [map.getWidth() * map.getHeight()];
+
+        for(int i=0, tries=0; i<ORIGINS; i++) {
+            do {
+                tries ++;
+
+                if(i % 2 == 0 && tries < 10000) {
+                    xs[i] = Math.max(0, Math.min(map.getWidth() - 1, doorX + rand.nextInt(31) - 15));
+                    ys[i] = Math.max(0, Math.min(map.getHeight() - 1, doorY + rand.nextInt(31) - 15));
+                } else {
+                    xs[i] = rand.nextInt(map.getWidth());
+                    ys[i] = rand.nextInt(map.getHeight());
+                }
+            } while(isFloor(map, xs[i], ys[i]) == false || used[ys[i]*map.getWidth() + xs[i]]);
+
+            used[ys[i]*map.getWidth() + xs[i]] = true;
+        }
+
+        final FovCache cache = new FovCache(map, LayerCodes.FEATURE, source, ORIGINS * 2);
+        final boolean [] seesDoor = new boolean [ORIGINS];
+        int seeing = 0;
+
+        for(int i=0; i<ORIGINS; i++) {
+            seesDoor[i] = cache.calculate(xs[i], ys[i], RADIUS).isVisible(doorX, doorY);
+
+            if(seesDoor[i]) {
+                seeing ++;
+            }
+        }
+
+        BenchmarkMaps.check(seeing > 0 && seeing < ORIGINS,
+                            "the door must be seen by some, but not all origins");
+
+        // Hajo: other layers don't block the line of sight
+        long hits = cache.getHits();
+        map.set(LayerCodes.ITEMS, doorX, doorY, '!');
+
+        for(int i=0; i<ORIGINS; i++) {
+            cache.calculate(xs[i], ys[i], RADIUS);
+        }
+
+        System.out.println("item dropped: " + (cache.getHits() - hits) + " of " + ORIGINS + " hits");
+        BenchmarkMaps.check(cache.getHits() - hits == ORIGINS,
+                            "a change of another layer invalidated entries");
+
+        // Hajo: now close the door
+        hits = cache.getHits();
+        final long misses = cache.getMisses();
+        final long invalidations = cache.getInvalidations();
+
+        map.set(LayerCodes.FEATURE, doorX, doorY, FeatureCodes.DOOR_SHUT + color);
+
+        final long dropped = cache.getInvalidations() - invalidations;
+        int wrong = 0;
+
+        for(int i=0; i<ORIGINS; i++) {
+            final long before = cache.getMisses();
+            final FovBitmap result = cache.calculate(xs[i], ys[i], RADIUS);
+            final boolean recalculated = cache.getMisses() != before;
+
+            if(recalculated != seesDoor[i] || result.sameCells(fresh(source, xs[i], ys[i])) == false) {
+                wrong ++;
+            }
+        }
+
+        System.out.println("door closed: " + seeing + " of " + ORIGINS + " origins saw the door, " +
+                           dropped + " entries dropped, " +
+                           (cache.getMisses() - misses) + " misses, " +
+                           (cache.getHits() - hits) + " hits, " +
+                           wrong + " wrong results");
+
+        BenchmarkMaps.check(dropped == seeing, "closing the door dropped other entries");
+        BenchmarkMaps.check(cache.getMisses() - misses == seeing, "unexpected misses");
+        BenchmarkMaps.check(wrong == 0, "wrong cache results after closing the door");
+
+        cache.dispose();
+    }
+}
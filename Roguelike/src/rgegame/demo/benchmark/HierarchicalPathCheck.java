@@ -0,0 +1,200 @@
+/*
+ * HierarchicalPathCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.ClusterGraph;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.HierarchicalPath;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Checks the hierarchical pathfinder against the breadth first search,
+ * with and without diagonals, on a small hand made map and on mazes,
+ * open fields and dungeons, for several cluster sizes. The refined
+ * paths must be walkable step by step, must not use diagonal steps if
+ * diagonals are off, and must never be shorter than the breadth first
+ * paths. HPA* may miss some paths, since only a few cells of each
+ * cluster border are entrances, but it must not find paths where the
+ * breadth first search finds none.
+ *
+ * Ends with an exception if a check fails.
+ *
+ * @author Hj. Malthaner
+ */
+public class HierarchicalPathCheck
+{
+    private static final int QUERIES = 1000;
+
+    /**
+     * Diagonal neighbours of a cluster border used to be joined with
+     * a diagonal step, even with diagonals off.
+     */
+    private static final String [] SMALL_MAP =
+    {
+        ".........",
+        ".##...##.",
+        ".##......",
+        "...#....#",
+        ".........",
+        ".....#..#",
+        ".....##.#",
+        "..#..#...",
+    };
+
+    /**
+     * @return true if the path leads from the start to the destination
+     *         in allowed single steps, straight steps only if diagonals
+     *         are off
+     */
+    private static boolean isWalkable(final Path path, final PathSource source,
+                                      final boolean diagonals,
+                                      final int sx, final int sy,
+                                      final int dx, final int dy)
+    {
+        Path.Node last = path.getStep(0);
+
+        if(last.x != sx || last.y != sy) {
+            return false;
+        }
+
+        for(int i=1; i<path.size(); i++) {
+            final Path.Node node = path.getStep(i);
+            final int mx = Math.abs(node.x - last.x);
+            final int my = Math.abs(node.y - last.y);
+
+            if(mx > 1 || my > 1 || (diagonals == false && mx + my > 1) ||
+               source.isMoveAllowed(last.x, last.y, node.x, node.y) == false) {
+                return false;
+            }
+            last = node;
+        }
+
+        return last.x == dx && last.y == dy;
+    }
+
+    private static LayeredMap makeMap(final String [] rows)
+    {
+        final LayeredMap map = new LayeredMap(4, rows[0].length(), rows.length);
+
+        for(int y=0; y<rows.length; y++) {
+            for(int x=0; x<rows[y].length(); x++) {
+                map.set(LayerCodes.FEATURE, x, y,
+                        rows[y].charAt(x) == '#' ? FeatureCodes.WALL_ROCK : FeatureCodes.OPEN);
+            }
+        }
+
+        return map;
+    }
+
+    private static void check(final String name, final LayeredMap map,
+                              final int clusterSize, final boolean diagonals)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(1);
+        final Path bfs = new Path();
+        final ClusterGraph graph =
+                new ClusterGraph(map, LayerCodes.FEATURE, source, clusterSize);
+        final HierarchicalPath hpa = new HierarchicalPath(graph);
+
+        bfs.setUseDiagonals(diagonals);
+        graph.setUseDiagonals(diagonals);
+
+        int found = 0;
+        int missed = 0;
+        int wrong = 0;
+        long bfsSteps = 0;
+        long hpaSteps = 0;
+
+        for(int i=0; i<QUERIES; i++) {
+            int sx, sy, dx, dy;
+
+            do {
+                sx = rand.nextInt(map.getWidth());
+                sy = rand.nextInt(map.getHeight());
+            } while(source.isMoveAllowed(sx, sy, sx, sy) == false);
+
+            do {
+                dx = rand.nextInt(map.getWidth());
+                dy = rand.nextInt(map.getHeight());
+            } while(source.isMoveAllowed(dx, dy, dx, dy) == false);
+
+            final CoordinatePathDestination destination = new CoordinatePathDestination(dx, dy);
+            final boolean a = bfs.findPath(source, destination, sx, sy);
+            final boolean b = hpa.findPath(source, destination, sx, sy) && hpa.refineAll();
+
+            if(b && (a == false || hpa.size() < bfs.size() ||
+                     isWalkable(hpa, source, diagonals, sx, sy, dx, dy) == false)) {
+                wrong ++;
+            }
+
+            if(a && b) {
+                found ++;
+                bfsSteps += bfs.size();
+                hpaSteps += hpa.size();
+            } else if(a) {
+                missed ++;
+            }
+        }
+
+        graph.dispose();
+
+        System.out.println(name + " " + map.getWidth() + "x" + map.getHeight() +
+                           ", clusters " + clusterSize +
+                           (diagonals ? ", diagonals" : ", no diagonals") +
+                           ": " + found + "/" + QUERIES + " paths found, " +
+                           missed + " missed, " + wrong + " wrong, steps HPA*/BFS " +
+                           (found > 0 ? (double)hpaSteps / bfsSteps : 0));
+
+        BenchmarkMaps.check(wrong == 0, name + " hierarchical paths are not walkable or too short");
+    }
+
+    private static void check(final String name, final LayeredMap map, final int clusterSize)
+    {
+        check(name, map, clusterSize, false);
+        check(name, map, clusterSize, true);
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap small = makeMap(SMALL_MAP);
+        final PathSource source = new PathSourceLink(small);
+        final ClusterGraph graph = new ClusterGraph(small, LayerCodes.FEATURE, source, 3);
+        final HierarchicalPath hpa = new HierarchicalPath(graph);
+
+        graph.setUseDiagonals(false);
+
+        final boolean found = hpa.findPath(source, new CoordinatePathDestination(4, 5), 6, 7) &&
+                              hpa.refineAll();
+
+        graph.dispose();
+
+        BenchmarkMaps.check(found && isWalkable(hpa, source, false, 6, 7, 4, 5),
+                            "Small map path (6,7) -> (4,5) has a diagonal step");
+
+        check("Small map", small, 3);
+
+        for(int size=3; size<=16; size*=2) {
+            check("Mines", BenchmarkMaps.makeMinesMap(120, 90, 1), size);
+            check("Wilderness", BenchmarkMaps.makeWildernessMap(120, 90, 1), size);
+            check("Dungeon", BenchmarkMaps.makeDungeonMap(120, 90, 1), size);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * HpaBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.ClusterGraph;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.HierarchicalPath;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Long trips across a big wilderness map: flat A* compared with the
+ * hierarchical pathfinder, which plans on the cluster graph and only
+ * refines the first segment. The first round also builds the clusters
+ * the trips pass, later rounds use the cached graph.
+ *
+ * Needs a big heap, run with -Xmx2g or more.
+ *
+ * @author Hj. Malthaner
+ */
+public class HpaBenchmark
+{
+    private static final int SIZE = 4096;
+
+    private static final int CLUSTER_SIZE = 32;
+
+    private static final int QUERIES = 20;
+
+    public static void main(String args[])
+    {
+        final LayeredMap map = BenchmarkMaps.makeWildernessMap(SIZE, SIZE, 1);
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(1);
+
+        final int [] sx = new int [QUERIES];
+        final int [] sy = new int [QUERIES];
+        final int [] dx = new int [QUERIES];
+        final int [] dy = new int [QUERIES];
+
+        for(int i=0; i<QUERIES; i++) {
+            do {
+                sx[i] = rand.nextInt(SIZE);
+                sy[i] = rand.nextInt(SIZE);
+                dx[i] = rand.nextInt(SIZE);
+                dy[i] = rand.nextInt(SIZE);
+            } while(source.isMoveAllowed(sx[i], sy[i], sx[i], sy[i]) == false ||
+                    source.isMoveAllowed(dx[i], dy[i], dx[i], dy[i]) == false);
+        }
+
+        final AStarPath astar = new AStarPath(SIZE, SIZE);
+        final ClusterGraph graph =
+                new ClusterGraph(map, LayerCodes.FEATURE, source, CLUSTER_SIZE);
+        final HierarchicalPath hpa = new HierarchicalPath(graph);
+
+        for(int round=0; round<3; round++) {
+            long flatTime = 0;
+            long planTime = 0;
+            long refineTime = 0;
+            long flatSteps = 0;
+            long hpaSteps = 0;
+            long expanded = 0;
+            int found = 0;
+
+            for(int i=0; i<QUERIES; i++) {
+                final CoordinatePathDestination dest =
+                        new CoordinatePathDestination(dx[i], dy[i]);
+
+                final long t0 = System.nanoTime();
+                final boolean flat = astar.findPath(source, dest, sx[i], sy[i]);
+                final long t1 = System.nanoTime();
+                final boolean planned = hpa.findPath(source, dest, sx[i], sy[i]);
+                final long t2 = System.nanoTime();
+                hpa.refineAll();
+                final long t3 = System.nanoTime();
+
+                flatTime += t1 - t0;
+                planTime += t2 - t1;
+                refineTime += t3 - t2;
+                expanded += astar.getExpandedCount();
+
+                if(flat && planned) {
+                    found ++;
+                    flatSteps += astar.size();
+                    hpaSteps += hpa.size();
+                }
+            }
+
+            BenchmarkMaps.consume(flatSteps + hpaSteps);
+
+            System.out.println("Wilderness " + SIZE + "x" + SIZE + " round " + round +
+                               ": A* " + (flatTime / QUERIES / 1000) + " us/path (" +
+                               (expanded / QUERIES) + " cells expanded), HPA* plan " +
+                               (planTime / QUERIES / 1000) + " us/path, refine rest " +
+                               (refineTime / QUERIES / 1000) + " us/path, " +
+                               graph.getBuildCount() + " clusters built, " +
+                               found + " paths, steps HPA*/A* " +
+                               (found > 0 ? (double)hpaSteps / flatSteps : 0));
+        }
+
+        graph.dispose();
+    }
+}
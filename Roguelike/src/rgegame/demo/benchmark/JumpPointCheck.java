@@ -0,0 +1,128 @@
+/*
+ * JumpPointCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.BitmapPathSource;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.JumpPointPath;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Checks that the jump point search finds paths of the same length as
+ * the breadth first search, on mazes from the MinesGenerator and open
+ * fields from the WildernessGenerator, and on a dungeon. Each map is
+ * searched through a plain path source and through a cell bitmap,
+ * which makes the jump point search scan rows in bulk. The jump point
+ * paths must also be walkable step by step.
+ *
+ * Ends with an exception if a check fails.
+ *
+ * @author Hj. Malthaner
+ */
+public class JumpPointCheck
+{
+    private static final int QUERIES = 500;
+
+    /**
+     * @return true if the path leads from the start to the destination
+     *         in allowed single steps
+     */
+    private static boolean isWalkable(final Path path, final PathSource source,
+                                      final int sx, final int sy,
+                                      final int dx, final int dy)
+    {
+        Path.Node last = path.getStep(0);
+
+        if(last.x != sx || last.y != sy) {
+            return false;
+        }
+
+        for(int i=1; i<path.size(); i++) {
+            final Path.Node node = path.getStep(i);
+
+            if(Math.abs(node.x - last.x) > 1 || Math.abs(node.y - last.y) > 1 ||
+               source.isMoveAllowed(last.x, last.y, node.x, node.y) == false) {
+                return false;
+            }
+            last = node;
+        }
+
+        return last.x == dx && last.y == dy;
+    }
+
+    private static void check(final String name, final LayeredMap map,
+                              final PathSource source)
+    {
+        final Random rand = new Random(1);
+        final Path bfs = new Path();
+        final JumpPointPath jps = new JumpPointPath(map.getWidth(), map.getHeight());
+
+        int found = 0;
+        int wrong = 0;
+
+        for(int i=0; i<QUERIES; i++) {
+            int sx, sy, dx, dy;
+
+            do {
+                sx = rand.nextInt(map.getWidth());
+                sy = rand.nextInt(map.getHeight());
+            } while(source.isMoveAllowed(sx, sy, sx, sy) == false);
+
+            do {
+                dx = rand.nextInt(map.getWidth());
+                dy = rand.nextInt(map.getHeight());
+            } while(source.isMoveAllowed(dx, dy, dx, dy) == false);
+
+            final CoordinatePathDestination destination = new CoordinatePathDestination(dx, dy);
+            final boolean a = bfs.findPath(source, destination, sx, sy);
+            final boolean b = jps.findPath(source, destination, sx, sy);
+
+            if(a != b || bfs.size() != jps.size() ||
+               (b && isWalkable(jps, source, sx, sy, dx, dy) == false)) {
+                wrong ++;
+            }
+
+            if(a) {
+                found ++;
+            }
+        }
+
+        System.out.println(name + " " + map.getWidth() + "x" + map.getHeight() +
+                           ": " + found + "/" + QUERIES + " paths found, " +
+                           wrong + " differ from breadth first search");
+
+        BenchmarkMaps.check(wrong == 0, name + " jump point paths differ from breadth first search");
+    }
+
+    private static void check(final String name, final LayeredMap map)
+    {
+        check(name + ", path source", map, new PathSourceLink(map));
+        check(name + ", cell bitmap", map,
+              new BitmapPathSource(map.getCellBitmap(LayerCodes.FEATURE, FeatureCodes.WALKABLE)));
+    }
+
+    public static void main(String args[])
+    {
+        check("Mines", BenchmarkMaps.makeMinesMap(300, 200, 1));
+        check("Wilderness", BenchmarkMaps.makeWildernessMap(300, 200, 1));
+        check("Dungeon", BenchmarkMaps.makeDungeonMap(300, 200, 1));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * LineOfSightCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import rgegame.fieldofview.FieldOfView;
+import rgegame.fieldofview.FovBitmap;
+import rgegame.fieldofview.FovSource;
+import rgegame.fieldofview.LineOfSight;
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Checks that LineOfSight matches the shadowcasting field of view
+ * pair by pair. For random pairs on dungeon, wilderness and mines
+ * maps, with double and exact slopes, the single checks, the batch
+ * checks on a fork-join pool and the batch checks in the calling
+ * thread must all say that B is visible from A exactly if the field
+ * of view from A contains B.
+ *
+ * Ends with an exception if a check fails.
+ *
+ * @author Hj. Malthaner
+ */
+public class LineOfSightCheck
+{
+    private static final int PAIRS = 20000;
+
+    private static final int MAX_DISTANCE = 25;
+
+    private static void check(final String name, final LayeredMap map,
+                              final ForkJoinPool pool)
+    {
+        final FovSource source = BenchmarkMaps.makeFovSource(map);
+        final Random rand = new Random(1);
+
+        final int [] ax = new int [PAIRS];
+        final int [] ay = new int [PAIRS];
+        final int [] bx = new int [PAIRS];
+        final int [] by = new int [PAIRS];
+        final int [] distances = new int [PAIRS];
+
+        for(int i=0; i<PAIRS; i++) {
+            do {
+                ax[i] = rand.nextInt(map.getWidth());
+                ay[i] = rand.nextInt(map.getHeight());
+            } while(source.isBlockingLOS(ax[i], ay[i]));
+
+            // Hajo: targets up to and a bit past the viewing distance,
+            // some of them outside the map
+            distances[i] = 2 + rand.nextInt(MAX_DISTANCE);
+            bx[i] = ax[i] + rand.nextInt(distances[i]*2 + 3) - distances[i] - 1;
+            by[i] = ay[i] + rand.nextInt(distances[i]*2 + 3) - distances[i] - 1;
+        }
+
+        final int [] modes = {FieldOfView.SLOPES_DOUBLE, FieldOfView.SLOPES_EXACT};
+
+        for(int m=0; m<modes.length; m++) {
+            final LineOfSight los = new LineOfSight(source, modes[m]);
+            final FovBitmap bitmap = new FovBitmap();
+            final FieldOfView fov = new FieldOfView(source, bitmap, modes[m]);
+
+            final boolean [] batch = new boolean [PAIRS];
+            final boolean [] inThread = new boolean [PAIRS];
+
+            los.canSee(ax, ay, bx, by, distances, batch, pool);
+            los.canSee(ax, ay, bx, by, distances, inThread, null);
+
+            int visible = 0;
+            int single = 0;
+            int batched = 0;
+            int sequential = 0;
+
+            for(int i=0; i<PAIRS; i++) {
+                bitmap.reset(ax[i], ay[i], distances[i]);
+                fov.calculate(ax[i], ay[i], distances[i]);
+
+                final boolean expected = bitmap.isVisible(bx[i], by[i]);
+
+                if(expected) {
+                    visible ++;
+                }
+                if(los.canSee(ax[i], ay[i], bx[i], by[i], distances[i]) != expected) {
+                    single ++;
+                }
+                if(batch[i] != expected) {
+                    batched ++;
+                }
+                if(inThread[i] != expected) {
+                    sequential ++;
+                }
+            }
+
+            final String mode = modes[m] == FieldOfView.SLOPES_EXACT ? "exact" : "double";
+
+            System.out.println(name + ", " + mode + " slopes: " +
+                               visible + "/" + PAIRS + " visible, mismatches " +
+                               single + " single, " +
+                               batched + " batch, " +
+                               sequential + " batch in thread");
+
+            BenchmarkMaps.check(single == 0 && batched == 0 && sequential == 0,
+                                name + ", " + mode + " slopes: line of sight differs from the field of view");
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            check("Dungeon", BenchmarkMaps.makeDungeonMap(400, 300, 1), pool);
+            check("Wilderness", BenchmarkMaps.makeWildernessMap(400, 300, 1), pool);
+            check("Mines", BenchmarkMaps.makeMinesMap(400, 300, 1), pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
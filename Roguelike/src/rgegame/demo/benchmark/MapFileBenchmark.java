@@ -0,0 +1,135 @@
+/*
+ * MapFileBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import rgegame.map.data.LayeredMap;
+
+/**
+ * Writes and reads a big map in the text format and in the binary
+ * format v.4, and checks that both give the same map. The text format
+ * reads scripts back with an extra line end, so text maps with scripts
+ * are never quite the same.
+ *
+ * @author Hj. Malthaner
+ */
+public class MapFileBenchmark
+{
+    private static final int LAYERS = 4;
+
+    private static LayeredMap makeMap(final int width, final int height)
+    {
+        final LayeredMap map = new LayeredMap(LAYERS, width, height);
+        final Random rand = new Random(1);
+
+        for(int layer=0; layer<LAYERS; layer++) {
+            for(int y=0; y<height; y++) {
+                for(int x=0; x<width; x++) {
+                    // Hajo: mostly empty upper layers, like real maps
+                    if(layer == 0 || rand.nextInt(8) == 0) {
+                        map.set(layer, x, y, rand.nextInt(256));
+                    }
+                }
+            }
+        }
+
+        for(int i=0; i<width; i++) {
+            map.setXYoff(1, rand.nextInt(width), rand.nextInt(height), 3, -2);
+            map.setScript(rand.nextInt(width), rand.nextInt(height), "say Hello " + i);
+        }
+
+        map.setSpawnX(width / 2);
+        map.setSpawnY(height / 2);
+
+        return map;
+    }
+
+    private static boolean same(final LayeredMap a, final LayeredMap b)
+    {
+        for(int layer=0; layer<LAYERS; layer++) {
+            for(int y=0; y<a.getHeight(); y++) {
+                for(int x=0; x<a.getWidth(); x++) {
+                    if(a.get(layer, x, y) != b.get(layer, x, y) ||
+                       a.getXoff(layer, x, y) != b.getXoff(layer, x, y) ||
+                       a.getYoff(layer, x, y) != b.getYoff(layer, x, y) ||
+                       a.getScript(x, y).equals(b.getScript(x, y)) == false) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void run(final int width, final int height) throws IOException
+    {
+        final LayeredMap map = makeMap(width, height);
+        final File textFile = File.createTempFile("map", ".txt");
+        final File binaryFile = File.createTempFile("map", ".bin");
+
+        textFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+
+        for(int round=0; round<2; round++) {
+            final long t0 = System.nanoTime();
+            final BufferedWriter writer = new BufferedWriter(new FileWriter(textFile));
+            map.write(writer);
+            writer.close();
+            final long t1 = System.nanoTime();
+
+            final LayeredMap fromText = new LayeredMap(1, 1, 1);
+            final BufferedReader reader = new BufferedReader(new FileReader(textFile));
+            fromText.read(reader);
+            reader.close();
+            final long t2 = System.nanoTime();
+
+            map.write(binaryFile);
+            final long t3 = System.nanoTime();
+
+            final LayeredMap fromBinary = new LayeredMap(1, 1, 1);
+            fromBinary.read(binaryFile);
+            final long t4 = System.nanoTime();
+
+            // Hajo: first round is warm up
+            if(round > 0) {
+                System.out.println(width + "x" + height + "x" + LAYERS +
+                                   " text: write " + ((t1 - t0) / 1000000) + " ms" +
+                                   ", read " + ((t2 - t1) / 1000000) + " ms" +
+                                   ", " + (textFile.length() >> 20) + " MB" +
+                                   "; binary: write " + ((t3 - t2) / 1000000) + " ms" +
+                                   ", read " + ((t4 - t3) / 1000000) + " ms" +
+                                   ", " + (binaryFile.length() >> 20) + " MB" +
+                                   "; same as written: text " + same(map, fromText) +
+                                   ", binary " + same(map, fromBinary) +
+                                   ", spawn " + fromBinary.getSpawnX() + "," + fromBinary.getSpawnY());
+            }
+        }
+
+        textFile.delete();
+        binaryFile.delete();
+    }
+
+    public static void main(String args[]) throws IOException
+    {
+        run(500, 500);
+        run(2000, 2000);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * PaletteLayerBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.pathfinding.TerrainCostLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.CellClassifier;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.WeightedPath;
+
+/**
+ * Compares normal layers with palette packed layers: the memory of
+ * the layers, reading all cells, building the cell bitmaps which the
+ * field of view and path sources use, and terrain cost paths, which
+ * read the layers for every step.
+ *
+ * @author Hj. Malthaner
+ */
+public class PaletteLayerBenchmark
+{
+    private static final int QUERIES = 40;
+
+    private static final int ROUNDS = 5;
+
+    private static long scan(final LayeredMap map)
+    {
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+        long checksum = 0;
+
+        for(int layer=0; layer<map.getLayerCount(); layer++) {
+            for(int y=0; y<height; y++) {
+                for(int x=0; x<width; x++) {
+                    checksum += map.get(layer, x, y);
+                }
+            }
+        }
+
+        return checksum;
+    }
+
+    /**
+     * Build a new walkable cell bitmap. A new classifier object makes
+     * the map build a new bitmap.
+     */
+    private static long buildBitmap(final LayeredMap map)
+    {
+        final CellClassifier classifier = new CellClassifier()
+        {
+            public boolean matches(int value)
+            {
+                return FeatureCodes.WALKABLE.matches(value);
+            }
+        };
+
+        return map.getCellBitmap(LayerCodes.FEATURE, classifier).getWidth();
+    }
+
+    private static long paths(final LayeredMap map, final int [] sx, final int [] sy,
+                              final int [] dx, final int [] dy)
+    {
+        final TerrainCostLink terrain = new TerrainCostLink(map);
+        final WeightedPath weighted = new WeightedPath(map.getWidth(), map.getHeight());
+        long cost = 0;
+
+        for(int i=0; i<QUERIES; i++) {
+            weighted.findPath(terrain, new CoordinatePathDestination(dx[i], dy[i]), sx[i], sy[i]);
+            cost += weighted.getCost();
+        }
+
+        return cost;
+    }
+
+    private static void run(final String name, final LayeredMap normal)
+    {
+        final PathSource source = new PathSourceLink(normal);
+        final Random rand = new Random(1);
+        final int width = normal.getWidth();
+        final int height = normal.getHeight();
+        final long cells = (long)width * height;
+
+        final int [] sx = new int [QUERIES];
+        final int [] sy = new int [QUERIES];
+        final int [] dx = new int [QUERIES];
+        final int [] dy = new int [QUERIES];
+
+        for(int i=0; i<QUERIES; i++) {
+            do {
+                sx[i] = rand.nextInt(width);
+                sy[i] = rand.nextInt(height);
+                dx[i] = rand.nextInt(width);
+                dy[i] = rand.nextInt(height);
+            } while(source.isMoveAllowed(sx[i], sy[i], sx[i], sy[i]) == false ||
+                    source.isMoveAllowed(dx[i], dy[i], dx[i], dy[i]) == false);
+        }
+
+        final long before = usedMemory();
+        final LayeredMap packed = new LayeredMap(normal.getLayerCount(), width, height);
+        packed.insert(normal, 0, 0, width, height, 0, 0);
+        final long middle = usedMemory();
+        packed.packLayers();
+        final long after = usedMemory();
+
+        System.out.println(name + " " + width + "x" + height + "x" + normal.getLayerCount() +
+                           ": layers normal " + ((middle - before) >> 10) + " kB" +
+                           ", packed " + ((after - before) >> 10) + " kB");
+
+        for(int round=0; round<ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            final long a = scan(normal);
+            final long t1 = System.nanoTime();
+            final long b = scan(packed);
+            final long t2 = System.nanoTime();
+            buildBitmap(normal);
+            final long t3 = System.nanoTime();
+            buildBitmap(packed);
+            final long t4 = System.nanoTime();
+            final long c = paths(normal, sx, sy, dx, dy);
+            final long t5 = System.nanoTime();
+            final long d = paths(packed, sx, sy, dx, dy);
+            final long t6 = System.nanoTime();
+
+            // Hajo: first rounds are warm up
+            if(round == ROUNDS - 1) {
+                final long reads = cells * normal.getLayerCount();
+
+                System.out.println("  scan: normal " + ((t1 - t0) * 100 / reads) / 100.0 + " ns/read" +
+                                   ", packed " + ((t2 - t1) * 100 / reads) / 100.0 + " ns/read" +
+                                   "; bitmap: normal " + ((t3 - t2) / 1000000) + " ms" +
+                                   ", packed " + ((t4 - t3) / 1000000) + " ms" +
+                                   "; terrain paths: normal " + ((t5 - t4) / QUERIES / 1000) + " us/path" +
+                                   ", packed " + ((t6 - t5) / QUERIES / 1000) + " us/path" +
+                                   ", same " + (a == b && c == d));
+            }
+        }
+    }
+
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for(int i=0; i<3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{500, 500}, {2000, 2000}};
+
+        for(int i=0; i<sizes.length; i++) {
+            final int width = sizes[i][0];
+            final int height = sizes[i][1];
+
+            final LayeredMap dungeon = BenchmarkMaps.makeDungeonMap(width, height, 1);
+            WeightedPathBenchmark.addTerrain(dungeon, new Random(2));
+            run("Dungeon", dungeon);
+
+            final LayeredMap wilderness = BenchmarkMaps.makeWildernessMap(width, height, 1);
+            WeightedPathBenchmark.addTerrain(wilderness, new Random(2));
+            run("Wilderness", wilderness);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * PathBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.JumpPointPath;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Compares the breadth first Path with the A* pathfinder on
+ * generated maps from 65x40 up to 2000x2000 cells. With diagonals,
+ * A* is also compared with the jump point search.
+ *
+ * @author Hj. Malthaner
+ */
+public class PathBenchmark
+{
+    private static final int [][] SIZES =
+    {
+        {65, 40}, {250, 250}, {1000, 1000}, {2000, 2000}
+    };
+
+    /** Number of searches per map size */
+    private static final int [] QUERIES = {500, 50, 8, 4};
+
+    /**
+     * Pick random pairs of open cells, stored as start x, start y,
+     * destination x, destination y.
+     */
+    private static int [][] makeQueries(final PathSource source,
+                                        final LayeredMap map,
+                                        final int queries)
+    {
+        final Random rand = new Random(1);
+        final int [][] result = new int [4][queries];
+
+        for(int i=0; i<queries; i++) {
+            for(int k=0; k<4; k+=2) {
+                do {
+                    result[k][i] = rand.nextInt(map.getWidth());
+                    result[k+1][i] = rand.nextInt(map.getHeight());
+                } while(source.isMoveAllowed(result[k][i], result[k+1][i],
+                                             result[k][i], result[k+1][i]) == false);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Time searches between random open cells with both pathfinders.
+     */
+    private static void run(final String name, final LayeredMap map,
+                            final int queries)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final int [][] q = makeQueries(source, map, queries);
+        final int [] sx = q[0];
+        final int [] sy = q[1];
+        final int [] dx = q[2];
+        final int [] dy = q[3];
+
+        final Path bfs = new Path();
+        final AStarPath astar = new AStarPath(map.getWidth(), map.getHeight());
+
+        for(int round=0; round<2; round++) {
+            long bfsTime = 0;
+            long astarTime = 0;
+            long bfsSteps = 0;
+            long astarSteps = 0;
+            long expanded = 0;
+            int found = 0;
+
+            for(int i=0; i<queries; i++) {
+                final CoordinatePathDestination destination =
+                        new CoordinatePathDestination(dx[i], dy[i]);
+
+                final long t0 = System.nanoTime();
+                final boolean ok = bfs.findPath(source, destination, sx[i], sy[i]);
+                final long t1 = System.nanoTime();
+                astar.findPath(source, destination, sx[i], sy[i]);
+                final long t2 = System.nanoTime();
+
+                bfsTime += t1 - t0;
+                astarTime += t2 - t1;
+                bfsSteps += bfs.size();
+                astarSteps += astar.size();
+                expanded += astar.getExpandedCount();
+
+                if(ok) {
+                    found ++;
+                }
+            }
+
+            // Hajo: first round is warm up
+            if(round > 0) {
+                System.out.println(name + " " + map.getWidth() + "x" + map.getHeight() +
+                                   " bfs " + (bfsTime / queries / 1000) + " us/path" +
+                                   ", A* " + (astarTime / queries / 1000) + " us/path" +
+                                   ", found " + found + "/" + queries +
+                                   ", steps " + bfsSteps + "/" + astarSteps +
+                                   ", A* expanded " + (expanded / queries) + " cells/path");
+            }
+        }
+    }
+
+    /**
+     * Time searches with diagonal moves, A* against jump point search.
+     */
+    private static void runDiagonal(final String name, final LayeredMap map,
+                                    final int queries)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final int [][] q = makeQueries(source, map, queries);
+        final int [] sx = q[0];
+        final int [] sy = q[1];
+        final int [] dx = q[2];
+        final int [] dy = q[3];
+
+        final AStarPath astar = new AStarPath(map.getWidth(), map.getHeight());
+        final JumpPointPath jps = new JumpPointPath(map.getWidth(), map.getHeight());
+
+        astar.setUseDiagonals(true);
+
+        for(int round=0; round<2; round++) {
+            long astarTime = 0;
+            long jpsTime = 0;
+            long astarSteps = 0;
+            long jpsSteps = 0;
+            long astarExpanded = 0;
+            long jpsExpanded = 0;
+
+            for(int i=0; i<queries; i++) {
+                final CoordinatePathDestination destination =
+                        new CoordinatePathDestination(dx[i], dy[i]);
+
+                final long t0 = System.nanoTime();
+                astar.findPath(source, destination, sx[i], sy[i]);
+                final long t1 = System.nanoTime();
+                jps.findPath(source, destination, sx[i], sy[i]);
+                final long t2 = System.nanoTime();
+
+                astarTime += t1 - t0;
+                jpsTime += t2 - t1;
+                astarSteps += astar.size();
+                jpsSteps += jps.size();
+                astarExpanded += astar.getExpandedCount();
+                jpsExpanded += jps.getExpandedCount();
+            }
+
+            // Hajo: first round is warm up
+            if(round > 0) {
+                System.out.println(name + " " + map.getWidth() + "x" + map.getHeight() +
+                                   " diagonal A* " + (astarTime / queries / 1000) + " us/path" +
+                                   ", JPS " + (jpsTime / queries / 1000) + " us/path" +
+                                   ", steps " + astarSteps + "/" + jpsSteps +
+                                   ", expanded " + (astarExpanded / queries) + "/" +
+                                   (jpsExpanded / queries) + " cells/path");
+            }
+        }
+    }
+
+    public static void main(String args[])
+    {
+        for(int i=0; i<SIZES.length; i++) {
+            final int width = SIZES[i][0];
+            final int height = SIZES[i][1];
+
+            run("Dungeon", BenchmarkMaps.makeDungeonMap(width, height, 1), QUERIES[i]);
+            run("Wilderness", BenchmarkMaps.makeWildernessMap(width, height, 1), QUERIES[i]);
+        }
+
+        for(int i=0; i<SIZES.length; i++) {
+            final int width = SIZES[i][0];
+            final int height = SIZES[i][1];
+            final int queries = QUERIES[i] * 4;
+
+            runDiagonal("Dungeon", BenchmarkMaps.makeDungeonMap(width, height, 1), queries);
+            runDiagonal("Wilderness", BenchmarkMaps.makeWildernessMap(width, height, 1), queries);
+            runDiagonal("Mines", BenchmarkMaps.makeMinesMap(width, height, 1), queries);
+        }
+    }
+}
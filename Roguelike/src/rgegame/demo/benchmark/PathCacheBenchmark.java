@@ -0,0 +1,186 @@
+/*
+ * PathCacheBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathCache;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Agents which walk between a few places of interest ask for the same
+ * paths again and again. This compares searching every path with the
+ * path cache, while doors open and close now and then. Also measures
+ * the memory of paths kept as packed steps and as lists of nodes.
+ *
+ * @author Hj. Malthaner
+ */
+public class PathCacheBenchmark
+{
+    private static final int PLACES = 12;
+
+    private static final int REQUESTS = 4000;
+
+    /** Every this many requests, a cell changes */
+    private static final int CHANGE_INTERVAL = 20;
+
+    private static void run(final LayeredMap map)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(1);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final int [] px = new int [PLACES];
+        final int [] py = new int [PLACES];
+
+        for(int i=0; i<PLACES; i++) {
+            do {
+                px[i] = rand.nextInt(width);
+                py[i] = rand.nextInt(height);
+            } while(source.isMoveAllowed(px[i], py[i], px[i], py[i]) == false);
+        }
+
+        final AStarPath astar = new AStarPath(width, height);
+        final PathCache cache =
+                new PathCache(map, map.getCellBitmap(LayerCodes.FEATURE, FeatureCodes.WALKABLE), 256);
+
+        for(int round=0; round<3; round++) {
+            long searchTime = 0;
+            long cacheTime = 0;
+            long checksum = 0;
+
+            for(int i=0; i<REQUESTS; i++) {
+                if(i % CHANGE_INTERVAL == 0) {
+                    // Hajo: open or close a random door, or wall up a spot
+                    final int x = rand.nextInt(width);
+                    final int y = rand.nextInt(height);
+                    final int value = map.get(LayerCodes.FEATURE, x, y);
+
+                    if(value == FeatureCodes.OPEN) {
+                        map.set(LayerCodes.FEATURE, x, y, FeatureCodes.WALL_ROCK);
+                    } else if(value == FeatureCodes.WALL_ROCK) {
+                        map.set(LayerCodes.FEATURE, x, y, FeatureCodes.OPEN);
+                    }
+                }
+
+                final int from = rand.nextInt(PLACES);
+                final int to = rand.nextInt(PLACES);
+
+                final long t0 = System.nanoTime();
+                astar.findPath(source, new CoordinatePathDestination(px[to], py[to]),
+                               px[from], py[from]);
+                final long t1 = System.nanoTime();
+                checksum += astar.size();
+
+                final long t2 = System.nanoTime();
+                cache.findPath(astar, source, px[from], py[from], px[to], py[to]);
+                final long t3 = System.nanoTime();
+                checksum -= astar.size();
+
+                searchTime += t1 - t0;
+                cacheTime += t3 - t2;
+            }
+
+            if(round == 2) {
+                System.out.println("Dungeon " + width + "x" + height +
+                                   ": A* " + (searchTime / REQUESTS / 1000) + " us/path" +
+                                   ", with cache " + (cacheTime / REQUESTS / 1000) + " us/path" +
+                                   ", hits " + cache.getHitCount() + "/" +
+                                   (cache.getHitCount() + cache.getMissCount()) +
+                                   ", invalidated " + cache.getInvalidationCount() +
+                                   ", length difference " + checksum);
+            }
+        }
+
+        measureMemory(astar, source, px, py);
+
+        cache.dispose();
+    }
+
+    /**
+     * Keep all paths between the places once as packed steps, and once
+     * as lists of nodes, like paths were stored before.
+     */
+    private static void measureMemory(final AStarPath astar,
+                                      final PathSource source,
+                                      final int [] px, final int [] py)
+    {
+        final ArrayList<long []> packed = new ArrayList<long []>();
+        final ArrayList<ArrayList<Path.Node>> nodes = new ArrayList<ArrayList<Path.Node>>();
+        long steps = 0;
+
+        final long before = usedMemory();
+
+        for(int from=0; from<PLACES; from++) {
+            for(int to=0; to<PLACES; to++) {
+                astar.findPath(source, new CoordinatePathDestination(px[to], py[to]),
+                               px[from], py[from]);
+                packed.add(astar.getPackedSteps());
+                steps += astar.size();
+            }
+        }
+
+        final long middle = usedMemory();
+
+        for(int i=0; i<packed.size(); i++) {
+            final Path path = new Path();
+            final ArrayList<Path.Node> list = new ArrayList<Path.Node>();
+
+            path.setPackedSteps(packed.get(i));
+
+            for(int n=0; n<path.size(); n++) {
+                list.add(path.getStep(n));
+            }
+            nodes.add(list);
+        }
+
+        final long after = usedMemory();
+
+        if(steps > 0) {
+            System.out.println("  " + packed.size() + " paths, " + steps + " steps" +
+                               ": packed " + ((middle - before) / steps) + " bytes/step" +
+                               ", node lists " + ((after - middle) / steps) + " bytes/step");
+        }
+
+        BenchmarkMaps.consume(packed.size() + nodes.size());
+    }
+
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for(int i=0; i<3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{200, 150}, {400, 300}};
+
+        for(int i=0; i<sizes.length; i++) {
+            run(BenchmarkMaps.makeDungeonMap(sizes[i][0], sizes[i][1], 1));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * ReplanBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.DStarLitePath;
+import rgegame.pathfinding.PathSource;
+
+/**
+ * Replanning after single cells were walled up and opened again,
+ * like doors: a fresh A* search compared with repairing the D* Lite
+ * search. The changed cells are picked at random on the map, and on
+ * the current path, which forces a detour.
+ *
+ * @author Hj. Malthaner
+ */
+public class ReplanBenchmark
+{
+    private static final int TRIPS = 20;
+
+    private static final int CHANGES = 20;
+
+    private static void run(final LayeredMap map, final boolean onPath)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final Random rand = new Random(1);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final AStarPath astar = new AStarPath(width, height);
+        final DStarLitePath dstar = new DStarLitePath(map, LayerCodes.FEATURE);
+
+        astar.setUseDiagonals(true);
+        dstar.setUseDiagonals(true);
+
+        for(int round=0; round<3; round++) {
+            long astarTime = 0;
+            long planTime = 0;
+            long repairTime = 0;
+            long astarExpanded = 0;
+            long repairExpanded = 0;
+            int replans = 0;
+
+            for(int trip=0; trip<TRIPS; trip++) {
+                int sx, sy, gx, gy;
+
+                do {
+                    sx = rand.nextInt(width);
+                    sy = rand.nextInt(height);
+                    gx = rand.nextInt(width);
+                    gy = rand.nextInt(height);
+                } while(source.isMoveAllowed(sx, sy, sx, sy) == false ||
+                        source.isMoveAllowed(gx, gy, gx, gy) == false);
+
+                final CoordinatePathDestination destination =
+                        new CoordinatePathDestination(gx, gy);
+
+                final long t0 = System.nanoTime();
+                if(dstar.findPath(source, destination, sx, sy) == false) {
+                    continue;
+                }
+                planTime += System.nanoTime() - t0;
+
+                for(int c=0; c<CHANGES; c++) {
+                    int x, y;
+
+                    if(onPath) {
+                        final int n = 1 + rand.nextInt(Math.max(1, dstar.size() - 2));
+                        x = dstar.getStep(n).x;
+                        y = dstar.getStep(n).y;
+                    } else {
+                        x = rand.nextInt(width);
+                        y = rand.nextInt(height);
+                    }
+
+                    if(map.get(LayerCodes.FEATURE, x, y) != FeatureCodes.OPEN ||
+                       (x == gx && y == gy)) {
+                        continue;
+                    }
+
+                    for(int pass=0; pass<2; pass++) {
+                        map.set(LayerCodes.FEATURE, x, y,
+                                pass == 0 ? FeatureCodes.WALL_ROCK : FeatureCodes.OPEN);
+
+                        final long t1 = System.nanoTime();
+                        astar.findPath(source, destination, sx, sy);
+                        final long t2 = System.nanoTime();
+                        dstar.findPath(source, destination, sx, sy);
+                        final long t3 = System.nanoTime();
+
+                        astarTime += t2 - t1;
+                        repairTime += t3 - t2;
+                        astarExpanded += astar.getExpandedCount();
+                        repairExpanded += dstar.getExpandedCount();
+                        replans ++;
+                    }
+                }
+            }
+
+            if(round == 2 && replans > 0) {
+                System.out.println("Dungeon " + width + "x" + height +
+                                   (onPath ? " cells on the path: " : " random cells: ") +
+                                   "D* Lite first plan " + (planTime / TRIPS / 1000) + " us" +
+                                   ", A* " + (astarTime / replans / 1000) + " us/replan (" +
+                                   (astarExpanded / replans) + " cells expanded)" +
+                                   ", D* Lite repair " + (repairTime / replans / 1000) + " us/replan (" +
+                                   (repairExpanded / replans) + " cells expanded)");
+            }
+        }
+
+        dstar.dispose();
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{65, 40}, {200, 150}, {400, 300}};
+
+        for(int i=0; i<sizes.length; i++) {
+            final LayeredMap map = BenchmarkMaps.makeDungeonMap(sizes[i][0], sizes[i][1], 1);
+            run(map, false);
+            run(map, true);
+        }
+    }
+}
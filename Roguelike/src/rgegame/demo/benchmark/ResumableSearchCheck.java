@@ -0,0 +1,154 @@
+/*
+ * ResumableSearchCheck.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.pathfinding.TerrainCostLink;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.ResumableSearch;
+import rgegame.pathfinding.WeightedPath;
+
+/**
+ * Checks that time sliced searches return the same paths as one-shot
+ * searches. A* with and without diagonals and the weighted search on
+ * terrain costs are run once with findPath(), and once with step()
+ * and small random budgets, on dungeon, wilderness and mines maps.
+ * The steps, the number of expanded cells and, for the weighted
+ * search, the cost must be the same.
+ *
+ * Ends with an exception if a check fails.
+ *
+ * @author Hj. Malthaner
+ */
+public class ResumableSearchCheck
+{
+    private static final int QUERIES = 200;
+
+    private static final int MAX_BUDGET = 200;
+
+    /**
+     * Run a search in slices with random budgets.
+     *
+     * @return true if a path was found
+     */
+    private static boolean sliced(final ResumableSearch search, final PathSource source,
+                                  final CoordinatePathDestination destination,
+                                  final int sx, final int sy, final Random rand)
+    {
+        search.startSearch(source, destination, sx, sy);
+
+        int result;
+
+        do {
+            result = search.step(1 + rand.nextInt(MAX_BUDGET));
+        } while(result == ResumableSearch.IN_PROGRESS);
+
+        // Hajo: a finished search must keep it's result
+        BenchmarkMaps.check(search.step(MAX_BUDGET) == result, "finished search changed it's result");
+
+        return result == ResumableSearch.FOUND;
+    }
+
+    private static int compare(final Path oneShot, final boolean a,
+                               final Path slices, final boolean b)
+    {
+        return (a == b && Arrays.equals(oneShot.getPackedSteps(), slices.getPackedSteps())) ? 0 : 1;
+    }
+
+    private static void check(final String name, final LayeredMap map)
+    {
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+        final PathSource source = new PathSourceLink(map);
+        final TerrainCostLink terrain = new TerrainCostLink(map);
+        final Random rand = new Random(1);
+
+        final AStarPath astar = new AStarPath(width, height);
+        final AStarPath astarSliced = new AStarPath(width, height);
+        final WeightedPath weighted = new WeightedPath(width, height);
+        final WeightedPath weightedSliced = new WeightedPath(width, height);
+
+        int found = 0;
+        int wrong = 0;
+
+        for(int i=0; i<QUERIES; i++) {
+            int sx, sy, dx, dy;
+
+            do {
+                sx = rand.nextInt(width);
+                sy = rand.nextInt(height);
+                dx = rand.nextInt(width);
+                dy = rand.nextInt(height);
+            } while(source.isMoveAllowed(sx, sy, sx, sy) == false ||
+                    source.isMoveAllowed(dx, dy, dx, dy) == false);
+
+            final CoordinatePathDestination destination = new CoordinatePathDestination(dx, dy);
+            final boolean diagonals = (i & 1) == 0;
+
+            astar.setUseDiagonals(diagonals);
+            astarSliced.setUseDiagonals(diagonals);
+
+            boolean a = astar.findPath(source, destination, sx, sy);
+            boolean b = sliced(astarSliced, source, destination, sx, sy, rand);
+
+            wrong += compare(astar, a, astarSliced, b);
+
+            if(astar.getExpandedCount() != astarSliced.getExpandedCount()) {
+                wrong ++;
+            }
+
+            if(a) {
+                found ++;
+            }
+
+            a = weighted.findPath(terrain, destination, sx, sy);
+            b = sliced(weightedSliced, terrain, destination, sx, sy, rand);
+
+            wrong += compare(weighted, a, weightedSliced, b);
+
+            if(weighted.getExpandedCount() != weightedSliced.getExpandedCount() ||
+               weighted.getCost() != weightedSliced.getCost()) {
+                wrong ++;
+            }
+        }
+
+        System.out.println(name + " " + width + "x" + height + ": " +
+                           found + "/" + QUERIES + " paths found, " +
+                           wrong + " differences between sliced and one-shot searches");
+
+        BenchmarkMaps.check(wrong == 0, name + " sliced and one-shot searches differ");
+    }
+
+    public static void main(String args[])
+    {
+        final LayeredMap dungeon = BenchmarkMaps.makeDungeonMap(300, 200, 1);
+        final LayeredMap wilderness = BenchmarkMaps.makeWildernessMap(300, 200, 1);
+        final LayeredMap mines = BenchmarkMaps.makeMinesMap(300, 200, 1);
+
+        WeightedPathBenchmark.addTerrain(dungeon, new Random(1));
+        WeightedPathBenchmark.addTerrain(wilderness, new Random(2));
+        WeightedPathBenchmark.addTerrain(mines, new Random(3));
+
+        check("Dungeon", dungeon);
+        check("Wilderness", wilderness);
+        check("Mines", mines);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * WeightedPathBenchmark.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.benchmark;
+
+import java.util.Random;
+
+import rgegame.demo.pathfinding.PathSourceLink;
+import rgegame.demo.pathfinding.TerrainCostLink;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.AStarPath;
+import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.WeightedPath;
+
+/**
+ * The bucket queue search on uniform maps, compared with the breadth
+ * first Path and the heap based A*, all without diagonals so the three
+ * searches look for paths of the same length. Then the same searches
+ * on terrain with rough ground and shallow water, where the bucket
+ * queue search finds the cheapest path.
+ *
+ * @author Hj. Malthaner
+ */
+public class WeightedPathBenchmark
+{
+    private static final int QUERIES = 40;
+
+    /**
+     * Cover the map with random patches of rough ground and water.
+     */
+    static void addTerrain(final LayeredMap map, final Random rand)
+    {
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+        final int patches = width * height / 200;
+
+        for(int i=0; i<patches; i++) {
+            final int cx = rand.nextInt(width);
+            final int cy = rand.nextInt(height);
+            final int r = 2 + rand.nextInt(5);
+            final int tile = rand.nextInt(3) == 0 ?
+                    TerrainCostLink.SHALLOW_WATER : TerrainCostLink.ROUGH_GROUND;
+
+            for(int y=cy-r; y<=cy+r; y++) {
+                for(int x=cx-r; x<=cx+r; x++) {
+                    if((x-cx)*(x-cx) + (y-cy)*(y-cy) <= r*r) {
+                        map.set(LayerCodes.GROUND, x, y, tile);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(final String name, final LayeredMap map)
+    {
+        final PathSource source = new PathSourceLink(map);
+        final TerrainCostLink terrain = new TerrainCostLink(map);
+        final Random rand = new Random(1);
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        final int [] sx = new int [QUERIES];
+        final int [] sy = new int [QUERIES];
+        final int [] dx = new int [QUERIES];
+        final int [] dy = new int [QUERIES];
+
+        for(int i=0; i<QUERIES; i++) {
+            do {
+                sx[i] = rand.nextInt(width);
+                sy[i] = rand.nextInt(height);
+                dx[i] = rand.nextInt(width);
+                dy[i] = rand.nextInt(height);
+            } while(source.isMoveAllowed(sx[i], sy[i], sx[i], sy[i]) == false ||
+                    source.isMoveAllowed(dx[i], dy[i], dx[i], dy[i]) == false);
+        }
+
+        final Path bfs = new Path();
+        final AStarPath astar = new AStarPath(width, height);
+        final WeightedPath weighted = new WeightedPath(width, height);
+
+        for(int round=0; round<2; round++) {
+            long bfsTime = 0;
+            long astarTime = 0;
+            long bucketTime = 0;
+            long terrainTime = 0;
+            long bfsSteps = 0;
+            long astarSteps = 0;
+            long bucketSteps = 0;
+            long unitCost = 0;
+            long terrainCost = 0;
+
+            for(int i=0; i<QUERIES; i++) {
+                final CoordinatePathDestination destination =
+                        new CoordinatePathDestination(dx[i], dy[i]);
+
+                final long t0 = System.nanoTime();
+                bfs.findPath(source, destination, sx[i], sy[i]);
+                final long t1 = System.nanoTime();
+                astar.findPath(source, destination, sx[i], sy[i]);
+                final long t2 = System.nanoTime();
+                weighted.findPath(source, destination, sx[i], sy[i]);
+                final long t3 = System.nanoTime();
+
+                bfsSteps += bfs.size();
+                astarSteps += astar.size();
+                bucketSteps += weighted.size();
+
+                // Hajo: what the unit cost path costs on the terrain
+                for(int n=1; n<weighted.size(); n++) {
+                    final Path.Node node = weighted.getStep(n);
+                    unitCost += terrain.getMoveCost(0, 0, node.x, node.y);
+                }
+
+                final long t4 = System.nanoTime();
+                weighted.findPath(terrain, destination, sx[i], sy[i]);
+                final long t5 = System.nanoTime();
+
+                terrainCost += weighted.getCost();
+
+                bfsTime += t1 - t0;
+                astarTime += t2 - t1;
+                bucketTime += t3 - t2;
+                terrainTime += t5 - t4;
+            }
+
+            // Hajo: first round is warm up
+            if(round > 0) {
+                System.out.println(name + " " + width + "x" + height +
+                                   " uniform: bfs " + (bfsTime / QUERIES / 1000) + " us/path" +
+                                   ", A* " + (astarTime / QUERIES / 1000) + " us/path" +
+                                   ", buckets " + (bucketTime / QUERIES / 1000) + " us/path" +
+                                   ", steps " + bfsSteps + "/" + astarSteps + "/" + bucketSteps +
+                                   "; terrain: buckets " + (terrainTime / QUERIES / 1000) + " us/path" +
+                                   ", cost " + terrainCost + " (unit cost path " + unitCost + ")");
+            }
+        }
+    }
+
+    public static void main(String args[])
+    {
+        final int [][] sizes = {{200, 150}, {500, 500}};
+
+        for(int i=0; i<sizes.length; i++) {
+            final LayeredMap dungeon = BenchmarkMaps.makeDungeonMap(sizes[i][0], sizes[i][1], 1);
+            final LayeredMap wilderness = BenchmarkMaps.makeWildernessMap(sizes[i][0], sizes[i][1], 1);
+
+            addTerrain(dungeon, new Random(2));
+            addTerrain(wilderness, new Random(2));
+
+            run("Dungeon", dungeon);
+            run("Wilderness", wilderness);
+        }
+    }
+}
@@ -14,39 +14,21 @@
 package rgegame.demo.pathfinding;
 
 import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
 import rgegame.map.data.LayeredMap;
-import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.BitmapPathSource;
 
 /**
  * Pathfinding will access map data through this class.
+ * Walkable cells are read from a bitmap which the map keeps
+ * up to date.
  *
  * @author Hj. Malthaner
  */
-public class PathSourceLink implements PathSource
+public class PathSourceLink extends BitmapPathSource
 {
-    private final LayeredMap map;
-
-
-    /**
-     * Checks if player is allowed to move into map cell (toX, toY)
-     */
-    public boolean isMoveAllowed(int fromX, int fromY, int toX, int toY) {
-        if(toX >= 0 && toY >= 0 &&
-           toX < map.getWidth() && toY < map.getHeight()) {
-
-            final int code = map.get(1, toX, toY);
-            final int feature = FeatureCodes.getFeature(code);
-            return 
-                    feature == FeatureCodes.OPEN ||
-                    feature == FeatureCodes.DOOR_OPEN ||
-                    feature == FeatureCodes.DOOR_SHUT;
-        }
-
-        return false;
-    }
-
     public PathSourceLink(LayeredMap map)
     {
-        this.map = map;
+        super(map.getCellBitmap(LayerCodes.FEATURE, FeatureCodes.WALKABLE));
     }
 }
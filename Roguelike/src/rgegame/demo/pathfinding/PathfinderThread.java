@@ -13,17 +13,27 @@
 
 package rgegame.demo.pathfinding;
 
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
 import rgegame.demo.walkaround.LayerCodes;
 import rgegame.demo.walkaround.MapDisplay;
 import rgegame.entities.PlayerEntity;
 import rgegame.map.data.LayeredMap;
 import rgegame.map.display.ColorCodes;
 import rgegame.pathfinding.CoordinatePathDestination;
+import rgegame.pathfinding.DStarLitePath;
 import rgegame.pathfinding.Path;
+import rgegame.pathfinding.PathService;
 import rgegame.pathfinding.PathSource;
 
 /**
  * Do the actual pathfinding and move player symbol along the path.
+ * The paths are searched by a PathService, which keeps a D* Lite path
+ * for each worker. After each step the path is requested again from
+ * the new location, and the worker repairs it's last search, so the
+ * player reacts to doors and walls which changed meanwhile.
  * 
  * @author Hj. Malthaner
  */
@@ -32,6 +42,11 @@ public class PathfinderThread extends Thread
     private final MapDisplay mapDisplay;
     private final PlayerEntity player;
     private final LayeredMap map;
+    private final PathService pathService;
+
+    /** The paths of the path service workers, to dispose them */
+    private final ArrayList<DStarLitePath> workerPaths = new ArrayList<DStarLitePath>();
+
     private boolean go = true;
 
     /**
@@ -40,7 +55,6 @@ public class PathfinderThread extends Thread
     @Override
     public void run()
     {
-        Path path = new Path();
         PathSource pathSource = new PathSourceLink(map);
         int sx = player.location.x;
         int sy = player.location.y;
@@ -58,28 +72,34 @@ public class PathfinderThread extends Thread
                     new CoordinatePathDestination(dx, dy);
 
             // Try to find a path there
-            boolean ok = path.findPath(pathSource, destination, sx, sy);
+            Path path = requestPath(pathSource, destination, sx, sy);
 
             // See if we found a path
-            if(ok) {
+            if(path.size() > 0) {
                 // mark destination with X on screen
                 if(player.location.x != dx || player.location.y != dy) {
                       map.set(LayerCodes.MOBILES, dx, dy, 'X' + ColorCodes.RED);
                 }
 
                 // now walk.
-                walkPath(path);
+                walkPath(path, pathSource, destination);
             }
 
             // pathing done
 
-            path.clear();
-
             // update start for next pathdinfind call.
             
             sx = player.location.x;
             sy = player.location.y;
         }
+
+        pathService.shutdown();
+
+        synchronized(workerPaths) {
+            for(int i=0; i<workerPaths.size(); i++) {
+                workerPaths.get(i).dispose();
+            }
+        }
     }
 
     public PathfinderThread(MapDisplay mapDisplay,
@@ -88,22 +108,63 @@ public class PathfinderThread extends Thread
         this.mapDisplay = mapDisplay;
         this.player = player;
         this.map = player.gameMap;
+
+        pathService = new PathService(1, 16, new PathService.PathFactory()
+        {
+            @Override
+            public Path createPath()
+            {
+                final DStarLitePath path = new DStarLitePath(map, LayerCodes.FEATURE);
+
+                synchronized(workerPaths) {
+                    workerPaths.add(path);
+                }
+                return path;
+            }
+        });
         
         setPriority(MIN_PRIORITY);
         setDaemon(true);
     }
 
+    /**
+     * Ask the path service for a path and wait for the result.
+     *
+     * @return The path, with no steps if no path was found
+     */
+    private Path requestPath(final PathSource pathSource,
+                             final CoordinatePathDestination destination,
+                             final int sx, final int sy)
+    {
+        try {
+            return pathService.request(player, pathSource, destination, sx, sy).get();
+        } catch(InterruptedException ex) {
+            go = false;
+        } catch(CancellationException ex) {
+            // Hajo: the service was shut down, no path then
+        } catch(ExecutionException ex) {
+            ex.printStackTrace();
+        }
+        return new Path();
+    }
+
     /**
      * Follow the path. Update field of view after each step.
+     * After each step the path is requested again from the new
+     * location, the worker repairs it's previous search.
      *
      * @param path The path to follow
+     * @param pathSource The path source to repair the path with
+     * @param destination The destination of the path
      */
-    private void walkPath(final Path path)
+    private void walkPath(Path path,
+                          final PathSource pathSource,
+                          final CoordinatePathDestination destination)
     {
-        Path.Node node = path.currentStep();
+        Path.Node node = path.getStep(1);
 
         // follow the path
-        while(node != null) {
+        while(node != null && go) {
 
             int playerCode = map.get(LayerCodes.MOBILES, player.location.x, player.location.y);
             map.set(LayerCodes.MOBILES, player.location.x, player.location.y, 0);
@@ -113,11 +174,13 @@ public class PathfinderThread extends Thread
 
             map.set(LayerCodes.MOBILES, player.location.x, player.location.y, playerCode);
 
-            path.advance();
-            node = path.currentStep();
-
             mapDisplay.recalcFov(player.location.x, player.location.y);
             try {sleep(80);} catch(InterruptedException ex) {/* */}
+
+            // Hajo: cheap if nothing changed, the old search is reused
+            path = requestPath(pathSource, destination,
+                               player.location.x, player.location.y);
+            node = path.getStep(1);
         }
     }
 }
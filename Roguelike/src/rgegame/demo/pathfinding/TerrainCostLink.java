@@ -0,0 +1,74 @@
+/*
+ * TerrainCostLink.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.demo.pathfinding;
+
+import rgegame.demo.walkaround.FeatureCodes;
+import rgegame.demo.walkaround.LayerCodes;
+import rgegame.map.data.LayeredMap;
+import rgegame.pathfinding.PathCostSource;
+
+/**
+ * Pathfinding with terrain costs will access map data through this
+ * class. Walkable cells are the same as for PathSourceLink, but rough
+ * ground, shallow water and closed doors cost more than open floor.
+ * Rough ground and shallow water are tiles of the ground layer.
+ *
+ * @author Hj. Malthaner
+ */
+public class TerrainCostLink extends PathSourceLink implements PathCostSource
+{
+    /** Ground tiles which are harder to walk on */
+    public static final int ROUGH_GROUND = ',';
+    public static final int SHALLOW_WATER = '~';
+
+    public static final int FLOOR_COST = 1;
+    public static final int ROUGH_COST = 2;
+    public static final int DOOR_COST = 3;
+    public static final int WATER_COST = 4;
+
+    private final LayeredMap map;
+
+    public TerrainCostLink(LayeredMap map)
+    {
+        super(map);
+        this.map = map;
+    }
+
+    public int getMoveCost(int fromX, int fromY, int toX, int toY)
+    {
+        // Hajo: a closed door must be opened first
+        if(FeatureCodes.getFeature(map.get(LayerCodes.FEATURE, toX, toY)) == FeatureCodes.DOOR_SHUT) {
+            return DOOR_COST;
+        }
+
+        final int ground = FeatureCodes.getFeature(map.get(LayerCodes.GROUND, toX, toY));
+
+        if(ground == ROUGH_GROUND) {
+            return ROUGH_COST;
+        } else if(ground == SHALLOW_WATER) {
+            return WATER_COST;
+        }
+        return FLOOR_COST;
+    }
+
+    public int getMinMoveCost()
+    {
+        return FLOOR_COST;
+    }
+
+    public int getMaxMoveCost()
+    {
+        return WATER_COST;
+    }
+}
@@ -13,6 +13,8 @@
 
 package rgegame.demo.walkaround;
 
+import rgegame.map.data.CellClassifier;
+
 /**
  * Constants for dungeon features.
  *
@@ -47,4 +49,36 @@ public class FeatureCodes
         return tileNo & 0xFFFF;
     }
 
+    /**
+     * Features which can be walked on or into. Closed doors count
+     * as walkable, they are opened by bumping into them.
+     */
+    public static final CellClassifier WALKABLE = new CellClassifier() {
+        public boolean matches(final int value)
+        {
+            final int feature = getFeature(value);
+            return
+                    feature == OPEN ||
+                    feature == DOOR_OPEN ||
+                    feature == DOOR_SHUT;
+        }
+    };
+
+    /**
+     * Features which block the line of sight.
+     */
+    public static final CellClassifier OPAQUE = new CellClassifier() {
+        public boolean matches(final int value)
+        {
+            // Hajo: just example checks, a real game should do
+            // something more elaborate.
+            final int feature = getFeature(value);
+            return
+                    feature == WALL_BRICKS ||
+                    feature == WALL_ROCK ||
+                    feature == TREE ||
+                    feature == DOOR_SHUT;
+        }
+    };
+
 }
@@ -16,6 +16,7 @@ package rgegame.demo.walkaround;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.Random;
 import javax.swing.JFrame;
 
 import rgegame.demo.pathfinding.PathSourceLink;
@@ -26,8 +27,7 @@ import rgegame.map.generators.Dungeon;
 import rgegame.map.generators.MinesGenerator;
 import rgegame.menu.MessageDisplayArea;
 import rgegame.menu.MultipleChoiceBox;
-import rgegame.pathfinding.Area;
-import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.RegionLabeler;
 
 /**
  * Controller class for map altering actions.
@@ -210,22 +210,23 @@ public class MapControl
 //            map = makeMinesMap();
 //        }
 
-        Area area = new Area();
-        PathSource pathSource = new PathSourceLink(map);
-        area.findArea(pathSource, map.getSpawnX(), map.getSpawnY());
-
-        ArrayList<Point> list = area.getArea();
+        PathSourceLink pathSource = new PathSourceLink(map);
+        RegionLabeler regions = new RegionLabeler(map, pathSource.getBitmap(), true);
+        int region = regions.getRegion(map.getSpawnX(), map.getSpawnY());
+        Random rand = new Random();
 
         for(int i=0; i<5; i++) {
-            int index = (int)(Math.random() * list.size());
-            final Point p = list.get(index);
+            final Point p = regions.getRandomCell(region, rand);
             // Place testing item - gold key
-            if(map.get(LayerCodes.FEATURE, p.x, p.y) == FeatureCodes.OPEN) {
+            if(p != null &&
+               map.get(LayerCodes.FEATURE, p.x, p.y) == FeatureCodes.OPEN &&
+               map.get(LayerCodes.ITEMS, p.x, p.y) == 0) {
                 map.set(LayerCodes.ITEMS, p.x, p.y, ((int)(Math.random()*4)) + 1);
             }
-            list.remove(index);
         }
 
+        regions.dispose();
+
         // register object code.
         player.objectRegistry.put(1, new Item("Gold key", '"' + ColorCodes.YELLOW));
         player.objectRegistry.put(2, new Item("Rusty iron key", '"' + ColorCodes.COPPER));
@@ -272,12 +273,11 @@ public class MapControl
         MinesGenerator mine = new MinesGenerator(props);
         LayeredMap map = mine.generate(65, 40);
 
-        Area area = new Area();
-        PathSource pathSource = new PathSourceLink(map);
-        area.findArea(pathSource, map.getSpawnX(), map.getSpawnY());
-
-        final ArrayList <Point> squares = area.getArea();
-        final Point p = squares.get((int)(Math.random() * squares.size()));
+        PathSourceLink pathSource = new PathSourceLink(map);
+        RegionLabeler regions = new RegionLabeler(map, pathSource.getBitmap(), true);
+        int region = regions.getRegion(map.getSpawnX(), map.getSpawnY());
+        final Point p = regions.getRandomCell(region, new Random());
+        regions.dispose();
 
         map.set(LayerCodes.FEATURE,
                 p.x, p.y-1, FeatureCodes.STAIRS_UP + ColorCodes.RED);
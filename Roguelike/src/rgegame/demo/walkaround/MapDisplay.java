@@ -19,9 +19,10 @@ import java.awt.event.ComponentListener;
 import javax.swing.JPanel;
 
 import rgegame.entities.PlayerEntity;
-import rgegame.fieldofview.FieldOfView;
-import rgegame.fieldofview.FovDestination;
+import rgegame.fieldofview.BitmapFovSource;
+import rgegame.fieldofview.FovCache;
 import rgegame.fieldofview.FovSource;
+import rgegame.fieldofview.VisibilityGrid;
 import rgegame.map.data.LayeredMap;
 import rgegame.map.display.ASCIITilePainter;
 import rgegame.map.display.ColorCodes;
@@ -42,11 +43,11 @@ public class MapDisplay extends JPanel
     private final ASCIITilePainter asciiPainter;
     private final TileLocator tileLocator;
     
-    private final FieldOfView fov;
+    /** Cached field of view results for the current map */
+    private FovCache fovCache;
 
-    private int [] viewMap;
-    private int viewWidth;
-    private int viewHeight;
+    /** Visible and remembered cells of the current map */
+    private VisibilityGrid visibility;
 
     private final PlayerEntity player;
     
@@ -74,10 +75,7 @@ public class MapDisplay extends JPanel
      */
     public void setMap(LayeredMap map)
     {
-        viewWidth = map.getWidth();
-        viewHeight = map.getHeight();
-
-        viewMap = new int[viewWidth*viewHeight];
+        visibility = new VisibilityGrid(map.getWidth(), map.getHeight());
 
         final int playerX = map.getSpawnX();
         final int playerY = map.getSpawnY();
@@ -85,13 +83,22 @@ public class MapDisplay extends JPanel
         player.location.x = playerX;
         player.location.y = playerY;
         player.gameMap = map;
+
+        if(fovCache != null) {
+            fovCache.dispose();
+        }
+        final FovSource fovSource =
+                new BitmapFovSource(map.getCellBitmap(LayerCodes.FEATURE,
+                                                      FeatureCodes.OPAQUE));
+        fovCache = new FovCache(map, LayerCodes.FEATURE, fovSource, 64);
+
         player.displayMap = new LayeredMap(map.getLayerCount(),
                                            map.getWidth(),
                                            map.getHeight());
         
         map.set(LayerCodes.MOBILES, playerX, playerY, '@' + ColorCodes.CYAN);
         
-        asciiPainter.setViewMap(viewMap, viewWidth, viewHeight);
+        asciiPainter.setVisibilityGrid(visibility);
 
         mapCanvas.setMap(player.displayMap);
         mapCanvas.setSize(mapCanvas.getPreferredSize());
@@ -127,8 +134,6 @@ public class MapDisplay extends JPanel
         
         add(mapCanvas);
 
-        fov = new FieldOfView(new FovSourceLink(), new FovDestLink());
-
         addComponentListener(new ComponentListener() {
 
             public void componentResized(ComponentEvent e) {
@@ -156,12 +161,19 @@ public class MapDisplay extends JPanel
      */
     public void recalcFov(int x, int y)
     {
-        // Hajo: clear out "visible" flag, keep other flags
-        for(int i=0; i<viewMap.length; i++) {
-            viewMap[i] = (viewMap[i] & ~ASCIITilePainter.VIEW_VISIBLE);
+        if(visibility == null) {
+            // Hajo: no map yet
+            return;
         }
-        
-        fov.calculate(x, y, 20);
+
+        // Hajo: clear out "visible" flags, remembered cells are kept
+        visibility.beginView();
+
+        // Hajo: the cache recalculates only if the player moved
+        // or a line of sight blocker in view changed
+        fovCache.calculate(x, y, 20).copyTo(visibility);
+
+        copyVisibleCells();
 
         if(centerMapOnPlayer) {
             int xoff = tileLocator.getTileScreenX(player.location.x, player.location.y);
@@ -174,72 +186,45 @@ public class MapDisplay extends JPanel
     }
 
     /**
-     * Field of view source link to map data.
-     */
-    private class FovSourceLink implements FovSource
-    {
-        /**
-         * Check weather a given location
-         * blocks the line of sight or not.
-         *
-         * @param posX X coordinate
-         * @param posY Y coordinate
-         *
-         * @return true if blocking, false otherwise
-         */
-        public boolean isBlockingLOS(int posX, int posY)
-        {
-            final int feature =
-                    FeatureCodes.getFeature(player.gameMap.get(LayerCodes.FEATURE,
-                                                               posX, posY));
-
-            // Hajo: just example checks, a real game should do
-            // something more elaborate.
-            boolean blocking = 
-                    feature == FeatureCodes.WALL_BRICKS ||
-                    feature == FeatureCodes.WALL_ROCK ||
-                    feature == FeatureCodes.TREE ||
-                    feature == FeatureCodes.DOOR_SHUT;
-
-            // System.err.println("Src: " + posX + ", " + posY +" is blocking " + blocking);
-
-            return blocking;
-        }
-    }
-    
-    /**
-     * Field of view destination link to map data.
+     * Copy the visible cells from the game map to the display map.
+     * Each cell is copied once, even if the field of view calculation
+     * reported it several times. Cells which stay in view are copied, too,
+     * because their content can change (moving mobiles, doors).
+     * Runs of visible cells in a row are copied at once.
      */
-    private class FovDestLink implements FovDestination
+    private void copyVisibleCells()
     {
-        /**
-         * FOV code will call this for each location that can be seen.
-         * Seen cells will also be remembered.
-         */
-        public void setCanBeSeen(int posX, int posY)
-        {
-            if(posX >= 0 && posY >= 0 && posX < viewWidth && posY < viewHeight) {
-
-                final int layers = player.gameMap.getLayerCount();
-                for(int i=0; i<layers; i++) {
-
-                    final int code =
-                            player.gameMap.get(i, posX, posY);
-
-                    player.displayMap.set(i, posX, posY, code);
-
-                    if(i == LayerCodes.ITEMS) {
-                        if(code != 0) {
-                            int itemCode = player.objectRegistry.get(code).getDisplayCode();
-                            player.displayMap.set(i, posX, posY, itemCode);
-                        }
-                    }
-                }
+        final int width = visibility.getWidth();
+        final int layers = player.gameMap.getLayerCount();
+
+        for(int cell=visibility.nextVisible(0);
+            cell >= 0;
+            cell=visibility.nextVisible(cell+1)) {
+
+            final int posX = cell % width;
+            final int posY = cell / width;
+            int length = 1;
+
+            while(posX + length < width && visibility.isVisible(posX + length, posY)) {
+                length ++;
+            }
 
-                viewMap[posY*viewWidth+posX] |=
-                        (ASCIITilePainter.VIEW_VISIBLE | ASCIITilePainter.VIEW_REMEMBERED);
+            for(int i=0; i<layers; i++) {
+                player.displayMap.blit(player.gameMap, i, posX, posY, length, 1,
+                                       i, posX, posY);
             }
-        }        
+
+            for(int x=posX; x<posX+length && LayerCodes.ITEMS < layers; x++) {
+                final int code = player.gameMap.get(LayerCodes.ITEMS, x, posY);
+
+                if(code != 0) {
+                    int itemCode = player.objectRegistry.get(code).getDisplayCode();
+                    player.displayMap.set(LayerCodes.ITEMS, x, posY, itemCode);
+                }
+            }
+
+            cell += length - 1;
+        }
     }
 
 }
@@ -0,0 +1,178 @@
+/*
+ * BatchFieldOfView.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calculates the fields of view of many viewers at once, e.g. for all
+ * monsters on a map. The viewers are split into chunks which run in
+ * parallel on a fork-join pool.
+ *
+ * Each worker thread has it's own FieldOfView calculator with it's own
+ * shadow lists, and each viewer gets it's own result bitmap, so the
+ * viewers don't share any mutable state. The results are the same as
+ * from sequential FieldOfView.calculate() calls.
+ *
+ * The FovSource is called from several threads at the same time and
+ * must not be modified while a batch is running.
+ *
+ * @author Hj. Malthaner
+ */
+public class BatchFieldOfView
+{
+    /** Viewers per task, smaller batches are not split any further */
+    private static final int CHUNK_SIZE = 16;
+
+    private final ForkJoinPool pool;
+
+    /** Calculator and shadow lists for each worker thread */
+    private final ThreadLocal <FieldOfView> scratch;
+
+    /**
+     * Create a batch calculator which runs on the common fork-join
+     * pool, so there is no pool to shut down.
+     *
+     * @param source Used to check if a map cell blocks the line of sight
+     */
+    public BatchFieldOfView(FovSource source)
+    {
+        this(source, FieldOfView.SLOPES_DOUBLE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a batch calculator.
+     *
+     * @param source Used to check if a map cell blocks the line of sight
+     * @param slopeMode FieldOfView.SLOPES_DOUBLE or FieldOfView.SLOPES_EXACT
+     * @param pool The pool to run the calculations on, the caller
+     *             owns it and shuts it down
+     */
+    public BatchFieldOfView(final FovSource source, final int slopeMode,
+                            final ForkJoinPool pool)
+    {
+        if(slopeMode != FieldOfView.SLOPES_DOUBLE &&
+           slopeMode != FieldOfView.SLOPES_EXACT) {
+            throw new IllegalArgumentException("Unknown slope mode: " + slopeMode);
+        }
+
+        this.pool = pool;
+
+        scratch = new ThreadLocal <FieldOfView> () {
+            @Override
+            protected FieldOfView initialValue()
+            {
+                return new FieldOfView(source, null, slopeMode);
+            }
+        };
+    }
+
+    /**
+     * @return The pool this calculator runs on.
+     */
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * Calculate the fields of view of all viewers.
+     *
+     * @param xs X origins of the viewers
+     * @param ys Y origins of the viewers
+     * @param distances The max viewing distance for each viewer
+     *
+     * @return One result bitmap per viewer
+     */
+    public FovBitmap [] calculate(final int [] xs, final int [] ys,
+                                  final int [] distances)
+    {
+        final FovBitmap [] results = new FovBitmap [xs.length];
+
+        for(int i=0; i<results.length; i++) {
+            results[i] = new FovBitmap();
+        }
+
+        calculate(xs, ys, distances, results);
+
+        return results;
+    }
+
+    /**
+     * Calculate the fields of view of all viewers, reusing the
+     * given result bitmaps.
+     *
+     * @param xs X origins of the viewers
+     * @param ys Y origins of the viewers
+     * @param distances The max viewing distance for each viewer
+     * @param results One result bitmap per viewer
+     */
+    public void calculate(final int [] xs, final int [] ys,
+                          final int [] distances,
+                          final FovBitmap [] results)
+    {
+        final int n = xs.length;
+
+        if(ys.length != n || distances.length != n || results.length != n) {
+            throw new IllegalArgumentException("Viewer arrays differ in length.");
+        }
+
+        pool.invoke(new ViewerTask(xs, ys, distances, results, 0, n));
+    }
+
+    /**
+     * Calculates the fields of view of a range of viewers, splitting
+     * the range in halves until it is small enough.
+     */
+    private class ViewerTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int [] xs;
+        private final int [] ys;
+        private final int [] distances;
+        private final FovBitmap [] results;
+        private final int from, to;
+
+        ViewerTask(int [] xs, int [] ys, int [] distances,
+                   FovBitmap [] results, int from, int to)
+        {
+            this.xs = xs;
+            this.ys = ys;
+            this.distances = distances;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= CHUNK_SIZE) {
+                final FieldOfView fov = scratch.get();
+
+                for(int i=from; i<to; i++) {
+                    final FovBitmap result = results[i];
+                    result.reset(xs[i], ys[i], distances[i]);
+                    fov.calculate(xs[i], ys[i], distances[i], result);
+                }
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ViewerTask(xs, ys, distances, results, from, mid),
+                          new ViewerTask(xs, ys, distances, results, mid, to));
+            }
+        }
+    }
+}
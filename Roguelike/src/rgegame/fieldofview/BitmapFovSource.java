@@ -0,0 +1,51 @@
+/*
+ * BitmapFovSource.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import rgegame.map.data.CellBitmap;
+
+/**
+ * A field of view source which reads line of sight blockers from
+ * a precomputed cell bitmap.
+ *
+ * @see rgegame.map.data.LayeredMap#getCellBitmap
+ *
+ * @author Hj. Malthaner
+ */
+public class BitmapFovSource implements FovSource
+{
+    private final CellBitmap opaque;
+
+    /**
+     * @param opaque Bitmap of the cells which block the line of sight
+     */
+    public BitmapFovSource(CellBitmap opaque)
+    {
+        this.opaque = opaque;
+    }
+
+    /**
+     * Check weather a given location
+     * blocks the line of sight or not.
+     *
+     * @param posX X coordinate
+     * @param posY Y coordinate
+     *
+     * @return true if blocking, false otherwise
+     */
+    public boolean isBlockingLOS(int posX, int posY)
+    {
+        return opaque.get(posX, posY);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * ExactShadowList.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+/**
+ * Keeps track of shadow intervals, with the interval borders stored
+ * as integer fractions (slopes). Slopes are compared by cross
+ * multiplication, so there are no rounding errors and no epsilon
+ * is needed to detect adjacent shadows.
+ *
+ * All denominators must be positive.
+ *
+ * @see ShadowList
+ *
+ * @author Hj. Malthaner
+ */
+public class ExactShadowList
+{
+    /** Lower slopes of the shadow intervals */
+    private int [] lowNum;
+    private int [] lowDen;
+
+    /** Upper slopes of the shadow intervals */
+    private int [] highNum;
+    private int [] highDen;
+
+    /** Number of intervals in use */
+    private int size;
+
+    public ExactShadowList()
+    {
+        lowNum = new int [128];
+        lowDen = new int [128];
+        highNum = new int [128];
+        highDen = new int [128];
+        size = 0;
+    }
+
+    /**
+     * Compare two fractions with positive denominators.
+     *
+     * @return true if n1/d1 &lt;= n2/d2
+     */
+    private static boolean lessOrEqual(final int n1, final int d1,
+                                       final int n2, final int d2)
+    {
+        return (long)n1 * d2 <= (long)n2 * d1;
+    }
+
+    boolean isFullyShadowed(final int lowN, final int lowD,
+                            final int highN, final int highD)
+    {
+        for(int i=0; i<size; i++) {
+            if(lessOrEqual(lowNum[i], lowDen[i], lowN, lowD) &&
+               lessOrEqual(highN, highD, highNum[i], highDen[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Merge a new shadow interval into the shadow list. Intervals
+     * which overlap or touch the new one are widened.
+     *
+     * @param lowN numerator of lower slope of new shadow
+     * @param lowD denominator of lower slope of new shadow
+     * @param highN numerator of upper slope of new shadow
+     * @param highD denominator of upper slope of new shadow
+     */
+    void merge(final int lowN, final int lowD,
+               final int highN, final int highD)
+    {
+        boolean newShadow = true;
+
+        for(int i=0; i<size; i++) {
+            // Hajo: overlapping or touching?
+            if(lessOrEqual(lowN, lowD, highNum[i], highDen[i]) &&
+               lessOrEqual(lowNum[i], lowDen[i], highN, highD)) {
+
+                if(lessOrEqual(lowN, lowD, lowNum[i], lowDen[i])) {
+                    lowNum[i] = lowN;
+                    lowDen[i] = lowD;
+                }
+
+                if(lessOrEqual(highNum[i], highDen[i], highN, highD)) {
+                    highNum[i] = highN;
+                    highDen[i] = highD;
+                }
+
+                newShadow = false;
+            }
+        }
+
+        if(newShadow) {
+            add(lowN, lowD, highN, highD);
+        }
+    }
+
+
+    /**
+     * Append an interval, growing the arrays if needed.
+     */
+    private void add(final int lowN, final int lowD,
+                     final int highN, final int highD)
+    {
+        if(size == lowNum.length) {
+            ensureCapacity(size * 2);
+        }
+
+        lowNum[size] = lowN;
+        lowDen[size] = lowD;
+        highNum[size] = highN;
+        highDen[size] = highD;
+        size ++;
+    }
+
+
+    private void ensureCapacity(final int capacity)
+    {
+        if(capacity > lowNum.length) {
+            lowNum = grow(lowNum, capacity);
+            lowDen = grow(lowDen, capacity);
+            highNum = grow(highNum, capacity);
+            highDen = grow(highDen, capacity);
+        }
+    }
+
+
+    private int [] grow(final int [] array, final int capacity)
+    {
+        final int [] result = new int [capacity];
+        System.arraycopy(array, 0, result, 0, size);
+        return result;
+    }
+
+
+    /**
+     * Make this list a copy of the source list, reusing the
+     * existing arrays.
+     *
+     * @param src The list to copy.
+     */
+    void copyFrom(final ExactShadowList src)
+    {
+        ensureCapacity(src.size);
+
+        System.arraycopy(src.lowNum, 0, lowNum, 0, src.size);
+        System.arraycopy(src.lowDen, 0, lowDen, 0, src.size);
+        System.arraycopy(src.highNum, 0, highNum, 0, src.size);
+        System.arraycopy(src.highDen, 0, highDen, 0, src.size);
+        size = src.size;
+    }
+
+    /**
+     * Show debug data.
+     */
+    void dump()
+    {
+        for(int i=0; i<size; i++) {
+            System.err.println("Interval: " +
+                               lowNum[i] + "/" + lowDen[i] + ".." +
+                               highNum[i] + "/" + highDen[i]);
+        }
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+}
@@ -17,14 +17,24 @@ package rgegame.fieldofview;
  * Generic field of view calculator. Uses fov_source_t and fov_destination_t
  * objects to communicate with the application.
  *
+ * The shadow lists are kept between calls to avoid garbage, so this
+ * calculator is not reentrant. Each thread needs it's own instance.
+ *
  * @author Hj. Malthaner
  */
 public class FieldOfView
 {
+    /** Slopes are calculated as double values (default) */
+    public static final int SLOPES_DOUBLE = 0;
+
+    /** Slopes are kept as integer fractions, no rounding errors */
+    public static final int SLOPES_EXACT = 1;
+
     /**
-     * Matrix transforms for all 8 octants.
+     * Matrix transforms for all 8 octants. Shared with the line
+     * of sight checks, must not be modified.
      */
-    private final Matrix trans [] =
+    static final Matrix trans [] =
     {
         new Matrix(1,0,0,1),
         new Matrix(0,-1,-1,0),
@@ -40,6 +50,20 @@ public class FieldOfView
     private final FovSource source;
     private final FovDestination destination;
 
+    /** Shadows of the current column */
+    private final ShadowList shadows = new ShadowList();
+
+    /** Shadows of the former column */
+    private final ShadowList formerShadows = new ShadowList();
+
+    /** Shadows of the current column, exact mode */
+    private final ExactShadowList exactShadows = new ExactShadowList();
+
+    /** Shadows of the former column, exact mode */
+    private final ExactShadowList exactFormerShadows = new ExactShadowList();
+
+    /** One of SLOPES_DOUBLE or SLOPES_EXACT */
+    private final int slopeMode;
 
     /**
      * Create a new field of view calculator.
@@ -49,8 +73,26 @@ public class FieldOfView
      */
     public FieldOfView(FovSource source, FovDestination destination)
     {
+        this(source, destination, SLOPES_DOUBLE);
+    }
+
+    /**
+     * Create a new field of view calculator.
+     *
+     * @param source Used to check if a map cell blocks the line of sight
+     * @param destination Used to write the results of the visibility calculation
+     * @param slopeMode SLOPES_DOUBLE or SLOPES_EXACT
+     */
+    public FieldOfView(FovSource source, FovDestination destination,
+                       int slopeMode)
+    {
+        if(slopeMode != SLOPES_DOUBLE && slopeMode != SLOPES_EXACT) {
+            throw new IllegalArgumentException("Unknown slope mode: " + slopeMode);
+        }
+
         this.source = source;
         this.destination = destination;
+        this.slopeMode = slopeMode;
     }
 
     private static double angle(final int x1, final int y1,
@@ -107,6 +149,44 @@ public class FieldOfView
     }
 
 
+    /**
+     * Same as fovPos(), but uses integer fractions for the slopes.
+     * The slopes do not depend on the center, only on the offsets.
+     */
+    private boolean fovPosExact(final Matrix transform,
+                                final int centerX, final int centerY,
+                                final int posX, final int posY)
+    {
+        int minN = posY*2-1;
+        int minD = posX*2-1;
+
+        // Hajo: only the center cell has a negative denominator
+        if(minD < 0) {
+            minN = -minN;
+            minD = -minD;
+        }
+
+        final int maxN = posY*2+1;
+        final int maxD = posX*2+1;
+
+        boolean visible;
+
+        if(exactFormerShadows.isFullyShadowed(minN, minD, maxN, maxD)) {
+            visible = false;
+        } else {
+            visible = true;
+
+            final int x = transform.multX(posX, posY);
+            final int y = transform.multY(posX, posY);
+            if(source.isBlockingLOS(x + centerX, y + centerY)) {
+                exactShadows.merge(minN, minD, maxN, maxD);
+            }
+        }
+
+        return visible;
+    }
+
+
     /**
      * Calculate field of view.
      *
@@ -117,16 +197,32 @@ public class FieldOfView
     public void calculate(final int centerX, int centerY,
                           final int distance)
     {
-        int x_off, y_off;
+        calculate(centerX, centerY, distance, destination);
+    }
 
-        final ShadowList shadows = new ShadowList();
-        final ShadowList formerShadows = new ShadowList();
+
+    /**
+     * Calculate field of view, writing the results to the given
+     * destination instead of the one passed to the constructor.
+     *
+     * @param centerX X origin (center) of field of view
+     * @param centerY Y origin (center) of field of view
+     * @param distance the max viewing distance
+     * @param destination Used to write the results of the visibility calculation
+     */
+    void calculate(final int centerX, int centerY,
+                   final int distance,
+                   final FovDestination destination)
+    {
+        int x_off, y_off;
 
         for(int octant=0; octant < 8; octant ++) {
             Matrix transform = trans[octant];
 
             formerShadows.clear();
             shadows.clear();
+            exactFormerShadows.clear();
+            exactShadows.clear();
 
             x_off = 1;
 
@@ -136,18 +232,31 @@ public class FieldOfView
 
                 // save old shadows, we need last columns shadows while building
                 // new shadows
-                // we modify angles so we need a real copy
+                // we modify angles so we need a real copy, but the
+                // former shadows list reuses it's arrays
 
-                formerShadows.deepCopy(shadows);
+                if(slopeMode == SLOPES_EXACT) {
+                    exactFormerShadows.copyFrom(exactShadows);
+                } else {
+                    formerShadows.copyFrom(shadows);
+                }
 
                 boolean visible_row = false;
                 y_off = 0;
                 while(y_off < x_off) {
-                    boolean visible_pos = fovPos(transform,
-                                                 formerShadows,
-                                                 shadows,
-				                                 centerX, centerY,
-                                                 posX, posY);
+                    boolean visible_pos;
+
+                    if(slopeMode == SLOPES_EXACT) {
+                        visible_pos = fovPosExact(transform,
+                                                  centerX, centerY,
+                                                  posX, posY);
+                    } else {
+                        visible_pos = fovPos(transform,
+                                             formerShadows,
+                                             shadows,
+                                             centerX, centerY,
+                                             posX, posY);
+                    }
 
                     if(visible_pos) {
                         visible_row |= visible_pos;
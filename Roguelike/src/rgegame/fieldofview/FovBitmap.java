@@ -0,0 +1,171 @@
+/*
+ * FovBitmap.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import java.util.Arrays;
+
+/**
+ * The result of one field of view calculation, stored as a bitset.
+ * The bitset only covers the square around the origin which the
+ * field of view can reach, so many of these can be kept at once.
+ *
+ * @author Hj. Malthaner
+ */
+public class FovBitmap implements FovDestination
+{
+    /** Map coordinates of the top left cell of the bitmap */
+    private int left, top;
+
+    /** Size of the bitmap in cells */
+    private int width, height;
+
+    /** 64 bit words per bitmap row */
+    private int wordsPerRow;
+
+    private long [] bits;
+
+    /** Number of visible cells */
+    private int count;
+
+    /**
+     * Create an empty bitmap. Call reset() before using it as a
+     * field of view destination.
+     */
+    public FovBitmap()
+    {
+        bits = new long [0];
+    }
+
+    /**
+     * Prepare the bitmap for a new field of view calculation.
+     * Reuses the existing bitset if it is big enough.
+     *
+     * @param centerX X origin (center) of field of view
+     * @param centerY Y origin (center) of field of view
+     * @param distance the max viewing distance
+     */
+    public void reset(final int centerX, final int centerY,
+                      final int distance)
+    {
+        final int reach = Math.max(distance, 1);
+
+        left = centerX - reach;
+        top = centerY - reach;
+        width = reach*2 + 1;
+        height = width;
+        wordsPerRow = (width + 63) >>> 6;
+
+        final int size = wordsPerRow * height;
+
+        if(bits.length < size) {
+            bits = new long [size];
+        } else {
+            Arrays.fill(bits, 0, size, 0L);
+        }
+
+        count = 0;
+    }
+
+    /**
+     * FOV code will call this for each location that can be seen.
+     */
+    public void setCanBeSeen(int posX, int posY)
+    {
+        final int x = posX - left;
+        final int y = posY - top;
+
+        if(x >= 0 && y >= 0 && x < width && y < height) {
+            final int word = y*wordsPerRow + (x >>> 6);
+            final long bit = 1L << x;
+
+            if((bits[word] & bit) == 0) {
+                bits[word] |= bit;
+                count ++;
+            }
+        }
+    }
+
+    /**
+     * Check weather map cell (x,y) is visible.
+     */
+    public boolean isVisible(int posX, int posY)
+    {
+        final int x = posX - left;
+        final int y = posY - top;
+
+        if(x >= 0 && y >= 0 && x < width && y < height) {
+            return (bits[y*wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of visible cells.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Report all visible cells to another destination, e.g.
+     * a VisibilityGrid. Each cell is reported once.
+     *
+     * @param destination The destination to write to.
+     */
+    public void copyTo(final FovDestination destination)
+    {
+        for(int y=0; y<height; y++) {
+            final int rowBase = y*wordsPerRow;
+
+            for(int w=0; w<wordsPerRow; w++) {
+                long word = bits[rowBase + w];
+
+                while(word != 0) {
+                    final int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                    destination.setCanBeSeen(left + x, top + y);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if two bitmaps contain the same visible cells.
+     */
+    public boolean sameCells(final FovBitmap other)
+    {
+        if(count != other.count) {
+            return false;
+        }
+
+        for(int y=0; y<height; y++) {
+            final int rowBase = y*wordsPerRow;
+
+            for(int w=0; w<wordsPerRow; w++) {
+                long word = bits[rowBase + w];
+
+                while(word != 0) {
+                    final int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                    if(!other.isVisible(left + x, top + y)) {
+                        return false;
+                    }
+                    word &= word - 1;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * FovCache.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import rgegame.map.data.LayeredMap;
+import rgegame.map.data.MapChangeListener;
+
+/**
+ * A bounded LRU cache for field of view results, keyed by origin and
+ * radius. Each entry is valid for the map revision of the line of sight
+ * layer it was calculated with.
+ *
+ * The cache listens to changes of the line of sight layer. A changed
+ * cell only invalidates entries which can see the cell, because a cell
+ * which is not visible is never checked for blocking, so it can't
+ * change the result. If the layer changed without the cache being
+ * notified, the layer revision won't match and all entries are dropped.
+ *
+ * @author Hj. Malthaner
+ */
+public class FovCache implements MapChangeListener
+{
+    /**
+     * Cache key. Uses the same trick as the object registry: one
+     * mutable key is used for lookups to avoid allocations.
+     */
+    private static final class Key
+    {
+        int x, y, radius;
+
+        Key(int x, int y, int radius)
+        {
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(o instanceof Key) {
+                final Key k = (Key)o;
+                return x == k.x && y == k.y && radius == k.radius;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (x * 31 + y) * 31 + radius;
+        }
+    }
+
+    private final LayeredMap map;
+    private final int layer;
+    private final FieldOfView fov;
+    private final int capacity;
+
+    private final LinkedHashMap <Key, FovBitmap> entries;
+    private final Key lookupKey;
+
+    /** Revision of the line of sight layer all entries are valid for */
+    private int revision;
+
+    /** Bitmap of the last evicted entry, reused for the next miss */
+    private FovBitmap spare;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Create a new cache for a map. The cache registers itself as
+     * change listener of the map, call dispose() to unregister.
+     *
+     * @param map The map to cache fields of view for
+     * @param layer The map layer which holds line of sight blockers
+     * @param source Used to check if a map cell blocks the line of sight
+     * @param capacity Max. number of cached results
+     */
+    public FovCache(final LayeredMap map, final int layer,
+                    final FovSource source, final int capacity)
+    {
+        this.map = map;
+        this.layer = layer;
+        this.fov = new FieldOfView(source, null);
+        this.capacity = capacity;
+        this.lookupKey = new Key(0, 0, 0);
+        this.revision = map.getRevision(layer);
+
+        entries = new LinkedHashMap <Key, FovBitmap> (capacity*2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry <Key, FovBitmap> eldest)
+            {
+                if(size() > FovCache.this.capacity) {
+                    spare = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        map.addChangeListener(this);
+    }
+
+    /**
+     * Unregister this cache from the map and drop all entries.
+     */
+    public synchronized void dispose()
+    {
+        map.removeChangeListener(this);
+        entries.clear();
+    }
+
+    /**
+     * Get the field of view for an origin and radius, calculate
+     * it if it is not cached yet. The result belongs to the cache and
+     * must not be modified. It will be reused after it was evicted.
+     *
+     * @param centerX X origin (center) of field of view
+     * @param centerY Y origin (center) of field of view
+     * @param distance the max viewing distance
+     * @return The visible cells.
+     */
+    public synchronized FovBitmap calculate(final int centerX,
+                                            final int centerY,
+                                            final int distance)
+    {
+        final int current = map.getRevision(layer);
+
+        if(current != revision) {
+            // Hajo: changes we didn't hear of
+            invalidations += entries.size();
+            entries.clear();
+            revision = current;
+        }
+
+        lookupKey.x = centerX;
+        lookupKey.y = centerY;
+        lookupKey.radius = distance;
+
+        FovBitmap result = entries.get(lookupKey);
+
+        if(result != null) {
+            hits ++;
+        } else {
+            misses ++;
+
+            result = (spare != null) ? spare : new FovBitmap();
+            spare = null;
+
+            result.reset(centerX, centerY, distance);
+            fov.calculate(centerX, centerY, distance, result);
+
+            entries.put(new Key(centerX, centerY, distance), result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop all entries whose field of view contains the changed cell.
+     */
+    public synchronized void cellChanged(LayeredMap map, int layer,
+                                         int x, int y,
+                                         int oldValue, int newValue)
+    {
+        if(layer == this.layer) {
+            final Iterator <FovBitmap> iter = entries.values().iterator();
+
+            while(iter.hasNext()) {
+                if(iter.next().isVisible(x, y)) {
+                    iter.remove();
+                    invalidations ++;
+                }
+            }
+
+            revision = map.getRevision(layer);
+        }
+    }
+
+    /**
+     * Drop all entries.
+     */
+    public synchronized void mapReplaced(LayeredMap map)
+    {
+        clear();
+    }
+
+    /**
+     * Drop all entries.
+     */
+    public synchronized void clear()
+    {
+        invalidations += entries.size();
+        entries.clear();
+        revision = map.getRevision(layer);
+    }
+
+    /**
+     * @return The number of cached results.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of calls which were answered from the cache.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return The number of calls which needed a calculation.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return The number of entries dropped because of map changes.
+     */
+    public synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+}
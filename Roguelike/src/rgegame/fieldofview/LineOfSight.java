@@ -0,0 +1,390 @@
+/*
+ * LineOfSight.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Point to point line of sight checks ("can A see B?").
+ *
+ * A check runs the same shadow casting as FieldOfView, but only in
+ * the octant(s) containing B, only up to B's column, and only for the
+ * cells inside a narrow wedge around the line from A to B. That is
+ * a small fraction of the cells a full field of view calculation visits,
+ * and the answer is the same: B can be seen from A exactly if
+ * FieldOfView.calculate(A, distance) reports B.
+ *
+ * The single checks use scratch shadow lists which belong to this
+ * object, so they are not reentrant. The batch check gives each
+ * worker thread it's own scratch lists and can run in parallel.
+ *
+ * @see FieldOfView
+ *
+ * @author Hj. Malthaner
+ */
+public class LineOfSight
+{
+    /**
+     * Half width of the scanned wedge, as slope. Must be bigger than
+     * the adjacency epsilon of the shadow list.
+     */
+    private static final double WEDGE_MARGIN = 0.05;
+
+    /** Pairs per task in batch checks */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Shadow lists for one check at a time.
+     */
+    private static final class Scratch
+    {
+        final ShadowList shadows = new ShadowList();
+        final ShadowList formerShadows = new ShadowList();
+        final ExactShadowList exactShadows = new ExactShadowList();
+        final ExactShadowList exactFormerShadows = new ExactShadowList();
+    }
+
+    private final FovSource source;
+    private final int slopeMode;
+
+    /** Scratch lists for single checks */
+    private final Scratch scratch;
+
+    /** Scratch lists for the worker threads of batch checks */
+    private final ThreadLocal <Scratch> threadScratch;
+
+    /**
+     * Create a new line of sight checker.
+     *
+     * @param source Used to check if a map cell blocks the line of sight
+     */
+    public LineOfSight(FovSource source)
+    {
+        this(source, FieldOfView.SLOPES_DOUBLE);
+    }
+
+    /**
+     * Create a new line of sight checker.
+     *
+     * @param source Used to check if a map cell blocks the line of sight
+     * @param slopeMode FieldOfView.SLOPES_DOUBLE or FieldOfView.SLOPES_EXACT,
+     *        must match the mode of the field of view to compare with.
+     */
+    public LineOfSight(FovSource source, int slopeMode)
+    {
+        if(slopeMode != FieldOfView.SLOPES_DOUBLE &&
+           slopeMode != FieldOfView.SLOPES_EXACT) {
+            throw new IllegalArgumentException("Unknown slope mode: " + slopeMode);
+        }
+
+        this.source = source;
+        this.slopeMode = slopeMode;
+        this.scratch = new Scratch();
+
+        threadScratch = new ThreadLocal <Scratch> () {
+            @Override
+            protected Scratch initialValue()
+            {
+                return new Scratch();
+            }
+        };
+    }
+
+    /**
+     * Check if B can be seen from A, with unlimited viewing distance.
+     *
+     * @param ax X coordinate of A
+     * @param ay Y coordinate of A
+     * @param bx X coordinate of B
+     * @param by Y coordinate of B
+     * @return true if B can be seen from A
+     */
+    public boolean canSee(int ax, int ay, int bx, int by)
+    {
+        final int distance = Math.max(Math.abs(bx-ax), Math.abs(by-ay)) + 2;
+        return check(scratch, ax, ay, bx, by, distance);
+    }
+
+    /**
+     * Check if B can be seen from A.
+     *
+     * @param ax X coordinate of A
+     * @param ay Y coordinate of A
+     * @param bx X coordinate of B
+     * @param by Y coordinate of B
+     * @param distance the max viewing distance, same meaning as for
+     *        FieldOfView.calculate()
+     * @return true if B can be seen from A
+     */
+    public boolean canSee(int ax, int ay, int bx, int by, int distance)
+    {
+        return check(scratch, ax, ay, bx, by, distance);
+    }
+
+    /**
+     * Check many pairs at once. The pairs are split into chunks
+     * which run in parallel on the given pool.
+     *
+     * @param ax X coordinates of the viewers
+     * @param ay Y coordinates of the viewers
+     * @param bx X coordinates of the targets
+     * @param by Y coordinates of the targets
+     * @param distances The max viewing distance for each pair
+     * @param results Receives true for each pair where B can be seen from A
+     * @param pool The pool to run on, or null to check all pairs
+     *        in the calling thread
+     */
+    public void canSee(final int [] ax, final int [] ay,
+                       final int [] bx, final int [] by,
+                       final int [] distances,
+                       final boolean [] results,
+                       final ForkJoinPool pool)
+    {
+        final int n = ax.length;
+
+        if(ay.length != n || bx.length != n || by.length != n ||
+           distances.length != n || results.length != n) {
+            throw new IllegalArgumentException("Pair arrays differ in length.");
+        }
+
+        final PairTask task = new PairTask(ax, ay, bx, by, distances, results, 0, n);
+
+        if(pool != null) {
+            pool.invoke(task);
+        } else {
+            task.checkRange(scratch);
+        }
+    }
+
+    /**
+     * Check one pair in all octants which contain B.
+     */
+    private boolean check(final Scratch s,
+                          final int ax, final int ay,
+                          final int bx, final int by,
+                          final int distance)
+    {
+        final int dx = bx - ax;
+        final int dy = by - ay;
+
+        for(int octant=0; octant<8; octant++) {
+            final Matrix transform = FieldOfView.trans[octant];
+
+            // Hajo: octant matrices are orthogonal, the inverse
+            // is the transposed matrix
+            final int posX = transform.a * dx + transform.c * dy;
+            final int posY = transform.b * dx + transform.d * dy;
+
+            if(posX >= 0 && posY <= 0 && -posY <= posX && posX <= distance-2) {
+                final boolean visible;
+
+                if(slopeMode == FieldOfView.SLOPES_EXACT) {
+                    visible = scanExact(s, transform, ax, ay, posX, posY);
+                } else {
+                    visible = scan(s, transform, ax, ay, posX, posY);
+                }
+
+                if(visible) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Shadow casting in one octant, restricted to the wedge around
+     * the target cell. Double slopes, same arithmetic as FieldOfView.
+     */
+    private boolean scan(final Scratch s, final Matrix transform,
+                         final int centerX, final int centerY,
+                         final int targetX, final int targetY)
+    {
+        final ShadowList shadows = s.shadows;
+        final ShadowList formerShadows = s.formerShadows;
+
+        shadows.clear();
+        formerShadows.clear();
+
+        final double min_w = ((double)(targetY*2-1)) / ((double)(targetX*2-1));
+        final double max_w = ((double)(targetY*2+1)) / ((double)(targetX*2+1));
+
+        final double low = Math.min(min_w, max_w) - WEDGE_MARGIN;
+        final double high = Math.max(min_w, max_w) + WEDGE_MARGIN;
+
+        for(int posX=0; posX<targetX; posX++) {
+            formerShadows.copyFrom(shadows);
+
+            boolean visible_row = false;
+
+            for(int posY=wedgeTop(high, posX); posY>=wedgeBottom(low, posX); posY--) {
+                final double cmin = ((double)(posY*2-1)) / ((double)(posX*2-1));
+                final double cmax = ((double)(posY*2+1)) / ((double)(posX*2+1));
+
+                if(!formerShadows.isFullyShadowed(cmin, cmax)) {
+                    visible_row = true;
+
+                    final int x = transform.multX(posX, posY);
+                    final int y = transform.multY(posX, posY);
+                    if(source.isBlockingLOS(x + centerX, y + centerY)) {
+                        shadows.merge(cmin, cmax);
+                    }
+                }
+            }
+
+            if(visible_row == false) {
+                return false;
+            }
+        }
+
+        formerShadows.copyFrom(shadows);
+
+        return !formerShadows.isFullyShadowed(min_w, max_w);
+    }
+
+    /**
+     * Same as scan(), with integer fraction slopes.
+     */
+    private boolean scanExact(final Scratch s, final Matrix transform,
+                              final int centerX, final int centerY,
+                              final int targetX, final int targetY)
+    {
+        final ExactShadowList shadows = s.exactShadows;
+        final ExactShadowList formerShadows = s.exactFormerShadows;
+
+        shadows.clear();
+        formerShadows.clear();
+
+        int minN = targetY*2-1;
+        int minD = targetX*2-1;
+        if(minD < 0) {
+            minN = -minN;
+            minD = -minD;
+        }
+        final int maxN = targetY*2+1;
+        final int maxD = targetX*2+1;
+
+        final double low = Math.min((double)minN / minD, (double)maxN / maxD) - WEDGE_MARGIN;
+        final double high = Math.max((double)minN / minD, (double)maxN / maxD) + WEDGE_MARGIN;
+
+        for(int posX=0; posX<targetX; posX++) {
+            formerShadows.copyFrom(shadows);
+
+            boolean visible_row = false;
+
+            for(int posY=wedgeTop(high, posX); posY>=wedgeBottom(low, posX); posY--) {
+                int cminN = posY*2-1;
+                int cminD = posX*2-1;
+                if(cminD < 0) {
+                    cminN = -cminN;
+                    cminD = -cminD;
+                }
+                final int cmaxN = posY*2+1;
+                final int cmaxD = posX*2+1;
+
+                if(!formerShadows.isFullyShadowed(cminN, cminD, cmaxN, cmaxD)) {
+                    visible_row = true;
+
+                    final int x = transform.multX(posX, posY);
+                    final int y = transform.multY(posX, posY);
+                    if(source.isBlockingLOS(x + centerX, y + centerY)) {
+                        shadows.merge(cminN, cminD, cmaxN, cmaxD);
+                    }
+                }
+            }
+
+            if(visible_row == false) {
+                return false;
+            }
+        }
+
+        formerShadows.copyFrom(shadows);
+
+        return !formerShadows.isFullyShadowed(minN, minD, maxN, maxD);
+    }
+
+    /**
+     * Topmost (largest) row of a column whose slope range reaches
+     * into the wedge.
+     */
+    private static int wedgeTop(final double high, final int posX)
+    {
+        if(posX == 0) {
+            return 0;
+        }
+        final int top = (int)Math.floor((high * (posX*2-1) + 1) / 2);
+        return Math.min(top, 0);
+    }
+
+    /**
+     * Lowest row of a column whose slope range reaches into the wedge.
+     */
+    private static int wedgeBottom(final double low, final int posX)
+    {
+        if(posX == 0) {
+            return 0;
+        }
+        final int bottom = (int)Math.ceil((low * (posX*2+1) - 1) / 2);
+        return Math.max(bottom, -posX);
+    }
+
+    /**
+     * Checks a range of pairs, splitting the range in halves until
+     * it is small enough.
+     */
+    private class PairTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int [] ax, ay, bx, by;
+        private final int [] distances;
+        private final boolean [] results;
+        private final int from, to;
+
+        PairTask(int [] ax, int [] ay, int [] bx, int [] by,
+                 int [] distances, boolean [] results,
+                 int from, int to)
+        {
+            this.ax = ax;
+            this.ay = ay;
+            this.bx = bx;
+            this.by = by;
+            this.distances = distances;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        void checkRange(final Scratch s)
+        {
+            for(int i=from; i<to; i++) {
+                results[i] = check(s, ax[i], ay[i], bx[i], by[i], distances[i]);
+            }
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= CHUNK_SIZE) {
+                checkRange(threadScratch.get());
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new PairTask(ax, ay, bx, by, distances, results, from, mid),
+                          new PairTask(ax, ay, bx, by, distances, results, mid, to));
+            }
+        }
+    }
+}
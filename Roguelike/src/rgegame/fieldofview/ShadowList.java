@@ -13,26 +13,40 @@
 
 package rgegame.fieldofview;
 
-import java.util.ArrayList;
-
 /**
  * Keeps track of shadow intervals.
- * 
+ *
+ * The intervals are stored in two parallel primitive arrays, so
+ * merging and copying shadows does not allocate any objects once
+ * the arrays have grown to the needed capacity.
+ *
  * @author Hj. Malthaner
  */
 public class ShadowList
 {
-    private ArrayList <Interval> list;
+    /** Lower angles of the shadow intervals */
+    private double [] low;
+
+    /** Upper angles of the shadow intervals */
+    private double [] high;
+
+    /** Number of intervals in use */
+    private int size;
 
     public ShadowList()
     {
-        list = new ArrayList<Interval>(128);
+        low = new double [128];
+        high = new double [128];
+        size = 0;
     }
 
     boolean isFullyShadowed(final double low, final double high)
     {
-        for(Interval interval : list) {
-            if(interval.low <= low && interval.high >= high) {
+        final double [] lows = this.low;
+        final double [] highs = this.high;
+
+        for(int i=0; i<size; i++) {
+            if(lows[i] <= low && highs[i] >= high) {
                 return true;
             }
         }
@@ -43,9 +57,12 @@ public class ShadowList
 
     boolean isPartiallyShadowed(final double low, final double high)
     {
-        for(Interval interval : list) {
-            if((interval.low < low && interval.high > low) ||
-               (interval.low < high && interval.high > high)) {
+        final double [] lows = this.low;
+        final double [] highs = this.high;
+
+        for(int i=0; i<size; i++) {
+            if((lows[i] < low && highs[i] > low) ||
+               (lows[i] < high && highs[i] > high)) {
                 return true;
             }
         }
@@ -62,23 +79,25 @@ public class ShadowList
      */
     void merge(final double low, final double high)
     {
-        if(list.isEmpty()) {
-            list.add(new Interval(low, high));
+        if(size == 0) {
+            add(low, high);
         } else {
             final double eps = 0.01;
+            final double [] lows = this.low;
+            final double [] highs = this.high;
 
             // try to merge first
             boolean newShadow = true;
-            for(Interval interval : list) {
-                if((low <= interval.low && high >= interval.low-eps) ||
-                   (low <= interval.high+eps && high >= interval.high)) {
+            for(int i=0; i<size; i++) {
+                if((low <= lows[i] && high >= lows[i]-eps) ||
+                   (low <= highs[i]+eps && high >= highs[i])) {
 
-                    if(low < interval.low) {
-                        interval.low = low;
+                    if(low < lows[i]) {
+                        lows[i] = low;
                     }
 
-                    if(high > interval.high) {
-                        interval.high = high;
+                    if(high > highs[i]) {
+                        highs[i] = high;
                     }
 
                     newShadow = false;
@@ -86,35 +105,72 @@ public class ShadowList
             }
 
             if(newShadow) {
-                list.add(new Interval(low, high));
+                add(low, high);
             }
         }
     }
 
 
-    void deepCopy(final ShadowList src)
+    /**
+     * Append an interval, growing the arrays if needed.
+     */
+    private void add(final double l, final double h)
+    {
+        if(size == low.length) {
+            ensureCapacity(size * 2);
+        }
+
+        low[size] = l;
+        high[size] = h;
+        size ++;
+    }
+
+
+    private void ensureCapacity(final int capacity)
     {
-        list.clear();
+        if(capacity > low.length) {
+            final double [] newLow = new double [capacity];
+            final double [] newHigh = new double [capacity];
 
-        for(Interval interval : src.list) {
-            list.add(new Interval(interval.low, interval.high));
+            System.arraycopy(low, 0, newLow, 0, size);
+            System.arraycopy(high, 0, newHigh, 0, size);
+
+            low = newLow;
+            high = newHigh;
         }
     }
 
+
+    /**
+     * Make this list a copy of the source list. This list
+     * serves as back buffer for the source list, the intervals
+     * are copied into the existing arrays.
+     *
+     * @param src The list to copy.
+     */
+    void copyFrom(final ShadowList src)
+    {
+        ensureCapacity(src.size);
+
+        System.arraycopy(src.low, 0, low, 0, src.size);
+        System.arraycopy(src.high, 0, high, 0, src.size);
+        size = src.size;
+    }
+
     /**
      * Show debug data.
      */
     void dump()
     {
-        for(Interval interval : list) {
+        for(int i=0; i<size; i++) {
             System.err.println("Interval: " +
-                               interval.low + ".." +
-                               interval.high);
+                               low[i] + ".." +
+                               high[i]);
         }
     }
 
     void clear()
     {
-        list.clear();
+        size = 0;
     }
 }
@@ -0,0 +1,292 @@
+/*
+ * VisibilityGrid.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.fieldofview;
+
+import java.util.Arrays;
+
+/**
+ * A field of view destination which stores visible and remembered
+ * cells as bitsets, one bit per map cell.
+ *
+ * The grid keeps the visible set of the former field of view, too, so
+ * callers can find the cells which became visible with the latest
+ * calculation. Clearing only touches the words inside the bounding box
+ * of the former field of view, not the whole map.
+ *
+ * Cells are reported as indices (y*width + x). Iterate like this:
+ * <pre>
+ * for(int i=grid.nextVisible(0); i &gt;= 0; i=grid.nextVisible(i+1)) {
+ *     int x = i % grid.getWidth();
+ *     int y = i / grid.getWidth();
+ * }
+ * </pre>
+ *
+ * @author Hj. Malthaner
+ */
+public class VisibilityGrid implements FovDestination
+{
+    private final int width;
+    private final int height;
+
+    /** 64 bit words per map row */
+    private final int wordsPerRow;
+
+    /** Cells visible in the current field of view */
+    private long [] visible;
+
+    /** Cells visible in the former field of view */
+    private long [] formerVisible;
+
+    /** Cells which have been visible at any time */
+    private final long [] remembered;
+
+    /** Bounding box of the current field of view, in cells */
+    private int minX, minY, maxX, maxY;
+
+    /** Bounding box of the former field of view, in cells */
+    private int formerMinX, formerMinY, formerMaxX, formerMaxY;
+
+    /**
+     * Create a new visibility grid. Nothing is visible or remembered
+     * initially.
+     *
+     * @param width The width of the map
+     * @param height The height of the map
+     */
+    public VisibilityGrid(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+
+        final int size = wordsPerRow * height;
+        visible = new long [size];
+        formerVisible = new long [size];
+        remembered = new long [size];
+
+        resetBounds();
+        formerMinX = minX;
+        formerMinY = minY;
+        formerMaxX = maxX;
+        formerMaxY = maxY;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Start a new field of view. The current visible cells become
+     * the former visible cells, and the visible set is cleared.
+     * Remembered cells are kept.
+     */
+    public void beginView()
+    {
+        final long [] tmp = formerVisible;
+        formerVisible = visible;
+        visible = tmp;
+
+        // Hajo: the new visible set still holds the data of the
+        // view before the former one, clear within its bounds
+        clearBox(visible, formerMinX, formerMinY, formerMaxX, formerMaxY);
+
+        formerMinX = minX;
+        formerMinY = minY;
+        formerMaxX = maxX;
+        formerMaxY = maxY;
+
+        resetBounds();
+    }
+
+    /**
+     * Forget all remembered cells.
+     */
+    public void clearRemembered()
+    {
+        Arrays.fill(remembered, 0L);
+    }
+
+    /**
+     * FOV code will call this for each location that can be seen.
+     * Seen cells will also be remembered.
+     */
+    public void setCanBeSeen(int posX, int posY)
+    {
+        if(posX >= 0 && posY >= 0 && posX < width && posY < height) {
+            final int word = posY*wordsPerRow + (posX >>> 6);
+            final long bit = 1L << posX;
+
+            visible[word] |= bit;
+            remembered[word] |= bit;
+
+            if(posX < minX) {
+                minX = posX;
+            }
+            if(posX > maxX) {
+                maxX = posX;
+            }
+            if(posY < minY) {
+                minY = posY;
+            }
+            if(posY > maxY) {
+                maxY = posY;
+            }
+        }
+    }
+
+    /**
+     * Check weather cell (x,y) is visible in the current field of view.
+     */
+    public boolean isVisible(int x, int y)
+    {
+        return isSet(visible, x, y);
+    }
+
+    /**
+     * Check weather cell (x,y) has been visible at any time.
+     */
+    public boolean isRemembered(int x, int y)
+    {
+        return isSet(remembered, x, y);
+    }
+
+    /**
+     * Find the next visible cell.
+     *
+     * @param fromIndex The cell index to start searching from
+     * @return The index of the next visible cell, or -1 if there is none.
+     */
+    public int nextVisible(int fromIndex)
+    {
+        return nextCell(fromIndex, false);
+    }
+
+    /**
+     * Find the next cell which is visible now, but was not visible
+     * in the former field of view.
+     *
+     * @param fromIndex The cell index to start searching from
+     * @return The index of the next newly visible cell, or -1 if there is none.
+     */
+    public int nextNewlyVisible(int fromIndex)
+    {
+        return nextCell(fromIndex, true);
+    }
+
+    private boolean isSet(final long [] bits, final int x, final int y)
+    {
+        if(x >= 0 && y >= 0 && x < width && y < height) {
+            return (bits[y*wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+        }
+        return false;
+    }
+
+    /**
+     * Scan the visible set within the current bounding box.
+     */
+    private int nextCell(final int fromIndex, final boolean onlyNew)
+    {
+        if(fromIndex < 0 || maxX < minX) {
+            return -1;
+        }
+
+        int y = fromIndex / width;
+        int x = fromIndex % width;
+
+        if(y < minY) {
+            y = minY;
+            x = minX;
+        }
+
+        if(x < minX) {
+            x = minX;
+        }
+
+        final int firstWord = minX >>> 6;
+        final int lastWord = maxX >>> 6;
+
+        while(y <= maxY) {
+            if(x <= maxX) {
+                final int rowBase = y*wordsPerRow;
+                int w = x >>> 6;
+
+                // Hajo: mask out bits below x in the first word
+                long bits = word(rowBase + w, onlyNew) & (-1L << x);
+
+                while(true) {
+                    if(bits != 0) {
+                        final int cellX = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        return y*width + cellX;
+                    }
+
+                    w ++;
+                    if(w > lastWord) {
+                        break;
+                    }
+                    bits = word(rowBase + w, onlyNew);
+                }
+            }
+
+            y ++;
+            x = firstWord << 6;
+        }
+
+        return -1;
+    }
+
+    private long word(final int index, final boolean onlyNew)
+    {
+        if(onlyNew) {
+            return visible[index] & ~formerVisible[index];
+        }
+        return visible[index];
+    }
+
+    private void clearBox(final long [] bits,
+                          final int x0, final int y0,
+                          final int x1, final int y1)
+    {
+        if(x1 < x0) {
+            // Hajo: empty box
+            return;
+        }
+
+        final int firstWord = x0 >>> 6;
+        final int lastWord = x1 >>> 6;
+
+        for(int y=y0; y<=y1; y++) {
+            final int rowBase = y*wordsPerRow;
+            for(int w=firstWord; w<=lastWord; w++) {
+                bits[rowBase + w] = 0;
+            }
+        }
+    }
+
+    /**
+     * Set an empty bounding box.
+     */
+    private void resetBounds()
+    {
+        minX = width;
+        minY = height;
+        maxX = -1;
+        maxY = -1;
+    }
+}
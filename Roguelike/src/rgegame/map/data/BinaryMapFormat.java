@@ -0,0 +1,104 @@
+/*
+ * BinaryMapFormat.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Constants and helpers of the binary map format v.4. All numbers are
+ * little endian ints. The file is laid out as:
+ *
+ * <pre>
+ * header:  magic "RGKM", version 4, layout type, layer count,
+ *          width, height, spawn x, spawn y
+ * layers:  outside value, tile set name,
+ *          width*height contents, xoffs, yoffs
+ * scripts: count, then per script cell index and text
+ * </pre>
+ *
+ * Strings are stored as byte count and UTF-8 bytes, a null string
+ * has the byte count -1.
+ *
+ * @author Hj. Malthaner
+ */
+final class BinaryMapFormat
+{
+    /** "RGKM" as little endian int */
+    static final int MAGIC = 'R' | ('G' << 8) | ('K' << 16) | ('M' << 24);
+
+    static final int VERSION = 4;
+
+    /** Number of ints in the header */
+    static final int HEADER_INTS = 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BinaryMapFormat()
+    {
+    }
+
+    /**
+     * @return A little endian buffer of the given size
+     */
+    static ByteBuffer allocate(final int bytes)
+    {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return The encoded string, or null for a null string
+     */
+    static byte [] encode(final String string)
+    {
+        return string == null ? null : string.getBytes(UTF8);
+    }
+
+    /**
+     * @return Bytes needed for an encoded string
+     */
+    static int size(final byte [] encoded)
+    {
+        return 4 + (encoded == null ? 0 : encoded.length);
+    }
+
+    static void putString(final ByteBuffer buffer, final byte [] encoded)
+    {
+        if(encoded == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(encoded.length);
+            buffer.put(encoded);
+        }
+    }
+
+    static String getString(final ByteBuffer buffer) throws IOException
+    {
+        final int length = buffer.getInt();
+
+        if(length == -1) {
+            return null;
+        }
+
+        if(length < 0 || length > buffer.remaining()) {
+            throw new IOException("Bad string length: " + length);
+        }
+
+        final byte [] bytes = new byte [length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
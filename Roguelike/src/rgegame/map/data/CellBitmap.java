@@ -0,0 +1,169 @@
+/*
+ * CellBitmap.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+/**
+ * A bitmap with one bit per map cell, derived from the values of a
+ * map layer by a classifier. The layered map keeps the bitmap up to
+ * date when cells change, so checks like "is this cell walkable?"
+ * become a single bit test.
+ *
+ * @see LayeredMap#getCellBitmap(int, CellClassifier)
+ *
+ * @author Hj. Malthaner
+ */
+public class CellBitmap
+{
+    private final int layer;
+    private final CellClassifier classifier;
+
+    private int width;
+    private int height;
+
+    /** 64 bit words per map row */
+    private int wordsPerRow;
+
+    private long [] bits;
+
+    /** The class of the area outside of the map */
+    private boolean outside;
+
+    /**
+     * Create a new bitmap for a layer of a map.
+     */
+    CellBitmap(final LayeredMap map, final int layer,
+               final CellClassifier classifier)
+    {
+        this.layer = layer;
+        this.classifier = classifier;
+
+        rebuild(map);
+    }
+
+    /**
+     * @return The map layer this bitmap is derived from.
+     */
+    public int getLayer()
+    {
+        return layer;
+    }
+
+    /**
+     * @return The classifier used to derive this bitmap.
+     */
+    public CellClassifier getClassifier()
+    {
+        return classifier;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Check the class of a cell.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return true if the cell value matches the classifier. For
+     *         cells outside the map, the outside value is checked.
+     */
+    public boolean get(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            return (bits[y*wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+        } else {
+            return outside;
+        }
+    }
+
+    /**
+     * Check the class of 64 cells of a row at once.
+     *
+     * @param x The X coordinate of the first cell
+     * @param y The Y coordinate
+     * @return Bit i is set if cell (x+i, y) matches the classifier. For
+     *         cells outside the map, the outside value is used.
+     */
+    public long getBits(final int x, final int y)
+    {
+        if(y<0 || y>=height || x<=-64 || x>=width) {
+            return outside ? -1L : 0L;
+        }
+
+        if(x < 0) {
+            final long low = outside ? (1L << -x) - 1 : 0L;
+            return (getBits(0, y) << -x) | low;
+        }
+
+        final int row = y*wordsPerRow;
+        final int word = x >>> 6;
+        final int shift = x & 63;
+
+        long result = bits[row + word] >>> shift;
+
+        if(shift != 0 && word + 1 < wordsPerRow) {
+            result |= bits[row + word + 1] << (64 - shift);
+        }
+
+        if(outside && x + 64 > width) {
+            // Hajo: bits past the map width are never set
+            result |= -1L << (width - x);
+        }
+
+        return result;
+    }
+
+    /**
+     * Recalculate all bits from the map data.
+     */
+    final void rebuild(final LayeredMap map)
+    {
+        width = map.getWidth();
+        height = map.getHeight();
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long [wordsPerRow * height];
+
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                if(classifier.matches(map.get(layer, x, y))) {
+                    bits[y*wordsPerRow + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+
+        // Hajo: any coordinate outside of the map will do
+        outside = classifier.matches(map.get(layer, -1, -1));
+    }
+
+    /**
+     * Update one cell after it's value changed.
+     */
+    final void update(final int x, final int y, final int value)
+    {
+        final int word = y*wordsPerRow + (x >>> 6);
+
+        if(classifier.matches(value)) {
+            bits[word] |= 1L << x;
+        } else {
+            bits[word] &= ~(1L << x);
+        }
+    }
+}
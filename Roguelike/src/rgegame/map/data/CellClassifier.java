@@ -0,0 +1,33 @@
+/*
+ * CellClassifier.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+/**
+ * Must be implemented in a game specific manner to sort cell values
+ * of a map layer into two classes, e.g. "walkable" or "opaque".
+ *
+ * @see CellBitmap
+ *
+ * @author Hj. Malthaner
+ */
+public interface CellClassifier
+{
+    /**
+     * Check if a cell value belongs to the class.
+     *
+     * @param value The cell value (tile code) to check.
+     * @return true if the value belongs to the class, false otherwise.
+     */
+    public boolean matches(int value);
+}
@@ -0,0 +1,234 @@
+/*
+ * CellOffsets.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The x and y offsets of the cells of a layer. Few cells have
+ * offsets, so they are kept in a small hash table by cell index, with
+ * linear probing. Only if more than a quarter of the cells get offsets,
+ * which would make the table bigger than two plain arrays, the offsets
+ * move to arrays of all cells.
+ *
+ * @author Hj. Malthaner
+ */
+final class CellOffsets
+{
+    /** Key of empty slots */
+    private static final int EMPTY = -1;
+
+    /** Number of cells */
+    private final int size;
+
+    /** The hash table: cell index, x and y offset */
+    private int [] keys;
+    private int [] xs;
+    private int [] ys;
+    private int count;
+
+    /** Offsets of all cells, null while the hash table is used */
+    private int [] xoff;
+    private int [] yoff;
+
+    CellOffsets(final int size)
+    {
+        this.size = size;
+    }
+
+    int getX(final int cell)
+    {
+        if(xoff != null) {
+            return xoff[cell];
+        }
+
+        final int slot = find(cell);
+        return slot < 0 || keys[slot] == EMPTY ? 0 : xs[slot];
+    }
+
+    int getY(final int cell)
+    {
+        if(yoff != null) {
+            return yoff[cell];
+        }
+
+        final int slot = find(cell);
+        return slot < 0 || keys[slot] == EMPTY ? 0 : ys[slot];
+    }
+
+    void setX(final int cell, final int value)
+    {
+        if(xoff != null) {
+            xoff[cell] = value;
+        } else {
+            set(cell, value, getY(cell));
+        }
+    }
+
+    void setY(final int cell, final int value)
+    {
+        if(yoff != null) {
+            yoff[cell] = value;
+        } else {
+            set(cell, getX(cell), value);
+        }
+    }
+
+    /**
+     * Write the offsets of all cells into two planes of the binary
+     * map format. The planes must be filled with zeros.
+     */
+    void putPlanes(final ByteBuffer xPlane, final ByteBuffer yPlane)
+    {
+        if(xoff != null) {
+            xPlane.asIntBuffer().put(xoff);
+            yPlane.asIntBuffer().put(yoff);
+        } else if(keys != null) {
+            for(int slot=0; slot<keys.length; slot++) {
+                if(keys[slot] != EMPTY) {
+                    xPlane.putInt(keys[slot] * 4, xs[slot]);
+                    yPlane.putInt(keys[slot] * 4, ys[slot]);
+                }
+            }
+        }
+    }
+
+    private void set(final int cell, final int x, final int y)
+    {
+        int slot = find(cell);
+
+        if(x == 0 && y == 0) {
+            if(slot >= 0 && keys[slot] != EMPTY) {
+                remove(slot);
+            }
+            return;
+        }
+
+        if(slot < 0 || keys[slot] == EMPTY) {
+            if(count + 1 > size / 4) {
+                toArrays();
+                xoff[cell] = x;
+                yoff[cell] = y;
+                return;
+            }
+
+            if(keys == null || (count + 1) * 2 > keys.length) {
+                grow();
+                slot = find(cell);
+            }
+
+            keys[slot] = cell;
+            count ++;
+        }
+
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    /**
+     * @return The slot of the cell, or the empty slot where it
+     *         belongs, -1 if there is no table yet
+     */
+    private int find(final int cell)
+    {
+        if(keys == null) {
+            return -1;
+        }
+
+        final int mask = keys.length - 1;
+        int slot = hash(cell) & mask;
+
+        while(keys[slot] != EMPTY && keys[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static int hash(final int cell)
+    {
+        final int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Remove a slot, and move later entries of the same probe
+     * sequence back into the gap.
+     */
+    private void remove(int hole)
+    {
+        final int mask = keys.length - 1;
+        int slot = (hole + 1) & mask;
+
+        while(keys[slot] != EMPTY) {
+            final int home = hash(keys[slot]) & mask;
+
+            if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                xs[hole] = xs[slot];
+                ys[hole] = ys[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[hole] = EMPTY;
+        count --;
+    }
+
+    private void grow()
+    {
+        final int [] oldKeys = keys;
+        final int [] oldXs = xs;
+        final int [] oldYs = ys;
+        final int capacity = oldKeys == null ? 16 : oldKeys.length * 2;
+
+        keys = new int [capacity];
+        xs = new int [capacity];
+        ys = new int [capacity];
+        Arrays.fill(keys, EMPTY);
+
+        if(oldKeys != null) {
+            for(int i=0; i<oldKeys.length; i++) {
+                if(oldKeys[i] != EMPTY) {
+                    final int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    xs[slot] = oldXs[i];
+                    ys[slot] = oldYs[i];
+                }
+            }
+        }
+    }
+
+    private void toArrays()
+    {
+        xoff = new int [size];
+        yoff = new int [size];
+
+        if(keys != null) {
+            for(int slot=0; slot<keys.length; slot++) {
+                if(keys[slot] != EMPTY) {
+                    xoff[keys[slot]] = xs[slot];
+                    yoff[keys[slot]] = ys[slot];
+                }
+            }
+        }
+
+        keys = null;
+        xs = null;
+        ys = null;
+        count = 0;
+    }
+}
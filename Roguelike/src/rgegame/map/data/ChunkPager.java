@@ -0,0 +1,286 @@
+/*
+ * ChunkPager.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps a limited number of chunks of chunked map layers in memory.
+ * If more chunks are needed, chunks which weren't used for a while are
+ * written to a spill file and read back on their next use. The chunks
+ * to page out are chosen by the clock algorithm, each chunk gets a
+ * second chance if it was used since the clock hand passed it last.
+ *
+ * Chunks which have the same value in all cells and no offsets are
+ * not written to the file. If the value is the default value 0 or the
+ * outside value of the layer, the layer uses it's shared chunk for
+ * that value instead.
+ *
+ * One pager can serve all layers of a map, or even several maps. The
+ * spill file is only valid while the pager is open.
+ *
+ * This is not thread safe. Reading a map cell can page chunks in and
+ * out, so even maps which are only read must not be used by several
+ * threads at once.
+ *
+ * @see LayeredMap#LayeredMap(int, int, int, ChunkPager)
+ *
+ * @author Hj. Malthaner
+ */
+public class ChunkPager
+{
+    /** Bytes per chunk in the spill file: content, xoff and yoff */
+    private static final int SLOT_BYTES = 3 * MapChunk.CELLS * 4;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /** The chunks in memory, the clock hand runs over them */
+    private final MapChunk [] resident;
+    private int residentCount;
+    private int hand;
+
+    /** Content array of the last chunk paged out, to be used again */
+    private int [] spare;
+
+    /** File positions which were freed, and the end of the file */
+    private long [] freeSlots;
+    private int freeCount;
+    private long fileEnd;
+
+    private int pageIns;
+    private int pageOuts;
+    private int shared;
+
+    /**
+     * Creates a new pager.
+     *
+     * @param spillFile The file to write paged out chunks to. The file
+     *                  is created or emptied.
+     * @param maxResident Number of chunks to keep in memory. Each chunk
+     *                    needs 16kB, and 32kB more if it has offsets.
+     */
+    public ChunkPager(File spillFile, int maxResident) throws IOException
+    {
+        if(maxResident < 1) {
+            throw new IllegalArgumentException("Pager needs room for at least one chunk: " + maxResident);
+        }
+
+        file = new RandomAccessFile(spillFile, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        buffer = ByteBuffer.allocateDirect(SLOT_BYTES).order(ByteOrder.nativeOrder());
+
+        resident = new MapChunk [maxResident];
+        freeSlots = new long [64];
+    }
+
+    /**
+     * @return The number of chunks in memory
+     */
+    public int getResidentCount()
+    {
+        return residentCount;
+    }
+
+    /**
+     * @return The number of chunks read from the spill file
+     */
+    public int getPageInCount()
+    {
+        return pageIns;
+    }
+
+    /**
+     * @return The number of chunks taken out of memory
+     */
+    public int getPageOutCount()
+    {
+        return pageOuts;
+    }
+
+    /**
+     * @return The number of chunks which were replaced by the shared
+     *         chunk of their layer when they were paged out
+     */
+    public int getSharedCount()
+    {
+        return shared;
+    }
+
+    /**
+     * @return The size of the spill file in bytes
+     */
+    public long getSpillFileSize()
+    {
+        return fileEnd;
+    }
+
+    /**
+     * Close the spill file. Maps which use this pager must not be
+     * used anymore.
+     */
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Take a new chunk into memory.
+     */
+    void admit(final MapChunk chunk) throws IOException
+    {
+        final int pos = makeRoom();
+
+        chunk.referenced = true;
+        resident[pos] = chunk;
+    }
+
+    /**
+     * Read a paged out chunk back into memory.
+     */
+    void pageIn(final MapChunk chunk) throws IOException
+    {
+        final int pos = makeRoom();
+
+        buffer.clear();
+        buffer.limit(chunk.hasOffsets ? SLOT_BYTES : MapChunk.CELLS * 4);
+
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, chunk.slot + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of spill file.");
+            }
+        }
+
+        buffer.flip();
+
+        final int [] content = spare == null ? new int [MapChunk.CELLS] : spare;
+        spare = null;
+
+        buffer.asIntBuffer().get(content);
+        chunk.content = content;
+
+        if(chunk.hasOffsets) {
+            chunk.xoff = new int [MapChunk.CELLS];
+            chunk.yoff = new int [MapChunk.CELLS];
+
+            buffer.position(MapChunk.CELLS * 4);
+            buffer.asIntBuffer().get(chunk.xoff);
+            buffer.position(MapChunk.CELLS * 8);
+            buffer.asIntBuffer().get(chunk.yoff);
+        }
+
+        chunk.dirty = false;
+        chunk.referenced = true;
+        resident[pos] = chunk;
+        pageIns ++;
+    }
+
+    /**
+     * @return A free place in the resident table
+     */
+    private int makeRoom() throws IOException
+    {
+        if(residentCount < resident.length) {
+            return residentCount++;
+        }
+
+        while(true) {
+            final int pos = hand;
+            final MapChunk chunk = resident[pos];
+
+            hand = (hand + 1) % resident.length;
+
+            if(chunk.referenced) {
+                chunk.referenced = false;
+            } else {
+                pageOut(chunk);
+                resident[pos] = null;
+                return pos;
+            }
+        }
+    }
+
+    private void pageOut(final MapChunk chunk) throws IOException
+    {
+        if(chunk.isUniform() && chunk.layer.share(chunk)) {
+            // Hajo: the chunk is gone, the layer uses the shared one
+            if(chunk.slot >= 0) {
+                freeSlot(chunk.slot);
+            }
+            shared ++;
+        } else if(chunk.dirty || chunk.slot < 0) {
+            if(chunk.slot < 0) {
+                chunk.slot = allocateSlot();
+            }
+            write(chunk);
+        }
+
+        chunk.hasOffsets = chunk.xoff != null;
+        spare = chunk.content;
+        chunk.content = null;
+        chunk.xoff = null;
+        chunk.yoff = null;
+        chunk.dirty = false;
+        pageOuts ++;
+    }
+
+    private void write(final MapChunk chunk) throws IOException
+    {
+        buffer.clear();
+        buffer.asIntBuffer().put(chunk.content);
+
+        if(chunk.xoff != null) {
+            buffer.position(MapChunk.CELLS * 4);
+            buffer.asIntBuffer().put(chunk.xoff);
+            buffer.position(MapChunk.CELLS * 8);
+            buffer.asIntBuffer().put(chunk.yoff);
+            buffer.position(0);
+        } else {
+            buffer.limit(MapChunk.CELLS * 4);
+        }
+
+        while(buffer.hasRemaining()) {
+            channel.write(buffer, chunk.slot + buffer.position());
+        }
+    }
+
+    private long allocateSlot()
+    {
+        if(freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+
+        final long slot = fileEnd;
+        fileEnd += SLOT_BYTES;
+        return slot;
+    }
+
+    private void freeSlot(final long slot)
+    {
+        if(freeCount == freeSlots.length) {
+            final long [] bigger = new long [freeCount * 2];
+            System.arraycopy(freeSlots, 0, bigger, 0, freeCount);
+            freeSlots = bigger;
+        }
+
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * ChunkedMapLayer.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * A map layer which stores it's cells in chunks of 64x64 cells. At
+ * first all chunks are the same shared chunk, with the value 0 in all
+ * cells. A chunk gets it's own memory on the first write of a
+ * different value. So a big map with only a few used areas needs
+ * little memory.
+ *
+ * With a pager, only a limited number of chunks are kept in memory,
+ * the others are paged out to a spill file. Without a pager, all
+ * chunks stay in memory.
+ *
+ * This is not thread safe, see ChunkPager.
+ *
+ * @author Hj. Malthaner
+ */
+class ChunkedMapLayer extends MapLayer
+{
+    private final int width;
+    private final int height;
+
+    /** The pager, null if all chunks stay in memory */
+    private final ChunkPager pager;
+
+    private final int chunksPerRow;
+
+    /** The chunks, row by row */
+    private final MapChunk [] chunks;
+
+    /** Shared chunk with the value 0 in all cells */
+    private final MapChunk defaultChunk;
+
+    /** Shared chunk with the outside value in all cells */
+    private MapChunk outsideChunk;
+
+    ChunkedMapLayer(int width, int height, ChunkPager pager)
+    {
+        super(width, height, false);
+
+        this.width = width;
+        this.height = height;
+        this.pager = pager;
+
+        chunksPerRow = (width + MapChunk.MASK) >> MapChunk.SHIFT;
+
+        final long count = (long)chunksPerRow * ((height + MapChunk.MASK) >> MapChunk.SHIFT);
+
+        if(count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map too large: " + width + "x" + height);
+        }
+
+        defaultChunk = new MapChunk(0);
+        chunks = new MapChunk [(int)count];
+        Arrays.fill(chunks, defaultChunk);
+    }
+
+    @Override
+    public int get(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+
+            if(chunk.content == null) {
+                pageIn(chunk);
+            }
+
+            chunk.referenced = true;
+            return chunk.content[cell(x, y)];
+        } else {
+            return getOutside();
+        }
+    }
+
+    @Override
+    public void set(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height && get(x, y) != value) {
+            writable(x, y).content[cell(x, y)] = value;
+        }
+    }
+
+    @Override
+    public int getXoff(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+
+            if(chunk.content == null) {
+                pageIn(chunk);
+            }
+
+            chunk.referenced = true;
+            return chunk.xoff == null ? 0 : chunk.xoff[cell(x, y)];
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public int getYoff(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+
+            if(chunk.content == null) {
+                pageIn(chunk);
+            }
+
+            chunk.referenced = true;
+            return chunk.yoff == null ? 0 : chunk.yoff[cell(x, y)];
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public void setXoff(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height && getXoff(x, y) != value) {
+            writableOffsets(x, y).xoff[cell(x, y)] = value;
+        }
+    }
+
+    @Override
+    public void setYoff(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height && getYoff(x, y) != value) {
+            writableOffsets(x, y).yoff[cell(x, y)] = value;
+        }
+    }
+
+    /**
+     * Chunked layers are created empty, read maps into a new
+     * layered map instead.
+     */
+    @Override
+    public void read(BufferedReader reader) throws IOException
+    {
+        throw new IOException("Can't read into a chunked layer.");
+    }
+
+    @Override
+    ByteBuffer [] toBuffers() throws IOException
+    {
+        if((long)width * height * 4 > Integer.MAX_VALUE) {
+            throw new IOException("Layer too large for the binary format: " +
+                                  width + "x" + height);
+        }
+
+        final ByteBuffer [] buffers = new ByteBuffer [4];
+        final IntBuffer [] planes = new IntBuffer [3];
+
+        buffers[0] = headerBuffer();
+
+        for(int i=0; i<3; i++) {
+            buffers[i+1] = BinaryMapFormat.allocate(width * height * 4);
+            planes[i] = buffers[i+1].asIntBuffer();
+        }
+
+        final int [] zeros = new int [MapChunk.SIZE];
+
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x+=MapChunk.SIZE) {
+                final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+                final int n = Math.min(MapChunk.SIZE, width - x);
+                final int cell = cell(x, y);
+
+                if(chunk.content == null) {
+                    pageIn(chunk);
+                }
+
+                planes[0].put(chunk.content, cell, n);
+                planes[1].put(chunk.xoff == null ? zeros : chunk.xoff, chunk.xoff == null ? 0 : cell, n);
+                planes[2].put(chunk.yoff == null ? zeros : chunk.yoff, chunk.yoff == null ? 0 : cell, n);
+            }
+        }
+
+        return buffers;
+    }
+
+    @Override
+    void readRun(int x, final int y, final int [] dst, int offset, int length)
+    {
+        while(length > 0) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+            final int n = Math.min(length, MapChunk.SIZE - (x & MapChunk.MASK));
+
+            if(chunk.content == null) {
+                pageIn(chunk);
+            }
+
+            chunk.referenced = true;
+            System.arraycopy(chunk.content, cell(x, y), dst, offset, n);
+
+            x += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    void writeRun(int x, final int y, final int [] src, int offset, int length)
+    {
+        while(length > 0) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+            final int n = Math.min(length, MapChunk.SIZE - (x & MapChunk.MASK));
+
+            // Hajo: shared chunks stay shared if their value is written
+            if(chunk.isShared() == false || isUniform(src, offset, n, chunk.content[0]) == false) {
+                System.arraycopy(src, offset, writable(x, y).content, cell(x, y), n);
+            }
+
+            x += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    void fillRun(int x, final int y, int length, final int value)
+    {
+        while(length > 0) {
+            final MapChunk chunk = chunks[(y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT)];
+            final int n = Math.min(length, MapChunk.SIZE - (x & MapChunk.MASK));
+
+            if(chunk.isShared() == false || chunk.content[0] != value) {
+                final int cell = cell(x, y);
+                Arrays.fill(writable(x, y).content, cell, cell + n, value);
+            }
+
+            x += n;
+            length -= n;
+        }
+    }
+
+    private static boolean isUniform(final int [] values, final int offset,
+                                     final int length, final int value)
+    {
+        for(int i=offset; i<offset+length; i++) {
+            if(values[i] != value) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Replace a chunk by the shared chunk for it's value, if there is
+     * one. Called by the pager for uniform chunks.
+     *
+     * @return true if the chunk was replaced
+     */
+    boolean share(final MapChunk chunk)
+    {
+        final int value = chunk.content[0];
+        MapChunk shared = null;
+
+        if(value == 0) {
+            shared = defaultChunk;
+        } else if(value == getOutside()) {
+            if(outsideChunk == null || outsideChunk.content[0] != value) {
+                outsideChunk = new MapChunk(value);
+            }
+            shared = outsideChunk;
+        }
+
+        if(shared != null) {
+            chunks[chunk.index] = shared;
+            return true;
+        }
+
+        return false;
+    }
+
+    private static int cell(final int x, final int y)
+    {
+        return ((y & MapChunk.MASK) << MapChunk.SHIFT) + (x & MapChunk.MASK);
+    }
+
+    /**
+     * @return The chunk of the cell, in memory and with it's own cells
+     */
+    private MapChunk writable(final int x, final int y)
+    {
+        final int index = (y >> MapChunk.SHIFT) * chunksPerRow + (x >> MapChunk.SHIFT);
+        MapChunk chunk = chunks[index];
+
+        if(chunk.isShared()) {
+            chunk = new MapChunk(this, index, chunk);
+            chunks[index] = chunk;
+
+            if(pager != null) {
+                try {
+                    pager.admit(chunk);
+                } catch(IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        } else if(chunk.content == null) {
+            pageIn(chunk);
+        }
+
+        chunk.referenced = true;
+        chunk.dirty = true;
+        return chunk;
+    }
+
+    private MapChunk writableOffsets(final int x, final int y)
+    {
+        final MapChunk chunk = writable(x, y);
+
+        if(chunk.xoff == null) {
+            chunk.xoff = new int [MapChunk.CELLS];
+            chunk.yoff = new int [MapChunk.CELLS];
+        }
+
+        return chunk;
+    }
+
+    private void pageIn(final MapChunk chunk)
+    {
+        try {
+            pager.pageIn(chunk);
+        } catch(IOException ex) {
+            // Hajo: map access has no checked exceptions
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -14,9 +14,19 @@
 package rgegame.map.data;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A rectangular map structure consisting of several layers.
@@ -26,7 +36,28 @@ import java.util.ArrayList;
 public class LayeredMap
 {
     private ArrayList <MapLayer> layers;
-    private String [] scripts;
+
+    /** Scripts by cell index y*width + x, only cells which have one */
+    private ScriptMap scripts;
+
+    /**
+     * Revision counter for each layer, incremented on every change
+     * to the layer.
+     */
+    private int [] revisions;
+
+    /** Listeners to notify about cell changes */
+    private final ArrayList <MapChangeListener> listeners;
+
+    /** Derived bitmaps, kept up to date on each change */
+    private final ArrayList <CellBitmap> cellBitmaps;
+
+    /**
+     * Row buffers of the bulk operations, kept between calls. A buffer
+     * is taken out while it is used, so listeners which call bulk
+     * operations get other buffers.
+     */
+    private final int [][] rowBuffers = new int [4][];
 
     /** default player spawn x coordinate */
     private int spawnX;
@@ -114,19 +145,49 @@ public class LayeredMap
      */
     public LayeredMap(int layerCount, int width, int height)
     {
-        layers = new ArrayList<MapLayer>(layerCount);
+        this(layerCount);
+
         for(int i=0; i<layerCount; i++) {
             layers.add(new MapLayer(width, height));
         }
+    }
 
-        final int size = width * height;
-        scripts = new String [size];
+    /**
+     * Constructs a new layered map with the given size and layer
+     * count, which stores it's layers in chunks of 64x64 cells. Chunks
+     * get memory only when a cell in them is set to a value other than
+     * 0, so this is meant for big maps which are mostly empty. With a
+     * pager, chunks which weren't used for a while are written to a
+     * spill file.
+     *
+     * Cell bitmaps of getCellBitmap() aren't chunked, they need one
+     * bit per cell of the whole map. Reading a file into the map
+     * replaces the chunked layers by normal layers.
+     *
+     * @param layerCount The number of layers to construct
+     * @param width The x axis extension of the map
+     * @param height The y axis extension of the map
+     * @param pager The pager for the chunks of all layers, or null to
+     *              keep all chunks in memory
+     */
+    public LayeredMap(int layerCount, int width, int height, ChunkPager pager)
+    {
+        this(layerCount);
 
-        for(int i=0; i<size; i++) {
-            scripts[i] = "";
+        for(int i=0; i<layerCount; i++) {
+            layers.add(new ChunkedMapLayer(width, height, pager));
         }
     }
 
+    private LayeredMap(int layerCount)
+    {
+        layers = new ArrayList<MapLayer>(layerCount);
+        revisions = new int [layerCount];
+        listeners = new ArrayList<MapChangeListener>();
+        cellBitmaps = new ArrayList<CellBitmap>();
+        scripts = new ScriptMap();
+    }
+
     /**
      * Get the tile/graphics object index for a coordinate
      *
@@ -156,7 +217,409 @@ public class LayeredMap
     {
         if(layer >= 0 && layer < layers.size()) {
             MapLayer mapLayer = layers.get(layer);
-            mapLayer.set(x, y, value);
+
+            if(x >= 0 && y >= 0 &&
+               x < mapLayer.getWidth() && y < mapLayer.getHeight()) {
+                final int oldValue = mapLayer.get(x, y);
+
+                if(oldValue != value) {
+                    mapLayer.set(x, y, value);
+                    fireCellChanged(layer, x, y, oldValue, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Increment the layer revision, update derived bitmaps and tell
+     * listeners about a changed cell.
+     */
+    private void fireCellChanged(int layer, int x, int y, int oldValue, int value)
+    {
+        revisions[layer] ++;
+
+        for(int i=0; i<cellBitmaps.size(); i++) {
+            final CellBitmap bitmap = cellBitmaps.get(i);
+            if(bitmap.getLayer() == layer) {
+                bitmap.update(x, y, value);
+            }
+        }
+
+        for(int i=0; i<listeners.size(); i++) {
+            listeners.get(i).cellChanged(this, layer, x, y,
+                                         oldValue, value);
+        }
+    }
+
+    /**
+     * Bulk changes of a layer must be checked cell by cell if there
+     * are listeners or bitmaps of the layer. Else it's enough to
+     * increment the revision once.
+     *
+     * @return true if cell changes of the layer must be reported
+     */
+    private boolean isTracked(int layer)
+    {
+        if(listeners.size() > 0) {
+            return true;
+        }
+
+        for(int i=0; i<cellBitmaps.size(); i++) {
+            if(cellBitmaps.get(i).getLayer() == layer) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Copy the values of a row into an array, starting at x = 0.
+     * Cells outside of the map read as the outside value.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param y The Y coordinate of the row
+     * @param dst The array to fill, dst.length cells are read
+     */
+    public void getRow(int layer, int y, int [] dst)
+    {
+        getRow(layer, 0, y, dst, 0, dst.length);
+    }
+
+    /**
+     * Copy the values of a run of cells of a row into an array.
+     * Cells outside of the map read as the outside value.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param x The X coordinate of the first cell
+     * @param y The Y coordinate of the row
+     * @param dst The array to fill
+     * @param offset The index in dst of the first cell
+     * @param length The number of cells to read
+     */
+    public void getRow(int layer, int x, int y, int [] dst, int offset, int length)
+    {
+        if(layer >= 0 && layer < layers.size()) {
+            layers.get(layer).getRow(x, y, dst, offset, length);
+        } else {
+            Arrays.fill(dst, offset, offset + length, -1);
+        }
+    }
+
+    /**
+     * Set the values of a row from an array, starting at x = 0.
+     * Values past the map width are skipped.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param y The Y coordinate of the row
+     * @param src The values to set
+     */
+    public void setRow(int layer, int y, int [] src)
+    {
+        setRow(layer, 0, y, src, 0, src.length);
+    }
+
+    /**
+     * Set the values of a run of cells of a row from an array. Cells
+     * outside of the map are skipped.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param x The X coordinate of the first cell
+     * @param y The Y coordinate of the row
+     * @param src The values to set
+     * @param offset The index in src of the value for the first cell
+     * @param length The number of cells to set
+     */
+    public void setRow(int layer, int x, int y, int [] src, int offset, int length)
+    {
+        if(layer >= 0 && layer < layers.size()) {
+            final MapLayer mapLayer = layers.get(layer);
+            final int start = Math.max(x, 0);
+            final int end = Math.min(x + length, mapLayer.getWidth());
+
+            if(y >= 0 && y < mapLayer.getHeight() && start < end) {
+                if(isTracked(layer)) {
+                    final int [] old = takeRowBuffer(end - start);
+
+                    writeRow(layer, mapLayer, start, y, src, offset + start - x, end - start, old);
+                    giveRowBuffer(old);
+                } else {
+                    writeRow(layer, mapLayer, start, y, src, offset + start - x, end - start, null);
+                    revisions[layer] ++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Set a run of cells which are all inside the map.
+     *
+     * @param old Scratch array for the former values if cell changes
+     *            must be reported, else null
+     */
+    private void writeRow(int layer, MapLayer mapLayer, int x, int y,
+                          int [] src, int offset, int length, int [] old)
+    {
+        if(old == null) {
+            mapLayer.setRow(x, y, src, offset, length);
+        } else {
+            mapLayer.getRow(x, y, old, 0, length);
+            mapLayer.setRow(x, y, src, offset, length);
+
+            for(int i=0; i<length; i++) {
+                if(old[i] != src[offset + i]) {
+                    fireCellChanged(layer, x + i, y, old[i], src[offset + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set all cells of an area to a value. Cells outside of the map
+     * are skipped.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param x Left of the area
+     * @param y Top of the area
+     * @param w Width of the area
+     * @param h Height of the area
+     * @param value The value to set
+     */
+    public void fillRegion(int layer, int x, int y, int w, int h, int value)
+    {
+        if(layer >= 0 && layer < layers.size()) {
+            final MapLayer mapLayer = layers.get(layer);
+            final int x0 = Math.max(x, 0);
+            final int x1 = Math.min(x + w, mapLayer.getWidth());
+            final int y0 = Math.max(y, 0);
+            final int y1 = Math.min(y + h, mapLayer.getHeight());
+
+            if(x0 >= x1 || y0 >= y1) {
+                return;
+            }
+
+            if(isTracked(layer)) {
+                final int length = x1 - x0;
+                final int [] old = takeRowBuffer(length);
+
+                for(int j=y0; j<y1; j++) {
+                    mapLayer.getRow(x0, j, old, 0, length);
+                    mapLayer.fill(x0, j, length, 1, value);
+
+                    for(int i=0; i<length; i++) {
+                        if(old[i] != value) {
+                            fireCellChanged(layer, x0 + i, j, old[i], value);
+                        }
+                    }
+                }
+
+                giveRowBuffer(old);
+            } else {
+                mapLayer.fill(x0, y0, x1 - x0, y1 - y0, value);
+                revisions[layer] ++;
+            }
+        }
+    }
+
+    /**
+     * Copy an area of a layer to another place of the same layer.
+     * The areas may overlap. Cells outside of the map read as the
+     * outside value, and are skipped when writing.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @param sx Left of the area to copy
+     * @param sy Top of the area to copy
+     * @param w Width of the area
+     * @param h Height of the area
+     * @param dx Left of the destination
+     * @param dy Top of the destination
+     */
+    public void copyRegion(int layer, int sx, int sy, int w, int h, int dx, int dy)
+    {
+        blit(this, layer, sx, sy, w, h, layer, dx, dy);
+    }
+
+    /**
+     * Copy an area of a layer of a map to a layer of this map. Only
+     * the cell values are copied, not the offsets. Cells outside of
+     * the source map read as it's outside value, cells outside of this
+     * map are skipped. The areas may overlap if the source is this map.
+     *
+     * @param source The map to read from, can be this map
+     * @param sourceLayer The layer to read from
+     * @param sx Left of the area to copy
+     * @param sy Top of the area to copy
+     * @param w Width of the area
+     * @param h Height of the area
+     * @param layer The layer to write to
+     * @param dx Left of the destination
+     * @param dy Top of the destination
+     */
+    public void blit(final LayeredMap source, int sourceLayer,
+                     int sx, int sy, int w, int h,
+                     int layer, int dx, int dy)
+    {
+        if(sourceLayer < 0 || sourceLayer >= source.layers.size() ||
+           layer < 0 || layer >= layers.size()) {
+            return;
+        }
+
+        final MapLayer from = source.layers.get(sourceLayer);
+        final MapLayer to = layers.get(layer);
+        final int x0 = Math.max(dx, 0);
+        final int x1 = Math.min(dx + w, to.getWidth());
+        final int y0 = Math.max(dy, 0);
+        final int y1 = Math.min(dy + h, to.getHeight());
+
+        if(x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        final int length = x1 - x0;
+        final int [] row = takeRowBuffer(length);
+        final int [] old = isTracked(layer) ? takeRowBuffer(length) : null;
+
+        // Hajo: copy overlapping areas bottom up, if they move down
+        final boolean bottomUp = from == to && dy > sy;
+
+        for(int k=0; k<y1-y0; k++) {
+            final int y = bottomUp ? y1 - 1 - k : y0 + k;
+
+            from.getRow(sx + x0 - dx, sy + y - dy, row, 0, length);
+            writeRow(layer, to, x0, y, row, 0, length, old);
+        }
+
+        giveRowBuffer(row);
+
+        if(old == null) {
+            revisions[layer] ++;
+        } else {
+            giveRowBuffer(old);
+        }
+    }
+
+    /**
+     * @return A row buffer with at least the given length, which
+     *         should be given back after use
+     */
+    private int [] takeRowBuffer(final int length)
+    {
+        for(int i=0; i<rowBuffers.length; i++) {
+            final int [] buffer = rowBuffers[i];
+
+            if(buffer != null && buffer.length >= length) {
+                rowBuffers[i] = null;
+                return buffer;
+            }
+        }
+
+        return new int [length];
+    }
+
+    /**
+     * Keep a row buffer for later calls. If all places are taken, the
+     * smallest buffer is dropped.
+     */
+    private void giveRowBuffer(final int [] buffer)
+    {
+        int smallest = 0;
+
+        for(int i=0; i<rowBuffers.length; i++) {
+            if(rowBuffers[i] == null) {
+                rowBuffers[i] = buffer;
+                return;
+            }
+
+            if(rowBuffers[i].length < rowBuffers[smallest].length) {
+                smallest = i;
+            }
+        }
+
+        if(rowBuffers[smallest].length < buffer.length) {
+            rowBuffers[smallest] = buffer;
+        }
+    }
+
+    /**
+     * Each layer has a revision counter, which is incremented on
+     * every change of a cell value or the outside value of the layer.
+     * Reading a map increments the counters of all layers. Bulk
+     * changes of layers without listeners or cell bitmaps increment
+     * the counter once per call.
+     *
+     * @param layer The layer, 0 is lowermost layer
+     * @return The current revision of the layer
+     */
+    public int getRevision(int layer)
+    {
+        if(layer >= 0 && layer < revisions.length) {
+            return revisions[layer];
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Get a bitmap which tells for each cell of a layer if the cell
+     * value matches the classifier. The bitmap is created on the first
+     * request and then kept up to date on each change of the layer.
+     * Further requests with the same layer and classifier object return
+     * the same bitmap.
+     *
+     * @param layer The layer to classify
+     * @param classifier Sorts the cell values
+     * @return The bitmap
+     */
+    public CellBitmap getCellBitmap(int layer, CellClassifier classifier)
+    {
+        for(int i=0; i<cellBitmaps.size(); i++) {
+            final CellBitmap bitmap = cellBitmaps.get(i);
+            if(bitmap.getLayer() == layer && bitmap.getClassifier() == classifier) {
+                return bitmap;
+            }
+        }
+
+        final CellBitmap bitmap = new CellBitmap(this, layer, classifier);
+        cellBitmaps.add(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Register a listener to be notified about cell changes.
+     *
+     * @param listener The listener to add
+     */
+    public void addChangeListener(MapChangeListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener which was added with addChangeListener().
+     *
+     * @param listener The listener to remove
+     */
+    public void removeChangeListener(MapChangeListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Increment all layer revisions, rebuild derived bitmaps and tell
+     * listeners that the whole map was replaced.
+     */
+    private void fireMapReplaced()
+    {
+        for(int i=0; i<revisions.length; i++) {
+            revisions[i] ++;
+        }
+
+        for(int i=0; i<cellBitmaps.size(); i++) {
+            cellBitmaps.get(i).rebuild(this);
+        }
+
+        for(int i=0; i<listeners.size(); i++) {
+            listeners.get(i).mapReplaced(this);
         }
     }
 
@@ -170,7 +633,11 @@ public class LayeredMap
     {
         if(layer >= 0 && layer < layers.size()) {
             MapLayer mapLayer = layers.get(layer);
-            mapLayer.setOutside(value);
+
+            if(mapLayer.getOutside() != value) {
+                mapLayer.setOutside(value);
+                fireMapReplaced();
+            }
         }
     }
 
@@ -232,19 +699,48 @@ public class LayeredMap
         final int h = layers.get(0).getHeight();
 
         if(x >= 0 && x < w && y >= 0 && y<h) {
-            return scripts[y*w + x];
+            final String script = scripts.get((long)y*w + x);
+
+            if(script != null) {
+                return script;
+            }
         }
 
         return "";
     }
 
+    /**
+     * Set the script of a cell. An empty or null script removes the
+     * script of the cell.
+     */
     public void setScript(int x, int y, String script)
     {
         final int w = layers.get(0).getWidth();
         final int h = layers.get(0).getHeight();
 
         if(x >= 0 && x < w && y >= 0 && y<h) {
-            scripts[y*w + x] = script;
+            final boolean empty = script == null || script.length() == 0;
+            scripts.put((long)y*w + x, empty ? null : script);
+        }
+    }
+
+
+    /**
+     * Store the cells of all normal layers as indices into a palette
+     * of the distinct values of the layer, with one byte per cell as
+     * long as a layer has no more than 256 distinct values. The values
+     * stay the same, the layers just need less memory. Offsets get
+     * memory only if a layer uses them. Chunked layers and layers which
+     * are packed already are not changed.
+     */
+    public void packLayers()
+    {
+        for(int i=0; i<layers.size(); i++) {
+            final MapLayer layer = layers.get(i);
+
+            if(layer.getClass() == MapLayer.class) {
+                layers.set(i, new PaletteMapLayer(layer));
+            }
         }
     }
 
@@ -266,12 +762,7 @@ public class LayeredMap
         final int minLayers = Math.min(source.getLayerCount(), getLayerCount());
 
         for(int layer=0; layer<minLayers; layer++) {
-            for(int y=0; y<height; y++) {
-                for(int x=0; x<width; x++) {
-                    final int value = source.get(layer, sx+x, sy+y);
-                    set(layer, dx+x, dy+y, value);
-                }
-            }
+            blit(source, layer, sx, sy, width, height, layer, dx, dy);
         }
     }
 
@@ -291,17 +782,221 @@ public class LayeredMap
 
         writer.write("Map Scripts\n");
 
-        for(int i=0; i<scripts.length; i++) {
-            String script = scripts[i];
+        final long [] indices = scripts.getCells();
+
+        for(int i=0; i<indices.length; i++) {
+            writer.write("<script>\n");
+            writer.write("" + indices[i] + "\n");
+            writer.write("" + scripts.get(indices[i]) + "\n");
+            writer.write("</script>\n");
+        }
+
+        writer.write("End of Map Scripts\n");
+    }
+
+    /**
+     * Write map data into a file, in the binary format v.4.
+     */
+    public void write(File file) throws IOException
+    {
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            write(out.getChannel());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write map data in the binary format v.4. The header, the layer
+     * planes and the scripts are written with one gathering write.
+     *
+     * @see BinaryMapFormat
+     */
+    public void write(FileChannel channel) throws IOException
+    {
+        final ArrayList <ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+
+        final ByteBuffer header = BinaryMapFormat.allocate(BinaryMapFormat.HEADER_INTS * 4);
+        header.putInt(BinaryMapFormat.MAGIC);
+        header.putInt(BinaryMapFormat.VERSION);
+        header.putInt(layoutType);
+        header.putInt(layers.size());
+        header.putInt(getWidth());
+        header.putInt(getHeight());
+        header.putInt(spawnX);
+        header.putInt(spawnY);
+        header.flip();
+        buffers.add(header);
+
+        for(int i=0; i<layers.size(); i++) {
+            final ByteBuffer [] layer = layers.get(i).toBuffers();
+
+            for(int k=0; k<layer.length; k++) {
+                buffers.add(layer[k]);
+            }
+        }
+
+        buffers.add(scriptsToBuffer());
+
+        final ByteBuffer [] all = buffers.toArray(new ByteBuffer [buffers.size()]);
+        long remaining = 0;
+
+        for(int i=0; i<all.length; i++) {
+            remaining += all[i].remaining();
+        }
+
+        while(remaining > 0) {
+            remaining -= channel.write(all);
+        }
+    }
+
+    private ByteBuffer scriptsToBuffer() throws IOException
+    {
+        final long [] indices = scripts.getCells();
+        final byte [][] encoded = new byte [indices.length][];
+        int bytes = 4;
+
+        for(int i=0; i<indices.length; i++) {
+            if(indices[i] > Integer.MAX_VALUE) {
+                throw new IOException("Script index too large for the binary format: " + indices[i]);
+            }
+
+            encoded[i] = BinaryMapFormat.encode(scripts.get(indices[i]));
+            bytes += 4 + BinaryMapFormat.size(encoded[i]);
+        }
+
+        final ByteBuffer buffer = BinaryMapFormat.allocate(bytes);
+        buffer.putInt(indices.length);
+
+        for(int i=0; i<indices.length; i++) {
+            buffer.putInt((int)indices[i]);
+            BinaryMapFormat.putString(buffer, encoded[i]);
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read map data from a file. Binary files of format v.4 are
+     * memory mapped, text files of the formats v.1 to v.3 are read
+     * line by line.
+     */
+    public void read(File file) throws IOException
+    {
+        final FileInputStream in = new FileInputStream(file);
+
+        try {
+            final FileChannel channel = in.getChannel();
+            final ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+
+            while(magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Hajo: read until we have 4 bytes or the file ends
+            }
+
+            if(magic.position() == 4 && magic.getInt(0) == BinaryMapFormat.MAGIC) {
+                read(channel);
+            } else {
+                channel.position(0);
+                read(new BufferedReader(new InputStreamReader(in)));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read map data in the binary format v.4. The file is memory
+     * mapped, so it must be smaller than 2GB.
+     *
+     * @see BinaryMapFormat
+     */
+    public void read(FileChannel channel) throws IOException
+    {
+        final MappedByteBuffer mapped =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        final ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            readBinary(buffer);
+        } catch(BufferUnderflowException ex) {
+            throw new IOException("Unexpected end of file.");
+        }
+    }
+
+    private void readBinary(final ByteBuffer buffer) throws IOException
+    {
+        if(buffer.remaining() < BinaryMapFormat.HEADER_INTS * 4) {
+            throw new IOException("Unexpected end of file.");
+        }
+
+        if(buffer.getInt() != BinaryMapFormat.MAGIC) {
+            throw new IOException("Wrong header.");
+        }
+
+        final int version = buffer.getInt();
+        if(version != BinaryMapFormat.VERSION) {
+            throw new IOException("Wrong version: v." + version);
+        }
+
+        final int newLayoutType = buffer.getInt();
+        final int layerCount = buffer.getInt();
+        final int width = buffer.getInt();
+        final int height = buffer.getInt();
+        final int newSpawnX = buffer.getInt();
+        final int newSpawnY = buffer.getInt();
+
+        // Hajo: each layer needs at least it's outside value and the
+        // length of it's tile set name, even if the map is empty
+        if(layerCount < 1 || width < 0 || height < 0 ||
+           layerCount > buffer.remaining() / 8 ||
+           (long)width * height * 12 * layerCount > buffer.remaining()) {
+            throw new IOException("Bad map size: " + layerCount + " layers of " +
+                                  width + "x" + height);
+        }
+
+        // Hajo: don't trust the file to size the list
+        final ArrayList <MapLayer> newLayers = new ArrayList<MapLayer>();
+
+        for(int i=0; i<layerCount; i++) {
+            final MapLayer layer = new MapLayer(0, 0);
+            layer.read(buffer, width, height);
+            newLayers.add(layer);
+        }
+
+        final int size = width * height;
+        final ScriptMap newScripts = new ScriptMap();
+
+        final int count = buffer.getInt();
+
+        for(int i=0; i<count; i++) {
+            final int index = buffer.getInt();
+
+            if(index < 0 || index >= size) {
+                throw new IOException("Bad script index: " + index);
+            }
+
+            final String script = BinaryMapFormat.getString(buffer);
+
             if(script != null && script.length() > 0) {
-                writer.write("<script>\n");
-                writer.write("" + i + "\n");
-                writer.write("" + script + "\n");
-                writer.write("</script>\n");
+                newScripts.put(index, script);
             }
         }
 
-        writer.write("End of Map Scripts\n");
+        // Hajo: replace the map only after everything was read
+        layers = newLayers;
+        scripts = newScripts;
+        layoutType = newLayoutType;
+        spawnX = newSpawnX;
+        spawnY = newSpawnY;
+
+        final int [] oldRevisions = revisions;
+        revisions = new int [layers.size()];
+        System.arraycopy(oldRevisions, 0, revisions, 0,
+                         Math.min(oldRevisions.length, revisions.length));
+        fireMapReplaced();
     }
 
     /**
@@ -342,15 +1037,9 @@ public class LayeredMap
             layers.get(i).read(reader);
         }
 
-        int width = layers.get(0).getWidth();
-        int height = layers.get(0).getHeight();
-        
-        size = width * height;
-        scripts = new String [size];
+        scripts = new ScriptMap();
 
-        for(int i=0; i<size; i++) {
-            scripts[i] = "";
-        }
+        final long cells = layers.isEmpty() ? 0 : (long)getWidth() * getHeight();
 
         line = reader.readLine();
         if(line != null) {
@@ -363,9 +1052,13 @@ public class LayeredMap
 
                 if(line != null && "<script>".equals(line)) {
                     line = reader.readLine();
-                    int index = Integer.parseInt(line);
+                    long index = Long.parseLong(line);
                     StringBuffer buf = new StringBuffer();
 
+                    if(index < 0 || index >= cells) {
+                        throw new IOException("Bad script index: " + index);
+                    }
+
                     line = reader.readLine();
                     while(line != null && !"</script>".equals(line)) {
                         buf.append(line);
@@ -374,10 +1067,16 @@ public class LayeredMap
                     }
 
                     if("</script>".equals(line)) {
-                        scripts[index] = buf.toString();
+                        scripts.put(index, buf.toString());
                     }
                 }
             } while(!"End of Map Scripts".equals(line) && line != null);
         }
+
+        final int [] oldRevisions = revisions;
+        revisions = new int [layers.size()];
+        System.arraycopy(oldRevisions, 0, revisions, 0,
+                         Math.min(oldRevisions.length, revisions.length));
+        fireMapReplaced();
     }
 }
@@ -0,0 +1,47 @@
+/*
+ * MapChangeListener.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+/**
+ * Layered maps report changes of cell values through this interface,
+ * e.g. to let caches of derived data invalidate their entries.
+ *
+ * @see LayeredMap#addChangeListener(MapChangeListener)
+ *
+ * @author Hj. Malthaner
+ */
+public interface MapChangeListener
+{
+    /**
+     * Called after a cell value changed. Setting a cell to the value
+     * it already has is not reported.
+     *
+     * @param map The map which changed
+     * @param layer The layer of the cell
+     * @param x The X coordinate of the cell
+     * @param y The Y coordinate of the cell
+     * @param oldValue The former value of the cell
+     * @param newValue The new value of the cell
+     */
+    public void cellChanged(LayeredMap map, int layer, int x, int y,
+                            int oldValue, int newValue);
+
+    /**
+     * Called if the whole map content was replaced, e.g. by reading
+     * the map from a file.
+     *
+     * @param map The map which changed
+     */
+    public void mapReplaced(LayeredMap map);
+}
@@ -0,0 +1,108 @@
+/*
+ * MapChunk.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.util.Arrays;
+
+/**
+ * A square of SIZE x SIZE cells of a chunked map layer.
+ *
+ * @see ChunkedMapLayer
+ *
+ * @author Hj. Malthaner
+ */
+final class MapChunk
+{
+    static final int SHIFT = 6;
+    static final int SIZE = 1 << SHIFT;
+    static final int MASK = SIZE - 1;
+    static final int CELLS = SIZE * SIZE;
+
+    /** The layer this chunk belongs to, null for shared chunks */
+    final ChunkedMapLayer layer;
+
+    /** Index of this chunk in the chunk table of the layer */
+    final int index;
+
+    /** Cell values, null while the chunk is paged out */
+    int [] content;
+
+    /** Offsets, null if all offsets are 0 or the chunk is paged out */
+    int [] xoff;
+    int [] yoff;
+
+    /** Did the chunk have offsets when it was paged out? */
+    boolean hasOffsets;
+
+    /** Changed since it was paged in? */
+    boolean dirty;
+
+    /** Used since the pager looked last? */
+    boolean referenced;
+
+    /** Position in the spill file, -1 if it has none */
+    long slot = -1;
+
+    /**
+     * Creates a shared chunk, all cells have the given value.
+     */
+    MapChunk(final int value)
+    {
+        layer = null;
+        index = -1;
+        content = new int [CELLS];
+        Arrays.fill(content, value);
+    }
+
+    /**
+     * Creates a chunk of a layer, the cells are copied from a
+     * shared chunk.
+     */
+    MapChunk(final ChunkedMapLayer layer, final int index, final MapChunk shared)
+    {
+        this.layer = layer;
+        this.index = index;
+        content = shared.content.clone();
+    }
+
+    boolean isShared()
+    {
+        return layer == null;
+    }
+
+    /**
+     * @return true if all cells have the same value and no offsets.
+     *         The chunk must be paged in.
+     */
+    boolean isUniform()
+    {
+        final int value = content[0];
+
+        for(int i=1; i<CELLS; i++) {
+            if(content[i] != value) {
+                return false;
+            }
+        }
+
+        if(xoff != null) {
+            for(int i=0; i<CELLS; i++) {
+                if(xoff[i] != 0 || yoff[i] != 0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -16,6 +16,9 @@ package rgegame.map.data;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 /**
  * One layer for a map.
@@ -30,8 +33,9 @@ public class MapLayer
     private int height;
 
     private int [] content;
-    private int [] xoff;
-    private int [] yoff;
+
+    /** Offsets of the cells, most cells have none */
+    private CellOffsets offsets;
 
     /**
      * The value for the area outside of this map.
@@ -79,13 +83,22 @@ public class MapLayer
     }
 
     public MapLayer(int width, int height)
+    {
+        this(width, height, true);
+    }
+
+    /**
+     * @param dense false for subclasses which store the cells themselves
+     */
+    MapLayer(int width, int height, boolean dense)
     {
         this.width = width;
         this.height = height;
 
-        content = new int[width * height];
-        xoff = new int[width * height];
-        yoff = new int[width * height];
+        if(dense) {
+            content = new int[width * height];
+            offsets = new CellOffsets(width * height);
+        }
     }
 
     public int get(final int x, final int y)
@@ -107,7 +120,7 @@ public class MapLayer
     public int getXoff(final int x, final int y)
     {
         if(x>=0 && y>=0 && x<width && y<height) {
-            return xoff[y*width + x];
+            return offsets.getX(y*width + x);
         } else {
             return 0;
         }
@@ -116,7 +129,7 @@ public class MapLayer
     public int getYoff(final int x, final int y)
     {
         if(x>=0 && y>=0 && x<width && y<height) {
-            return yoff[y*width + x];
+            return offsets.getY(y*width + x);
         } else {
             return 0;
         }
@@ -125,17 +138,107 @@ public class MapLayer
     public void setXoff(int x, int y, int value)
     {
         if(x>=0 && y>=0 && x<width && y<height) {
-            xoff[y*width + x] = value;
+            offsets.setX(y*width + x, value);
         }
     }
 
     public void setYoff(int x, int y, int value)
     {
         if(x>=0 && y>=0 && x<width && y<height) {
-            yoff[y*width + x] = value;
+            offsets.setY(y*width + x, value);
+        }
+    }
+
+    /**
+     * Read a run of cells of a row. Cells outside of this layer read
+     * as the outside value.
+     *
+     * @param x The X coordinate of the first cell
+     * @param y The Y coordinate of the row
+     * @param dst The array to copy the values to
+     * @param offset The index in dst of the first value
+     * @param length The number of cells to read
+     */
+    public void getRow(int x, int y, int [] dst, int offset, int length)
+    {
+        final int start = Math.max(x, 0);
+        final int end = Math.min(x + length, width);
+
+        if(y<0 || y>=height || start >= end) {
+            Arrays.fill(dst, offset, offset + length, getOutside());
+        } else {
+            Arrays.fill(dst, offset, offset + start - x, getOutside());
+            readRun(start, y, dst, offset + start - x, end - start);
+            Arrays.fill(dst, offset + end - x, offset + length, getOutside());
+        }
+    }
+
+    /**
+     * Set a run of cells of a row. Cells outside of this layer are
+     * skipped.
+     *
+     * @param x The X coordinate of the first cell
+     * @param y The Y coordinate of the row
+     * @param src The array with the values
+     * @param offset The index in src of the first value
+     * @param length The number of cells to set
+     */
+    public void setRow(int x, int y, int [] src, int offset, int length)
+    {
+        final int start = Math.max(x, 0);
+        final int end = Math.min(x + length, width);
+
+        if(y>=0 && y<height && start < end) {
+            writeRun(start, y, src, offset + start - x, end - start);
+        }
+    }
+
+    /**
+     * Set all cells of an area to a value. Cells outside of this
+     * layer are skipped.
+     *
+     * @param x Left of the area
+     * @param y Top of the area
+     * @param w Width of the area
+     * @param h Height of the area
+     * @param value The value to set
+     */
+    public void fill(int x, int y, int w, int h, int value)
+    {
+        final int start = Math.max(x, 0);
+        final int end = Math.min(x + w, width);
+
+        if(start < end) {
+            for(int j=Math.max(y, 0); j<Math.min(y + h, height); j++) {
+                fillRun(start, j, end - start, value);
+            }
         }
     }
 
+    /**
+     * Copy cells of a row, which are all inside of this layer.
+     */
+    void readRun(int x, int y, int [] dst, int offset, int length)
+    {
+        System.arraycopy(content, y*width + x, dst, offset, length);
+    }
+
+    /**
+     * Set cells of a row, which are all inside of this layer.
+     */
+    void writeRun(int x, int y, int [] src, int offset, int length)
+    {
+        System.arraycopy(src, offset, content, y*width + x, length);
+    }
+
+    /**
+     * Set cells of a row to a value, they are all inside of this layer.
+     */
+    void fillRun(int x, int y, int length, int value)
+    {
+        Arrays.fill(content, y*width + x, y*width + x + length, value);
+    }
+
     public void write(Writer writer) throws IOException
     {
         /*
@@ -156,10 +259,12 @@ public class MapLayer
         writer.write("" + height + "\n");
         writer.write("End Of Header\n");
 
-        for(int i=0; i<content.length; i++) {
-            writer.write("" + content[i] + " " +
-                    xoff[i] + " " +
-                    yoff[i] + "\n");
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                writer.write("" + get(x, y) + " " +
+                        getXoff(x, y) + " " +
+                        getYoff(x, y) + "\n");
+            }
         }
     }
 
@@ -196,8 +301,7 @@ public class MapLayer
 
         final int size = width * height;
         content = new int [size];
-        xoff = new int [size];
-        yoff = new int [size];
+        offsets = new CellOffsets(size);
 
         boolean hasOffsets = "v.3".equals(version);
 
@@ -207,8 +311,8 @@ public class MapLayer
             if(hasOffsets) {
                 String [] parts = line.split(" ");
                 content[i] = Integer.parseInt(parts[0]);
-                xoff[i] = Integer.parseInt(parts[1]);
-                yoff[i] = Integer.parseInt(parts[2]);
+                offsets.setX(i, Integer.parseInt(parts[1]));
+                offsets.setY(i, Integer.parseInt(parts[2]));
 
             } else {
                 content[i] = Integer.parseInt(line);
@@ -222,4 +326,118 @@ public class MapLayer
         }
 
     }
+
+    /**
+     * Layer data for the binary map format v.4, ready to be written:
+     * one buffer with the outside value and tile set name, and one
+     * buffer for each of the content, xoff and yoff planes.
+     */
+    ByteBuffer [] toBuffers() throws IOException
+    {
+        final ByteBuffer xPlane = BinaryMapFormat.allocate(content.length * 4);
+        final ByteBuffer yPlane = BinaryMapFormat.allocate(content.length * 4);
+
+        offsets.putPlanes(xPlane, yPlane);
+
+        return new ByteBuffer [] {headerBuffer(), toBuffer(content), xPlane, yPlane};
+    }
+
+    /**
+     * Layer data like toBuffers(), collected cell by cell through the
+     * accessors, for subclasses which store the cells themselves.
+     */
+    ByteBuffer [] toBuffersByCell() throws IOException
+    {
+        if((long)width * height * 4 > Integer.MAX_VALUE) {
+            throw new IOException("Layer too large for the binary format: " +
+                                  width + "x" + height);
+        }
+
+        final ByteBuffer [] buffers = new ByteBuffer [4];
+        buffers[0] = headerBuffer();
+
+        for(int i=1; i<4; i++) {
+            buffers[i] = BinaryMapFormat.allocate(width * height * 4);
+        }
+
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                buffers[1].putInt(get(x, y));
+                buffers[2].putInt(getXoff(x, y));
+                buffers[3].putInt(getYoff(x, y));
+            }
+        }
+
+        for(int i=1; i<4; i++) {
+            buffers[i].flip();
+        }
+
+        return buffers;
+    }
+
+    /**
+     * @return The header buffer of toBuffers()
+     */
+    ByteBuffer headerBuffer()
+    {
+        final byte [] name = BinaryMapFormat.encode(tileSetFileName);
+        final ByteBuffer header = BinaryMapFormat.allocate(4 + BinaryMapFormat.size(name));
+
+        header.putInt(outside);
+        BinaryMapFormat.putString(header, name);
+        header.flip();
+
+        return header;
+    }
+
+    private static ByteBuffer toBuffer(final int [] plane)
+    {
+        final ByteBuffer buffer = BinaryMapFormat.allocate(plane.length * 4);
+        buffer.asIntBuffer().put(plane);
+        return buffer;
+    }
+
+    /**
+     * Read layer data in binary map format v.4.
+     *
+     * @param buffer A little endian buffer, positioned at the layer data.
+     *               The position is moved past the layer data.
+     * @param width The width of the layer
+     * @param height The height of the layer
+     */
+    void read(final ByteBuffer buffer, final int width, final int height) throws IOException
+    {
+        outside = buffer.getInt();
+        tileSetFileName = BinaryMapFormat.getString(buffer);
+
+        final int size = width * height;
+
+        if(buffer.remaining() < size * 12L) {
+            throw new IOException("Unexpected end of file.");
+        }
+
+        this.width = width;
+        this.height = height;
+        content = new int [size];
+        offsets = new CellOffsets(size);
+
+        buffer.asIntBuffer().get(content);
+        buffer.position(buffer.position() + size * 4);
+
+        final IntBuffer xPlane = buffer.asIntBuffer();
+        buffer.position(buffer.position() + size * 4);
+        final IntBuffer yPlane = buffer.asIntBuffer();
+        buffer.position(buffer.position() + size * 4);
+
+        for(int i=0; i<size; i++) {
+            final int x = xPlane.get(i);
+            final int y = yPlane.get(i);
+
+            // Hajo: most cells have no offsets, don't store them
+            if(x != 0 || y != 0) {
+                offsets.setX(i, x);
+                offsets.setY(i, y);
+            }
+        }
+    }
 }
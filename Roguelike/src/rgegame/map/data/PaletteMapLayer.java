@@ -0,0 +1,330 @@
+/*
+ * PaletteMapLayer.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A map layer which keeps a palette of the distinct cell values, and
+ * stores for each cell the index of it's value in the palette. Layers
+ * use only a few distinct values, tile codes and colors, so the
+ * indices fit in a byte per cell. If the palette grows past 256
+ * values, the indices become shorts, and if it grows past 65536
+ * values, the layer stores the values themselves.
+ *
+ * Values stay in the palette when no cell uses them anymore.
+ *
+ * This is not reentrant.
+ *
+ * @see LayeredMap#packLayers()
+ *
+ * @author Hj. Malthaner
+ */
+class PaletteMapLayer extends MapLayer
+{
+    /** Palette sizes which fit byte and short indices */
+    private static final int BYTE_LIMIT = 256;
+    private static final int SHORT_LIMIT = 65536;
+
+    private final int width;
+    private final int height;
+
+    /** Distinct cell values, by index */
+    private int [] palette;
+    private int paletteSize;
+
+    /** Hash table of the palette, value and index + 1, 0 if empty */
+    private int [] lookupValues;
+    private int [] lookupIndices;
+
+    /** Indices of the cells, only one of them is used */
+    private byte [] bytes;
+    private short [] shorts;
+
+    /** Cell values, once there are too many for a palette */
+    private int [] values;
+
+    /** Offsets of the cells, most cells have none */
+    private final CellOffsets offsets;
+
+    /**
+     * Creates a packed copy of a layer.
+     */
+    PaletteMapLayer(MapLayer source)
+    {
+        super(source.getWidth(), source.getHeight(), false);
+
+        width = source.getWidth();
+        height = source.getHeight();
+
+        setOutside(source.getOutside());
+        setTileSetFileName(source.getTileSetFileName());
+
+        palette = new int [16];
+        lookupValues = new int [32];
+        lookupIndices = new int [32];
+        bytes = new byte [width * height];
+        offsets = new CellOffsets(width * height);
+
+        // Hajo: all indices are 0, so index 0 must be value 0
+        indexOf(0);
+
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                set(x, y, source.get(x, y));
+                setXoff(x, y, source.getXoff(x, y));
+                setYoff(x, y, source.getYoff(x, y));
+            }
+        }
+    }
+
+    /**
+     * @return The number of distinct values in the palette, or 0 if
+     *         the layer stores the values themselves
+     */
+    int getPaletteSize()
+    {
+        return values == null ? paletteSize : 0;
+    }
+
+    @Override
+    public int get(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            final int i = y*width + x;
+
+            if(bytes != null) {
+                return palette[bytes[i] & 0xFF];
+            } else if(shorts != null) {
+                return palette[shorts[i] & 0xFFFF];
+            } else {
+                return values[i];
+            }
+        } else {
+            return getOutside();
+        }
+    }
+
+    @Override
+    public void set(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            final int i = y*width + x;
+
+            if(values != null) {
+                values[i] = value;
+                return;
+            }
+
+            final int index = indexOf(value);
+
+            if(index < 0) {
+                toValues();
+                values[i] = value;
+            } else if(bytes != null && index >= BYTE_LIMIT) {
+                toShorts();
+                shorts[i] = (short)index;
+            } else if(bytes != null) {
+                bytes[i] = (byte)index;
+            } else {
+                shorts[i] = (short)index;
+            }
+        }
+    }
+
+    @Override
+    public int getXoff(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            return offsets.getX(y*width + x);
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public int getYoff(final int x, final int y)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            return offsets.getY(y*width + x);
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public void setXoff(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            offsets.setX(y*width + x, value);
+        }
+    }
+
+    @Override
+    public void setYoff(int x, int y, int value)
+    {
+        if(x>=0 && y>=0 && x<width && y<height) {
+            offsets.setY(y*width + x, value);
+        }
+    }
+
+    @Override
+    void readRun(int x, int y, int [] dst, int offset, int length)
+    {
+        final int start = y*width + x;
+
+        for(int i=0; i<length; i++) {
+            if(bytes != null) {
+                dst[offset + i] = palette[bytes[start + i] & 0xFF];
+            } else if(shorts != null) {
+                dst[offset + i] = palette[shorts[start + i] & 0xFFFF];
+            } else {
+                dst[offset + i] = values[start + i];
+            }
+        }
+    }
+
+    @Override
+    void writeRun(int x, int y, int [] src, int offset, int length)
+    {
+        for(int i=0; i<length; i++) {
+            set(x + i, y, src[offset + i]);
+        }
+    }
+
+    @Override
+    void fillRun(int x, int y, int length, int value)
+    {
+        final int start = y*width + x;
+
+        // Hajo: set the first cell, to get the value into the palette
+        set(x, y, value);
+
+        if(bytes != null) {
+            Arrays.fill(bytes, start, start + length, bytes[start]);
+        } else if(shorts != null) {
+            Arrays.fill(shorts, start, start + length, shorts[start]);
+        } else {
+            Arrays.fill(values, start, start + length, value);
+        }
+    }
+
+    /**
+     * Packed layers are made from other layers, read maps into a new
+     * layered map instead.
+     */
+    @Override
+    public void read(BufferedReader reader) throws IOException
+    {
+        throw new IOException("Can't read into a packed layer.");
+    }
+
+    @Override
+    ByteBuffer [] toBuffers() throws IOException
+    {
+        return toBuffersByCell();
+    }
+
+    /**
+     * @return The palette index of the value, -1 if it isn't in the
+     *         palette and the palette is full
+     */
+    private int indexOf(final int value)
+    {
+        final int mask = lookupValues.length - 1;
+        int slot = hash(value) & mask;
+
+        while(lookupIndices[slot] != 0) {
+            if(lookupValues[slot] == value) {
+                return lookupIndices[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if(paletteSize == SHORT_LIMIT) {
+            return -1;
+        }
+
+        if(paletteSize == palette.length) {
+            final int [] bigger = new int [paletteSize * 2];
+            System.arraycopy(palette, 0, bigger, 0, paletteSize);
+            palette = bigger;
+        }
+
+        final int index = paletteSize++;
+        palette[index] = value;
+        lookupValues[slot] = value;
+        lookupIndices[slot] = index + 1;
+
+        if(paletteSize * 2 > lookupValues.length) {
+            growLookup();
+        }
+
+        return index;
+    }
+
+    private static int hash(final int value)
+    {
+        final int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void growLookup()
+    {
+        lookupValues = new int [lookupValues.length * 2];
+        lookupIndices = new int [lookupIndices.length * 2];
+
+        final int mask = lookupValues.length - 1;
+
+        for(int index=0; index<paletteSize; index++) {
+            int slot = hash(palette[index]) & mask;
+
+            while(lookupIndices[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            lookupValues[slot] = palette[index];
+            lookupIndices[slot] = index + 1;
+        }
+    }
+
+    private void toShorts()
+    {
+        shorts = new short [bytes.length];
+
+        for(int i=0; i<bytes.length; i++) {
+            shorts[i] = (short)(bytes[i] & 0xFF);
+        }
+
+        bytes = null;
+    }
+
+    private void toValues()
+    {
+        values = new int [width * height];
+
+        for(int i=0; i<values.length; i++) {
+            values[i] = bytes != null ? palette[bytes[i] & 0xFF] : palette[shorts[i] & 0xFFFF];
+        }
+
+        bytes = null;
+        shorts = null;
+        palette = null;
+        lookupValues = null;
+        lookupIndices = null;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * ScriptMap.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.map.data;
+
+import java.util.Arrays;
+
+/**
+ * The scripts of a map by cell index, y*width + x. Only cells which
+ * have a script are stored, in a hash table with linear probing and
+ * primitive keys. The keys are longs because chunked maps can have
+ * more cells than an int can count.
+ *
+ * @author Hj. Malthaner
+ */
+final class ScriptMap
+{
+    /** Key of empty slots */
+    private static final long EMPTY = -1L;
+
+    private long [] keys;
+    private String [] scripts;
+    private int count;
+
+    ScriptMap()
+    {
+        keys = new long [16];
+        scripts = new String [16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return The script of the cell, or null if it has none
+     */
+    String get(final long cell)
+    {
+        return scripts[find(cell)];
+    }
+
+    /**
+     * Set the script of a cell, null removes it.
+     */
+    void put(final long cell, final String script)
+    {
+        int slot = find(cell);
+
+        if(script == null) {
+            if(keys[slot] != EMPTY) {
+                remove(slot);
+            }
+            return;
+        }
+
+        if(keys[slot] == EMPTY) {
+            if((count + 1) * 2 > keys.length) {
+                grow();
+                slot = find(cell);
+            }
+
+            keys[slot] = cell;
+            count ++;
+        }
+
+        scripts[slot] = script;
+    }
+
+    /**
+     * @return The cell indices of all scripts, sorted
+     */
+    long [] getCells()
+    {
+        final long [] cells = new long [count];
+        int n = 0;
+
+        for(int slot=0; slot<keys.length; slot++) {
+            if(keys[slot] != EMPTY) {
+                cells[n++] = keys[slot];
+            }
+        }
+
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    /**
+     * @return The slot of the cell, or the empty slot where it belongs
+     */
+    private int find(final long cell)
+    {
+        final int mask = keys.length - 1;
+        int slot = hash(cell) & mask;
+
+        while(keys[slot] != EMPTY && keys[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static int hash(final long cell)
+    {
+        return (int)((cell * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * Remove a slot, and move later entries of the same probe
+     * sequence back into the gap.
+     */
+    private void remove(int hole)
+    {
+        final int mask = keys.length - 1;
+        int slot = (hole + 1) & mask;
+
+        while(keys[slot] != EMPTY) {
+            final int home = hash(keys[slot]) & mask;
+
+            if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                scripts[hole] = scripts[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[hole] = EMPTY;
+        scripts[hole] = null;
+        count --;
+    }
+
+    private void grow()
+    {
+        final long [] oldKeys = keys;
+        final String [] oldScripts = scripts;
+
+        keys = new long [oldKeys.length * 2];
+        scripts = new String [oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+
+        for(int i=0; i<oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                final int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                scripts[slot] = oldScripts[i];
+            }
+        }
+    }
+}
@@ -17,6 +17,8 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 
+import rgegame.fieldofview.VisibilityGrid;
+
 /**
  * Paint an ASCII character for a map cell at a specified screen location.
  *
@@ -36,6 +38,7 @@ public class ASCIITilePainter implements TilePainter
     private int viewWidth;
     private int viewHeight;
     private int [] viewMap;
+    private VisibilityGrid visibilityGrid;
 
     /**
      * Set up field of view data
@@ -51,6 +54,21 @@ public class ASCIITilePainter implements TilePainter
         this.viewMap = viewMap;
         this.viewWidth = viewWidth;
         this.viewHeight = viewHeight;
+        this.visibilityGrid = null;
+    }
+
+    /**
+     * Set up field of view data from a visibility grid. Replaces
+     * a view map set by setViewMap().
+     *
+     * @param visibilityGrid Which map cells are visible?
+     */
+    public void setVisibilityGrid(VisibilityGrid visibilityGrid)
+    {
+        this.visibilityGrid = visibilityGrid;
+        this.viewMap = null;
+        this.viewWidth = visibilityGrid.getWidth();
+        this.viewHeight = visibilityGrid.getHeight();
     }
 
     /**
@@ -69,6 +87,9 @@ public class ASCIITilePainter implements TilePainter
      */
     private boolean isVisible(int x, int y)
     {
+        if(visibilityGrid != null) {
+            return visibilityGrid.isVisible(x, y);
+        }
         if(x >= 0 && y >= 0 && x < viewWidth && y < viewHeight) {
             return (viewMap[y*viewWidth + x] & VIEW_VISIBLE) != 0;
         }
@@ -82,6 +103,9 @@ public class ASCIITilePainter implements TilePainter
      */
     private boolean isRemembered(int x, int y)
     {
+        if(visibilityGrid != null) {
+            return visibilityGrid.isRemembered(x, y);
+        }
         if(x >= 0 && y >= 0 && x < viewWidth && y < viewHeight) {
             return (viewMap[y*viewWidth + x] & VIEW_REMEMBERED) != 0;
         }
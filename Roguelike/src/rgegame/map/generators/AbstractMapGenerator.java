@@ -142,11 +142,14 @@ public abstract class AbstractMapGenerator implements MapGenerator
                   int layer, int x, int y, int w, int h,
                   final int [] values)
     {
+        final int [] row = new int [Math.max(w, 0)];
+
         for(int j=0; j<h; j++) {
             for(int i=0; i<w; i++) {
-                map.set(layer, x+i, y+j,
-                        values[Randomlib.linearRange(0, values.length-1)]);
+                row[i] = values[Randomlib.linearRange(0, values.length-1)];
             }
+
+            map.setRow(layer, x, y+j, row, 0, row.length);
         }        
     }
 
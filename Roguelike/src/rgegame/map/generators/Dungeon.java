@@ -16,15 +16,14 @@ package rgegame.map.generators;
 import java.awt.Point;
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Random;
 
 import rgegame.demo.pathfinding.PathSourceLink;
 import rgegame.map.data.LayeredMap;
 import rgegame.map.display.ColorCodes;
-import rgegame.pathfinding.CoordinatePathDestination;
-import rgegame.pathfinding.Path;
-import rgegame.pathfinding.PathSource;
+import rgegame.pathfinding.RegionLabeler;
 
 /**
  * This generator creates a classical rooms and corridor maze.
@@ -36,6 +35,9 @@ import rgegame.pathfinding.PathSource;
  */
 public class Dungeon extends AbstractMapGenerator
 {
+    /** Any feature value other than 0, for cells outside of the map */
+    private static final int CLOSED = -1;
+
     private Properties props;
 
 
@@ -140,21 +142,25 @@ public class Dungeon extends AbstractMapGenerator
                           int x, int y, int w, int h,
                           boolean withFeatures)
     {
+        final int [] row = new int [Math.max(w, 0)];
+
         for(int j=y; j<y+h; j++) {
-            for(int i=x; i<x+w; i++) {
+            for(int i=0; i<w; i++) {
                 
                 if(getRandomFromInterval(0, 100) < damagedFloorChance) {
                     // Hajo: damaged floor
-                    lmap.set(0, i, j, standardGrounds[Randomlib.linearRange(0, standardGrounds.length-1)]);
+                    row[i] = standardGrounds[Randomlib.linearRange(0, standardGrounds.length-1)];
                 } else {
                     // Hajo: proper floor
-                    lmap.set(0, i, j, roomFloors[Randomlib.linearRange(0, roomFloors.length-1)]);
+                    row[i] = roomFloors[Randomlib.linearRange(0, roomFloors.length-1)];
                 }
-
-                lmap.set(1, i, j, 0);
             }
+
+            lmap.setRow(0, x, j, row, 0, row.length);
         }
 
+        lmap.fillRegion(1, x, y, w, h, 0);
+
         if(withFeatures) {
             int xpos = x + w/2;
             int ypos = y + h/2;
@@ -457,65 +463,102 @@ public class Dungeon extends AbstractMapGenerator
 
 
         // placing the stairs
-        // very rough set of code to place a valid stairs that the player can always get to
-        Path path = new Path();
-        PathSource pathSource = new PathSourceLink(map);
+        // the stairs must be in the region of the spawn point, so the
+        // player can always get there
+        PathSourceLink pathSource = new PathSourceLink(map);
+        RegionLabeler regions = new RegionLabeler(map, pathSource.getBitmap(), false);
         int sx = map.getSpawnX();
         int sy = map.getSpawnY();
         int dx, dy;
-        boolean go = true;        
         int stairRoom;
         int stairPos;
 
-        while(go){
-            do {        
-              stairRoom = rand.nextInt(rX.length - 1) + 1;
-              stairPos = rand.nextInt(2);
-//              map.set(1, rX[stairRoom] + (stairPos+1), rY[stairRoom]+ (stairPos+1), stairsDown);
-                dx = (int) (rX[stairRoom] + (stairPos+1));
-                dy = (int) (rY[stairRoom]+ (stairPos+1));
-            } while(pathSource.isMoveAllowed(sx, sy, dx, dy) == false);
-            
-            CoordinatePathDestination destination =
-                    new CoordinatePathDestination(dx, dy);
-
-            // Try to find a path there
-            boolean ok = path.findPath(pathSource, destination, sx, sy);
-            if(ok){
-            	map.set(1, dx, dy, stairsDown);
-            	go = false;
-            }
-        }
-        
-        
-        
+        do {
+            stairRoom = rand.nextInt(rX.length - 1) + 1;
+            stairPos = rand.nextInt(2);
+            dx = (int) (rX[stairRoom] + (stairPos+1));
+            dy = (int) (rY[stairRoom]+ (stairPos+1));
+        } while(isReachable(regions, sx, sy, dx, dy) == false);
+
+        regions.dispose();
+        map.set(1, dx, dy, stairsDown);
+
         return map;
     }
 
+    /**
+     * Check if (dx, dy) can be reached from (sx, sy). Like a path
+     * search, this allows to start on a blocked square.
+     */
+    private static boolean isReachable(RegionLabeler regions,
+                                       int sx, int sy, int dx, int dy)
+    {
+        final int target = regions.getRegion(dx, dy);
+
+        return target != RegionLabeler.NONE &&
+               (regions.getRegion(sx, sy) == target ||
+                regions.getRegion(sx+1, sy) == target ||
+                regions.getRegion(sx-1, sy) == target ||
+                regions.getRegion(sx, sy+1) == target ||
+                regions.getRegion(sx, sy-1) == target);
+    }
+
     private void calculateHiddenWalls(LayeredMap map)
     {
         final int width = map.getWidth();
         final int height = map.getHeight();
-        
+
+        // Hajo: the feature rows above, at and below the current row,
+        // with a closed cell at both ends for the map border. The row
+        // above and the cells left of the current cell already have
+        // their new values, like when setting the cells one by one.
+        int [] above = new int [width + 2];
+        int [] row = new int [width + 2];
+        int [] below = new int [width + 2];
+        int [] done = new int [width + 2];
+
+        Arrays.fill(above, CLOSED);
+        readFeatureRow(map, 0, row);
+
         for(int j=0; j<height; j++) {
-            for(int i=0; i<width; i++) {
-
-                boolean open = false;
-                for(int yd=-1; yd<=1; yd++) {
-                    for(int xd=-1; xd<=1; xd++) {
-
-                        if(i+xd >= 0 && i+xd < width && j+yd >= 0 && j+yd < height) {
-                            if(map.get(1, i+xd, j+yd) == 0) {
-                                open = true;
-                            }
-                        }
-                    }
-                }
+            readFeatureRow(map, j+1, below);
 
-                if(open == false) {
-                    map.set(1, i, j, hiddenWall);
-                }
+            done[0] = CLOSED;
+            done[width+1] = CLOSED;
+
+            for(int i=1; i<=width; i++) {
+                final boolean open =
+                        above[i-1] == 0 || above[i] == 0 || above[i+1] == 0 ||
+                        done[i-1] == 0 || row[i] == 0 || row[i+1] == 0 ||
+                        below[i-1] == 0 || below[i] == 0 || below[i+1] == 0;
+
+                done[i] = open ? row[i] : hiddenWall;
             }
+
+            map.setRow(1, 0, j, done, 1, width);
+
+            final int [] freeAbove = above;
+            final int [] freeRow = row;
+
+            above = done;
+            row = below;
+            below = freeAbove;
+            done = freeRow;
+        }
+    }
+
+    /**
+     * Read a row of the feature layer, between two closed cells.
+     * Rows outside of the map are closed.
+     */
+    private static void readFeatureRow(final LayeredMap map, final int y, final int [] row)
+    {
+        if(y < map.getHeight()) {
+            map.getRow(1, 0, y, row, 1, row.length - 2);
+            row[0] = CLOSED;
+            row[row.length - 1] = CLOSED;
+        } else {
+            Arrays.fill(row, CLOSED);
         }
     }
 
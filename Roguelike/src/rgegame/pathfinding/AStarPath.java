@@ -0,0 +1,399 @@
+/*
+ * AStarPath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * An A* pathfinder for maps of known size. It fills the same step list
+ * as the breadth-first Path, so it can be used wherever a Path is used.
+ *
+ * Straight moves cost 10, diagonal moves cost 14. The estimate is the
+ * octile distance to the destination if diagonals are used, the
+ * manhattan distance otherwise. With diagonals the paths can differ from
+ * the breadth-first paths: these are shortest by octile distance, so a
+ * path may take an extra step to avoid a detour of diagonal moves.
+ *
+ * Only a CoordinatePathDestination gives a destination to aim for.
+ * For other destinations the estimate is zero and the search expands
+ * in all directions like Dijkstra's algorithm.
+ *
+ * The open list is an indexed binary heap over cell indices. All
+ * per-cell data is kept in arrays of map size, which are allocated
+ * once and marked valid per search by a generation counter, so a
+ * search doesn't need to clear them.
+ *
+ * The search can also be run in slices, see ResumableSearch.
+ *
+ * Like Path, this is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class AStarPath extends Path implements ResumableSearch
+{
+    private static final int STRAIGHT_COST = 10;
+    private static final int DIAGONAL_COST = 14;
+
+    /** Heap position of cells which have been expanded */
+    private static final int CLOSED = -1;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+
+    /** Cost of the best known path from the start to each cell */
+    private final int [] cost;
+
+    /** Cost plus estimated remaining cost for each cell */
+    private final int [] estimate;
+
+    /** Predecessor of each cell on the best known path, -1 for the start */
+    private final int [] parent;
+
+    /** Generation in which the cell data was last written */
+    private final int [] stamp;
+
+    /** Position of each open cell in the heap, or CLOSED */
+    private final int [] heapPos;
+
+    /** The open list, a binary heap of cell indices */
+    private final int [] heap;
+    private int heapSize;
+
+    private int generation;
+
+    /** Number of cells expanded by the last search */
+    private int expanded;
+
+    /** State of the search, IN_PROGRESS, FOUND or FAILED */
+    private int state = FAILED;
+
+    /** The search in progress */
+    private PathSource searchSource;
+    private PathDestination searchDestination;
+    private boolean hasGoal;
+    private int gx;
+    private int gy;
+
+    /**
+     * Creates a new A* path with no nodes.
+     *
+     * @param width The width of the maps to search
+     * @param height The height of the maps to search
+     */
+    public AStarPath(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+
+        cost = new int [size];
+        estimate = new int [size];
+        parent = new int [size];
+        stamp = new int [size];
+        heapPos = new int [size];
+        heap = new int [size];
+    }
+
+    /**
+     * @return The number of cells expanded by the last search.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    /**
+     * A* pathfinding. Cells outside the map size are never entered.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        startSearch(pathSource, pathDestination, sx, sy);
+        return step(Integer.MAX_VALUE) == FOUND;
+    }
+
+    public void startSearch(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        clear();
+        expanded = 0;
+        heapSize = 0;
+
+        searchSource = pathSource;
+        searchDestination = pathDestination;
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height) {
+            state = FAILED;
+            return;
+        }
+
+        nextGeneration();
+
+        hasGoal = pathDestination instanceof CoordinatePathDestination;
+        gx = 0;
+        gy = 0;
+
+        if(hasGoal) {
+            gx = ((CoordinatePathDestination)pathDestination).getX();
+            gy = ((CoordinatePathDestination)pathDestination).getY();
+        }
+
+        final int start = sy*width + sx;
+        stamp[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        estimate[start] = hasGoal ? distance(sx, sy, gx, gy, isUseDiagonals()) : 0;
+        push(start);
+
+        state = IN_PROGRESS;
+    }
+
+    public int step(int budget)
+    {
+        if(state != IN_PROGRESS) {
+            return state;
+        }
+
+        final PathSource pathSource = searchSource;
+        final PathDestination pathDestination = searchDestination;
+        final boolean diagonals = isUseDiagonals();
+        final int directions = diagonals ? 8 : 4;
+        final boolean aimed = hasGoal;
+        final int tx = gx;
+        final int ty = gy;
+
+        while(heapSize > 0) {
+            if(budget <= 0) {
+                return IN_PROGRESS;
+            }
+            budget --;
+
+            final int current = pop();
+            heapPos[current] = CLOSED;
+            expanded ++;
+
+            final int x = current % width;
+            final int y = current / width;
+
+            if(pathDestination.isDestinationReached(x, y)) {
+                unwind(current);
+                return finish(FOUND);
+            }
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int next = ny*width + nx;
+                final boolean seen = stamp[next] == generation;
+
+                if(seen && heapPos[next] == CLOSED) {
+                    continue;
+                }
+
+                final int newCost = cost[current] +
+                        (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+
+                if(seen && newCost >= cost[next]) {
+                    continue;
+                }
+
+                if(pathSource.isMoveAllowed(x, y, nx, ny) == false) {
+                    continue;
+                }
+
+                if(seen) {
+                    // Hajo: found a cheaper way to an open cell
+                    estimate[next] += newCost - cost[next];
+                    cost[next] = newCost;
+                    parent[next] = current;
+                    siftUp(heapPos[next]);
+                } else {
+                    stamp[next] = generation;
+                    cost[next] = newCost;
+                    parent[next] = current;
+                    estimate[next] = newCost +
+                            (aimed ? distance(nx, ny, tx, ty, diagonals) : 0);
+                    push(next);
+                }
+            }
+        }
+
+        return finish(FAILED);
+    }
+
+    /**
+     * End the search, the source and destination aren't needed anymore.
+     */
+    private int finish(final int result)
+    {
+        searchSource = null;
+        searchDestination = null;
+        state = result;
+        return result;
+    }
+
+    /**
+     * Estimated cost from (x, y) to the goal. Never more than the
+     * real cost, so the paths are shortest paths.
+     */
+    private static int distance(int x, int y, int gx, int gy, boolean diagonals)
+    {
+        final int dx = Math.abs(gx - x);
+        final int dy = Math.abs(gy - y);
+
+        if(diagonals) {
+            return STRAIGHT_COST * Math.max(dx, dy) +
+                   (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dy);
+        }
+        return STRAIGHT_COST * (dx + dy);
+    }
+
+    /**
+     * Add the steps from the start to the given cell to this path.
+     */
+    private void unwind(int cell)
+    {
+        // Hajo: the heap isn't needed anymore, use it to
+        // reverse the chain of predecessors
+        int n = 0;
+
+        while(cell != -1) {
+            heap[n++] = cell;
+            cell = parent[cell];
+        }
+
+        while(n > 0) {
+            final int c = heap[--n];
+            addStep(c % width, c / width);
+        }
+
+        heapSize = 0;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * True if cell a must be expanded before cell b. Ties are broken
+     * towards the higher cost, that is the cell closer to the goal.
+     */
+    private boolean before(final int a, final int b)
+    {
+        return estimate[a] < estimate[b] ||
+               (estimate[a] == estimate[b] && cost[a] > cost[b]);
+    }
+
+    private void push(final int cell)
+    {
+        heap[heapSize] = cell;
+        heapPos[cell] = heapSize;
+        heapSize ++;
+        siftUp(heapSize - 1);
+    }
+
+    private int pop()
+    {
+        final int top = heap[0];
+
+        heapSize --;
+
+        if(heapSize > 0) {
+            final int last = heap[heapSize];
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    private void siftUp(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+            final int upCell = heap[up];
+
+            if(!before(cell, upCell)) {
+                break;
+            }
+
+            heap[pos] = upCell;
+            heapPos[upCell] = pos;
+            pos = up;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+
+    private void siftDown(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child ++;
+            }
+
+            if(!before(heap[child], cell)) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+}
@@ -29,6 +29,15 @@ public class Area
     /** Result path of area finding */
     private final ArrayList <Point> area;
 
+    /** All points ever handed out, reused by later searches */
+    private final ArrayList <Point> points;
+
+    /** Number of points in use */
+    private int used;
+
+    /** Breadth first search core */
+    private final GridSearch search;
+
     /** use diagonals in pathfinding? */
     private boolean useDiagonals = true;
 
@@ -43,6 +52,9 @@ public class Area
 
     /**
      * Access the list of all points in the found area.
+     * The points are reused by the next area finding, copy them
+     * if they are needed longer.
+     *
      * @return the list of all points in the found area.
      */
     public ArrayList <Point> getArea()
@@ -54,6 +66,7 @@ public class Area
     public void clear()
     {
         area.clear();
+        used = 0;
     }
 
     /**
@@ -69,54 +82,31 @@ public class Area
     public boolean findArea(final PathSource pathSource,
                             final int sx, final int sy)
     {
-        clear();
-
-        final ArrayList <Point> queue = new ArrayList <Point> ();
-
-        queue.add(new Point(sx, sy));
-        Point p;
-
-        do {
-            p = queue.remove(0);
-
-            // Recursive pathfinding in the 4 cardinal directions.
-            checkMove(pathSource, area, queue, p, 1, 0);
-            checkMove(pathSource, area, queue, p, 0, 1);
-            checkMove(pathSource, area, queue, p, -1, 0);
-            checkMove(pathSource, area, queue, p, 0, -1);
-
-            if(useDiagonals) {
-                checkMove(pathSource, area, queue, p, 1, 1);
-                checkMove(pathSource, area, queue, p, 1, -1);
-                checkMove(pathSource, area, queue, p, -1, 1);
-                checkMove(pathSource, area, queue, p, -1, -1);
-            }
-
-        } while(queue.isEmpty() == false);
+        // Hajo: the start isn't marked, it only becomes part
+        // of the area if it can be entered from a neighbour.
+        search.search(pathSource, null, sx, sy, useDiagonals, false);
 
         return false;
     }
 
     /**
-     * Check next possible step on path.
+     * Add a point to the area, reusing a point of an earlier search
+     * if there is one.
      */
-    private void checkMove(final PathSource pathSource,
-                           final ArrayList <Point> area,
-                           final ArrayList <Point> queue,
-                           final Point p,
-                           final int w, final int h)
+    private void addPoint(final int x, final int y)
     {
-        final int dx = p.x+w;
-        final int dy = p.y+h;
-
-        final Point pos = new Point(dx, dy);
-
-        if(pathSource.isMoveAllowed(p.x, p.y, dx, dy) &&
-           area.contains(pos) == false)
-        {
-            queue.add(pos);
-            area.add(pos);
+        final Point p;
+
+        if(used < points.size()) {
+            p = points.get(used);
+            p.setLocation(x, y);
+        } else {
+            p = new Point(x, y);
+            points.add(p);
         }
+
+        used ++;
+        area.add(p);
     }
 
     /** 
@@ -125,6 +115,22 @@ public class Area
     public Area()
     {
         area = new ArrayList <Point> ();
+        points = new ArrayList <Point> ();
+
+        search = new GridSearch() {
+            @Override
+            void begin()
+            {
+                clear();
+            }
+
+            @Override
+            void visit(int x, int y)
+            {
+                addPoint(x, y);
+            }
+        };
+
         clear();
     }
 }
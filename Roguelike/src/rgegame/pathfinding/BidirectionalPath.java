@@ -0,0 +1,335 @@
+/*
+ * BidirectionalPath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A breadth-first pathfinder which searches from the start and from
+ * the destination at the same time, until the searches meet. For two
+ * far apart rooms each search only has to cover about half the way,
+ * which is much less area than one search covering all the way.
+ *
+ * The paths have the same number of steps as the paths of the one
+ * sided breadth-first Path, but may take other cells.
+ *
+ * The search from the destination walks moves backwards: it enters a
+ * cell "from" next to a cell "to" if isMoveAllowed(from, to) is true,
+ * so path sources where a move is allowed only in one direction are
+ * searched correctly.
+ *
+ * Only a CoordinatePathDestination can be searched from both ends.
+ * For other destinations the one sided breadth-first search is used.
+ *
+ * Each round expands one whole layer of the smaller of the two
+ * frontiers. After the first layer where the searches meet, the best
+ * of the meeting cells found in that layer gives a shortest path.
+ *
+ * Like Path, this is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class BidirectionalPath extends Path
+{
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+
+    /** Per direction of search: generation stamp, distance, predecessor */
+    private final int [] stampForward;
+    private final int [] stampBackward;
+    private final int [] distForward;
+    private final int [] distBackward;
+    private final int [] parentForward;
+    private final int [] parentBackward;
+
+    private int generation;
+
+    /** Frontiers, the current layer and the next layer of each search */
+    private int [] layerForward;
+    private int [] layerBackward;
+    private int [] nextLayer;
+    private int sizeForward;
+    private int sizeBackward;
+
+    /** Best meeting cell found so far, and the path length through it */
+    private int meet;
+    private int best;
+
+    /** Number of cells expanded by the last search, both sides */
+    private int expanded;
+
+    /**
+     * Creates a new bidirectional path with no nodes.
+     *
+     * @param width The width of the maps to search
+     * @param height The height of the maps to search
+     */
+    public BidirectionalPath(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+
+        stampForward = new int [size];
+        stampBackward = new int [size];
+        distForward = new int [size];
+        distBackward = new int [size];
+        parentForward = new int [size];
+        parentBackward = new int [size];
+
+        layerForward = new int [64];
+        layerBackward = new int [64];
+        nextLayer = new int [64];
+    }
+
+    /**
+     * @return The number of cells expanded by the last search, counting
+     *         both directions. Zero if the one sided search was used.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    /**
+     * Bidirectional breadth first pathfinding. Cells outside the map
+     * size are never entered.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        expanded = 0;
+
+        if(pathDestination instanceof CoordinatePathDestination == false) {
+            return super.findPath(pathSource, pathDestination, sx, sy);
+        }
+
+        clear();
+
+        final int gx = ((CoordinatePathDestination)pathDestination).getX();
+        final int gy = ((CoordinatePathDestination)pathDestination).getY();
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height ||
+           gx < 0 || gy < 0 || gx >= width || gy >= height) {
+            return false;
+        }
+
+        if(sx == gx && sy == gy) {
+            addStep(sx, sy);
+            return true;
+        }
+
+        nextGeneration();
+
+        final int start = sy*width + sx;
+        final int goal = gy*width + gx;
+
+        stampForward[start] = generation;
+        distForward[start] = 0;
+        parentForward[start] = -1;
+        layerForward[0] = start;
+        sizeForward = 1;
+
+        stampBackward[goal] = generation;
+        distBackward[goal] = 0;
+        parentBackward[goal] = -1;
+        layerBackward[0] = goal;
+        sizeBackward = 1;
+
+        meet = -1;
+        best = Integer.MAX_VALUE;
+
+        final int directions = isUseDiagonals() ? 8 : 4;
+
+        while(sizeForward > 0 && sizeBackward > 0) {
+            // Hajo: grow the smaller frontier, it's the cheaper layer
+            if(sizeForward <= sizeBackward) {
+                expandForward(pathSource, directions);
+            } else {
+                expandBackward(pathSource, directions);
+            }
+
+            if(meet != -1) {
+                unwind();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Expand the whole current layer of the search from the start.
+     */
+    private void expandForward(final PathSource pathSource, final int directions)
+    {
+        int next = 0;
+
+        for(int i=0; i<sizeForward; i++) {
+            final int cell = layerForward[i];
+            final int x = cell % width;
+            final int y = cell / width;
+            final int dist = distForward[cell] + 1;
+
+            expanded ++;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int neighbour = ny*width + nx;
+
+                if(stampForward[neighbour] == generation ||
+                   pathSource.isMoveAllowed(x, y, nx, ny) == false) {
+                    continue;
+                }
+
+                stampForward[neighbour] = generation;
+                distForward[neighbour] = dist;
+                parentForward[neighbour] = cell;
+
+                if(stampBackward[neighbour] == generation &&
+                   dist + distBackward[neighbour] < best) {
+                    best = dist + distBackward[neighbour];
+                    meet = neighbour;
+                }
+
+                if(next == nextLayer.length) {
+                    nextLayer = Arrays.copyOf(nextLayer, next * 2);
+                }
+                nextLayer[next++] = neighbour;
+            }
+        }
+
+        final int [] tmp = layerForward;
+        layerForward = nextLayer;
+        nextLayer = tmp;
+        sizeForward = next;
+    }
+
+    /**
+     * Expand the whole current layer of the search from the
+     * destination. Moves are checked in walking direction, from the
+     * new cell to the expanded cell.
+     */
+    private void expandBackward(final PathSource pathSource, final int directions)
+    {
+        int next = 0;
+
+        for(int i=0; i<sizeBackward; i++) {
+            final int cell = layerBackward[i];
+            final int x = cell % width;
+            final int y = cell / width;
+            final int dist = distBackward[cell] + 1;
+
+            expanded ++;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int neighbour = ny*width + nx;
+
+                if(stampBackward[neighbour] == generation ||
+                   pathSource.isMoveAllowed(nx, ny, x, y) == false) {
+                    continue;
+                }
+
+                stampBackward[neighbour] = generation;
+                distBackward[neighbour] = dist;
+                parentBackward[neighbour] = cell;
+
+                if(stampForward[neighbour] == generation &&
+                   dist + distForward[neighbour] < best) {
+                    best = dist + distForward[neighbour];
+                    meet = neighbour;
+                }
+
+                if(next == nextLayer.length) {
+                    nextLayer = Arrays.copyOf(nextLayer, next * 2);
+                }
+                nextLayer[next++] = neighbour;
+            }
+        }
+
+        final int [] tmp = layerBackward;
+        layerBackward = nextLayer;
+        nextLayer = tmp;
+        sizeBackward = next;
+    }
+
+    /**
+     * Add the steps from the start over the meeting cell to the
+     * destination to this path.
+     */
+    private void unwind()
+    {
+        // Hajo: the frontiers aren't needed anymore, use one to
+        // reverse the chain of predecessors to the start
+        if(nextLayer.length < best + 1) {
+            nextLayer = new int [best + 1];
+        }
+
+        int n = 0;
+
+        for(int cell = meet; cell != -1; cell = parentForward[cell]) {
+            nextLayer[n++] = cell;
+        }
+
+        while(n > 0) {
+            final int c = nextLayer[--n];
+            addStep(c % width, c / width);
+        }
+
+        for(int cell = parentBackward[meet]; cell != -1; cell = parentBackward[cell]) {
+            addStep(cell % width, cell / width);
+        }
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stampForward, 0);
+            Arrays.fill(stampBackward, 0);
+            generation = 1;
+        }
+    }
+}
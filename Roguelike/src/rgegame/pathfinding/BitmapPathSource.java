@@ -0,0 +1,56 @@
+/*
+ * BitmapPathSource.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import rgegame.map.data.CellBitmap;
+
+/**
+ * A path source which reads walkability from a precomputed
+ * cell bitmap. A move is allowed if the target cell is inside
+ * the map and it's bit is set.
+ *
+ * @see rgegame.map.data.LayeredMap#getCellBitmap
+ *
+ * @author Hj. Malthaner
+ */
+public class BitmapPathSource implements PathSource
+{
+    private final CellBitmap walkable;
+
+    /**
+     * @param walkable Bitmap of the walkable cells
+     */
+    public BitmapPathSource(CellBitmap walkable)
+    {
+        this.walkable = walkable;
+    }
+
+    /**
+     * @return The bitmap of the walkable cells.
+     */
+    public CellBitmap getBitmap()
+    {
+        return walkable;
+    }
+
+    /**
+     * Checks if a move into map cell (toX, toY) is allowed.
+     */
+    public boolean isMoveAllowed(int fromX, int fromY, int toX, int toY)
+    {
+        return toX >= 0 && toY >= 0 &&
+               toX < walkable.getWidth() && toY < walkable.getHeight() &&
+               walkable.get(toX, toY);
+    }
+}
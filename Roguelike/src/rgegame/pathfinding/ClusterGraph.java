@@ -0,0 +1,669 @@
+/*
+ * ClusterGraph.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+import rgegame.map.data.LayeredMap;
+import rgegame.map.data.MapChangeListener;
+
+/**
+ * The abstract graph for hierarchical pathfinding (HPA*). The map is
+ * split into square clusters. Where two clusters touch, runs of
+ * cells which can be crossed in both directions become entrances:
+ * one entrance in the middle of a short run, one at each end of a
+ * long run. With diagonals, single diagonal crossings are entrances,
+ * too, also diagonal crossings through the corner where four clusters
+ * meet. The entrance cells are the nodes of the graph. Nodes of the
+ * same cluster are linked by the cost of the cheapest path between
+ * them inside the cluster, which is calculated once and cached.
+ *
+ * Clusters are built lazily, when a search first reaches them. The
+ * graph listens to changes of the walkability layer and only marks the
+ * cluster of a changed cell (and the neighbour cluster, if the cell is
+ * on a border) for rebuilding.
+ *
+ * The graph is shared by all HierarchicalPath objects which search
+ * the same map. It is not thread safe.
+ *
+ * @see HierarchicalPath
+ *
+ * @author Hj. Malthaner
+ */
+public class ClusterGraph implements MapChangeListener
+{
+    /** Runs of at least this many cells get two entrances */
+    private static final int LONG_RUN = 6;
+
+    /**
+     * Entrances and cached costs of one cluster.
+     */
+    static final class Cluster
+    {
+        /** Entrance cells, as map index (y*width + x) */
+        int [] nodes = new int [8];
+        int nodeCount;
+
+        /** Links to other clusters, pairs of (node, map index) */
+        int [] links = new int [16];
+        int linkCount;
+
+        /** Cost from node i to node j at [i*nodeCount + j] */
+        int [] costs = new int [64];
+
+        boolean dirty = true;
+
+        /**
+         * @return The node index of a map cell, or -1 if the cell
+         *         is no entrance of this cluster
+         */
+        int indexOf(final int cell)
+        {
+            for(int i=0; i<nodeCount; i++) {
+                if(nodes[i] == cell) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final LayeredMap map;
+    private final int layer;
+    private final PathSource source;
+    private final int clusterSize;
+
+    private int width;
+    private int height;
+    private int clustersX;
+    private int clustersY;
+
+    /** use diagonals in pathfinding? */
+    private boolean useDiagonals = true;
+
+    private Cluster [] clusters;
+
+    /**
+     * Entrance pairs on the border to the right and lower neighbour
+     * cluster, as map indices {inside, outside, inside, outside, ...}.
+     * The first element holds the number of pairs.
+     */
+    private int [][] rightBorders;
+    private int [][] lowerBorders;
+    private boolean [] rightBorderDirty;
+    private boolean [] lowerBorderDirty;
+
+    /**
+     * Diagonal entrance pairs through the lower right corner of a
+     * cluster, like the border entrances, but the pairs link
+     * different clusters. Each pair starts with the upper cell.
+     */
+    private int [][] corners;
+    private boolean [] cornerDirty;
+
+    private final ClusterSearch search;
+
+    /** Number of cluster builds, for statistics */
+    private long builds;
+
+    /**
+     * Create a new cluster graph for a map. The graph registers itself
+     * as change listener of the map, call dispose() to unregister.
+     *
+     * @param map The map to search
+     * @param layer The map layer which decides walkability
+     * @param source The path source to check moves
+     * @param clusterSize Width and height of the clusters, in cells
+     */
+    public ClusterGraph(final LayeredMap map, final int layer,
+                        final PathSource source, final int clusterSize)
+    {
+        if(clusterSize < 2) {
+            throw new IllegalArgumentException("Cluster size must be at least 2: " + clusterSize);
+        }
+
+        this.map = map;
+        this.layer = layer;
+        this.source = source;
+        this.clusterSize = clusterSize;
+        this.search = new ClusterSearch(clusterSize * clusterSize);
+
+        allocate();
+
+        map.addChangeListener(this);
+    }
+
+    /**
+     * Unregister this graph from the map.
+     */
+    public void dispose()
+    {
+        map.removeChangeListener(this);
+    }
+
+    /**
+     * Use diagonals in pathfinding?
+     * Default is true. Changing this rebuilds all clusters.
+     */
+    public void setUseDiagonals(boolean yesno)
+    {
+        if(yesno != useDiagonals) {
+            useDiagonals = yesno;
+            allocate();
+        }
+    }
+
+    public boolean isUseDiagonals()
+    {
+        return useDiagonals;
+    }
+
+    public int getClusterSize()
+    {
+        return clusterSize;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return The number of cluster builds so far.
+     */
+    public long getBuildCount()
+    {
+        return builds;
+    }
+
+    /**
+     * Mark the clusters touched by a changed cell for rebuilding.
+     */
+    public void cellChanged(LayeredMap map, int layer, int x, int y,
+                            int oldValue, int newValue)
+    {
+        if(layer != this.layer) {
+            return;
+        }
+
+        final int cx = x / clusterSize;
+        final int cy = y / clusterSize;
+        final int c = cy*clustersX + cx;
+
+        clusters[c].dirty = true;
+
+        // Hajo: cells on a border can change the entrances
+        // of the neighbour cluster, too
+        final int bx = x % clusterSize;
+        final int by = y % clusterSize;
+
+        if(bx == clusterSize-1 && cx+1 < clustersX) {
+            rightBorderDirty[c] = true;
+            clusters[c+1].dirty = true;
+        }
+        if(bx == 0 && cx > 0) {
+            rightBorderDirty[c-1] = true;
+            clusters[c-1].dirty = true;
+        }
+        if(by == clusterSize-1 && cy+1 < clustersY) {
+            lowerBorderDirty[c] = true;
+            clusters[c+clustersX].dirty = true;
+        }
+        if(by == 0 && cy > 0) {
+            lowerBorderDirty[c-clustersX] = true;
+            clusters[c-clustersX].dirty = true;
+        }
+
+        // Hajo: corner cells can change diagonal corner entrances
+        if((bx == 0 || bx == clusterSize-1) && (by == 0 || by == clusterSize-1)) {
+            final int kx = bx == 0 ? cx-1 : cx;
+            final int ky = by == 0 ? cy-1 : cy;
+
+            if(kx >= 0 && ky >= 0 && kx+1 < clustersX && ky+1 < clustersY) {
+                final int k = ky*clustersX + kx;
+
+                cornerDirty[k] = true;
+                clusters[k].dirty = true;
+                clusters[k+1].dirty = true;
+                clusters[k+clustersX].dirty = true;
+                clusters[k+clustersX+1].dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Rebuild everything, the map size may have changed.
+     */
+    public void mapReplaced(LayeredMap map)
+    {
+        allocate();
+    }
+
+    PathSource getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return The index of the cluster which contains cell (x, y).
+     */
+    int clusterIndex(final int x, final int y)
+    {
+        return (y / clusterSize) * clustersX + (x / clusterSize);
+    }
+
+    /**
+     * @return The left edge of a cluster.
+     */
+    int clusterLeft(final int index)
+    {
+        return (index % clustersX) * clusterSize;
+    }
+
+    /**
+     * @return The top edge of a cluster.
+     */
+    int clusterTop(final int index)
+    {
+        return (index / clustersX) * clusterSize;
+    }
+
+    int clusterWidth(final int index)
+    {
+        return Math.min(clusterSize, width - clusterLeft(index));
+    }
+
+    int clusterHeight(final int index)
+    {
+        return Math.min(clusterSize, height - clusterTop(index));
+    }
+
+    /**
+     * Get a cluster, build it first if needed.
+     */
+    Cluster getCluster(final int index)
+    {
+        final Cluster cluster = clusters[index];
+
+        if(cluster.dirty) {
+            build(index, cluster);
+        }
+
+        return cluster;
+    }
+
+    /**
+     * Set up empty clusters for the current map size.
+     */
+    private void allocate()
+    {
+        width = map.getWidth();
+        height = map.getHeight();
+        clustersX = (width + clusterSize - 1) / clusterSize;
+        clustersY = (height + clusterSize - 1) / clusterSize;
+
+        final int count = clustersX * clustersY;
+
+        clusters = new Cluster [count];
+        rightBorders = new int [count][];
+        lowerBorders = new int [count][];
+        rightBorderDirty = new boolean [count];
+        lowerBorderDirty = new boolean [count];
+        corners = new int [count][];
+        cornerDirty = new boolean [count];
+
+        for(int i=0; i<count; i++) {
+            clusters[i] = new Cluster();
+            rightBorderDirty[i] = true;
+            lowerBorderDirty[i] = true;
+            cornerDirty[i] = true;
+        }
+    }
+
+    /**
+     * Collect the entrances of a cluster from it's four borders
+     * and calculate the costs between them.
+     */
+    private void build(final int index, final Cluster cluster)
+    {
+        final int cx = index % clustersX;
+        final int cy = index / clustersX;
+
+        cluster.nodeCount = 0;
+        cluster.linkCount = 0;
+
+        if(cx+1 < clustersX) {
+            addEntrances(cluster, getRightBorder(index), 1);
+        }
+        if(cy+1 < clustersY) {
+            addEntrances(cluster, getLowerBorder(index), 1);
+        }
+        if(cx > 0) {
+            addEntrances(cluster, getRightBorder(index-1), 2);
+        }
+        if(cy > 0) {
+            addEntrances(cluster, getLowerBorder(index-clustersX), 2);
+        }
+
+        if(useDiagonals) {
+            // Hajo: the four corners, this cluster is upper left,
+            // upper right, lower left and lower right of them
+            if(cx+1 < clustersX && cy+1 < clustersY) {
+                addCornerEntrances(cluster, index, getCorner(index));
+            }
+            if(cx > 0 && cy+1 < clustersY) {
+                addCornerEntrances(cluster, index, getCorner(index-1));
+            }
+            if(cx+1 < clustersX && cy > 0) {
+                addCornerEntrances(cluster, index, getCorner(index-clustersX));
+            }
+            if(cx > 0 && cy > 0) {
+                addCornerEntrances(cluster, index, getCorner(index-clustersX-1));
+            }
+        }
+
+        final int n = cluster.nodeCount;
+
+        if(cluster.costs.length < n*n) {
+            cluster.costs = new int [n*n];
+        }
+
+        final int left = clusterLeft(index);
+        final int top = clusterTop(index);
+        final int w = clusterWidth(index);
+        final int h = clusterHeight(index);
+
+        for(int i=0; i<n; i++) {
+            final int from = cluster.nodes[i];
+
+            search.run(source, useDiagonals, left, top, w, h,
+                       from % width, from / width, -1, -1, false);
+
+            for(int j=0; j<n; j++) {
+                final int to = cluster.nodes[j];
+                cluster.costs[i*n + j] = search.getCost(to % width, to / width);
+            }
+        }
+
+        cluster.dirty = false;
+        builds ++;
+    }
+
+    /**
+     * Add the entrances of one border to a cluster.
+     *
+     * @param side 1 if the cluster holds the first cell of each pair,
+     *        2 if it holds the second cell
+     */
+    private void addEntrances(final Cluster cluster, final int [] border,
+                              final int side)
+    {
+        final int pairs = border[0];
+
+        for(int i=0; i<pairs; i++) {
+            addLink(cluster, border[1 + i*2 + side-1], border[1 + i*2 + 2-side]);
+        }
+    }
+
+    /**
+     * Add the entrances of a corner which belong to a cluster.
+     */
+    private void addCornerEntrances(final Cluster cluster, final int index,
+                                    final int [] corner)
+    {
+        final int pairs = corner[0];
+
+        for(int i=0; i<pairs; i++) {
+            final int upper = corner[1 + i*2];
+            final int lower = corner[1 + i*2 + 1];
+
+            if(clusterIndex(upper % width, upper / width) == index) {
+                addLink(cluster, upper, lower);
+            } else if(clusterIndex(lower % width, lower / width) == index) {
+                addLink(cluster, lower, upper);
+            }
+        }
+    }
+
+    /**
+     * Add an entrance cell of a cluster and it's link to a cell of
+     * another cluster.
+     */
+    private void addLink(final Cluster cluster, final int inside, final int outside)
+    {
+        int node = cluster.indexOf(inside);
+
+        if(node < 0) {
+            if(cluster.nodeCount == cluster.nodes.length) {
+                cluster.nodes = Arrays.copyOf(cluster.nodes, cluster.nodeCount * 2);
+            }
+            node = cluster.nodeCount++;
+            cluster.nodes[node] = inside;
+        }
+
+        if(cluster.linkCount*2 + 2 > cluster.links.length) {
+            cluster.links = Arrays.copyOf(cluster.links, cluster.links.length * 2);
+        }
+
+        cluster.links[cluster.linkCount*2] = node;
+        cluster.links[cluster.linkCount*2 + 1] = outside;
+        cluster.linkCount ++;
+    }
+
+    private int [] getRightBorder(final int index)
+    {
+        if(rightBorderDirty[index]) {
+            final int x = clusterLeft(index) + clusterSize - 1;
+            final int top = clusterTop(index);
+            rightBorders[index] = findEntrances(rightBorders[index],
+                                                x, top, 0, 1, 1, 0,
+                                                clusterHeight(index));
+            rightBorderDirty[index] = false;
+        }
+        return rightBorders[index];
+    }
+
+    private int [] getLowerBorder(final int index)
+    {
+        if(lowerBorderDirty[index]) {
+            final int left = clusterLeft(index);
+            final int y = clusterTop(index) + clusterSize - 1;
+            lowerBorders[index] = findEntrances(lowerBorders[index],
+                                                left, y, 1, 0, 0, 1,
+                                                clusterWidth(index));
+            lowerBorderDirty[index] = false;
+        }
+        return lowerBorders[index];
+    }
+
+    /**
+     * Find the diagonal crossings through the lower right corner of a
+     * cluster. Like on borders, a diagonal crossing is only an entrance
+     * if the straight crossings around the corner can't replace it.
+     */
+    private int [] getCorner(final int index)
+    {
+        if(cornerDirty[index]) {
+            int [] result = corners[index];
+
+            if(result == null) {
+                result = new int [1 + 4];
+            }
+
+            result[0] = 0;
+
+            // Hajo: the four cells around the corner
+            final int left = clusterLeft(index) + clusterSize - 1;
+            final int top = clusterTop(index) + clusterSize - 1;
+            final int right = left + 1;
+            final int bottom = top + 1;
+
+            if(canCross(left, top, right, bottom) &&
+               isReplaceable(left, top, right, top, left, bottom, right, bottom) == false) {
+                result[1 + result[0]*2] = top*width + left;
+                result[1 + result[0]*2 + 1] = bottom*width + right;
+                result[0] ++;
+            }
+
+            if(canCross(right, top, left, bottom) &&
+               isReplaceable(right, top, left, top, right, bottom, left, bottom) == false) {
+                result[1 + result[0]*2] = top*width + right;
+                result[1 + result[0]*2 + 1] = bottom*width + left;
+                result[0] ++;
+            }
+
+            corners[index] = result;
+            cornerDirty[index] = false;
+        }
+        return corners[index];
+    }
+
+    /**
+     * Check if a diagonal crossing from a to b can be replaced by two
+     * straight crossings, through cell c or cell d.
+     */
+    private boolean isReplaceable(final int ax, final int ay,
+                                  final int cx, final int cy,
+                                  final int dx, final int dy,
+                                  final int bx, final int by)
+    {
+        return (canCross(ax, ay, cx, cy) && canCross(cx, cy, bx, by)) ||
+               (canCross(ax, ay, dx, dy) && canCross(dx, dy, bx, by));
+    }
+
+    /**
+     * Check if a move between two cells is allowed in both directions.
+     */
+    private boolean canCross(final int ax, final int ay,
+                             final int bx, final int by)
+    {
+        return source.isMoveAllowed(ax, ay, bx, by) &&
+               source.isMoveAllowed(bx, by, ax, ay);
+    }
+
+    /**
+     * Scan a border line for runs of cells which can be crossed in
+     * both directions. If diagonals are used, diagonal crossings
+     * between two closed straight crossings are entrances, too.
+     *
+     * @param result Array to reuse, or null
+     * @param x Start of the line inside the first cluster
+     * @param y Start of the line inside the first cluster
+     * @param stepX Direction along the line
+     * @param stepY Direction along the line
+     * @param crossX Direction across the border
+     * @param crossY Direction across the border
+     * @param length Length of the line
+     * @return The entrance pairs, first element is the number of pairs
+     */
+    private int [] findEntrances(int [] result,
+                                 final int x, final int y,
+                                 final int stepX, final int stepY,
+                                 final int crossX, final int crossY,
+                                 final int length)
+    {
+        if(result == null) {
+            result = new int [1 + 4];
+        }
+
+        result[0] = 0;
+        int runStart = -1;
+
+        for(int i=0; i<=length; i++) {
+            final boolean open = i < length &&
+                    canCross(x, y, stepX, stepY, crossX, crossY, i, i);
+
+            if(open && runStart < 0) {
+                runStart = i;
+            } else if(open == false && runStart >= 0) {
+                final int runEnd = i - 1;
+
+                if(runEnd - runStart + 1 >= LONG_RUN) {
+                    result = addPair(result, x, y, stepX, stepY, crossX, crossY, runStart, runStart);
+                    result = addPair(result, x, y, stepX, stepY, crossX, crossY, runEnd, runEnd);
+                } else {
+                    final int middle = (runStart + runEnd) / 2;
+                    result = addPair(result, x, y, stepX, stepY, crossX, crossY, middle, middle);
+                }
+
+                runStart = -1;
+            }
+        }
+
+        if(useDiagonals) {
+            for(int i=0; i+1<length; i++) {
+                if(canCross(x, y, stepX, stepY, crossX, crossY, i, i) ||
+                   canCross(x, y, stepX, stepY, crossX, crossY, i+1, i+1)) {
+                    continue;
+                }
+
+                if(canCross(x, y, stepX, stepY, crossX, crossY, i, i+1)) {
+                    result = addPair(result, x, y, stepX, stepY, crossX, crossY, i, i+1);
+                }
+                if(canCross(x, y, stepX, stepY, crossX, crossY, i+1, i)) {
+                    result = addPair(result, x, y, stepX, stepY, crossX, crossY, i+1, i);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Check if the border can be crossed in both directions between
+     * cell i of the first cluster and cell j of the second cluster.
+     */
+    private boolean canCross(final int x, final int y,
+                             final int stepX, final int stepY,
+                             final int crossX, final int crossY,
+                             final int i, final int j)
+    {
+        final int ax = x + stepX*i;
+        final int ay = y + stepY*i;
+        final int bx = x + stepX*j + crossX;
+        final int by = y + stepY*j + crossY;
+
+        return source.isMoveAllowed(ax, ay, bx, by) &&
+               source.isMoveAllowed(bx, by, ax, ay);
+    }
+
+    private int [] addPair(int [] result,
+                           final int x, final int y,
+                           final int stepX, final int stepY,
+                           final int crossX, final int crossY,
+                           final int i, final int j)
+    {
+        final int pairs = result[0];
+
+        if(1 + pairs*2 + 2 > result.length) {
+            result = Arrays.copyOf(result, result.length * 2);
+        }
+
+        final int ax = x + stepX*i;
+        final int ay = y + stepY*i;
+        final int bx = x + stepX*j + crossX;
+        final int by = y + stepY*j + crossY;
+
+        result[1 + pairs*2] = ay*width + ax;
+        result[1 + pairs*2 + 1] = by*width + bx;
+        result[0] = pairs + 1;
+
+        return result;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * ClusterSearch.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra search restricted to a small window of the map, usually
+ * one cluster of a ClusterGraph. Straight moves cost 10, diagonal
+ * moves cost 14, same as in AStarPath.
+ *
+ * The arrays have the size of the largest window and are stamped
+ * with a generation counter, so they are reused without clearing.
+ *
+ * This is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+class ClusterSearch
+{
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    static final int STRAIGHT_COST = 10;
+    static final int DIAGONAL_COST = 14;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    /** The window, in map coordinates */
+    private int left, top, width, height;
+
+    private final int [] cost;
+    private final int [] parent;
+    private final int [] stamp;
+    private int generation;
+
+    /** Open list, (cost << 32) | window cell */
+    private long [] heap;
+    private int heapSize;
+
+    /** Cells of the last traced path, start first */
+    private int [] trace;
+
+    /**
+     * @param maxCells The size of the largest window
+     */
+    ClusterSearch(int maxCells)
+    {
+        cost = new int [maxCells];
+        parent = new int [maxCells];
+        stamp = new int [maxCells];
+        heap = new long [256];
+        trace = new int [64];
+    }
+
+    /**
+     * Search the cheapest paths from (sx, sy) to all cells of the window,
+     * or until (tx, ty) has been reached.
+     *
+     * @param reverse If true, search the cheapest paths from all
+     *        cells to (sx, sy) instead.
+     */
+    void run(final PathSource source, final boolean diagonals,
+             final int left, final int top, final int width, final int height,
+             final int sx, final int sy, final int tx, final int ty,
+             final boolean reverse)
+    {
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+
+        heapSize = 0;
+
+        if(isInside(sx, sy) == false) {
+            return;
+        }
+
+        final int start = (sy-top)*width + (sx-left);
+        stamp[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        push(0, start);
+
+        final int target = isInside(tx, ty) ? (ty-top)*width + (tx-left) : -1;
+        final int directions = diagonals ? 8 : 4;
+
+        while(heapSize > 0) {
+            final long entry = pop();
+            final int cell = (int)entry;
+            final int c = (int)(entry >> 32);
+
+            if(c != cost[cell]) {
+                // Hajo: outdated entry
+                continue;
+            }
+
+            if(cell == target) {
+                return;
+            }
+
+            final int x = left + cell % width;
+            final int y = top + cell / width;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(isInside(nx, ny) == false) {
+                    continue;
+                }
+
+                final int next = (ny-top)*width + (nx-left);
+                final int newCost = c + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+
+                if(stamp[next] == generation && cost[next] <= newCost) {
+                    continue;
+                }
+
+                final boolean allowed = reverse ?
+                        source.isMoveAllowed(nx, ny, x, y) :
+                        source.isMoveAllowed(x, y, nx, ny);
+
+                if(allowed) {
+                    stamp[next] = generation;
+                    cost[next] = newCost;
+                    parent[next] = cell;
+                    push(newCost, next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The cost from the start to (x, y) found by the last
+     *         search, or UNREACHABLE
+     */
+    int getCost(final int x, final int y)
+    {
+        if(isInside(x, y)) {
+            final int cell = (y-top)*width + (x-left);
+
+            if(stamp[cell] == generation) {
+                return cost[cell];
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    /**
+     * Store the path from the start to (x, y).
+     *
+     * @return The number of cells on the path, 0 if (x, y) wasn't reached.
+     */
+    int trace(final int x, final int y)
+    {
+        if(getCost(x, y) == UNREACHABLE) {
+            return 0;
+        }
+
+        final int end = (y-top)*width + (x-left);
+        int n = 0;
+
+        for(int c=end; c != -1; c=parent[c]) {
+            n ++;
+        }
+
+        if(trace.length < n) {
+            trace = new int [Math.max(n, trace.length*2)];
+        }
+
+        int c = end;
+
+        for(int i=n-1; i>=0; i--) {
+            trace[i] = c;
+            c = parent[c];
+        }
+
+        return n;
+    }
+
+    int getTraceX(final int n)
+    {
+        return left + trace[n] % width;
+    }
+
+    int getTraceY(final int n)
+    {
+        return top + trace[n] / width;
+    }
+
+    private boolean isInside(final int x, final int y)
+    {
+        return x >= left && y >= top && x < left + width && y < top + height;
+    }
+
+    private void push(final int c, final int cell)
+    {
+        if(heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+
+        final long entry = ((long)c << 32) | cell;
+        int pos = heapSize++;
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+
+            if(heap[up] <= entry) {
+                break;
+            }
+
+            heap[pos] = heap[up];
+            pos = up;
+        }
+
+        heap[pos] = entry;
+    }
+
+    private long pop()
+    {
+        final long result = heap[0];
+        final long last = heap[--heapSize];
+        int pos = 0;
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child ++;
+            }
+
+            if(heap[child] >= last) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            pos = child;
+        }
+
+        heap[pos] = last;
+
+        return result;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * CooperativePlanner.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Plans the moves of many agents for the next few turns, so that no
+ * two agents enter the same cell in the same turn, and no two agents
+ * swap places. This is windowed cooperative A*: the agents are planned
+ * one after the other, each with an A* search in space and time
+ * against a reservation table of the agents planned before it. Each
+ * agent then reserves the cells of it's plan.
+ *
+ * The search looks only "window" turns ahead. After that it aims for
+ * the cell with the shortest remaining way to the goal, so the plans
+ * lead to the goals if they are repeated every few turns. Waiting is a
+ * move too, an agent which has reached it's goal waits there.
+ *
+ * The remaining way is the true distance on the static map, searched
+ * backwards from the goal only as far as it is needed and kept for
+ * later plans. Agents with the same goal share this. The distances are
+ * not updated if the map changes, call clearDistances() then.
+ *
+ * Walkability comes from the PathSource. The first agents of a batch
+ * have the highest priority. Agents which are not planned yet are
+ * expected to stay where they are, so every agent can at least wait,
+ * and all plans are collision free for the whole window.
+ *
+ * This is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class CooperativePlanner
+{
+    /** Waiting first, then the same move order as the breadth first search */
+    private static final int [] DX = {0, 1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 0, 1, 0, -1, 1, -1, 1, -1};
+
+    /** Distance of cells which can't reach the goal */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Distances to one goal, searched backwards from the goal as far
+     * as needed.
+     */
+    private static final class GoalDistance
+    {
+        final int [] distance;
+        final int [] queue;
+        int head;
+        int tail;
+
+        GoalDistance(int size, int goal)
+        {
+            distance = new int [size];
+            queue = new int [size];
+
+            Arrays.fill(distance, UNREACHABLE);
+            distance[goal] = 0;
+            queue[tail++] = goal;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int window;
+
+    private final ReservationTable reservations;
+
+    /** Distances by goal cell, least recently used first */
+    private final LinkedHashMap<Integer, GoalDistance> distances;
+
+    /** Path source the distances were searched with */
+    private PathSource distanceSource;
+
+    /** use diagonals in pathfinding? */
+    private boolean useDiagonals = true;
+
+    /** Search state (turn*size + cell): generation stamp, predecessor */
+    private final int [] stamp;
+    private final int [] parent;
+    private int generation;
+
+    /** The open list, a binary heap of (key << 32) | state */
+    private long [] heap;
+    private int heapSize;
+
+    /** Scratch list of cells of a plan */
+    private final int [] planCells;
+
+    /** Number of states expanded by the last plan() */
+    private int expanded;
+
+    /**
+     * Creates a new planner.
+     *
+     * @param width The width of the maps to plan on
+     * @param height The height of the maps to plan on
+     * @param window Number of turns to plan ahead
+     * @param maxGoals Number of goals to keep distances for
+     */
+    public CooperativePlanner(int width, int height, int window,
+                              final int maxGoals)
+    {
+        this.width = width;
+        this.height = height;
+        this.window = window;
+
+        final int states = (window + 1) * width * height;
+
+        reservations = new ReservationTable(width);
+        stamp = new int [states];
+        parent = new int [states];
+        heap = new long [256];
+        planCells = new int [window + 1];
+
+        distances = new LinkedHashMap<Integer, GoalDistance>(maxGoals * 2, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, GoalDistance> eldest)
+            {
+                return size() > maxGoals;
+            }
+        };
+    }
+
+    /**
+     * Use diagonals in pathfinding?
+     * Default is true.
+     */
+    public void setUseDiagonals(boolean yesno)
+    {
+        useDiagonals = yesno;
+    }
+
+    /**
+     * @return The reservations of the last plan, turn 0 is the
+     *         turn of the start cells.
+     */
+    public ReservationTable getReservations()
+    {
+        return reservations;
+    }
+
+    /**
+     * @return The number of states expanded by the last plan.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    /**
+     * Forget the distances to the goals, e.g. because the map changed.
+     */
+    public void clearDistances()
+    {
+        distances.clear();
+    }
+
+    /**
+     * Plan the next turns of a batch of agents.
+     *
+     * @param pathSource The path source to check moves with
+     * @param sx Start x-coordinates of the agents
+     * @param sy Start y-coordinates of the agents
+     * @param gx Goal x-coordinates of the agents
+     * @param gy Goal y-coordinates of the agents
+     *
+     * @return The plan of each agent, step 0 is the start, step n the
+     *         cell in turn n. There are window + 1 steps, unless an
+     *         agent starts outside the map.
+     */
+    public Path [] plan(final PathSource pathSource,
+                        final int [] sx, final int [] sy,
+                        final int [] gx, final int [] gy)
+    {
+        final int agents = sx.length;
+        final Path [] plans = new Path [agents];
+
+        if(pathSource != distanceSource) {
+            distances.clear();
+            distanceSource = pathSource;
+        }
+
+        reservations.clear();
+        expanded = 0;
+
+        // Hajo: everyone stays where they are, until they are planned
+        for(int i=0; i<agents; i++) {
+            for(int t=0; t<=window; t++) {
+                reservations.reserve(sx[i], sy[i], t, i);
+            }
+        }
+
+        for(int i=0; i<agents; i++) {
+            final int n = search(pathSource, i, sx[i], sy[i], gx[i], gy[i]);
+            final Path path = new Path();
+
+            for(int t=0; t<n; t++) {
+                final int x = planCells[t] % width;
+                final int y = planCells[t] / width;
+
+                reservations.reserve(x, y, t, i);
+                path.addStep(x, y);
+            }
+
+            for(int t=1; t<=window; t++) {
+                if(t >= n || planCells[t] != sy[i]*width + sx[i]) {
+                    reservations.release(sx[i], sy[i], t, i);
+                }
+            }
+
+            plans[i] = path;
+        }
+
+        return plans;
+    }
+
+    /**
+     * Space-time A* for one agent.
+     *
+     * @return The number of cells of the plan in planCells
+     */
+    private int search(final PathSource pathSource, final int agent,
+                       final int sx, final int sy, final int gx, final int gy)
+    {
+        final int size = width * height;
+        final int start = sy*width + sx;
+        final int directions = useDiagonals ? 9 : 5;
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height ||
+           gx < 0 || gy < 0 || gx >= width || gy >= height) {
+            planCells[0] = start;
+            return 1;
+        }
+
+        final GoalDistance goal = getGoalDistance(pathSource, gy*width + gx);
+
+        nextGeneration();
+        heapSize = 0;
+
+        stamp[start] = generation;
+        parent[start] = -1;
+        push(key(0, distance(pathSource, goal, start)), start);
+
+        // Hajo: the deepest state seen, if the window can't be filled
+        // because the agent started outside of the walkable cells
+        int best = start;
+        long bestKey = Long.MAX_VALUE;
+
+        while(heapSize > 0) {
+            final long top = pop();
+            final int state = (int)top;
+            final int turn = state / size;
+            final int cell = state % size;
+
+            expanded ++;
+
+            if(turn == window) {
+                best = state;
+                break;
+            }
+
+            final long depthKey = ((long)(window - turn) << 32) | (top >>> 32);
+            if(depthKey < bestKey) {
+                bestKey = depthKey;
+                best = state;
+            }
+
+            final int x = cell % width;
+            final int y = cell / width;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int next = (turn + 1) * size + ny*width + nx;
+
+                if(stamp[next] == generation) {
+                    continue;
+                }
+
+                if(d > 0 && pathSource.isMoveAllowed(x, y, nx, ny) == false) {
+                    continue;
+                }
+
+                final int owner = reservations.getOwner(nx, ny, turn + 1);
+
+                if(owner != ReservationTable.NONE && owner != agent) {
+                    continue;
+                }
+
+                if(d > 0) {
+                    // Hajo: don't swap places with the agent coming here
+                    final int other = reservations.getOwner(nx, ny, turn);
+
+                    if(other != ReservationTable.NONE && other != agent &&
+                       reservations.getOwner(x, y, turn + 1) == other) {
+                        continue;
+                    }
+                }
+
+                stamp[next] = generation;
+                parent[next] = state;
+
+                final int remaining = distance(pathSource, goal, ny*width + nx);
+                push(key(turn + 1, remaining), next);
+            }
+        }
+
+        // Hajo: walk back to the start
+        final int n = best / size + 1;
+        int state = best;
+
+        for(int t=n-1; t>=0; t--) {
+            planCells[t] = state % size;
+            state = parent[state];
+        }
+
+        return n;
+    }
+
+    /**
+     * Heap key of a state: estimated total length first, deeper
+     * states first if equal.
+     */
+    private long key(final int turn, final int remaining)
+    {
+        final long f = (long)turn + remaining;
+        return f * (window + 1) + (window - turn);
+    }
+
+    /**
+     * @return The number of steps from the cell to the goal, capped at
+     *         the map size for cells which can't reach the goal.
+     */
+    private int distance(final PathSource pathSource,
+                         final GoalDistance goal, final int cell)
+    {
+        final int [] distance = goal.distance;
+        final int [] queue = goal.queue;
+        final int directions = useDiagonals ? 9 : 5;
+
+        while(distance[cell] == UNREACHABLE && goal.head < goal.tail) {
+            final int current = queue[goal.head++];
+            final int x = current % width;
+            final int y = current / width;
+            final int dist = distance[current] + 1;
+
+            for(int d=1; d<directions; d++) {
+                final int px = x + DX[d];
+                final int py = y + DY[d];
+
+                if(px < 0 || py < 0 || px >= width || py >= height) {
+                    continue;
+                }
+
+                final int prev = py*width + px;
+
+                // Hajo: backwards, the move is from prev to current
+                if(distance[prev] == UNREACHABLE &&
+                   pathSource.isMoveAllowed(px, py, x, y)) {
+                    distance[prev] = dist;
+                    queue[goal.tail++] = prev;
+                }
+            }
+        }
+
+        return Math.min(distance[cell], width * height);
+    }
+
+    private GoalDistance getGoalDistance(final PathSource pathSource, final int cell)
+    {
+        final Integer key = Integer.valueOf(cell);
+        GoalDistance goal = distances.get(key);
+
+        if(goal == null) {
+            goal = new GoalDistance(width * height, cell);
+            distances.put(key, goal);
+        }
+
+        return goal;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void push(final long key, final int state)
+    {
+        if(heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+
+        final long entry = (key << 32) | state;
+        int pos = heapSize++;
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+
+            if(heap[up] <= entry) {
+                break;
+            }
+
+            heap[pos] = heap[up];
+            pos = up;
+        }
+
+        heap[pos] = entry;
+    }
+
+    private long pop()
+    {
+        final long top = heap[0];
+        final long last = heap[--heapSize];
+        int pos = 0;
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child ++;
+            }
+
+            if(last <= heap[child]) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            pos = child;
+        }
+
+        heap[pos] = last;
+        return top;
+    }
+}
@@ -35,6 +35,22 @@ public class CoordinatePathDestination implements PathDestination
     }
 
 
+    /**
+     * @return The destination X coordinate
+     */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+     * @return The destination Y coordinate
+     */
+    public int getY()
+    {
+        return y;
+    }
+
     /**
      * Tell pathfinder if the destination coordinate has been reached.
      *
@@ -47,4 +63,24 @@ public class CoordinatePathDestination implements PathDestination
     {
         return x == posX && y == posY;
     }
-}
\ No newline at end of file
+
+    /**
+     * Two destinations are equal if they have the same coordinate,
+     * so path requests to the same spot can be recognized.
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if(other instanceof CoordinatePathDestination) {
+            final CoordinatePathDestination dest = (CoordinatePathDestination)other;
+            return x == dest.x && y == dest.y;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return x * 31 + y;
+    }
+}
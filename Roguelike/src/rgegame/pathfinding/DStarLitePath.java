@@ -0,0 +1,635 @@
+/*
+ * DStarLitePath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+import rgegame.map.data.LayeredMap;
+import rgegame.map.data.MapChangeListener;
+
+/**
+ * An incremental pathfinder (D* Lite) for agents which walk to the
+ * same destination while the map changes. The search runs backwards
+ * from the destination and keeps it's state between calls of
+ * findPath(). If the agent moved or cells of the map changed since
+ * the last call, only the part of the search which depends on the
+ * changed cells is repaired, instead of searching from scratch.
+ *
+ * The pathfinder listens to the changes of one map layer, which
+ * should be the layer the path source decides walkability from.
+ * Searching with another path source or for another destination
+ * starts a new search.
+ *
+ * Straight moves cost 10, diagonal moves cost 14, same as in AStarPath.
+ *
+ * Only a CoordinatePathDestination can be planned for. Other
+ * destinations are searched breadth first like in Path.
+ *
+ * Map changes may be reported from other threads, they are collected
+ * until the next call of findPath(). The search itself is not
+ * reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class DStarLitePath extends Path implements MapChangeListener
+{
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    private static final int STRAIGHT_COST = 10;
+    private static final int DIAGONAL_COST = 14;
+
+    /** Heap position of cells which aren't in the open list */
+    private static final int NOT_QUEUED = -1;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final LayeredMap map;
+    private final int layer;
+
+    private int width;
+    private int height;
+
+    /** Cost from each cell to the destination, as last expanded */
+    private int [] g;
+
+    /** Cost from each cell to the destination, one step lookahead */
+    private int [] rhs;
+
+    /** Priority of the open cells, first and second key */
+    private int [] key1;
+    private int [] key2;
+
+    /** Generation in which the cell data was last written */
+    private int [] stamp;
+
+    /** Position of each cell in the heap, or NOT_QUEUED */
+    private int [] heapPos;
+
+    /** The open list, a binary heap of cell indices */
+    private int [] heap;
+    private int heapSize;
+
+    private int generation;
+
+    /** State of the current search */
+    private boolean planned;
+    private PathSource source;
+    private boolean diagonals;
+    private int goal;
+    private int start;
+    private int lastStart;
+
+    /** Sum of the heuristic distances the start moved, keeps keys valid */
+    private int km;
+
+    /** Number of cells expanded by the last call */
+    private int expanded;
+
+    /** Cells changed since the last call, guarded by 'this' */
+    private int [] changed;
+    private int changedCount;
+    private boolean replaced;
+
+    /** Second buffer, swapped with the changed cells list */
+    private int [] changedWork;
+
+    /**
+     * Creates a new path with no nodes. The path registers itself as
+     * change listener of the map, call dispose() to unregister.
+     *
+     * @param map The map to search
+     * @param layer The map layer which decides walkability
+     */
+    public DStarLitePath(final LayeredMap map, final int layer)
+    {
+        this.map = map;
+        this.layer = layer;
+
+        changed = new int [64];
+        changedWork = new int [64];
+
+        allocate();
+
+        map.addChangeListener(this);
+    }
+
+    /**
+     * Stop listening to changes of the map.
+     */
+    public void dispose()
+    {
+        map.removeChangeListener(this);
+    }
+
+    /**
+     * @return The number of cells expanded by the last search or repair.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    public synchronized void cellChanged(LayeredMap map, int layer, int x, int y,
+                                         int oldValue, int newValue)
+    {
+        if(layer != this.layer) {
+            return;
+        }
+
+        if(changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+
+        changed[changedCount++] = y*width + x;
+    }
+
+    public synchronized void mapReplaced(LayeredMap map)
+    {
+        replaced = true;
+    }
+
+    /**
+     * Find or repair the path from (sx, sy) to the destination.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        if(pathDestination instanceof CoordinatePathDestination == false) {
+            expanded = 0;
+            return super.findPath(pathSource, pathDestination, sx, sy);
+        }
+
+        clear();
+        expanded = 0;
+
+        final int gx = ((CoordinatePathDestination)pathDestination).getX();
+        final int gy = ((CoordinatePathDestination)pathDestination).getY();
+
+        final int changes;
+        final boolean restart;
+
+        synchronized(this) {
+            changes = changedCount;
+            restart = replaced || planned == false || pathSource != source ||
+                      isUseDiagonals() != diagonals || gy*width + gx != goal;
+
+            // Hajo: swap buffers, so changes can be reported meanwhile
+            final int [] tmp = changedWork;
+            changedWork = changed;
+            changed = tmp;
+            changedCount = 0;
+            replaced = false;
+        }
+
+        if(restart && (map.getWidth() != width || map.getHeight() != height)) {
+            allocate();
+        }
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height ||
+           gx < 0 || gy < 0 || gx >= width || gy >= height) {
+            planned = false;
+            return false;
+        }
+
+        start = sy*width + sx;
+
+        if(restart) {
+            initialize(pathSource, gy*width + gx);
+        } else {
+            // Hajo: the keys in the heap were calculated for the old start.
+            // Adding the distance moved to all new keys keeps them
+            // comparable, instead of updating the whole heap.
+            km += distance(lastStart, start);
+
+            for(int i=0; i<changes; i++) {
+                repairCell(changedWork[i]);
+            }
+        }
+
+        lastStart = start;
+
+        computeShortestPath();
+
+        return unwind();
+    }
+
+    /**
+     * Start a new search for a destination.
+     */
+    private void initialize(final PathSource pathSource, final int destination)
+    {
+        nextGeneration();
+
+        planned = true;
+        source = pathSource;
+        diagonals = isUseDiagonals();
+        goal = destination;
+        km = 0;
+        heapSize = 0;
+
+        touch(goal);
+        rhs[goal] = 0;
+        updateQueue(goal);
+    }
+
+    /**
+     * Moves into and out of a cell may have changed.
+     */
+    private void repairCell(final int cell)
+    {
+        final int x = cell % width;
+        final int y = cell / width;
+        final int directions = diagonals ? 8 : 4;
+
+        updateVertex(cell);
+
+        for(int d=0; d<directions; d++) {
+            final int nx = x + DX[d];
+            final int ny = y + DY[d];
+
+            if(nx >= 0 && ny >= 0 && nx < width && ny < height) {
+                updateVertex(ny*width + nx);
+            }
+        }
+    }
+
+    private void computeShortestPath()
+    {
+        touch(start);
+
+        final int directions = diagonals ? 8 : 4;
+
+        while(heapSize > 0) {
+            final int u = heap[0];
+            final int startKey1 = calculateKey1(start);
+            final int startKey2 = Math.min(g[start], rhs[start]);
+
+            if(lessThan(key1[u], key2[u], startKey1, startKey2) == false &&
+               rhs[start] == g[start]) {
+                // Hajo: the start is consistent and no open cell
+                // can give it a cheaper path
+                break;
+            }
+
+            final int newKey1 = calculateKey1(u);
+            final int newKey2 = Math.min(g[u], rhs[u]);
+
+            if(lessThan(key1[u], key2[u], newKey1, newKey2)) {
+                // Hajo: outdated key, the start moved
+                key1[u] = newKey1;
+                key2[u] = newKey2;
+                siftDown(0);
+                continue;
+            }
+
+            expanded ++;
+
+            final int x = u % width;
+            final int y = u / width;
+
+            if(g[u] > rhs[u]) {
+                // Hajo: cost went down, pass it on to the predecessors
+                g[u] = rhs[u];
+                remove(u);
+
+                for(int d=0; d<directions; d++) {
+                    final int nx = x + DX[d];
+                    final int ny = y + DY[d];
+
+                    if(nx < 0 || ny < 0 || nx >= width || ny >= height ||
+                       source.isMoveAllowed(nx, ny, x, y) == false) {
+                        continue;
+                    }
+
+                    final int s = ny*width + nx;
+                    touch(s);
+
+                    if(s != goal) {
+                        final int c = g[u] + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+
+                        if(c < rhs[s]) {
+                            rhs[s] = c;
+                            updateQueue(s);
+                        }
+                    }
+                }
+            } else {
+                // Hajo: cost went up, predecessors which relied on
+                // this cell must look for other ways
+                final int oldG = g[u];
+                g[u] = INFINITE;
+                updateVertex(u);
+
+                for(int d=0; d<directions; d++) {
+                    final int nx = x + DX[d];
+                    final int ny = y + DY[d];
+
+                    if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                        continue;
+                    }
+
+                    final int s = ny*width + nx;
+                    touch(s);
+
+                    if(oldG != INFINITE &&
+                       rhs[s] == oldG + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST)) {
+                        updateVertex(s);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalculate the lookahead cost of a cell from it's successors
+     * and put it into the open list if it is inconsistent.
+     */
+    private void updateVertex(final int u)
+    {
+        touch(u);
+
+        if(u != goal) {
+            final int x = u % width;
+            final int y = u / width;
+            final int directions = diagonals ? 8 : 4;
+
+            int best = INFINITE;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int v = ny*width + nx;
+                final int gv = stamp[v] == generation ? g[v] : INFINITE;
+
+                if(gv != INFINITE && source.isMoveAllowed(x, y, nx, ny)) {
+                    best = Math.min(best, gv + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST));
+                }
+            }
+
+            rhs[u] = best;
+        }
+
+        updateQueue(u);
+    }
+
+    /**
+     * Put a cell into the open list, update it's key or remove it,
+     * depending on whether it is inconsistent.
+     */
+    private void updateQueue(final int u)
+    {
+        if(g[u] != rhs[u]) {
+            key1[u] = calculateKey1(u);
+            key2[u] = Math.min(g[u], rhs[u]);
+
+            if(heapPos[u] == NOT_QUEUED) {
+                push(u);
+            } else {
+                siftUp(heapPos[u]);
+                siftDown(heapPos[u]);
+            }
+        } else if(heapPos[u] != NOT_QUEUED) {
+            remove(u);
+        }
+    }
+
+    /**
+     * Add the steps from the start to the destination to this path,
+     * always moving to the successor with the least cost.
+     */
+    private boolean unwind()
+    {
+        if(g[start] == INFINITE) {
+            return false;
+        }
+
+        final int directions = diagonals ? 8 : 4;
+        int x = start % width;
+        int y = start / width;
+        int cell = start;
+
+        addStep(x, y);
+
+        // Hajo: a path can't be longer than the map has cells
+        for(int n=width*height; cell != goal && n > 0; n--) {
+            int best = INFINITE;
+            int next = -1;
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int v = ny*width + nx;
+
+                if(stamp[v] != generation || g[v] == INFINITE ||
+                   source.isMoveAllowed(x, y, nx, ny) == false) {
+                    continue;
+                }
+
+                final int c = g[v] + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+
+                if(c < best) {
+                    best = c;
+                    next = v;
+                }
+            }
+
+            if(next == -1) {
+                clear();
+                return false;
+            }
+
+            cell = next;
+            x = cell % width;
+            y = cell / width;
+            addStep(x, y);
+        }
+
+        if(cell != goal) {
+            clear();
+            return false;
+        }
+
+        return true;
+    }
+
+    private int calculateKey1(final int u)
+    {
+        final int m = Math.min(g[u], rhs[u]);
+        return m == INFINITE ? INFINITE : m + distance(start, u) + km;
+    }
+
+    private static boolean lessThan(final int a1, final int a2,
+                                    final int b1, final int b2)
+    {
+        return a1 < b1 || (a1 == b1 && a2 < b2);
+    }
+
+    /**
+     * Estimated cost between two cells. Never more than the real cost.
+     */
+    private int distance(final int a, final int b)
+    {
+        final int dx = Math.abs(a % width - b % width);
+        final int dy = Math.abs(a / width - b / width);
+
+        if(diagonals) {
+            return STRAIGHT_COST * Math.max(dx, dy) +
+                   (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dy);
+        }
+        return STRAIGHT_COST * (dx + dy);
+    }
+
+    /**
+     * Make sure the cell data belongs to the current search.
+     */
+    private void touch(final int u)
+    {
+        if(stamp[u] != generation) {
+            stamp[u] = generation;
+            g[u] = INFINITE;
+            rhs[u] = INFINITE;
+            heapPos[u] = NOT_QUEUED;
+        }
+    }
+
+    private void allocate()
+    {
+        width = map.getWidth();
+        height = map.getHeight();
+
+        final int size = width * height;
+
+        g = new int [size];
+        rhs = new int [size];
+        key1 = new int [size];
+        key2 = new int [size];
+        stamp = new int [size];
+        heapPos = new int [size];
+        heap = new int [size];
+        generation = 0;
+        planned = false;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private boolean before(final int a, final int b)
+    {
+        return lessThan(key1[a], key2[a], key1[b], key2[b]);
+    }
+
+    private void push(final int cell)
+    {
+        heap[heapSize] = cell;
+        heapPos[cell] = heapSize;
+        heapSize ++;
+        siftUp(heapSize - 1);
+    }
+
+    private void remove(final int cell)
+    {
+        final int pos = heapPos[cell];
+
+        heapPos[cell] = NOT_QUEUED;
+        heapSize --;
+
+        if(pos < heapSize) {
+            final int last = heap[heapSize];
+            heap[pos] = last;
+            heapPos[last] = pos;
+            siftUp(pos);
+            siftDown(heapPos[last]);
+        }
+    }
+
+    private void siftUp(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+            final int upCell = heap[up];
+
+            if(!before(cell, upCell)) {
+                break;
+            }
+
+            heap[pos] = upCell;
+            heapPos[upCell] = pos;
+            pos = up;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+
+    private void siftDown(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child ++;
+            }
+
+            if(!before(heap[child], cell)) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+}
@@ -0,0 +1,593 @@
+/*
+ * DistanceMap.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A distance map (also known as Dijkstra map or flow field) holds the
+ * number of steps from each map cell to the nearest of one or more
+ * goals. Many agents can share one distance map: each agent finds it's
+ * next step in constant time by moving to the neighbour cell with the
+ * lowest distance. This is much cheaper than one path search per agent
+ * when many agents chase the same goal, e.g. monsters chasing the player.
+ *
+ * Goals can be added and removed, and map cells can be marked as
+ * changed. update() then repairs only the cells whose distance
+ * changed, instead of recalculating the whole map. This is done in two
+ * phases: first all cells which lost the support of their shorter
+ * neighbour are invalidated, then distances are propagated from the
+ * remaining cells and the new goals in order of distance. Repairs pay
+ * off for local changes like doors. Goal moves, i.e. a goal removed and
+ * another one added in the same update, change nearly all distances and
+ * are a full recalculation. If a big part of the map changes for other
+ * reasons, update() falls back to calculate() as well.
+ *
+ * A flee map makes agents move away from the goals, but not into dead
+ * ends: it is derived from a chase map by scaling the distances with a
+ * negative factor and smoothing the result, so the agents prefer far
+ * away regions which are still connected to the rest of the map.
+ *
+ * Moves are checked with PathSource.isMoveAllowed() in the direction
+ * the agents move, from the cell towards the goal.
+ *
+ * This is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class DistanceMap
+{
+    /** Distance of cells which can't reach any goal */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** Flee map scale factor, as fraction: -6/5 */
+    private static final int FLEE_NUMERATOR = -6;
+    private static final int FLEE_DENOMINATOR = 5;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+
+    /** Distance of each cell to the nearest goal */
+    private final int [] distance;
+
+    /** Goal marks */
+    private final boolean [] goal;
+
+    /** use diagonals in pathfinding? */
+    private boolean useDiagonals = true;
+
+    /** Path source of the last calculation, used for updates */
+    private PathSource source;
+
+    /** Cells to check in the next update */
+    private int [] pending;
+    private int pendingCount;
+
+    /** Scratch list of cells, breadth first queue or invalidated cells */
+    private int [] cells;
+
+    /** Scratch list of cells to check for support */
+    private int [] checks;
+
+    /** Start cells for propagation, (distance << 32) | cell */
+    private long [] seeds;
+    private int seedCount;
+
+    /**
+     * Create a new distance map. All cells are unreachable, there
+     * are no goals.
+     *
+     * @param width The width of the map
+     * @param height The height of the map
+     */
+    public DistanceMap(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        distance = new int [width * height];
+        goal = new boolean [width * height];
+        pending = new int [64];
+        cells = new int [width * height];
+        checks = new int [256];
+        seeds = new long [256];
+
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Use diagonals in pathfinding?
+     * Default is true. Call calculate() after changing this.
+     */
+    public void setUseDiagonals(boolean yesno)
+    {
+        useDiagonals = yesno;
+    }
+
+    /**
+     * Add a goal cell. Goals outside the map are ignored.
+     */
+    public void addGoal(int x, int y)
+    {
+        if(isInside(x, y)) {
+            final int cell = y*width + x;
+
+            if(goal[cell] == false) {
+                goal[cell] = true;
+                addPending(cell);
+            }
+        }
+    }
+
+    /**
+     * Remove a goal cell.
+     */
+    public void removeGoal(int x, int y)
+    {
+        if(isInside(x, y)) {
+            final int cell = y*width + x;
+
+            if(goal[cell]) {
+                goal[cell] = false;
+                addPending(cell);
+            }
+        }
+    }
+
+    /**
+     * Remove all goals. Call calculate() afterwards.
+     */
+    public void clearGoals()
+    {
+        Arrays.fill(goal, false);
+        pendingCount = 0;
+    }
+
+    /**
+     * Tell the distance map that moves into or out of a cell
+     * have changed, e.g. because a door was closed.
+     */
+    public void cellChanged(int x, int y)
+    {
+        for(int dy=-1; dy<=1; dy++) {
+            for(int dx=-1; dx<=1; dx++) {
+                if(isInside(x+dx, y+dy)) {
+                    addPending((y+dy)*width + x+dx);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate the distances of all cells to the goals.
+     *
+     * @param pathSource the pathSource to search
+     */
+    public void calculate(final PathSource pathSource)
+    {
+        source = pathSource;
+        pendingCount = 0;
+
+        Arrays.fill(distance, UNREACHABLE);
+
+        // Hajo: breadth first from all goals at once. Each cell
+        // is queued once, so the queue never wraps.
+        int tail = 0;
+
+        for(int cell=0; cell<goal.length; cell++) {
+            if(goal[cell]) {
+                distance[cell] = 0;
+                cells[tail++] = cell;
+            }
+        }
+
+        final int directions = useDiagonals ? 8 : 4;
+
+        for(int head=0; head<tail; head++) {
+            final int cell = cells[head];
+            final int x = cell % width;
+            final int y = cell / width;
+            final int next = distance[cell] + 1;
+
+            for(int d=0; d<directions; d++) {
+                final int px = x + DX[d];
+                final int py = y + DY[d];
+
+                if(isInside(px, py)) {
+                    final int pred = py*width + px;
+
+                    if(distance[pred] == UNREACHABLE &&
+                       source.isMoveAllowed(px, py, x, y)) {
+                        distance[pred] = next;
+                        cells[tail++] = pred;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Repair the distances after goals were added or removed or cells
+     * were changed. Only cells whose distance changed are touched,
+     * except for goal moves, which recalculate the whole map.
+     * Uses the path source of the last calculate() call.
+     */
+    public void update()
+    {
+        if(source == null) {
+            throw new IllegalStateException("update() needs a calculate() first.");
+        }
+
+        if(isGoalMoved()) {
+            calculate(source);
+            return;
+        }
+
+        final int directions = useDiagonals ? 8 : 4;
+
+        // Hajo: repairs cost more per cell than a full calculation.
+        // If a big part of the map changes, starting over is faster.
+        final int limit = distance.length / 32;
+
+        // Hajo: phase 1, invalidate all cells which lost their support
+        int checkCount = 0;
+
+        for(int i=0; i<pendingCount; i++) {
+            checks = push(checks, checkCount++, pending[i]);
+        }
+
+        int invalidCount = 0;
+
+        while(checkCount > 0) {
+            final int cell = checks[--checkCount];
+            final int old = distance[cell];
+
+            if(old == UNREACHABLE || isSupported(cell, directions)) {
+                continue;
+            }
+
+            if(invalidCount >= limit) {
+                calculate(source);
+                return;
+            }
+
+            distance[cell] = UNREACHABLE;
+            cells[invalidCount++] = cell;
+
+            // Hajo: cells one step farther may have depended on this one
+            final int x = cell % width;
+            final int y = cell / width;
+
+            for(int d=0; d<directions; d++) {
+                final int px = x + DX[d];
+                final int py = y + DY[d];
+
+                if(isInside(px, py)) {
+                    final int pred = py*width + px;
+
+                    if(distance[pred] == old + 1) {
+                        checks = push(checks, checkCount++, pred);
+                    }
+                }
+            }
+        }
+
+        // Hajo: phase 2, seed the propagation with the best distances the
+        // invalidated and changed cells can get from their neighbours
+        seedCount = 0;
+
+        for(int i=0; i<invalidCount; i++) {
+            seed(cells[i], directions);
+        }
+
+        for(int i=0; i<pendingCount; i++) {
+            seed(pending[i], directions);
+        }
+
+        pendingCount = 0;
+
+        if(propagate(directions, limit - invalidCount) == false) {
+            calculate(source);
+        }
+    }
+
+    /**
+     * Make this a flee map for a chase map. Agents following the
+     * flee map move away from the chase map goals. The distances
+     * of a flee map are negative. Flee maps can't be updated, they
+     * must be calculated again when the chase map changed.
+     *
+     * @param pathSource the pathSource to search
+     * @param chase The chase map, of the same size as this map
+     */
+    public void calculateFlee(final PathSource pathSource,
+                              final DistanceMap chase)
+    {
+        if(chase.width != width || chase.height != height) {
+            throw new IllegalArgumentException("Chase map size differs.");
+        }
+
+        source = pathSource;
+        pendingCount = 0;
+        seedCount = 0;
+
+        Arrays.fill(goal, false);
+
+        for(int cell=0; cell<distance.length; cell++) {
+            final int d = chase.distance[cell];
+
+            if(d == UNREACHABLE) {
+                distance[cell] = UNREACHABLE;
+            } else {
+                distance[cell] = d * FLEE_NUMERATOR / FLEE_DENOMINATOR;
+                addSeed(distance[cell], cell);
+            }
+        }
+
+        // Hajo: smooth, so that cells near a far away region lead there
+        propagate(useDiagonals ? 8 : 4, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The distance from cell (x, y) to the nearest goal, or
+     *         UNREACHABLE
+     */
+    public int getDistance(int x, int y)
+    {
+        if(isInside(x, y)) {
+            return distance[y*width + x];
+        }
+        return UNREACHABLE;
+    }
+
+    /**
+     * Find the next step from cell (x, y) towards the nearest goal.
+     *
+     * @return The index (y*width + x) of the neighbour cell with the
+     *         lowest distance, or -1 if there is no neighbour closer
+     *         to a goal than (x, y).
+     */
+    public int getNextStep(int x, int y)
+    {
+        if(isInside(x, y) == false || source == null) {
+            return -1;
+        }
+
+        int best = -1;
+        int bestDistance = distance[y*width + x];
+        final int directions = useDiagonals ? 8 : 4;
+
+        for(int d=0; d<directions; d++) {
+            final int nx = x + DX[d];
+            final int ny = y + DY[d];
+
+            if(isInside(nx, ny)) {
+                final int cell = ny*width + nx;
+
+                if(distance[cell] < bestDistance &&
+                   source.isMoveAllowed(x, y, nx, ny)) {
+                    best = cell;
+                    bestDistance = distance[cell];
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * A goal moved if a goal was removed and another one added since
+     * the last calculation. Nearly all distances change then, and
+     * invalidating and propagating them costs more than calculate().
+     */
+    private boolean isGoalMoved()
+    {
+        boolean removed = false;
+        boolean added = false;
+
+        for(int i=0; i<pendingCount; i++) {
+            final int cell = pending[i];
+
+            if(goal[cell]) {
+                added |= distance[cell] != 0;
+            } else {
+                removed |= distance[cell] == 0;
+            }
+        }
+
+        return removed && added;
+    }
+
+    /**
+     * A cell is supported if it is a goal, or if it can step to a
+     * neighbour which is one step closer to a goal.
+     */
+    private boolean isSupported(final int cell, final int directions)
+    {
+        final int d = distance[cell];
+
+        if(goal[cell]) {
+            // Hajo: a new goal only gets closer
+            return true;
+        }
+
+        if(d == 0) {
+            // Hajo: a former goal
+            return false;
+        }
+
+        final int x = cell % width;
+        final int y = cell / width;
+
+        for(int i=0; i<directions; i++) {
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+
+            if(isInside(nx, ny) &&
+               distance[ny*width + nx] == d - 1 &&
+               source.isMoveAllowed(x, y, nx, ny)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Lower the distance of a cell to the best its neighbours offer,
+     * and queue it if it got lower.
+     */
+    private void seed(final int cell, final int directions)
+    {
+        int best = UNREACHABLE;
+
+        if(goal[cell]) {
+            best = 0;
+        } else {
+            final int x = cell % width;
+            final int y = cell / width;
+
+            for(int i=0; i<directions; i++) {
+                final int nx = x + DX[i];
+                final int ny = y + DY[i];
+
+                if(isInside(nx, ny)) {
+                    final int d = distance[ny*width + nx];
+
+                    if(d != UNREACHABLE && d + 1 < best &&
+                       source.isMoveAllowed(x, y, nx, ny)) {
+                        best = d + 1;
+                    }
+                }
+            }
+        }
+
+        if(best < distance[cell]) {
+            distance[cell] = best;
+            addSeed(best, cell);
+        }
+    }
+
+    /**
+     * Propagate lowered distances to the neighbour cells, in order
+     * of distance. All steps cost the same, so a sorted list of the
+     * seeds and a plain queue of the propagated cells is enough: the
+     * queue is in order by itself, and the next cell is the lower of
+     * the two heads.
+     *
+     * @param limit Max. number of cells to lower
+     * @return false if the limit was reached before all cells were done
+     */
+    private boolean propagate(final int directions, final int limit)
+    {
+        Arrays.sort(seeds, 0, seedCount);
+
+        int next = 0;
+        int head = 0;
+        int tail = 0;
+
+        while(next < seedCount || head < tail) {
+            final int cell;
+
+            if(head < tail &&
+               (next == seedCount || distance[cells[head]] <= (int)(seeds[next] >> 32))) {
+                cell = cells[head++];
+            } else {
+                final long seed = seeds[next++];
+                cell = (int)seed;
+
+                if((int)(seed >> 32) != distance[cell]) {
+                    // Hajo: outdated seed
+                    continue;
+                }
+            }
+
+            final int d = distance[cell];
+            final int x = cell % width;
+            final int y = cell / width;
+
+            for(int i=0; i<directions; i++) {
+                final int px = x + DX[i];
+                final int py = y + DY[i];
+
+                if(isInside(px, py)) {
+                    final int pred = py*width + px;
+
+                    if(d + 1 < distance[pred] &&
+                       source.isMoveAllowed(px, py, x, y)) {
+                        // Hajo: later cells have the same or higher
+                        // distances, so each cell is queued once
+                        distance[pred] = d + 1;
+                        cells[tail++] = pred;
+
+                        if(tail >= limit) {
+                            seedCount = 0;
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+
+        seedCount = 0;
+        return true;
+    }
+
+    private boolean isInside(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private void addPending(final int cell)
+    {
+        pending = push(pending, pendingCount++, cell);
+    }
+
+    /**
+     * Store a value in a growing array.
+     *
+     * @return The array, or a bigger copy of it
+     */
+    private static int [] push(int [] array, final int index, final int value)
+    {
+        if(index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private void addSeed(final int d, final int cell)
+    {
+        if(seedCount == seeds.length) {
+            seeds = Arrays.copyOf(seeds, seeds.length * 2);
+        }
+
+        seeds[seedCount++] = ((long)d << 32) | (cell & 0xFFFFFFFFL);
+    }
+}
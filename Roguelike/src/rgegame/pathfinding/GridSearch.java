@@ -0,0 +1,307 @@
+/*
+ * GridSearch.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first search core shared by Path and Area.
+ *
+ * Cells are encoded as int indices into a rectangular window of the
+ * map. Visited marks are stamped with a generation counter, so the
+ * arrays can be reused without clearing them between searches. The
+ * queue is an int ring buffer. Once the arrays have grown to the size
+ * a map needs, a search doesn't allocate any objects.
+ *
+ * A PathSource doesn't tell the map size. For a BitmapPathSource the
+ * window is the bitmap. For other sources the window is centered at
+ * the start, and if the search reaches the window border, the window
+ * is doubled and the search starts over.
+ *
+ * This is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+class GridSearch
+{
+    /** Search result if no destination was reached */
+    static final int NOT_FOUND = -1;
+
+    /** Search result if the search left the window */
+    private static final int OVERFLOW = -2;
+
+    private static final int INITIAL_WINDOW = 128;
+    private static final int INITIAL_QUEUE = 256;
+
+    /** Same move order as the old breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    /** The window, in map coordinates */
+    private int left, top, width, height;
+
+    /** Generation in which each cell was last visited */
+    private int [] stamp;
+
+    /** Predecessor of each visited cell, -1 for the start */
+    private int [] parent;
+
+    private int generation;
+
+    /** Ring buffer of cells to expand */
+    private int [] queue;
+    private int head;
+    private int count;
+
+    /** Cells of the last traced path, start first */
+    private int [] trace;
+
+    GridSearch()
+    {
+        stamp = new int [0];
+        parent = new int [0];
+        queue = new int [INITIAL_QUEUE];
+        trace = new int [INITIAL_QUEUE];
+    }
+
+    /**
+     * Called when a search (re)starts. Subclasses can reset collected
+     * data here.
+     */
+    void begin()
+    {
+    }
+
+    /**
+     * Called for each cell which is added to the queue, in search order.
+     */
+    void visit(int x, int y)
+    {
+    }
+
+    /**
+     * Breadth first search.
+     *
+     * @param source the pathSource to search
+     * @param destination the destination condition, or null to visit
+     *        all reachable cells
+     * @param sx Start x-coordinate
+     * @param sy Start y-coordinate
+     * @param diagonals Use diagonal moves?
+     * @param markStart If false, the start cell is only visited if it
+     *        can be entered from a neighbour cell.
+     *
+     * @return The cell which reached the destination, or NOT_FOUND
+     */
+    int search(final PathSource source,
+               final PathDestination destination,
+               final int sx, final int sy,
+               final boolean diagonals,
+               final boolean markStart)
+    {
+        setWindow(source, sx, sy);
+
+        while(true) {
+            final int result = run(source, destination, sx, sy,
+                                   diagonals, markStart);
+
+            if(result != OVERFLOW) {
+                return result;
+            }
+
+            growWindow(sx, sy);
+        }
+    }
+
+    /**
+     * Store the path from the start to the given cell.
+     *
+     * @param cell A cell visited by the last search
+     * @return The number of cells on the path.
+     */
+    int trace(int cell)
+    {
+        int n = 0;
+
+        for(int c=cell; c != -1; c=parent[c]) {
+            n ++;
+        }
+
+        if(trace.length < n) {
+            trace = new int [Math.max(n, trace.length*2)];
+        }
+
+        for(int i=n-1; i>=0; i--) {
+            trace[i] = cell;
+            cell = parent[cell];
+        }
+
+        return n;
+    }
+
+    /**
+     * @return The x coordinate of the n-th cell of the traced path.
+     */
+    int getTraceX(int n)
+    {
+        return left + trace[n] % width;
+    }
+
+    /**
+     * @return The y coordinate of the n-th cell of the traced path.
+     */
+    int getTraceY(int n)
+    {
+        return top + trace[n] / width;
+    }
+
+    private int run(final PathSource source,
+                    final PathDestination destination,
+                    final int sx, final int sy,
+                    final boolean diagonals,
+                    final boolean markStart)
+    {
+        begin();
+        nextGeneration();
+
+        head = 0;
+        count = 0;
+
+        final int right = left + width;
+        final int bottom = top + height;
+        final int directions = diagonals ? 8 : 4;
+
+        final int start = (sy-top)*width + (sx-left);
+        parent[start] = -1;
+
+        if(markStart) {
+            stamp[start] = generation;
+        }
+
+        enqueue(start);
+
+        while(count > 0) {
+            final int cell = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            count --;
+
+            final int x = left + cell % width;
+            final int y = top + cell / width;
+
+            if(destination != null && destination.isDestinationReached(x, y)) {
+                return cell;
+            }
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+                final boolean inside = nx >= left && ny >= top &&
+                                       nx < right && ny < bottom;
+                final int next = (ny-top)*width + (nx-left);
+
+                if(inside && stamp[next] == generation) {
+                    continue;
+                }
+
+                if(source.isMoveAllowed(x, y, nx, ny)) {
+                    if(inside == false) {
+                        return OVERFLOW;
+                    }
+
+                    stamp[next] = generation;
+                    parent[next] = cell;
+                    enqueue(next);
+                    visit(nx, ny);
+                }
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    private void enqueue(final int cell)
+    {
+        if(count == queue.length) {
+            // Hajo: unwrap the ring into a bigger buffer
+            final int [] bigger = new int [queue.length * 2];
+            final int firstPart = queue.length - head;
+
+            System.arraycopy(queue, head, bigger, 0, firstPart);
+            System.arraycopy(queue, 0, bigger, firstPart, head);
+
+            queue = bigger;
+            head = 0;
+        }
+
+        queue[(head + count) & (queue.length - 1)] = cell;
+        count ++;
+    }
+
+    /**
+     * Place the window for a search from (sx, sy).
+     */
+    private void setWindow(final PathSource source, final int sx, final int sy)
+    {
+        if(source instanceof BitmapPathSource) {
+            final int w = ((BitmapPathSource)source).getBitmap().getWidth();
+            final int h = ((BitmapPathSource)source).getBitmap().getHeight();
+
+            if(sx >= 0 && sy >= 0 && sx < w && sy < h) {
+                // Hajo: nothing outside the bitmap can be entered
+                setWindow(0, 0, w, h);
+                return;
+            }
+        }
+
+        if(width == 0 ||
+           sx < left || sy < top || sx >= left + width || sy >= top + height) {
+            final int w = Math.max(width, INITIAL_WINDOW);
+            final int h = Math.max(height, INITIAL_WINDOW);
+            setWindow(sx - w/2, sy - h/2, w, h);
+        }
+    }
+
+    private void growWindow(final int sx, final int sy)
+    {
+        setWindow(sx - width, sy - height, width*2, height*2);
+    }
+
+    private void setWindow(final int left, final int top,
+                           final int width, final int height)
+    {
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+
+        if(stamp.length < size) {
+            stamp = new int [size];
+            parent = new int [size];
+            generation = 0;
+        }
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,591 @@
+/*
+ * HierarchicalPath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A hierarchical (HPA*) pathfinder for long trips on big maps. It
+ * plans on the abstract graph of a ClusterGraph first, which gives a
+ * list of waypoints: the start, the cluster entrances to pass, and the
+ * destination. Then only the first segment between two waypoints is
+ * refined into steps. The following segments are refined when the
+ * path is walked, that is when getStep() asks for a step which isn't
+ * refined yet. Each refinement is a small search inside one cluster.
+ *
+ * The paths are near optimal, not always shortest: the path has to pass
+ * the chosen entrances, and a destination in the start cluster is
+ * searched inside the cluster first.
+ *
+ * Only a CoordinatePathDestination can be planned for. Other
+ * destinations are searched breadth first like in Path.
+ *
+ * Diagonals are used as set for the cluster graph, the setting of this
+ * path is only used for breadth first searches.
+ *
+ * Like Path, this is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class HierarchicalPath extends Path
+{
+    private static final int UNREACHABLE = ClusterSearch.UNREACHABLE;
+
+    /** Parent of nodes reached directly from the start */
+    private static final int START = -1;
+
+    private static final int EMPTY = -1;
+
+    private final ClusterGraph graph;
+
+    /** Search inside clusters, for the start, destination and refinement */
+    private final ClusterSearch search;
+
+    /** Waypoints, as map index (y*width + x) */
+    private int [] waypoints;
+    private int waypointCount;
+
+    /** Next waypoint to refine the segment to */
+    private int nextWaypoint;
+
+    /** Abstract search: open addressing table of node cells */
+    private int [] keys;
+    private int [] cost;
+    private int [] parent;
+    private boolean [] closed;
+    private int [] usedSlots;
+    private int usedCount;
+
+    /** Abstract search open list, (estimate << 32) | slot */
+    private long [] heap;
+    private int heapSize;
+
+    /** Cost from the destination cluster's nodes to the destination */
+    private int [] goalCosts;
+
+    /**
+     * Creates a new hierarchical path with no nodes.
+     *
+     * @param graph The cluster graph of the map to search
+     */
+    public HierarchicalPath(ClusterGraph graph)
+    {
+        this.graph = graph;
+
+        final int size = graph.getClusterSize();
+        search = new ClusterSearch(size * size);
+
+        waypoints = new int [64];
+        keys = new int [1024];
+        cost = new int [1024];
+        parent = new int [1024];
+        closed = new boolean [1024];
+        usedSlots = new int [512];
+        heap = new long [256];
+        goalCosts = new int [16];
+
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /** Reset path, remove all nodes and waypoints.*/
+    @Override
+    public void clear()
+    {
+        super.clear();
+        waypointCount = 0;
+        nextWaypoint = 0;
+    }
+
+    /**
+     * Random access for a step. Refines more segments of the path
+     * if needed.
+     *
+     * @return node at position n, or null if there is no such node
+     */
+    @Override
+    public Node getStep(int n)
+    {
+        while(n >= super.size() && refineNext()) {
+            // Hajo: refine until the step exists
+        }
+        return super.getStep(n);
+    }
+
+    /**
+     * @return A copy of the packed steps, with all segments refined.
+     */
+    @Override
+    public long [] getPackedSteps()
+    {
+        refineAll();
+        return super.getPackedSteps();
+    }
+
+    /**
+     * Refine all segments of the path.
+     *
+     * @return true if all segments could be refined
+     */
+    public boolean refineAll()
+    {
+        while(nextWaypoint < waypointCount) {
+            if(refineNext() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if all segments of the path have been refined.
+     */
+    public boolean isRefined()
+    {
+        return nextWaypoint >= waypointCount;
+    }
+
+    /**
+     * Hierarchical pathfinding. Plans the whole path on the cluster
+     * graph and refines the first segment.
+     *
+     * @param pathSource the pathSource for breadth first searches, the
+     *                   cluster graph uses it's own path source.
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        if(pathDestination instanceof CoordinatePathDestination == false) {
+            return super.findPath(pathSource, pathDestination, sx, sy);
+        }
+
+        clear();
+
+        final int gx = ((CoordinatePathDestination)pathDestination).getX();
+        final int gy = ((CoordinatePathDestination)pathDestination).getY();
+        final int width = graph.getWidth();
+        final int height = graph.getHeight();
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height ||
+           gx < 0 || gy < 0 || gx >= width || gy >= height) {
+            return false;
+        }
+
+        final int start = sy*width + sx;
+        final int goal = gy*width + gx;
+        final boolean planned;
+
+        if(graph.clusterIndex(sx, sy) == graph.clusterIndex(gx, gy) &&
+           searchInCluster(sx, sy, gx, gy)) {
+            // Hajo: short trip, no need to leave the cluster
+            addWaypoint(start);
+            addWaypoint(goal);
+            planned = true;
+        } else {
+            planned = plan(sx, sy, gx, gy);
+        }
+
+        if(planned == false) {
+            return false;
+        }
+
+        addStep(sx, sy);
+        nextWaypoint = 1;
+
+        return refineNext();
+    }
+
+    /**
+     * Search the abstract graph and store the waypoints.
+     */
+    private boolean plan(final int sx, final int sy, final int gx, final int gy)
+    {
+        final PathSource source = graph.getSource();
+        final boolean diagonals = graph.isUseDiagonals();
+        final int width = graph.getWidth();
+
+        resetTable();
+        heapSize = 0;
+
+        final int goalIndex = graph.clusterIndex(gx, gy);
+        final ClusterGraph.Cluster goalCluster = graph.getCluster(goalIndex);
+
+        // Hajo: costs from the destination cluster's entrances to the
+        // destination, searched backwards from the destination
+        search.run(source, diagonals,
+                   graph.clusterLeft(goalIndex), graph.clusterTop(goalIndex),
+                   graph.clusterWidth(goalIndex), graph.clusterHeight(goalIndex),
+                   gx, gy, -1, -1, true);
+
+        if(goalCosts.length < goalCluster.nodeCount) {
+            goalCosts = new int [goalCluster.nodeCount * 2];
+        }
+
+        for(int i=0; i<goalCluster.nodeCount; i++) {
+            final int node = goalCluster.nodes[i];
+            goalCosts[i] = search.getCost(node % width, node / width);
+        }
+
+        // Hajo: costs from the start to the start cluster's entrances
+        final int startIndex = graph.clusterIndex(sx, sy);
+        final ClusterGraph.Cluster startCluster = graph.getCluster(startIndex);
+
+        search.run(source, diagonals,
+                   graph.clusterLeft(startIndex), graph.clusterTop(startIndex),
+                   graph.clusterWidth(startIndex), graph.clusterHeight(startIndex),
+                   sx, sy, -1, -1, false);
+
+        for(int i=0; i<startCluster.nodeCount; i++) {
+            final int node = startCluster.nodes[i];
+            final int c = search.getCost(node % width, node / width);
+
+            if(c != UNREACHABLE) {
+                relax(node, c, START, gx, gy, diagonals);
+            }
+        }
+
+        int bestCost = UNREACHABLE;
+        int bestParent = START;
+
+        while(heapSize > 0) {
+            final long entry = heapPop();
+            final int slot = (int)entry;
+
+            if((int)(entry >> 32) >= bestCost) {
+                // Hajo: nothing cheaper than the best path left
+                break;
+            }
+
+            if(closed[slot]) {
+                continue;
+            }
+
+            closed[slot] = true;
+
+            final int node = keys[slot];
+            final int g = cost[slot];
+            final int clusterIndex = graph.clusterIndex(node % width, node / width);
+            final ClusterGraph.Cluster cluster = graph.getCluster(clusterIndex);
+            final int i = cluster.indexOf(node);
+            final int n = cluster.nodeCount;
+
+            if(clusterIndex == goalIndex && goalCosts[i] != UNREACHABLE &&
+               g + goalCosts[i] < bestCost) {
+                bestCost = g + goalCosts[i];
+                bestParent = node;
+            }
+
+            for(int j=0; j<n; j++) {
+                final int c = cluster.costs[i*n + j];
+
+                if(j != i && c != UNREACHABLE) {
+                    relax(cluster.nodes[j], g + c, node, gx, gy, diagonals);
+                }
+            }
+
+            for(int l=0; l<cluster.linkCount; l++) {
+                if(cluster.links[l*2] == i) {
+                    final int other = cluster.links[l*2 + 1];
+                    final boolean diagonal = other % width != node % width &&
+                                             other / width != node / width;
+
+                    relax(other, g + (diagonal ? ClusterSearch.DIAGONAL_COST :
+                                                 ClusterSearch.STRAIGHT_COST),
+                          node, gx, gy, diagonals);
+                }
+            }
+        }
+
+        if(bestCost == UNREACHABLE) {
+            return false;
+        }
+
+        // Hajo: unwind the nodes, then reverse them
+        addWaypoint(gy*width + gx);
+
+        for(int node=bestParent; node != START; node=parent[find(node)]) {
+            addWaypoint(node);
+        }
+
+        addWaypoint(sy*width + sx);
+
+        for(int i=0, j=waypointCount-1; i<j; i++, j--) {
+            final int tmp = waypoints[i];
+            waypoints[i] = waypoints[j];
+            waypoints[j] = tmp;
+        }
+
+        return true;
+    }
+
+    /**
+     * Lower the cost of a node, and queue it if it got lower.
+     */
+    private void relax(final int node, final int g, final int from,
+                       final int gx, final int gy, final boolean diagonals)
+    {
+        int slot = find(node);
+
+        if(slot < 0) {
+            slot = insert(node);
+        } else if(closed[slot] || cost[slot] <= g) {
+            return;
+        }
+
+        cost[slot] = g;
+        parent[slot] = from;
+
+        final int width = graph.getWidth();
+        final int dx = Math.abs(node % width - gx);
+        final int dy = Math.abs(node / width - gy);
+        final int h = diagonals ?
+                ClusterSearch.STRAIGHT_COST * Math.max(dx, dy) +
+                (ClusterSearch.DIAGONAL_COST - ClusterSearch.STRAIGHT_COST) * Math.min(dx, dy) :
+                ClusterSearch.STRAIGHT_COST * (dx + dy);
+
+        heapPush(g + h, slot);
+    }
+
+    /**
+     * Refine the next segment of the path into steps.
+     *
+     * @return false if there is no segment left, or if the segment
+     *         can't be walked anymore because the map changed.
+     */
+    private boolean refineNext()
+    {
+        if(nextWaypoint >= waypointCount) {
+            return false;
+        }
+
+        final int width = graph.getWidth();
+        final int from = waypoints[nextWaypoint - 1];
+        final int to = waypoints[nextWaypoint];
+        final int fx = from % width;
+        final int fy = from / width;
+        final int tx = to % width;
+        final int ty = to / width;
+        final int dx = Math.abs(tx - fx);
+        final int dy = Math.abs(ty - fy);
+
+        // Hajo: neighbours are one step apart, diagonal neighbours only
+        // if diagonal moves are allowed. Otherwise they are in the same
+        // cluster, since links between clusters are straight then.
+        if(dx + dy <= 1 || (graph.isUseDiagonals() && dx <= 1 && dy <= 1)) {
+            // Hajo: crossing a cluster border
+            if(graph.getSource().isMoveAllowed(fx, fy, tx, ty) == false) {
+                nextWaypoint = waypointCount;
+                return false;
+            }
+
+            if(from != to) {
+                addStep(tx, ty);
+            }
+        } else {
+            if(searchInCluster(fx, fy, tx, ty) == false) {
+                nextWaypoint = waypointCount;
+                return false;
+            }
+
+            final int n = search.trace(tx, ty);
+
+            for(int i=1; i<n; i++) {
+                addStep(search.getTraceX(i), search.getTraceY(i));
+            }
+        }
+
+        nextWaypoint ++;
+
+        return true;
+    }
+
+    /**
+     * Search from (fx, fy) to (tx, ty) inside the cluster of (fx, fy).
+     */
+    private boolean searchInCluster(final int fx, final int fy,
+                                    final int tx, final int ty)
+    {
+        final int index = graph.clusterIndex(fx, fy);
+
+        search.run(graph.getSource(), graph.isUseDiagonals(),
+                   graph.clusterLeft(index), graph.clusterTop(index),
+                   graph.clusterWidth(index), graph.clusterHeight(index),
+                   fx, fy, tx, ty, false);
+
+        return search.getCost(tx, ty) != UNREACHABLE;
+    }
+
+    private void addWaypoint(final int cell)
+    {
+        if(waypointCount == waypoints.length) {
+            waypoints = Arrays.copyOf(waypoints, waypointCount * 2);
+        }
+        waypoints[waypointCount++] = cell;
+    }
+
+    /**
+     * Empty the node table. Only the used slots are cleared.
+     */
+    private void resetTable()
+    {
+        for(int i=0; i<usedCount; i++) {
+            keys[usedSlots[i]] = EMPTY;
+        }
+        usedCount = 0;
+    }
+
+    private int find(final int node)
+    {
+        final int mask = keys.length - 1;
+
+        for(int slot=hash(node) & mask; ; slot=(slot + 1) & mask) {
+            final int key = keys[slot];
+
+            if(key == node) {
+                return slot;
+            }
+            if(key == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private int insert(final int node)
+    {
+        if(usedCount * 2 >= keys.length) {
+            grow();
+        }
+
+        final int mask = keys.length - 1;
+        int slot = hash(node) & mask;
+
+        while(keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = node;
+        closed[slot] = false;
+
+        if(usedCount == usedSlots.length) {
+            usedSlots = Arrays.copyOf(usedSlots, usedCount * 2);
+        }
+        usedSlots[usedCount++] = slot;
+
+        return slot;
+    }
+
+    /**
+     * Double the node table. Only called between searches of
+     * nodes, the heap holds slots and is rebuilt.
+     */
+    private void grow()
+    {
+        final int [] oldKeys = keys;
+        final int [] oldCost = cost;
+        final int [] oldParent = parent;
+        final boolean [] oldClosed = closed;
+        final int [] oldSlots = Arrays.copyOf(usedSlots, usedCount);
+        final int [] newSlot = new int [oldKeys.length];
+
+        keys = new int [oldKeys.length * 2];
+        cost = new int [keys.length];
+        parent = new int [keys.length];
+        closed = new boolean [keys.length];
+        Arrays.fill(keys, EMPTY);
+
+        final int count = usedCount;
+        usedCount = 0;
+
+        for(int i=0; i<count; i++) {
+            final int old = oldSlots[i];
+            final int slot = insert(oldKeys[old]);
+
+            cost[slot] = oldCost[old];
+            parent[slot] = oldParent[old];
+            closed[slot] = oldClosed[old];
+            newSlot[old] = slot;
+        }
+
+        for(int i=0; i<heapSize; i++) {
+            final long entry = heap[i];
+            heap[i] = (entry & 0xFFFFFFFF00000000L) | newSlot[(int)entry];
+        }
+    }
+
+    private static int hash(final int node)
+    {
+        return node * 0x9E3779B1 >>> 7;
+    }
+
+    private void heapPush(final int f, final int slot)
+    {
+        if(heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+
+        final long entry = ((long)f << 32) | slot;
+        int pos = heapSize++;
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+
+            if(heap[up] <= entry) {
+                break;
+            }
+
+            heap[pos] = heap[up];
+            pos = up;
+        }
+
+        heap[pos] = entry;
+    }
+
+    private long heapPop()
+    {
+        final long result = heap[0];
+        final long last = heap[--heapSize];
+        int pos = 0;
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child ++;
+            }
+
+            if(heap[child] >= last) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            pos = child;
+        }
+
+        heap[pos] = last;
+
+        return result;
+    }
+}
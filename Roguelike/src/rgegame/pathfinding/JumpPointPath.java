@@ -0,0 +1,599 @@
+/*
+ * JumpPointPath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+import rgegame.map.data.CellBitmap;
+
+/**
+ * A jump point search (JPS) pathfinder for maps with diagonal moves
+ * of uniform cost. Instead of expanding each cell, the search jumps
+ * along straight and diagonal lines and only stops at cells where the
+ * path may need to turn, the jump points. In open rooms and wilderness
+ * maps this puts far fewer cells into the open list than A*. On maps
+ * with many scattered obstacles, like the caves of the mines, there
+ * are jump points everywhere and A* can be faster.
+ *
+ * Every move costs one step, like in the breadth-first Path, so the
+ * paths have the same number of steps as the breadth-first paths.
+ *
+ * The pruning rules need moves which only depend on the target cell,
+ * like the moves of a BitmapPathSource. For a BitmapPathSource the
+ * horizontal jumps test 64 cells of a row at once on the bitmap.
+ *
+ * Only a CoordinatePathDestination can be jumped to, and diagonals
+ * must be used. Other searches are done breadth first like in Path.
+ *
+ * Like Path, this is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class JumpPointPath extends Path
+{
+    /** Heap position of cells which have been expanded */
+    private static final int CLOSED = -1;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+
+    /** Steps of the best known path from the start to each jump point */
+    private final int [] cost;
+
+    /** Cost plus estimated remaining steps for each jump point */
+    private final int [] estimate;
+
+    /** Preceding jump point on the best known path, -1 for the start */
+    private final int [] parent;
+
+    /** Generation in which the cell data was last written */
+    private final int [] stamp;
+
+    /** Position of each open jump point in the heap, or CLOSED */
+    private final int [] heapPos;
+
+    /** The open list, a binary heap of cell indices */
+    private final int [] heap;
+    private int heapSize;
+
+    private int generation;
+
+    /** Number of jump points expanded by the last search */
+    private int expanded;
+
+    /** Path source of the current search */
+    private PathSource source;
+
+    /** Walkable cells of the current search, or null */
+    private CellBitmap bitmap;
+
+    /** Destination of the current search */
+    private int gx, gy;
+
+    /**
+     * Creates a new jump point path with no nodes.
+     *
+     * @param width The width of the maps to search
+     * @param height The height of the maps to search
+     */
+    public JumpPointPath(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+
+        cost = new int [size];
+        estimate = new int [size];
+        parent = new int [size];
+        stamp = new int [size];
+        heapPos = new int [size];
+        heap = new int [size];
+
+        setUseDiagonals(true);
+    }
+
+    /**
+     * @return The number of jump points expanded by the last search.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    /**
+     * Jump point search. Cells outside the map size are never entered.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        if(pathDestination instanceof CoordinatePathDestination == false ||
+           isUseDiagonals() == false) {
+            expanded = 0;
+            return super.findPath(pathSource, pathDestination, sx, sy);
+        }
+
+        clear();
+        expanded = 0;
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height) {
+            return false;
+        }
+
+        source = pathSource;
+        bitmap = null;
+
+        if(pathSource instanceof BitmapPathSource) {
+            final CellBitmap walkable = ((BitmapPathSource)pathSource).getBitmap();
+
+            if(walkable.getWidth() == width && walkable.getHeight() == height) {
+                bitmap = walkable;
+            }
+        }
+
+        gx = ((CoordinatePathDestination)pathDestination).getX();
+        gy = ((CoordinatePathDestination)pathDestination).getY();
+
+        nextGeneration();
+        heapSize = 0;
+
+        final int start = sy*width + sx;
+        stamp[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        estimate[start] = distance(sx, sy);
+        push(start);
+
+        boolean found = false;
+
+        while(heapSize > 0) {
+            final int current = pop();
+            heapPos[current] = CLOSED;
+            expanded ++;
+
+            final int x = current % width;
+            final int y = current / width;
+
+            if(x == gx && y == gy) {
+                unwind(current);
+                found = true;
+                break;
+            }
+
+            final int from = parent[current];
+
+            if(from == -1) {
+                for(int d=0; d<8; d++) {
+                    jumpFrom(current, x, y, DX[d], DY[d]);
+                }
+            } else {
+                final int dx = Integer.signum(x - from % width);
+                final int dy = Integer.signum(y - from / width);
+
+                if(dx != 0 && dy != 0) {
+                    jumpFrom(current, x, y, dx, 0);
+                    jumpFrom(current, x, y, 0, dy);
+                    jumpFrom(current, x, y, dx, dy);
+
+                    if(canEnter(x, y, x-dx, y) == false) {
+                        jumpFrom(current, x, y, -dx, dy);
+                    }
+                    if(canEnter(x, y, x, y-dy) == false) {
+                        jumpFrom(current, x, y, dx, -dy);
+                    }
+                } else if(dx != 0) {
+                    jumpFrom(current, x, y, dx, 0);
+
+                    if(canEnter(x, y, x, y-1) == false) {
+                        jumpFrom(current, x, y, dx, -1);
+                    }
+                    if(canEnter(x, y, x, y+1) == false) {
+                        jumpFrom(current, x, y, dx, 1);
+                    }
+                } else {
+                    jumpFrom(current, x, y, 0, dy);
+
+                    if(canEnter(x, y, x-1, y) == false) {
+                        jumpFrom(current, x, y, -1, dy);
+                    }
+                    if(canEnter(x, y, x+1, y) == false) {
+                        jumpFrom(current, x, y, 1, dy);
+                    }
+                }
+            }
+        }
+
+        source = null;
+        bitmap = null;
+
+        return found;
+    }
+
+    /**
+     * Jump from (x, y) in direction (dx, dy) and add the jump point
+     * to the open list, if there is one.
+     */
+    private void jumpFrom(final int current, final int x, final int y,
+                          final int dx, final int dy)
+    {
+        final int next;
+
+        if(dx != 0 && dy != 0) {
+            next = jumpDiagonal(x, y, dx, dy);
+        } else if(dx != 0) {
+            next = jumpHorizontal(x, y, dx);
+        } else {
+            next = jumpVertical(x, y, dy);
+        }
+
+        if(next == -1) {
+            return;
+        }
+
+        final int nx = next % width;
+        final int ny = next / width;
+        final int newCost = cost[current] + Math.max(Math.abs(nx - x), Math.abs(ny - y));
+        final boolean seen = stamp[next] == generation;
+
+        if(seen && (heapPos[next] == CLOSED || newCost >= cost[next])) {
+            return;
+        }
+
+        if(seen) {
+            // Hajo: found a shorter way to an open jump point
+            estimate[next] += newCost - cost[next];
+            cost[next] = newCost;
+            parent[next] = current;
+            siftUp(heapPos[next]);
+        } else {
+            stamp[next] = generation;
+            cost[next] = newCost;
+            parent[next] = current;
+            estimate[next] = newCost + distance(nx, ny);
+            push(next);
+        }
+    }
+
+    /**
+     * @return The next jump point in direction dx, or -1 if there is none.
+     */
+    private int jumpHorizontal(int x, final int y, final int dx)
+    {
+        if(bitmap != null) {
+            return dx > 0 ? scanRight(x, y) : scanLeft(x, y);
+        }
+
+        while(true) {
+            if(canEnter(x, y, x+dx, y) == false) {
+                return -1;
+            }
+
+            x += dx;
+
+            if((x == gx && y == gy) ||
+               (canEnter(x, y, x, y-1) == false && canEnter(x, y, x+dx, y-1)) ||
+               (canEnter(x, y, x, y+1) == false && canEnter(x, y, x+dx, y+1))) {
+                return y*width + x;
+            }
+        }
+    }
+
+    /**
+     * @return The next jump point in direction dy, or -1 if there is none.
+     */
+    private int jumpVertical(final int x, int y, final int dy)
+    {
+        while(true) {
+            if(canEnter(x, y, x, y+dy) == false) {
+                return -1;
+            }
+
+            y += dy;
+
+            if((x == gx && y == gy) ||
+               (canEnter(x, y, x-1, y) == false && canEnter(x, y, x-1, y+dy)) ||
+               (canEnter(x, y, x+1, y) == false && canEnter(x, y, x+1, y+dy))) {
+                return y*width + x;
+            }
+        }
+    }
+
+    /**
+     * @return The next jump point in direction (dx, dy), or -1 if
+     *         there is none.
+     */
+    private int jumpDiagonal(int x, int y, final int dx, final int dy)
+    {
+        while(true) {
+            if(canEnter(x, y, x+dx, y+dy) == false) {
+                return -1;
+            }
+
+            x += dx;
+            y += dy;
+
+            if((x == gx && y == gy) ||
+               (canEnter(x, y, x-dx, y) == false && canEnter(x, y, x-dx, y+dy)) ||
+               (canEnter(x, y, x, y-dy) == false && canEnter(x, y, x+dx, y-dy))) {
+                return y*width + x;
+            }
+
+            // Hajo: a cell from which a straight jump finds a jump
+            // point is a jump point itself
+            if(jumpHorizontal(x, y, dx) != -1 || jumpVertical(x, y, dy) != -1) {
+                return y*width + x;
+            }
+        }
+    }
+
+    /**
+     * Horizontal jump to the right on the bitmap, 64 cells at a time.
+     * Stops at the first cell which is blocked, has a forced neighbour
+     * or is the destination.
+     */
+    private int scanRight(int x, final int y)
+    {
+        while(true) {
+            final long row = getRow(x+1, y);
+            final long up = getRow(x+1, y-1);
+            final long upNext = getRow(x+2, y-1);
+            final long down = getRow(x+1, y+1);
+            final long downNext = getRow(x+2, y+1);
+
+            long stop = ~row | (~up & upNext) | (~down & downNext);
+
+            if(y == gy && gx > x && gx <= x + 64) {
+                stop |= 1L << (gx - x - 1);
+            }
+
+            if(stop != 0) {
+                final int i = Long.numberOfTrailingZeros(stop);
+
+                if((row & (1L << i)) == 0) {
+                    return -1;
+                }
+                return y*width + x + 1 + i;
+            }
+
+            x += 64;
+        }
+    }
+
+    /**
+     * Horizontal jump to the left on the bitmap, 64 cells at a time.
+     */
+    private int scanLeft(int x, final int y)
+    {
+        while(true) {
+            // Hajo: bit 63 is the cell next to x
+            final int base = x - 64;
+            final long row = getRow(base, y);
+            final long up = getRow(base, y-1);
+            final long upNext = getRow(base-1, y-1);
+            final long down = getRow(base, y+1);
+            final long downNext = getRow(base-1, y+1);
+
+            long stop = ~row | (~up & upNext) | (~down & downNext);
+
+            if(y == gy && gx < x && gx >= base) {
+                stop |= 1L << (gx - base);
+            }
+
+            if(stop != 0) {
+                final int i = 63 - Long.numberOfLeadingZeros(stop);
+
+                if((row & (1L << i)) == 0) {
+                    return -1;
+                }
+                return y*width + base + i;
+            }
+
+            x = base;
+        }
+    }
+
+    /**
+     * @return The walkable bits of the cells (x, y) to (x+63, y).
+     *         Cells outside the map are never walkable.
+     */
+    private long getRow(final int x, final int y)
+    {
+        if(y < 0 || y >= height || x <= -64 || x >= width) {
+            return 0;
+        }
+
+        long bits = bitmap.getBits(x, y);
+
+        if(x < 0) {
+            bits &= -1L << -x;
+        }
+
+        if(width - x < 64) {
+            bits &= (1L << (width - x)) - 1;
+        }
+
+        return bits;
+    }
+
+    /**
+     * Check if a move is allowed. Cells outside the map are never
+     * entered.
+     */
+    private boolean canEnter(final int x, final int y, final int nx, final int ny)
+    {
+        if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+            return false;
+        }
+
+        if(bitmap != null) {
+            return bitmap.get(nx, ny);
+        }
+
+        return source.isMoveAllowed(x, y, nx, ny);
+    }
+
+    /**
+     * Estimated steps from (x, y) to the goal. Never more than the
+     * real number of steps, so the paths are shortest paths.
+     */
+    private int distance(final int x, final int y)
+    {
+        return Math.max(Math.abs(gx - x), Math.abs(gy - y));
+    }
+
+    /**
+     * Add the steps from the start to the given jump point to this
+     * path, filling in the cells between the jump points.
+     */
+    private void unwind(int cell)
+    {
+        // Hajo: the heap isn't needed anymore, use it to
+        // reverse the chain of jump points
+        int n = 0;
+
+        while(cell != -1) {
+            heap[n++] = cell;
+            cell = parent[cell];
+        }
+
+        int x = heap[n-1] % width;
+        int y = heap[n-1] / width;
+
+        addStep(x, y);
+
+        for(int i=n-2; i>=0; i--) {
+            final int tx = heap[i] % width;
+            final int ty = heap[i] / width;
+            final int dx = Integer.signum(tx - x);
+            final int dy = Integer.signum(ty - y);
+
+            while(x != tx || y != ty) {
+                x += dx;
+                y += dy;
+                addStep(x, y);
+            }
+        }
+
+        heapSize = 0;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * True if cell a must be expanded before cell b. Ties are broken
+     * towards the higher cost, that is the cell closer to the goal.
+     */
+    private boolean before(final int a, final int b)
+    {
+        return estimate[a] < estimate[b] ||
+               (estimate[a] == estimate[b] && cost[a] > cost[b]);
+    }
+
+    private void push(final int cell)
+    {
+        heap[heapSize] = cell;
+        heapPos[cell] = heapSize;
+        heapSize ++;
+        siftUp(heapSize - 1);
+    }
+
+    private int pop()
+    {
+        final int top = heap[0];
+
+        heapSize --;
+
+        if(heapSize > 0) {
+            final int last = heap[heapSize];
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    private void siftUp(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(pos > 0) {
+            final int up = (pos - 1) >>> 1;
+            final int upCell = heap[up];
+
+            if(!before(cell, upCell)) {
+                break;
+            }
+
+            heap[pos] = upCell;
+            heapPos[upCell] = pos;
+            pos = up;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+
+    private void siftDown(int pos)
+    {
+        final int cell = heap[pos];
+
+        while(true) {
+            int child = pos*2 + 1;
+
+            if(child >= heapSize) {
+                break;
+            }
+
+            if(child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child ++;
+            }
+
+            if(!before(heap[child], cell)) {
+                break;
+            }
+
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+
+        heap[pos] = cell;
+        heapPos[cell] = pos;
+    }
+}
@@ -13,17 +13,20 @@
 
 package rgegame.pathfinding;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Stack;
+import java.util.Arrays;
 
 /**
  * A breadth-first pathfinder, searching the shortest path from
  * a start coordinate to a destination condistion.
  *
  * A path consists of discrete steps from one location to another.
+ * The steps are stored packed, x and y of a step share one long, so
+ * a path costs 8 bytes per step. Node objects are only created when
+ * a step is asked for.
  * 
+ * The search runs on a GridSearch, which keeps it's arrays between
+ * searches, so a Path should be reused for many searches.
+ *
  * This pathfinding implementation is not reentrant, so each thread
  * needs it's own instance of a path for pathfinding.
  *
@@ -32,31 +35,25 @@ import java.util.Stack;
 public class Path
 {
     /**
-     * One step of the path. The path as a whole is a linked list
-     * of these nodes.
+     * One step of the path.
      * 
      * @author Hj. Malthaner
      */
-    public class Node
+    public static class Node
     {
         public final int x, y;
-        private final Node link;
 
         Node(int x, int y) {
             this.x = x;
             this.y = y;
-            this.link = null;
-        }
-
-        Node(int x, int y, Node link) {
-            this.x = x;
-            this.y = y;
-            this.link = link;
         }
     }
 
-    /** Result path of pathfinding */
-    private final ArrayList <Node> path;
+    /** Result path of pathfinding, packed steps */
+    private long [] steps;
+
+    /** Number of steps in the path */
+    private int count;
 
     /** Current step in stepping through the path */
     private int step;
@@ -64,6 +61,9 @@ public class Path
     /** use diagonals in pathfinding? */
     private boolean useDiagonals = true;
 
+    /** Breadth first search core, created by the first search */
+    private GridSearch search;
+
 
     /**
      * Use diagonals in pathfinding?
@@ -74,6 +74,22 @@ public class Path
         useDiagonals = yesno;
     }
 
+    /**
+     * @return true if diagonal moves are used in pathfinding.
+     */
+    public boolean isUseDiagonals()
+    {
+        return useDiagonals;
+    }
+
+    /**
+     * @return The number of steps in this path.
+     */
+    public int size()
+    {
+        return count;
+    }
+
     /** 
      * Look ahead on next step
      * @return node at next position,
@@ -100,12 +116,62 @@ public class Path
      */
     public Node getStep(int n)
     {
-        if(n >= 0 && n < path.size()) {
-            return path.get(n);
+        if(n >= 0 && n < count) {
+            final long packed = steps[n];
+            return new Node(unpackX(packed), unpackY(packed));
         }
         return null;
     }
 
+    /**
+     * @return A copy of the packed steps of this path.
+     */
+    public long [] getPackedSteps()
+    {
+        return Arrays.copyOf(steps, count);
+    }
+
+    /**
+     * Replace the steps of this path.
+     *
+     * @param packed The new steps, packed like getPackedSteps() returns them
+     */
+    public void setPackedSteps(final long [] packed)
+    {
+        clear();
+
+        if(steps.length < packed.length) {
+            steps = new long [packed.length];
+        }
+        System.arraycopy(packed, 0, steps, 0, packed.length);
+        count = packed.length;
+    }
+
+    /**
+     * Pack a step into one long. All int coordinates can be
+     * packed, also negative ones.
+     */
+    public static long pack(int x, int y)
+    {
+        return ((long)y << 32) | (x & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The x coordinate of a packed step.
+     */
+    public static int unpackX(long packed)
+    {
+        return (int)packed;
+    }
+
+    /**
+     * @return The y coordinate of a packed step.
+     */
+    public static int unpackY(long packed)
+    {
+        return (int)(packed >> 32);
+    }
+
     /** Advance current step by one. */
     public void advance()
     {
@@ -115,13 +181,16 @@ public class Path
     /** Add a step to this path */
     public void addStep(int x, int y)
     {
-        path.add(new Node(x, y));
+        if(count == steps.length) {
+            steps = Arrays.copyOf(steps, count * 2);
+        }
+        steps[count++] = pack(x, y);
     }
 
     /** Reset path, remove all nodes.*/
     public void clear()
     {
-        path.clear();
+        count = 0;
         step = 0;
     }
 
@@ -143,77 +212,25 @@ public class Path
     {
         clear();
 
-        HashSet <Point> marks = new HashSet <Point> ();
-        ArrayList <Node> queue = new ArrayList <Node> ();
-
-        queue.add(new Node(sx, sy));
-        marks.add(new Point(sx, sy));
-
-        Node p;
-
-        do {
-            p = (Node)queue.remove(0);
-
-            if(pathDestination.isDestinationReached(p.x, p.y)) {
-                // Hajo: destination found
-                // unwind path
-
-                Stack <Node> stack = new Stack <Node> ();
-
-                while(p.link != null) {
-                    stack.push(p);
-                    p = p.link;
-                }
-
-                // Hajo: Push starting node
-                stack.push(p);
-
-                // Hajo: Setup path
-                while(stack.isEmpty() == false) {
-                    p = stack.pop();
-                    addStep(p.x, p.y);
-                }
+        if(search == null) {
+            search = new GridSearch();
+        }
 
-                return true;
-            } else {
-                // Recursive pathfinding in the 4 cardinal directions.
-                checkMove(pathSource, marks, queue, p, 1, 0);
-                checkMove(pathSource, marks, queue, p, 0, 1);
-                checkMove(pathSource, marks, queue, p, -1, 0);
-                checkMove(pathSource, marks, queue, p, 0, -1);
+        final int cell = search.search(pathSource, pathDestination,
+                                       sx, sy, useDiagonals, true);
 
-                if(useDiagonals) {
-                    checkMove(pathSource, marks, queue, p, 1, 1);
-                    checkMove(pathSource, marks, queue, p, 1, -1);
-                    checkMove(pathSource, marks, queue, p, -1, 1);
-                    checkMove(pathSource, marks, queue, p, -1, -1);
-                }
-            }
-         } while(queue.isEmpty() == false);
+        if(cell == GridSearch.NOT_FOUND) {
+            return false;
+        }
 
-        return false;
-    }
+        // Hajo: Setup path
+        final int n = search.trace(cell);
 
-    /**
-     * Check next possible step on path.
-     */
-    private void checkMove(final PathSource pathSource,
-                           final HashSet <Point> marks,
-                           final ArrayList <Node> queue,
-                           final Node p,
-                           final int w, final int h)
-    {
-        final int dx = p.x+w;
-        final int dy = p.y+h;
-
-        final Point pos = new Point(dx, dy);
-
-        if(pathSource.isMoveAllowed(p.x, p.y, dx, dy) &&
-           marks.contains(pos) == false)
-        {
-            queue.add(new Node(dx, dy, p));
-            marks.add(pos);
+        for(int i=0; i<n; i++) {
+            addStep(search.getTraceX(i), search.getTraceY(i));
         }
+
+        return true;
     }
 
     /** 
@@ -221,7 +238,7 @@ public class Path
      */
     public Path()
     {
-        path = new ArrayList <Node> ();
+        steps = new long [16];
         clear();
     }
 }
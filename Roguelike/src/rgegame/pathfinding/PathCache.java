@@ -0,0 +1,335 @@
+/*
+ * PathCache.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import rgegame.map.data.CellBitmap;
+import rgegame.map.data.LayeredMap;
+import rgegame.map.data.MapChangeListener;
+
+/**
+ * Remembers recently found paths from a start to a destination
+ * coordinate, so agents which ask for the same way again don't need
+ * a search. The least recently used paths are dropped if the cache
+ * is full.
+ *
+ * A cached path stays valid until one of it's cells changes
+ * walkability, then it is dropped. Other changes, also changes which
+ * would allow a shorter path, keep the cached path. Walkability is read
+ * from a cell bitmap of the map, the same way as a BitmapPathSource
+ * reads it. Failed searches are not cached, and neither are paths
+ * which were searched while a cell changed walkability, because the
+ * search may have seen the cell before the change.
+ *
+ * The cache doesn't know how the paths were searched, so one cache
+ * should only be used for one kind of search on one path source.
+ *
+ * All methods are synchronized, a cache can be shared by several
+ * threads.
+ *
+ * @author Hj. Malthaner
+ */
+public class PathCache implements MapChangeListener
+{
+    private final LayeredMap map;
+    private final CellBitmap walkable;
+    private final int capacity;
+    private int width;
+    private int height;
+
+    /** Cell indices of the steps by start and destination, in LRU order */
+    private final LinkedHashMap<Long, int []> entries;
+
+    /** Counts the walkability changes, to detect changes during a search */
+    private long changes;
+
+    /** Number of cached paths which use each cell */
+    private int [] useCount;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Creates a path cache and registers it as a listener of the map.
+     * Call dispose() to unregister it.
+     *
+     * @param map The map which is searched
+     * @param walkable The cells which are walkable
+     * @param capacity The number of paths to keep
+     */
+    public PathCache(final LayeredMap map, final CellBitmap walkable,
+                     final int capacity)
+    {
+        this.map = map;
+        this.walkable = walkable;
+        this.capacity = capacity;
+        this.width = walkable.getWidth();
+        this.height = walkable.getHeight();
+
+        useCount = new int [width * height];
+
+        entries = new LinkedHashMap<Long, int []>(capacity * 2, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int []> eldest)
+            {
+                if(size() > PathCache.this.capacity) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        map.addChangeListener(this);
+    }
+
+    /**
+     * Unregister this cache from the map.
+     */
+    public void dispose()
+    {
+        map.removeChangeListener(this);
+    }
+
+    /**
+     * Look up a path, and search it with the given path if it wasn't
+     * cached.
+     *
+     * @param path The path to fill, also used for the search
+     * @param pathSource The path source to search
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     * @param dx Destination x-coordinate
+     * @param dy Destination y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    public boolean findPath(final Path path, final PathSource pathSource,
+                            int sx, int sy, int dx, int dy)
+    {
+        if(get(sx, sy, dx, dy, path)) {
+            return true;
+        }
+
+        final long before = getChangeCount();
+
+        if(path.findPath(pathSource, new CoordinatePathDestination(dx, dy), sx, sy)) {
+            put(sx, sy, dx, dy, path, before);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Fetch a cached path.
+     *
+     * @param path The path to fill with the cached steps
+     *
+     * @return true if the path was cached, false otherwise
+     */
+    public synchronized boolean get(int sx, int sy, int dx, int dy, final Path path)
+    {
+        final int [] steps = isInside(sx, sy) && isInside(dx, dy) ?
+                             entries.get(key(sx, sy, dx, dy)) : null;
+
+        if(steps == null) {
+            misses ++;
+            return false;
+        }
+
+        hits ++;
+        path.clear();
+
+        for(int i=0; i<steps.length; i++) {
+            path.addStep(steps[i] % width, steps[i] / width);
+        }
+        return true;
+    }
+
+    /**
+     * Add a found path to the cache. The path must still be valid,
+     * use getChangeCount() to check if cells changed walkability
+     * while the path was searched.
+     *
+     * @param path The path from (sx, sy) to (dx, dy)
+     */
+    public synchronized void put(int sx, int sy, int dx, int dy, final Path path)
+    {
+        put(sx, sy, dx, dy, path, changes);
+    }
+
+    /**
+     * Add a found path to the cache, if no cell changed walkability
+     * since the search started.
+     *
+     * @param before The change count before the search
+     */
+    private synchronized void put(int sx, int sy, int dx, int dy,
+                                  final Path path, final long before)
+    {
+        if(path.size() == 0 || changes != before ||
+           isInside(sx, sy) == false || isInside(dx, dy) == false) {
+            return;
+        }
+
+        final long [] packed = path.getPackedSteps();
+        final int [] steps = new int [packed.length];
+
+        for(int i=0; i<packed.length; i++) {
+            final int x = Path.unpackX(packed[i]);
+            final int y = Path.unpackY(packed[i]);
+
+            if(isInside(x, y) == false) {
+                return;
+            }
+            steps[i] = y*width + x;
+        }
+
+        final int [] old = entries.put(key(sx, sy, dx, dy), steps);
+
+        if(old != null) {
+            release(old);
+        }
+
+        for(int i=0; i<steps.length; i++) {
+            useCount[steps[i]] ++;
+        }
+    }
+
+    /**
+     * Drop all cached paths.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+
+        for(int i=0; i<useCount.length; i++) {
+            useCount[i] = 0;
+        }
+    }
+
+    /**
+     * @return The number of cached paths.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups which found a cached path.
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups which found no cached path.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * @return The number of walkability changes seen so far. Read it
+     *         before a search, if it changed when the search is done,
+     *         the path may already be blocked.
+     */
+    public synchronized long getChangeCount()
+    {
+        return changes;
+    }
+
+    /**
+     * @return The number of paths dropped because a cell changed.
+     */
+    public synchronized long getInvalidationCount()
+    {
+        return invalidations;
+    }
+
+    public synchronized void cellChanged(LayeredMap map, int layer, int x, int y,
+                                         int oldValue, int newValue)
+    {
+        if(layer != walkable.getLayer()) {
+            return;
+        }
+
+        if(isInside(x, y) == false ||
+           walkable.getClassifier().matches(oldValue) ==
+           walkable.getClassifier().matches(newValue)) {
+            return;
+        }
+
+        changes ++;
+
+        final int cell = y*width + x;
+
+        if(useCount[cell] == 0) {
+            return;
+        }
+
+        // Hajo: only reached if a cached path uses this cell
+        final Iterator<int []> iter = entries.values().iterator();
+
+        while(iter.hasNext() && useCount[cell] > 0) {
+            final int [] steps = iter.next();
+
+            for(int i=0; i<steps.length; i++) {
+                if(steps[i] == cell) {
+                    iter.remove();
+                    release(steps);
+                    invalidations ++;
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized void mapReplaced(LayeredMap map)
+    {
+        // Hajo: the map size may have changed too
+        width = walkable.getWidth();
+        height = walkable.getHeight();
+        useCount = new int [width * height];
+        entries.clear();
+        changes ++;
+    }
+
+    private void release(final int [] steps)
+    {
+        for(int i=0; i<steps.length; i++) {
+            useCount[steps[i]] --;
+        }
+    }
+
+    private boolean isInside(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private Long key(int sx, int sy, int dx, int dy)
+    {
+        final long cells = (long)width * height;
+        return ((long)sy*width + sx) * cells + ((long)dy*width + dx);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * PathCostSource.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+/**
+ * A path source which also tells how much an allowed move costs,
+ * e.g. to make rough ground, water or doors more expensive than open
+ * floor. Costs are small positive integers, the searches keep one
+ * bucket per possible cost.
+ *
+ * Path sources which don't implement this interface are searched as
+ * if every allowed move cost 1.
+ *
+ * @see WeightedPath
+ *
+ * @author Hj. Malthaner
+ */
+public interface PathCostSource extends PathSource
+{
+    /**
+     * The cost of a move. Only called for allowed moves.
+     *
+     * @return The cost, between getMinMoveCost() and getMaxMoveCost()
+     */
+    public int getMoveCost(int fromX, int fromY,
+            int toX, int toY);
+
+    /**
+     * @return The lowest cost of any move, at least 1.
+     */
+    public int getMinMoveCost();
+
+    /**
+     * @return The highest cost of any move.
+     */
+    public int getMaxMoveCost();
+}
@@ -0,0 +1,445 @@
+/*
+ * PathService.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Runs path searches for many agents on a fixed number of worker
+ * threads. Each worker has it's own Path from the PathFactory, since
+ * the searches are not reentrant.
+ *
+ * Requests which are still waiting in the queue are coalesced: if
+ * another agent asks for a path with the same path source, start and
+ * destination, it waits for the same search. When an agent issues a new
+ * request, it's previous request is cancelled, and the search is
+ * skipped if nobody else waits for it. Searches which already run are
+ * not interrupted, their result is dropped.
+ *
+ * Destinations are compared with equals(), path sources by identity.
+ *
+ * The queue is bounded, requests beyond the capacity fail with a
+ * RejectedExecutionException.
+ *
+ * @author Hj. Malthaner
+ */
+public class PathService
+{
+    /**
+     * Creates the paths for the worker threads.
+     */
+    public interface PathFactory
+    {
+        public Path createPath();
+    }
+
+    /**
+     * What makes two requests the same search.
+     */
+    private static final class Key
+    {
+        final PathSource source;
+        final PathDestination destination;
+        final int sx, sy;
+
+        Key(PathSource source, PathDestination destination, int sx, int sy)
+        {
+            this.source = source;
+            this.destination = destination;
+            this.sx = sx;
+            this.sy = sy;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if(other instanceof Key) {
+                final Key key = (Key)other;
+                return source == key.source &&
+                       sx == key.sx && sy == key.sy &&
+                       destination.equals(key.destination);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (System.identityHashCode(source) * 31 +
+                    destination.hashCode()) * 31 + sy * 65536 + sx;
+        }
+    }
+
+    /**
+     * One queued search and the agents which wait for it.
+     */
+    private final class Request implements Runnable
+    {
+        final Key key;
+        final long submitted;
+        final CompletableFuture<Path> result = new CompletableFuture<Path>();
+
+        /** Number of agents waiting for this search, guarded by pending */
+        int waiters;
+
+        Request(Key key)
+        {
+            this.key = key;
+            this.submitted = System.nanoTime();
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized(pending) {
+                // Hajo: once started, new requests must not join anymore
+                if(pending.get(key) == this) {
+                    pending.remove(key);
+                }
+
+                if(waiters == 0) {
+                    result.cancel(false);
+                    return;
+                }
+            }
+
+            final long started = System.nanoTime();
+            final Path path = paths.get();
+
+            final PathCache cache = pathCache;
+
+            try {
+                if(cache != null && key.destination instanceof CoordinatePathDestination) {
+                    final CoordinatePathDestination dest =
+                            (CoordinatePathDestination)key.destination;
+                    cache.findPath(path, key.source, key.sx, key.sy,
+                                   dest.getX(), dest.getY());
+                } else {
+                    path.findPath(key.source, key.destination, key.sx, key.sy);
+                }
+            } catch(RuntimeException ex) {
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            final Path copy = copyOf(path);
+            path.clear();
+
+            final long done = System.nanoTime();
+            recordLatency(done - submitted, done - started);
+
+            result.complete(copy);
+        }
+    }
+
+    /** Worker threads, with a bounded queue */
+    private final ThreadPoolExecutor executor;
+
+    /** One path per worker thread */
+    private final ThreadLocal<Path> paths;
+
+    /** Recently found paths, or null */
+    private volatile PathCache pathCache;
+
+    /** Requests which wait in the queue, by search */
+    private final HashMap<Key, Request> pending = new HashMap<Key, Request>();
+
+    /** The last request of each agent, guarded by pending */
+    private final HashMap<Object, CompletableFuture<Path>> latest =
+            new HashMap<Object, CompletableFuture<Path>>();
+
+    // Hajo: metrics, guarded by this
+
+    private long requestCount;
+    private long coalescedCount;
+    private long cancelledCount;
+    private long rejectedCount;
+    private long completedCount;
+    private long totalLatency;
+    private long maxLatency;
+    private long totalSearchTime;
+
+    /**
+     * Creates a path service.
+     *
+     * @param threads Number of worker threads
+     * @param capacity Number of searches which may wait in the queue
+     * @param factory Creates a path for each worker thread
+     */
+    public PathService(final int threads, final int capacity,
+                       final PathFactory factory)
+    {
+        paths = new ThreadLocal<Path>()
+        {
+            @Override
+            protected Path initialValue()
+            {
+                return factory.createPath();
+            }
+        };
+
+        final ThreadFactory threadFactory = new ThreadFactory()
+        {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "Pathfinder-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        executor = new ThreadPoolExecutor(threads, threads,
+                                          0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(capacity),
+                                          threadFactory);
+    }
+
+    /**
+     * Use a cache for paths to coordinate destinations. Repeated
+     * requests are answered from the cache without a search.
+     *
+     * @param pathCache The cache, or null for no cache
+     */
+    public void setPathCache(PathCache pathCache)
+    {
+        this.pathCache = pathCache;
+    }
+
+    /**
+     * Request a path search. The future completes with the found
+     * path, which has no steps if there was no path. Each caller gets
+     * it's own copy of the path.
+     *
+     * Cancelling the future releases the search, and it is skipped if
+     * nobody else waits for it.
+     *
+     * @param agent The agent who wants the path, or null. A new request
+     *              of the same agent cancels it's previous request.
+     * @param pathSource The path source to search
+     * @param pathDestination The destination of the path
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return The future path
+     */
+    public CompletableFuture<Path> request(final Object agent,
+                                           final PathSource pathSource,
+                                           final PathDestination pathDestination,
+                                           final int sx, final int sy)
+    {
+        final Key key = new Key(pathSource, pathDestination, sx, sy);
+        final CompletableFuture<Path> answer;
+        CompletableFuture<Path> stale = null;
+        Request request;
+        boolean submit = false;
+
+        synchronized(pending) {
+            request = pending.get(key);
+
+            if(request == null) {
+                request = new Request(key);
+                pending.put(key, request);
+                submit = true;
+            }
+
+            request.waiters ++;
+
+            answer = request.result.thenApply(new Function<Path, Path>()
+            {
+                @Override
+                public Path apply(Path path)
+                {
+                    return copyOf(path);
+                }
+            });
+
+            if(agent != null) {
+                stale = latest.put(agent, answer);
+            }
+        }
+
+        synchronized(this) {
+            requestCount ++;
+            if(submit == false) {
+                coalescedCount ++;
+            }
+        }
+
+        final Request joined = request;
+
+        answer.whenComplete(new BiConsumer<Path, Throwable>()
+        {
+            @Override
+            public void accept(Path path, Throwable failure)
+            {
+                synchronized(pending) {
+                    if(answer.isCancelled()) {
+                        joined.waiters --;
+                    }
+
+                    if(agent != null && latest.get(agent) == answer) {
+                        latest.remove(agent);
+                    }
+                }
+            }
+        });
+
+        if(stale != null) {
+            if(stale.cancel(false)) {
+                synchronized(this) {
+                    cancelledCount ++;
+                }
+            }
+        }
+
+        if(submit) {
+            try {
+                executor.execute(request);
+            } catch(RejectedExecutionException ex) {
+                synchronized(pending) {
+                    pending.remove(key);
+                }
+                synchronized(this) {
+                    rejectedCount ++;
+                }
+                request.result.completeExceptionally(ex);
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * Stop the worker threads. Queued searches are dropped and their
+     * futures cancelled.
+     */
+    public void shutdown()
+    {
+        final List<Runnable> dropped = executor.shutdownNow();
+
+        for(int i=0; i<dropped.size(); i++) {
+            ((Request)dropped.get(i)).result.cancel(false);
+        }
+    }
+
+    /**
+     * @return Number of requests since the last reset.
+     */
+    public synchronized long getRequestCount()
+    {
+        return requestCount;
+    }
+
+    /**
+     * @return Number of requests which joined an already queued search.
+     */
+    public synchronized long getCoalescedCount()
+    {
+        return coalescedCount;
+    }
+
+    /**
+     * @return Number of requests cancelled by a newer request of the
+     *         same agent.
+     */
+    public synchronized long getCancelledCount()
+    {
+        return cancelledCount;
+    }
+
+    /**
+     * @return Number of requests rejected because the queue was full.
+     */
+    public synchronized long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+
+    /**
+     * @return Number of searches which were completed.
+     */
+    public synchronized long getCompletedCount()
+    {
+        return completedCount;
+    }
+
+    /**
+     * @return Average time from request to result in nanoseconds,
+     *         including the time waiting in the queue.
+     */
+    public synchronized long getAverageLatency()
+    {
+        return completedCount > 0 ? totalLatency / completedCount : 0;
+    }
+
+    /**
+     * @return Longest time from request to result in nanoseconds.
+     */
+    public synchronized long getMaxLatency()
+    {
+        return maxLatency;
+    }
+
+    /**
+     * @return Average time of the search itself in nanoseconds.
+     */
+    public synchronized long getAverageSearchTime()
+    {
+        return completedCount > 0 ? totalSearchTime / completedCount : 0;
+    }
+
+    /**
+     * Set all counters and times back to zero.
+     */
+    public synchronized void resetMetrics()
+    {
+        requestCount = 0;
+        coalescedCount = 0;
+        cancelledCount = 0;
+        rejectedCount = 0;
+        completedCount = 0;
+        totalLatency = 0;
+        maxLatency = 0;
+        totalSearchTime = 0;
+    }
+
+    private synchronized void recordLatency(long latency, long searchTime)
+    {
+        completedCount ++;
+        totalLatency += latency;
+        totalSearchTime += searchTime;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    private static Path copyOf(final Path path)
+    {
+        final Path copy = new Path();
+        copy.setUseDiagonals(path.isUseDiagonals());
+        copy.setPackedSteps(path.getPackedSteps());
+
+        return copy;
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * RegionLabeler.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Random;
+
+import rgegame.map.data.CellBitmap;
+import rgegame.map.data.LayeredMap;
+import rgegame.map.data.MapChangeListener;
+
+/**
+ * Labels the connected regions of walkable cells of a map. Each
+ * walkable cell gets the id of it's region, so "can I walk from A
+ * to B?" is a comparison of two labels, and a random cell of a region
+ * is picked from the region's list of cells.
+ *
+ * The labels are calculated by one flood fill over the map and then
+ * kept up to date while cells of the walkable layer change: a cell
+ * which becomes walkable joins or merges the regions around it, a cell
+ * which becomes blocked may split it's region. A split is detected by
+ * searching from the neighbours of the cell at the same time, which
+ * stops as soon as the searches meet, so closing a door in a loop of
+ * corridors only looks at the loop.
+ *
+ * Walkability is read from a cell bitmap of the map, the same way as
+ * a BitmapPathSource reads it. Cells which are not walkable have no
+ * region.
+ *
+ * This is not thread safe.
+ *
+ * @author Hj. Malthaner
+ */
+public class RegionLabeler implements MapChangeListener
+{
+    /** Region of cells which are not walkable */
+    public static final int NONE = -1;
+
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final LayeredMap map;
+    private final CellBitmap walkable;
+    private final boolean useDiagonals;
+
+    private int width;
+    private int height;
+
+    /** Region of each cell, or NONE */
+    private int [] label;
+
+    /** Index of each walkable cell in the cell list of it's region */
+    private int [] position;
+
+    /** Cells of each region, as map index (y*width + x) */
+    private int [][] members;
+    private int [] memberCount;
+
+    /** Region ids which are free for reuse */
+    private int [] freeIds;
+    private int freeCount;
+
+    /** Number of region ids handed out so far */
+    private int idCount;
+
+    /** Split search: visited cells, the search that visited them */
+    private int [] visitStamp;
+    private int [] visitOwner;
+    private int generation;
+
+    /** Split search: cells visited by each search, in visiting order */
+    private final int [][] queues = new int [8][];
+    private final int [] queueHead = new int [8];
+    private final int [] queueTail = new int [8];
+
+    /** Split search: union find over the searches which met */
+    private final int [] group = new int [8];
+
+    /**
+     * Label the regions of a map. The labeler registers itself as
+     * change listener of the map, call dispose() to unregister.
+     *
+     * @param map The map to label
+     * @param walkable The walkable cells of the map
+     * @param useDiagonals Are diagonal neighbours connected?
+     */
+    public RegionLabeler(final LayeredMap map, final CellBitmap walkable,
+                         final boolean useDiagonals)
+    {
+        this.map = map;
+        this.walkable = walkable;
+        this.useDiagonals = useDiagonals;
+
+        for(int i=0; i<queues.length; i++) {
+            queues[i] = new int [64];
+        }
+
+        relabel();
+
+        map.addChangeListener(this);
+    }
+
+    /**
+     * Stop listening to changes of the map.
+     */
+    public void dispose()
+    {
+        map.removeChangeListener(this);
+    }
+
+    /**
+     * Are diagonal neighbours connected?
+     */
+    public boolean isUseDiagonals()
+    {
+        return useDiagonals;
+    }
+
+    /**
+     * @return The region of cell (x, y), or NONE if the cell isn't
+     *         walkable or outside the map.
+     */
+    public int getRegion(final int x, final int y)
+    {
+        if(x >= 0 && y >= 0 && x < width && y < height) {
+            return label[y*width + x];
+        }
+        return NONE;
+    }
+
+    /**
+     * Check if there is a walk from (ax, ay) to (bx, by). Both cells
+     * must be walkable.
+     */
+    public boolean isReachable(final int ax, final int ay,
+                               final int bx, final int by)
+    {
+        final int region = getRegion(ax, ay);
+        return region != NONE && region == getRegion(bx, by);
+    }
+
+    /**
+     * @return The number of cells of a region, 0 for unused ids.
+     */
+    public int getRegionSize(final int region)
+    {
+        if(region >= 0 && region < idCount) {
+            return memberCount[region];
+        }
+        return 0;
+    }
+
+    /**
+     * @return The number of regions.
+     */
+    public int getRegionCount()
+    {
+        return idCount - freeCount;
+    }
+
+    /**
+     * Pick a random cell of a region.
+     *
+     * @param region The region
+     * @param rand The random number generator to use
+     * @return The cell, or null if the region has no cells
+     */
+    public Point getRandomCell(final int region, final Random rand)
+    {
+        final int size = getRegionSize(region);
+
+        if(size == 0) {
+            return null;
+        }
+
+        final int cell = members[region][rand.nextInt(size)];
+        return new Point(cell % width, cell / width);
+    }
+
+    /**
+     * Label all regions from scratch.
+     */
+    public final void relabel()
+    {
+        width = walkable.getWidth();
+        height = walkable.getHeight();
+
+        final int size = width * height;
+
+        if(label == null || label.length != size) {
+            label = new int [size];
+            position = new int [size];
+            visitStamp = new int [size];
+            visitOwner = new int [size];
+            generation = 0;
+        }
+
+        Arrays.fill(label, NONE);
+
+        members = new int [16][];
+        memberCount = new int [16];
+        freeIds = new int [16];
+        freeCount = 0;
+        idCount = 0;
+
+        // Hajo: the flood fill uses the first queue of the split search
+        final int directions = useDiagonals ? 8 : 4;
+
+        for(int start=0; start<size; start++) {
+            if(label[start] != NONE || walkable.get(start % width, start / width) == false) {
+                continue;
+            }
+
+            final int region = newRegion();
+            int [] queue = queues[0];
+            int head = 0;
+            int tail = 0;
+
+            label[start] = region;
+            queue[tail++] = start;
+
+            while(head < tail) {
+                final int cell = queue[head++];
+                final int x = cell % width;
+                final int y = cell / width;
+
+                for(int d=0; d<directions; d++) {
+                    final int nx = x + DX[d];
+                    final int ny = y + DY[d];
+
+                    if(nx >= 0 && ny >= 0 && nx < width && ny < height) {
+                        final int next = ny*width + nx;
+
+                        if(label[next] == NONE && walkable.get(nx, ny)) {
+                            if(tail == queue.length) {
+                                queue = Arrays.copyOf(queue, queue.length * 2);
+                                queues[0] = queue;
+                            }
+                            label[next] = region;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+            }
+
+            members[region] = Arrays.copyOf(queue, tail);
+            memberCount[region] = tail;
+
+            for(int i=0; i<tail; i++) {
+                position[queue[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Update the labels if a cell changed between walkable and blocked.
+     */
+    public void cellChanged(LayeredMap map, int layer, int x, int y,
+                            int oldValue, int newValue)
+    {
+        if(layer != walkable.getLayer()) {
+            return;
+        }
+
+        final int cell = y*width + x;
+        final boolean open = walkable.get(x, y);
+
+        if(open && label[cell] == NONE) {
+            addCell(cell);
+        } else if(open == false && label[cell] != NONE) {
+            removeCell(cell);
+        }
+    }
+
+    public void mapReplaced(LayeredMap map)
+    {
+        relabel();
+    }
+
+    /**
+     * A cell became walkable. Join the neighbour regions, the
+     * smaller ones are merged into the largest one.
+     */
+    private void addCell(final int cell)
+    {
+        final int x = cell % width;
+        final int y = cell / width;
+        final int directions = useDiagonals ? 8 : 4;
+
+        int largest = NONE;
+
+        for(int d=0; d<directions; d++) {
+            final int region = getRegion(x + DX[d], y + DY[d]);
+
+            if(region != NONE &&
+               (largest == NONE || memberCount[region] > memberCount[largest])) {
+                largest = region;
+            }
+        }
+
+        if(largest == NONE) {
+            largest = newRegion();
+        }
+
+        addMember(largest, cell);
+
+        for(int d=0; d<directions; d++) {
+            final int region = getRegion(x + DX[d], y + DY[d]);
+
+            if(region != NONE && region != largest) {
+                // Hajo: move all cells, the list shrinks from the end
+                while(memberCount[region] > 0) {
+                    final int other = members[region][memberCount[region] - 1];
+                    removeMember(other);
+                    addMember(largest, other);
+                }
+                freeRegion(region);
+            }
+        }
+    }
+
+    /**
+     * A cell became blocked. Search from all neighbours of the cell in
+     * the same region at once, one cell per search and round. Searches
+     * which meet are joined. When only one group of searches still
+     * has cells to visit, each finished group is a region of it's own.
+     */
+    private void removeCell(final int cell)
+    {
+        final int region = label[cell];
+        final int x = cell % width;
+        final int y = cell / width;
+        final int directions = useDiagonals ? 8 : 4;
+
+        removeMember(cell);
+
+        if(memberCount[region] == 0) {
+            freeRegion(region);
+            return;
+        }
+
+        nextGeneration();
+
+        int searches = 0;
+
+        for(int d=0; d<directions; d++) {
+            final int nx = x + DX[d];
+            final int ny = y + DY[d];
+
+            if(getRegion(nx, ny) == region) {
+                final int next = ny*width + nx;
+
+                visitStamp[next] = generation;
+                visitOwner[next] = searches;
+                queues[searches][0] = next;
+                queueHead[searches] = 0;
+                queueTail[searches] = 1;
+                group[searches] = searches;
+                searches ++;
+            }
+        }
+
+        while(true) {
+            int groups = 0;
+            int openGroups = 0;
+
+            for(int i=0; i<searches; i++) {
+                if(find(i) == i) {
+                    groups ++;
+
+                    if(isGroupOpen(i, searches)) {
+                        openGroups ++;
+                    }
+                }
+            }
+
+            if(groups <= 1) {
+                // Hajo: all searches met, the region is still connected
+                return;
+            }
+
+            if(openGroups <= 1) {
+                break;
+            }
+
+            for(int i=0; i<searches; i++) {
+                if(queueHead[i] < queueTail[i]) {
+                    step(i, region, directions);
+                }
+            }
+        }
+
+        // Hajo: the open group (or the largest, if all finished) keeps
+        // the region, all other groups become new regions
+        int keep = -1;
+        int keepSize = -1;
+
+        for(int i=0; i<searches; i++) {
+            if(find(i) == i) {
+                final int size = isGroupOpen(i, searches) ? Integer.MAX_VALUE :
+                                                            groupSize(i, searches);
+                if(size > keepSize) {
+                    keep = i;
+                    keepSize = size;
+                }
+            }
+        }
+
+        for(int i=0; i<searches; i++) {
+            if(find(i) == i && i != keep) {
+                final int newRegion = newRegion();
+
+                for(int s=0; s<searches; s++) {
+                    if(find(s) == i) {
+                        for(int q=0; q<queueTail[s]; q++) {
+                            final int moved = queues[s][q];
+                            removeMember(moved);
+                            addMember(newRegion, moved);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit the next cell of a split search.
+     */
+    private void step(final int search, final int region, final int directions)
+    {
+        final int cell = queues[search][queueHead[search]++];
+        final int x = cell % width;
+        final int y = cell / width;
+
+        for(int d=0; d<directions; d++) {
+            final int nx = x + DX[d];
+            final int ny = y + DY[d];
+
+            if(getRegion(nx, ny) != region) {
+                continue;
+            }
+
+            final int next = ny*width + nx;
+
+            if(visitStamp[next] == generation) {
+                final int a = find(search);
+                final int b = find(visitOwner[next]);
+
+                if(a != b) {
+                    group[Math.max(a, b)] = Math.min(a, b);
+                }
+            } else {
+                if(queueTail[search] == queues[search].length) {
+                    queues[search] = Arrays.copyOf(queues[search], queues[search].length * 2);
+                }
+
+                visitStamp[next] = generation;
+                visitOwner[next] = search;
+                queues[search][queueTail[search]++] = next;
+            }
+        }
+    }
+
+    private int find(int search)
+    {
+        while(group[search] != search) {
+            search = group[search];
+        }
+        return search;
+    }
+
+    /**
+     * @return true if a search of the group has cells left to visit.
+     */
+    private boolean isGroupOpen(final int root, final int searches)
+    {
+        for(int s=0; s<searches; s++) {
+            if(find(s) == root && queueHead[s] < queueTail[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int groupSize(final int root, final int searches)
+    {
+        int size = 0;
+
+        for(int s=0; s<searches; s++) {
+            if(find(s) == root) {
+                size += queueTail[s];
+            }
+        }
+        return size;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(visitStamp, 0);
+            generation = 1;
+        }
+    }
+
+    private int newRegion()
+    {
+        if(freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+
+        if(idCount == members.length) {
+            members = Arrays.copyOf(members, idCount * 2);
+            memberCount = Arrays.copyOf(memberCount, idCount * 2);
+        }
+
+        members[idCount] = new int [4];
+        memberCount[idCount] = 0;
+
+        return idCount++;
+    }
+
+    private void freeRegion(final int region)
+    {
+        if(freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+
+        // Hajo: keep the list small, merged regions can be big
+        members[region] = new int [4];
+        freeIds[freeCount++] = region;
+    }
+
+    private void addMember(final int region, final int cell)
+    {
+        final int n = memberCount[region];
+
+        if(n == members[region].length) {
+            members[region] = Arrays.copyOf(members[region], n * 2);
+        }
+
+        members[region][n] = cell;
+        memberCount[region] = n + 1;
+        position[cell] = n;
+        label[cell] = region;
+    }
+
+    private void removeMember(final int cell)
+    {
+        final int region = label[cell];
+        final int n = memberCount[region] - 1;
+        final int last = members[region][n];
+        final int pos = position[cell];
+
+        members[region][pos] = last;
+        position[last] = pos;
+        memberCount[region] = n;
+        label[cell] = NONE;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * ReservationTable.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Tells which agent will be in which map cell at which turn. Agents
+ * which plan their moves one after the other reserve their cells, so
+ * the agents which plan later can avoid them.
+ *
+ * Only reserved cells are stored, in a hash table with open
+ * addressing, so the table size depends on the number of agents and
+ * turns and not on the map size.
+ *
+ * This is not thread safe.
+ *
+ * @see CooperativePlanner
+ *
+ * @author Hj. Malthaner
+ */
+public class ReservationTable
+{
+    /** Owner of cells which aren't reserved */
+    public static final int NONE = -1;
+
+    /** Key of empty slots */
+    private static final long EMPTY = -1L;
+
+    private final int width;
+
+    /** Turn and cell of each slot, (turn << 32) | (y*width + x) */
+    private long [] keys;
+
+    /** Agent of each slot, NONE if the reservation was released */
+    private int [] owners;
+
+    /** Number of used slots, including released ones */
+    private int used;
+
+    /**
+     * Creates an empty reservation table.
+     *
+     * @param width The width of the map
+     */
+    public ReservationTable(int width)
+    {
+        this.width = width;
+
+        keys = new long [1024];
+        owners = new int [1024];
+
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Remove all reservations.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        used = 0;
+    }
+
+    /**
+     * Reserve a cell for an agent. An older reservation of the cell
+     * for this turn is replaced.
+     *
+     * @param x The X coordinate of the cell
+     * @param y The Y coordinate of the cell
+     * @param turn The turn, 0 or larger
+     * @param agent The agent, 0 or larger
+     */
+    public void reserve(int x, int y, int turn, int agent)
+    {
+        if((used + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        final long key = key(x, y, turn);
+        final int slot = find(key);
+
+        if(keys[slot] == EMPTY) {
+            keys[slot] = key;
+            used ++;
+        }
+        owners[slot] = agent;
+    }
+
+    /**
+     * Release the reservation of a cell, if the given agent holds it.
+     */
+    public void release(int x, int y, int turn, int agent)
+    {
+        final int slot = find(key(x, y, turn));
+
+        if(keys[slot] != EMPTY && owners[slot] == agent) {
+            // Hajo: the key stays, it may be in the way of other keys
+            owners[slot] = NONE;
+        }
+    }
+
+    /**
+     * @return The agent which reserved the cell for the turn, or NONE
+     */
+    public int getOwner(int x, int y, int turn)
+    {
+        final int slot = find(key(x, y, turn));
+        return keys[slot] == EMPTY ? NONE : owners[slot];
+    }
+
+    private long key(int x, int y, int turn)
+    {
+        return ((long)turn << 32) | (y*width + x);
+    }
+
+    /**
+     * @return The slot of the key, or the empty slot where it belongs
+     */
+    private int find(final long key)
+    {
+        final int mask = keys.length - 1;
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int)(hash >>> 32) & mask;
+
+        while(keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void grow()
+    {
+        final long [] oldKeys = keys;
+        final int [] oldOwners = owners;
+
+        keys = new long [oldKeys.length * 2];
+        owners = new int [oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        used = 0;
+
+        for(int i=0; i<oldKeys.length; i++) {
+            // Hajo: released reservations are dropped here
+            if(oldKeys[i] != EMPTY && oldOwners[i] != NONE) {
+                final int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                owners[slot] = oldOwners[i];
+                used ++;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * ResumableSearch.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+/**
+ * A path search which can be run in slices, e.g. a few hundred cells
+ * per frame of the game loop, so a long search doesn't block the
+ * thread which runs it. The search state is kept between the slices.
+ *
+ * The map should not change while a search is in progress, else the
+ * path can be based on old and new map data.
+ *
+ * @author Hj. Malthaner
+ */
+public interface ResumableSearch
+{
+    /** The search needs more steps */
+    public static final int IN_PROGRESS = 0;
+
+    /** The search is done, the path has been set up */
+    public static final int FOUND = 1;
+
+    /** The search is done, there is no path */
+    public static final int FAILED = 2;
+
+    /**
+     * Begin a new search. Nothing is expanded yet, call step() to
+     * run the search. A search which was in progress is dropped.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reached the destination.
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     */
+    public void startSearch(PathSource pathSource,
+                            PathDestination pathDestination,
+                            int sx, int sy);
+
+    /**
+     * Continue the search.
+     *
+     * @param budget The most cells to expand in this call
+     * @return IN_PROGRESS, FOUND or FAILED. Once the search is done,
+     *         further calls return the same result.
+     */
+    public int step(int budget);
+}
@@ -0,0 +1,392 @@
+/*
+ * WeightedPath.java
+ *
+ * Created on 2026/10/18
+ *
+ * Copyright (c) Hansjoerg Malthaner
+ * <h_malthaner@users.sourceforge.net>
+ *
+ * This file is part of the Roguelike Game Kit project.
+ *
+ * For details, please read the license.txt file.
+ */
+
+package rgegame.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A pathfinder for maps where moves have small integer costs. If the
+ * path source is a PathCostSource, the path with the least total cost
+ * is found, otherwise every allowed move costs 1 and the paths have
+ * the same number of steps as the breadth-first paths.
+ *
+ * The open list is a bucket queue (Dial's algorithm): a ring of
+ * buckets, one per possible estimate in a window which is as wide as
+ * the largest step an estimate can make. Taking the next cell is a
+ * look into the current bucket instead of a heap operation. Cells
+ * whose cost got lower stay in their old bucket and are skipped later.
+ *
+ * For a CoordinatePathDestination the search is aimed at the
+ * destination with an estimate of the lowest move cost times the
+ * number of steps left, for other destinations it expands in all
+ * directions.
+ *
+ * The search can also be run in slices, see ResumableSearch.
+ *
+ * Like Path, this is not reentrant.
+ *
+ * @author Hj. Malthaner
+ */
+public class WeightedPath extends Path implements ResumableSearch
+{
+    /** Estimate of cells which have been expanded */
+    private static final int CLOSED = -1;
+
+    /** Same move order as the breadth first search, cardinals first */
+    private static final int [] DX = {1, 0, -1, 0, 1, 1, -1, -1};
+    private static final int [] DY = {0, 1, 0, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+
+    /** Cost of the best known path from the start to each cell */
+    private final int [] cost;
+
+    /** Cost plus estimated remaining cost for each cell, or CLOSED */
+    private final int [] estimate;
+
+    /** Predecessor of each cell on the best known path, -1 for the start */
+    private final int [] parent;
+
+    /** Generation in which the cell data was last written */
+    private final int [] stamp;
+
+    private int generation;
+
+    /** Ring of buckets, cells by estimate modulo the ring size */
+    private int [][] buckets;
+    private int [] bucketSize;
+
+    /** Cells of the found path, destination first */
+    private int [] trace;
+
+    /** Number of cells expanded by the last search */
+    private int expanded;
+
+    /** State of the search, IN_PROGRESS, FOUND or FAILED */
+    private int state = FAILED;
+
+    /** The search in progress */
+    private PathSource searchSource;
+    private PathCostSource costSource;
+    private PathDestination searchDestination;
+    private boolean hasGoal;
+    private int gx;
+    private int gy;
+    private int minCost;
+
+    /** Size of the bucket ring of the search in progress */
+    private int ring;
+
+    /** Estimate of the current bucket, and number of queued cells */
+    private int current;
+    private int queued;
+
+    /**
+     * Creates a new weighted path with no nodes.
+     *
+     * @param width The width of the maps to search
+     * @param height The height of the maps to search
+     */
+    public WeightedPath(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+
+        cost = new int [size];
+        estimate = new int [size];
+        parent = new int [size];
+        stamp = new int [size];
+        trace = new int [64];
+
+        buckets = new int [0][];
+        bucketSize = new int [0];
+    }
+
+    /**
+     * @return The number of cells expanded by the last search.
+     */
+    public int getExpandedCount()
+    {
+        return expanded;
+    }
+
+    /**
+     * @return The total cost of the path found by the last search.
+     *         Only valid if a path was found.
+     */
+    public int getCost()
+    {
+        if(size() == 0) {
+            return 0;
+        }
+
+        final Node last = getStep(size() - 1);
+        return cost[last.y*width + last.x];
+    }
+
+    /**
+     * Cheapest path search. Cells outside the map size are never entered.
+     *
+     * @param pathSource the pathSource to search
+     * @param pathDestination to check weather a pathfinding step
+     *                        reachded the destination.
+     *
+     * @param sx Source x-coordinate
+     * @param sy Source y-coordinate
+     *
+     * @return true if path was found, false otherwise
+     */
+    @Override
+    public boolean findPath(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        startSearch(pathSource, pathDestination, sx, sy);
+        return step(Integer.MAX_VALUE) == FOUND;
+    }
+
+    public void startSearch(final PathSource pathSource,
+                            final PathDestination pathDestination,
+                            int sx, int sy)
+    {
+        clear();
+        expanded = 0;
+
+        searchSource = pathSource;
+        searchDestination = pathDestination;
+
+        if(sx < 0 || sy < 0 || sx >= width || sy >= height) {
+            state = FAILED;
+            return;
+        }
+
+        costSource = pathSource instanceof PathCostSource ?
+                (PathCostSource)pathSource : null;
+
+        minCost = costSource != null ? costSource.getMinMoveCost() : 1;
+        final int maxCost = costSource != null ? costSource.getMaxMoveCost() : 1;
+
+        hasGoal = pathDestination instanceof CoordinatePathDestination;
+        gx = 0;
+        gy = 0;
+
+        if(hasGoal) {
+            gx = ((CoordinatePathDestination)pathDestination).getX();
+            gy = ((CoordinatePathDestination)pathDestination).getY();
+        }
+
+        // Hajo: one step raises the estimate by at most the move cost
+        // plus the change of the remaining estimate
+        ring = maxCost + (hasGoal ? minCost : 0) + 1;
+        prepareBuckets(ring);
+
+        nextGeneration();
+
+        final int start = sy*width + sx;
+        stamp[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        estimate[start] = hasGoal ? minCost * distance(sx, sy, gx, gy, isUseDiagonals()) : 0;
+
+        current = estimate[start];
+        queued = 1;
+        push(start, current % ring);
+
+        state = IN_PROGRESS;
+    }
+
+    public int step(int budget)
+    {
+        if(state != IN_PROGRESS) {
+            return state;
+        }
+
+        final PathSource pathSource = searchSource;
+        final PathDestination pathDestination = searchDestination;
+        final boolean diagonals = isUseDiagonals();
+        final int directions = diagonals ? 8 : 4;
+        final boolean aimed = hasGoal;
+        final int tx = gx;
+        final int ty = gy;
+        final PathCostSource costs = costSource;
+        final int minStep = minCost;
+
+        while(queued > 0) {
+            final int slot = current % ring;
+
+            if(bucketSize[slot] == 0) {
+                current ++;
+                continue;
+            }
+
+            if(budget <= 0) {
+                return IN_PROGRESS;
+            }
+
+            final int cell = buckets[slot][--bucketSize[slot]];
+            queued --;
+
+            if(estimate[cell] != current) {
+                // Hajo: outdated entry, or already expanded
+                continue;
+            }
+
+            estimate[cell] = CLOSED;
+            expanded ++;
+            budget --;
+
+            final int x = cell % width;
+            final int y = cell / width;
+
+            if(pathDestination.isDestinationReached(x, y)) {
+                unwind(cell);
+                clearBuckets(ring);
+                return finish(FOUND);
+            }
+
+            for(int d=0; d<directions; d++) {
+                final int nx = x + DX[d];
+                final int ny = y + DY[d];
+
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                final int next = ny*width + nx;
+                final boolean seen = stamp[next] == generation;
+
+                if(seen && estimate[next] == CLOSED) {
+                    continue;
+                }
+
+                if(pathSource.isMoveAllowed(x, y, nx, ny) == false) {
+                    continue;
+                }
+
+                final int newCost = cost[cell] +
+                        (costs != null ? costs.getMoveCost(x, y, nx, ny) : 1);
+
+                if(seen && newCost >= cost[next]) {
+                    continue;
+                }
+
+                stamp[next] = generation;
+                cost[next] = newCost;
+                parent[next] = cell;
+                estimate[next] = newCost +
+                        (aimed ? minStep * distance(nx, ny, tx, ty, diagonals) : 0);
+
+                push(next, estimate[next] % ring);
+                queued ++;
+            }
+        }
+
+        return finish(FAILED);
+    }
+
+    /**
+     * End the search, the sources and destination aren't needed anymore.
+     */
+    private int finish(final int result)
+    {
+        searchSource = null;
+        searchDestination = null;
+        costSource = null;
+        state = result;
+        return result;
+    }
+
+    /**
+     * Number of steps from (x, y) to the goal on an empty map.
+     */
+    private static int distance(int x, int y, int gx, int gy, boolean diagonals)
+    {
+        final int dx = Math.abs(gx - x);
+        final int dy = Math.abs(gy - y);
+
+        return diagonals ? Math.max(dx, dy) : dx + dy;
+    }
+
+    /**
+     * Add the steps from the start to the given cell to this path.
+     */
+    private void unwind(int cell)
+    {
+        int n = 0;
+
+        while(cell != -1) {
+            if(n == trace.length) {
+                trace = Arrays.copyOf(trace, n * 2);
+            }
+            trace[n++] = cell;
+            cell = parent[cell];
+        }
+
+        while(n > 0) {
+            final int c = trace[--n];
+            addStep(c % width, c / width);
+        }
+    }
+
+    private void prepareBuckets(final int ring)
+    {
+        if(buckets.length < ring) {
+            final int old = buckets.length;
+
+            buckets = Arrays.copyOf(buckets, ring);
+            bucketSize = Arrays.copyOf(bucketSize, ring);
+
+            for(int i=old; i<ring; i++) {
+                buckets[i] = new int [64];
+            }
+        }
+
+        clearBuckets(ring);
+    }
+
+    private void clearBuckets(final int ring)
+    {
+        for(int i=0; i<ring; i++) {
+            bucketSize[i] = 0;
+        }
+    }
+
+    private void push(final int cell, final int slot)
+    {
+        int [] bucket = buckets[slot];
+        final int n = bucketSize[slot];
+
+        if(n == bucket.length) {
+            bucket = Arrays.copyOf(bucket, n * 2);
+            buckets[slot] = bucket;
+        }
+
+        bucket[n] = cell;
+        bucketSize[slot] = n + 1;
+    }
+
+    private void nextGeneration()
+    {
+        generation ++;
+
+        if(generation == 0) {
+            // Hajo: counter wrapped, old stamps could match again
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+}